@@ -23,6 +23,20 @@ CREATE TABLE IF NOT EXISTS HTML (
 
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='Almacena las páginas HTML del servidor híbrido';
 
+-- Alternativa con claves binarias (db.binaryKeys=true): los UUID ocupan 16
+-- bytes en lugar de hasta 144 en la clave primaria y en los índices. Las
+-- tablas existentes se convierten con:
+--   java es.uvigo.esei.dai.hybridserver.Launcher --migrate-keys config.props
+-- CREATE TABLE IF NOT EXISTS HTML (
+--     uuid BINARY(16) PRIMARY KEY,
+--     content TEXT NOT NULL
+-- ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+-- (igual para XML y XSD; en XSL la columna xsd también es BINARY(16))
+
+-- Las columnas y tablas de los metadatos, la compresión y la deduplicación
+-- (db.metadata, db.compression y db.deduplication) se añaden con
+-- migrate-database.sql
+
 -- Insertar páginas de prueba requeridas por los tests
 -- Estas son las 10 páginas que espera ClientRequestsWithDatabaseTest
 INSERT INTO HTML (uuid, content) VALUES 
@@ -0,0 +1,60 @@
+-- Script para adaptar las tablas de documentos del Hybrid Server a las
+-- opciones de almacenamiento de config-database.props
+-- MySQL 8+
+--
+-- Cada bloque corresponde a una opción y se ejecuta una sola vez, antes de
+-- arrancar el servidor con ella activada (MySQL no admite ADD COLUMN IF NOT
+-- EXISTS). Los bloques que no se vayan a usar pueden borrarse o comentarse.
+-- Las filas existentes no cambian: se siguen leyendo igual.
+--
+-- Claves binarias (db.binaryKeys=true): las tablas con datos se convierten
+-- en caliente, sin este script, con:
+--   java es.uvigo.esei.dai.hybridserver.Launcher --migrate-keys config.props
+
+USE hstestdb;
+
+-- Metadatos (db.metadata=true; también lo necesitan db.compression y
+-- db.deduplication): tamaño en bytes, SHA-256 del contenido y fecha de
+-- creación. Admiten nulos para las filas anteriores.
+ALTER TABLE HTML ADD COLUMN size BIGINT NULL, ADD COLUMN hash CHAR(64) NULL, ADD COLUMN created TIMESTAMP NULL;
+ALTER TABLE XML ADD COLUMN size BIGINT NULL, ADD COLUMN hash CHAR(64) NULL, ADD COLUMN created TIMESTAMP NULL;
+ALTER TABLE XSD ADD COLUMN size BIGINT NULL, ADD COLUMN hash CHAR(64) NULL, ADD COLUMN created TIMESTAMP NULL;
+ALTER TABLE XSL ADD COLUMN size BIGINT NULL, ADD COLUMN hash CHAR(64) NULL, ADD COLUMN created TIMESTAMP NULL;
+
+-- Compresión (db.compression=true): contenido comprimido y diccionario
+-- usado. doc_table guarda el nombre de la tabla de documentos, así que admite
+-- cualquier identificador de MySQL (hasta 64 caracteres). Los diccionarios se
+-- entrenan con:
+--   java es.uvigo.esei.dai.hybridserver.Launcher --train-dictionaries config.props
+CREATE TABLE IF NOT EXISTS DICTIONARY (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    doc_table VARCHAR(64) NOT NULL,
+    content BLOB NOT NULL,
+    INDEX (doc_table, id)
+) ENGINE=InnoDB;
+-- Si DICTIONARY se creó con doc_table VARCHAR(8):
+-- ALTER TABLE DICTIONARY MODIFY doc_table VARCHAR(64) NOT NULL;
+
+ALTER TABLE HTML MODIFY content TEXT NULL, ADD COLUMN content_z LONGBLOB NULL, ADD COLUMN dict INT NULL;
+ALTER TABLE XML MODIFY content TEXT NULL, ADD COLUMN content_z LONGBLOB NULL, ADD COLUMN dict INT NULL;
+ALTER TABLE XSD MODIFY content TEXT NULL, ADD COLUMN content_z LONGBLOB NULL, ADD COLUMN dict INT NULL;
+ALTER TABLE XSL MODIFY content TEXT NULL, ADD COLUMN content_z LONGBLOB NULL, ADD COLUMN dict INT NULL;
+
+-- Deduplicación (db.deduplication=true): cada contenido distinto se guarda
+-- una vez, por su SHA-256, con el número de documentos que lo referencian.
+-- Sin db.compression, las columnas content_z y dict quedan siempre a nulo.
+ALTER TABLE HTML MODIFY content TEXT NULL;
+ALTER TABLE XML MODIFY content TEXT NULL;
+ALTER TABLE XSD MODIFY content TEXT NULL;
+ALTER TABLE XSL MODIFY content TEXT NULL;
+
+CREATE TABLE IF NOT EXISTS HTML_CONTENT (
+    hash CHAR(64) PRIMARY KEY,
+    refs INT NOT NULL,
+    content LONGTEXT NULL,
+    content_z LONGBLOB NULL,
+    dict INT NULL
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+CREATE TABLE IF NOT EXISTS XML_CONTENT LIKE HTML_CONTENT;
+CREATE TABLE IF NOT EXISTS XSD_CONTENT LIKE HTML_CONTENT;
+CREATE TABLE IF NOT EXISTS XSL_CONTENT LIKE HTML_CONTENT;
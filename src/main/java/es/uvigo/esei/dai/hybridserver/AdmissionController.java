@@ -0,0 +1,60 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limita el número de conexiones simultáneas admitidas desde una misma IP.
+ * Cada {@link #tryAcquire(InetAddress)} con éxito debe liberarse con
+ * {@link #release(InetAddress)} cuando la conexión termina.
+ */
+public class AdmissionController {
+  private final int maxPerClient;
+  private final ConcurrentMap<InetAddress, AtomicInteger> connections;
+
+  public AdmissionController(int maxPerClient) {
+    this.maxPerClient = maxPerClient;
+    this.connections = new ConcurrentHashMap<>();
+  }
+
+  public boolean tryAcquire(InetAddress address) {
+    if (maxPerClient <= 0 || address == null) {
+      return true;
+    }
+
+    final AtomicInteger counter = connections.computeIfAbsent(address, key -> new AtomicInteger());
+    if (counter.incrementAndGet() > maxPerClient) {
+      release(address);
+      return false;
+    }
+    return true;
+  }
+
+  public void release(InetAddress address) {
+    if (maxPerClient <= 0 || address == null) {
+      return;
+    }
+
+    // Se elimina la entrada al llegar a 0 para no acumular IPs antiguas
+    connections.computeIfPresent(address, (key, counter) -> counter.decrementAndGet() <= 0 ? null : counter);
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ejecutor con hilos y cola acotados dedicado a un tipo de trabajo (consultas
+ * a la base de datos, transformaciones...), de modo que cuando uno se satura
+ * no deja sin hilos a los demás. Con la cola llena, o tras cerrarlo, el
+ * trabajo se rechaza con {@link RejectedExecutionException} o, si así se
+ * indica al crearlo, se ejecuta en el hilo que lo envía. Cuenta los trabajos
+ * terminados y rechazados y el tiempo que esperan en la cola.
+ */
+public class Bulkhead implements Executor {
+  private final String name;
+  private final boolean callerRunsWhenFull;
+  private final ThreadPoolExecutor executor;
+
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder callerRuns = new LongAdder();
+  private final LongAdder queueWaitCount = new LongAdder();
+  private final LongAdder queueWaitTotalNanos = new LongAdder();
+  private final LongAccumulator queueWaitMaxNanos = new LongAccumulator(Math::max, 0L);
+
+  /**
+   * @param name Nombre del ejecutor, usado en el de sus hilos
+   * @param threads Número máximo de hilos
+   * @param queueSize Trabajos que pueden esperar en cola
+   * @param callerRunsWhenFull Si con la cola llena el trabajo se ejecuta en
+   * el hilo que lo envía en lugar de rechazarse
+   */
+  public Bulkhead(String name, int threads, int queueSize, boolean callerRunsWhenFull) {
+    this.name = name;
+    this.callerRunsWhenFull = callerRunsWhenFull;
+
+    final AtomicInteger created = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+      threads, threads, 30L, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+      task -> {
+        final Thread thread = new Thread(task, "hybridserver-" + name + "-" + created.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      },
+      (task, pool) -> {
+        if (this.callerRunsWhenFull) {
+          callerRuns.increment();
+          task.run();
+        } else {
+          rejected.increment();
+          throw new RejectedExecutionException("Ejecutor " + this.name + " saturado");
+        }
+      }
+    );
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    final long queued = System.nanoTime();
+    executor.execute(() -> {
+      final long wait = System.nanoTime() - queued;
+      queueWaitCount.increment();
+      queueWaitTotalNanos.add(wait);
+      queueWaitMaxNanos.accumulate(wait);
+      try {
+        task.run();
+      } finally {
+        completed.increment();
+      }
+    });
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getActiveCount() {
+    return executor.getActiveCount();
+  }
+
+  public int getQueueSize() {
+    return executor.getQueue().size();
+  }
+
+  public long getCompleted() {
+    return completed.sum();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public long getCallerRuns() {
+    return callerRuns.sum();
+  }
+
+  public double getAverageQueueWaitMillis() {
+    final long count = queueWaitCount.sum();
+    return count == 0 ? 0d : (double) queueWaitTotalNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public double getMaxQueueWaitMillis() {
+    return (double) queueWaitMaxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * Deja de aceptar trabajos e interrumpe los que están en curso.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "hilos=%d, activos=%d, en cola=%d, terminados=%d, rechazados=%d, en el hilo llamante=%d, "
+        + "espera media en cola=%.2fms, espera máxima en cola=%.2fms",
+      executor.getMaximumPoolSize(), getActiveCount(), getQueueSize(), getCompleted(), getRejected(),
+      getCallerRuns(), getAverageQueueWaitMillis(), getMaxQueueWaitMillis()
+    );
+  }
+}
@@ -0,0 +1,75 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import es.uvigo.esei.dai.hybridserver.http.ContentEncoding;
+
+/**
+ * Caché de los cuerpos ya comprimidos de los documentos almacenados, para
+ * que los documentos más solicitados se compriman una sola vez y no en cada
+ * GET. Se limita por el tamaño total de los cuerpos almacenados y descarta
+ * primero los usados hace más tiempo.
+ */
+public class CompressedBodyCache {
+  private final long maxBytes;
+  private final LinkedHashMap<String, byte[]> bodies;
+  private long currentBytes;
+
+  public CompressedBodyCache(long maxBytes) {
+    this.maxBytes = maxBytes;
+    this.bodies = new LinkedHashMap<>(16, 0.75f, true);
+    this.currentBytes = 0;
+  }
+
+  public synchronized byte[] get(DocumentType type, String uuid, ContentEncoding encoding) {
+    return bodies.get(key(type, uuid, encoding));
+  }
+
+  public synchronized void put(DocumentType type, String uuid, ContentEncoding encoding, byte[] body) {
+    if (body.length > maxBytes) {
+      return;
+    }
+
+    final byte[] previous = bodies.put(key(type, uuid, encoding), body);
+    currentBytes += body.length - (previous == null ? 0 : previous.length);
+
+    // Descartar las entradas menos usadas hasta volver al límite
+    final Iterator<Map.Entry<String, byte[]>> eldest = bodies.entrySet().iterator();
+    while (currentBytes > maxBytes && eldest.hasNext()) {
+      currentBytes -= eldest.next().getValue().length;
+      eldest.remove();
+    }
+  }
+
+  public synchronized void remove(DocumentType type, String uuid) {
+    for (ContentEncoding encoding : ContentEncoding.values()) {
+      final byte[] removed = bodies.remove(key(type, uuid, encoding));
+      if (removed != null) {
+        currentBytes -= removed.length;
+      }
+    }
+  }
+
+  private static String key(DocumentType type, String uuid, ContentEncoding encoding) {
+    return type.getPath() + ':' + uuid + ':' + encoding.getName();
+  }
+}
@@ -20,6 +20,8 @@ package es.uvigo.esei.dai.hybridserver;
 import java.util.ArrayList;
 import java.util.List;
 
+import es.uvigo.esei.dai.hybridserver.dao.ReplicaRouter;
+
 public class Configuration {
   private int httpPort;
   private int numClients;
@@ -31,6 +33,71 @@ public class Configuration {
 
   private List<ServerConfiguration> servers;
 
+  // Control de admisión: cola acotada, política de rechazo y límite por cliente
+  private int queueSize = 100;
+  private RejectionPolicy rejectionPolicy = RejectionPolicy.REJECT;
+  private int maxConnectionsPerClient = 0;
+  private int retryAfter = 1;
+
+  // Plazo (ms) para terminar las peticiones en curso al cerrar el servidor
+  private long drainTimeout = 5000;
+
+  // Fichero con los documentos más solicitados, que se precargan al arrancar
+  private String warmupFile = null;
+  private int warmupSize = 100;
+
+  // Compresión de respuestas: tamaño mínimo (bytes) y caché de cuerpos comprimidos (bytes)
+  private boolean compressionEnabled = true;
+  private int compressionThreshold = 1024;
+  private long compressionCacheSize = 32L * 1024 * 1024;
+  private long streamingThreshold = 1024L * 1024;
+  private boolean keepAlive = false;
+  private int keepAliveTimeout = 5000;
+  private int pipelineDepth = 8;
+  // Tamaño máximo (bytes) del cuerpo de una petición (0 = sin límite)
+  private long maxBodySize = 100L * 1024 * 1024;
+  // Ejecutor de las transformaciones y validaciones: hilos (0 = uno por
+  // núcleo) y trabajos que pueden esperar en cola antes de responder 503
+  private int cpuThreads = 0;
+  private int cpuQueueSize = 64;
+
+  // Conexiones a la base de datos: conexiones libres que se conservan,
+  // conexiones en uso a la vez (0 = sin límite), espera máxima (ms) a una
+  // libre y sentencias preparadas en caché por conexión (0 = sin caché)
+  private int dbPoolSize = 16;
+  private int dbMaxConnections = 100;
+  private long dbMaxWait = 5000;
+  private int prepStmtCacheSize = 250;
+  // Claves de los documentos guardadas como BINARY(16) en lugar de VARCHAR(36)
+  private boolean binaryKeys = false;
+  // Columnas de metadatos (tamaño, hash, fecha de creación) en las tablas de documentos
+  private boolean documentMetadata = false;
+  // Contenido de los documentos nuevos guardado comprimido (implica los metadatos)
+  private boolean storageCompression = false;
+  // Contenido guardado una sola vez por hash (implica los metadatos)
+  private boolean storageDeduplication = false;
+  // Group commit de los documentos nuevos: espera máxima (ms, 0 = desactivado)
+  // y número máximo de documentos por transacción
+  private int groupCommitMaxDelay = 0;
+  private int groupCommitBatchSize = 64;
+  // Réplicas de solo lectura: URLs JDBC, política de reparto, tiempo tras una
+  // escritura en el que se lee del primario (ms) y retraso máximo admitido
+  // (segundos, 0 = no se comprueba)
+  private List<String> dbReplicas = new ArrayList<>();
+  private ReplicaRouter.Policy replicaPolicy = ReplicaRouter.Policy.ROUND_ROBIN;
+  private int replicaReadYourWrites = 5000;
+  private int replicaMaxLag = 30;
+  // Shards añadidos a la base de datos principal (URLs JDBC); los documentos
+  // se reparten entre todos por el hash de su UUID
+  private List<String> dbShards = new ArrayList<>();
+  // Consultas asíncronas (AsyncPageDAO): hilos dedicados y consultas que
+  // pueden esperar en cola (0 hilos = se hacen en el hilo que las pide)
+  private int dbAsyncThreads = 8;
+  private int dbAsyncQueueSize = 256;
+
+  // Generador de los UUID de los documentos nuevos
+  private IdGenerator idGenerator = IdGenerator.RANDOM;
+
   public Configuration() {
     this(8888, 50, null, "hsdb", "hsdbpass", "jdbc:mysql://localhost:3306/hstestdb", new ArrayList<>());
   }
@@ -103,4 +170,291 @@ public class Configuration {
   public void setServers(List<ServerConfiguration> servers) {
     this.servers = servers;
   }
+
+  public int getQueueSize() {
+    return queueSize;
+  }
+
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  public RejectionPolicy getRejectionPolicy() {
+    return rejectionPolicy;
+  }
+
+  public void setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+    this.rejectionPolicy = rejectionPolicy;
+  }
+
+  /**
+   * Número máximo de conexiones simultáneas (en cola o en proceso) que se
+   * admiten desde una misma IP. Un valor menor o igual que 0 indica sin límite.
+   */
+  public int getMaxConnectionsPerClient() {
+    return maxConnectionsPerClient;
+  }
+
+  public void setMaxConnectionsPerClient(int maxConnectionsPerClient) {
+    this.maxConnectionsPerClient = maxConnectionsPerClient;
+  }
+
+  /**
+   * Segundos que se indican en la cabecera Retry-After de las respuestas 503.
+   */
+  public int getRetryAfter() {
+    return retryAfter;
+  }
+
+  public void setRetryAfter(int retryAfter) {
+    this.retryAfter = retryAfter;
+  }
+
+  public long getDrainTimeout() {
+    return drainTimeout;
+  }
+
+  public void setDrainTimeout(long drainTimeout) {
+    this.drainTimeout = drainTimeout;
+  }
+
+  public String getWarmupFile() {
+    return warmupFile;
+  }
+
+  public void setWarmupFile(String warmupFile) {
+    this.warmupFile = warmupFile;
+  }
+
+  public int getWarmupSize() {
+    return warmupSize;
+  }
+
+  public void setWarmupSize(int warmupSize) {
+    this.warmupSize = warmupSize;
+  }
+
+  public boolean isCompressionEnabled() {
+    return compressionEnabled;
+  }
+
+  public void setCompressionEnabled(boolean compressionEnabled) {
+    this.compressionEnabled = compressionEnabled;
+  }
+
+  public int getCompressionThreshold() {
+    return compressionThreshold;
+  }
+
+  public void setCompressionThreshold(int compressionThreshold) {
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  public long getCompressionCacheSize() {
+    return compressionCacheSize;
+  }
+
+  public void setCompressionCacheSize(long compressionCacheSize) {
+    this.compressionCacheSize = compressionCacheSize;
+  }
+
+  public long getStreamingThreshold() {
+    return streamingThreshold;
+  }
+
+  public void setStreamingThreshold(long streamingThreshold) {
+    this.streamingThreshold = streamingThreshold;
+  }
+
+  public boolean isKeepAlive() {
+    return keepAlive;
+  }
+
+  public void setKeepAlive(boolean keepAlive) {
+    this.keepAlive = keepAlive;
+  }
+
+  public long getMaxBodySize() {
+    return maxBodySize;
+  }
+
+  public void setMaxBodySize(long maxBodySize) {
+    this.maxBodySize = maxBodySize;
+  }
+
+  public int getKeepAliveTimeout() {
+    return keepAliveTimeout;
+  }
+
+  public void setKeepAliveTimeout(int keepAliveTimeout) {
+    this.keepAliveTimeout = keepAliveTimeout;
+  }
+
+  public int getPipelineDepth() {
+    return pipelineDepth;
+  }
+
+  public void setPipelineDepth(int pipelineDepth) {
+    this.pipelineDepth = pipelineDepth;
+  }
+
+  public int getCpuThreads() {
+    return cpuThreads;
+  }
+
+  public void setCpuThreads(int cpuThreads) {
+    this.cpuThreads = cpuThreads;
+  }
+
+  public int getCpuQueueSize() {
+    return cpuQueueSize;
+  }
+
+  public void setCpuQueueSize(int cpuQueueSize) {
+    this.cpuQueueSize = cpuQueueSize;
+  }
+
+  public int getDbMaxConnections() {
+    return dbMaxConnections;
+  }
+
+  public void setDbMaxConnections(int dbMaxConnections) {
+    this.dbMaxConnections = dbMaxConnections;
+  }
+
+  public long getDbMaxWait() {
+    return dbMaxWait;
+  }
+
+  public void setDbMaxWait(long dbMaxWait) {
+    this.dbMaxWait = dbMaxWait;
+  }
+
+  public int getDbPoolSize() {
+    return dbPoolSize;
+  }
+
+  public void setDbPoolSize(int dbPoolSize) {
+    this.dbPoolSize = dbPoolSize;
+  }
+
+  public int getPrepStmtCacheSize() {
+    return prepStmtCacheSize;
+  }
+
+  public void setPrepStmtCacheSize(int prepStmtCacheSize) {
+    this.prepStmtCacheSize = prepStmtCacheSize;
+  }
+
+  public IdGenerator getIdGenerator() {
+    return idGenerator;
+  }
+
+  public void setIdGenerator(IdGenerator idGenerator) {
+    this.idGenerator = idGenerator;
+  }
+
+  public boolean isBinaryKeys() {
+    return binaryKeys;
+  }
+
+  public void setBinaryKeys(boolean binaryKeys) {
+    this.binaryKeys = binaryKeys;
+  }
+
+  public boolean isDocumentMetadata() {
+    return documentMetadata;
+  }
+
+  public void setDocumentMetadata(boolean documentMetadata) {
+    this.documentMetadata = documentMetadata;
+  }
+
+  public boolean isStorageCompression() {
+    return storageCompression;
+  }
+
+  public void setStorageCompression(boolean storageCompression) {
+    this.storageCompression = storageCompression;
+  }
+
+  public boolean isStorageDeduplication() {
+    return storageDeduplication;
+  }
+
+  public void setStorageDeduplication(boolean storageDeduplication) {
+    this.storageDeduplication = storageDeduplication;
+  }
+
+  public int getGroupCommitMaxDelay() {
+    return groupCommitMaxDelay;
+  }
+
+  public void setGroupCommitMaxDelay(int groupCommitMaxDelay) {
+    this.groupCommitMaxDelay = groupCommitMaxDelay;
+  }
+
+  public List<String> getDbReplicas() {
+    return dbReplicas;
+  }
+
+  public void setDbReplicas(List<String> dbReplicas) {
+    this.dbReplicas = dbReplicas;
+  }
+
+  public List<String> getDbShards() {
+    return dbShards;
+  }
+
+  public void setDbShards(List<String> dbShards) {
+    this.dbShards = dbShards;
+  }
+
+  public int getDbAsyncThreads() {
+    return dbAsyncThreads;
+  }
+
+  public void setDbAsyncThreads(int dbAsyncThreads) {
+    this.dbAsyncThreads = dbAsyncThreads;
+  }
+
+  public int getDbAsyncQueueSize() {
+    return dbAsyncQueueSize;
+  }
+
+  public void setDbAsyncQueueSize(int dbAsyncQueueSize) {
+    this.dbAsyncQueueSize = dbAsyncQueueSize;
+  }
+
+  public ReplicaRouter.Policy getReplicaPolicy() {
+    return replicaPolicy;
+  }
+
+  public void setReplicaPolicy(ReplicaRouter.Policy replicaPolicy) {
+    this.replicaPolicy = replicaPolicy;
+  }
+
+  public int getReplicaReadYourWrites() {
+    return replicaReadYourWrites;
+  }
+
+  public void setReplicaReadYourWrites(int replicaReadYourWrites) {
+    this.replicaReadYourWrites = replicaReadYourWrites;
+  }
+
+  public int getReplicaMaxLag() {
+    return replicaMaxLag;
+  }
+
+  public void setReplicaMaxLag(int replicaMaxLag) {
+    this.replicaMaxLag = replicaMaxLag;
+  }
+
+  public int getGroupCommitBatchSize() {
+    return groupCommitBatchSize;
+  }
+
+  public void setGroupCommitBatchSize(int groupCommitBatchSize) {
+    this.groupCommitBatchSize = groupCommitBatchSize;
+  }
 }
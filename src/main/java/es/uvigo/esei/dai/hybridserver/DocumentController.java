@@ -0,0 +1,1133 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+
+import org.xml.sax.SAXException;
+
+import es.uvigo.esei.dai.hybridserver.dao.ContentDigestReader;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentStore;
+import es.uvigo.esei.dai.hybridserver.dao.GroupCommitter;
+import es.uvigo.esei.dai.hybridserver.dao.PageDAO;
+import es.uvigo.esei.dai.hybridserver.dao.PageMetadata;
+import es.uvigo.esei.dai.hybridserver.dao.ReplicaRouter;
+import es.uvigo.esei.dai.hybridserver.dao.StoredPage;
+import es.uvigo.esei.dai.hybridserver.http.ContentEncoding;
+import es.uvigo.esei.dai.hybridserver.http.HTTPContentTooLargeException;
+import es.uvigo.esei.dai.hybridserver.http.FormFieldInputStream;
+import es.uvigo.esei.dai.hybridserver.http.HTTPRequest;
+import es.uvigo.esei.dai.hybridserver.http.HTTPRequestMethod;
+import es.uvigo.esei.dai.hybridserver.http.HTTPResponse;
+import es.uvigo.esei.dai.hybridserver.http.HTTPResponseStatus;
+import es.uvigo.esei.dai.hybridserver.http.StreamingContent;
+
+/**
+ * Genera las respuestas de las rutas de documentos (listado, consulta,
+ * transformación, creación y borrado), de la página principal y de las
+ * rutas de administración. Hay una instancia por servidor, compartida por
+ * todas las conexiones, y sus métodos se registran como manejadores en el
+ * {@link Router} del servidor.
+ */
+public class DocumentController {
+    // Los documentos se identifican por UUID y nunca cambian de contenido
+    private static final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    // Páginas fijas, precompiladas a bytes: por petición solo se codifican
+    // las partes variables
+    private static final byte[] WELCOME_PAGE = ("<html>" +
+            "<head><title>Pagina Principal - Hybrid Server</title></head>" +
+            "<body>" +
+            "<h1>Hybrid Server</h1>" +
+            "<h2>Servidor HTTP en Java</h2>" +
+            "<p>Bienvenido al servidor hibrido de documentos</p>" +
+            "<div>" +
+            "<h3>Tipos de documentos disponibles:</h3>" +
+            "<ul>" +
+            "<li><a href='/html'>Páginas HTML</a></li>" +
+            "<li><a href='/xml'>Documentos XML</a></li>" +
+            "<li><a href='/xsd'>Esquemas XSD</a></li>" +
+            "<li><a href='/xslt'>Transformaciones XSLT</a></li>" +
+            "</ul>" +
+            "</div>" +
+            "<hr>" +
+            "<p>Autores:</p>" +
+            "<p>Alejandro M Calvar Blanco</p>" +
+            "<p>David Fraga Rincon</p>" +
+            "</body>" +
+            "</html>").getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] INTERNAL_ERROR_PAGE =
+            "<html><body><h1>500 Internal Server Error</h1></body></html>".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] HEALTH_OK = "OK".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] HEALTH_NOT_READY = "NOT READY".getBytes(StandardCharsets.UTF_8);
+
+    // {0}: código de estado, {1}: mensaje
+    private static final PageTemplate ERROR_PAGE = PageTemplate.compile("<html>" +
+            "<head><title>{0} {1}</title></head>" +
+            "<body>" +
+            "<h1>{0} {1}</h1>" +
+            "<p><a href='/'>Volver al inicio</a></p>" +
+            "</body>" +
+            "</html>");
+
+    // {0}: tipo de documento, {1}: ruta del tipo, {2}: UUID
+    private static final PageTemplate CREATED_PAGE = PageTemplate.compile("<html>" +
+            "<head><title>Document Created</title></head>" +
+            "<body>" +
+            "<h1>{0} Document Created</h1>" +
+            "<p>New document id: <a href=\"/{1}?uuid={2}\">{2}</a></p>" +
+            "<p><a href=\"/{1}\">Ver lista de documentos</a></p>" +
+            "<p><a href=\"/\">Volver al inicio</a></p>" +
+            "</body>" +
+            "</html>");
+
+    // {0}: tipo de documento, {1}: UUID, {2}: ruta del tipo
+    private static final PageTemplate DELETED_PAGE = PageTemplate.compile("<html>" +
+            "<head><title>Document Deleted</title></head>" +
+            "<body>" +
+            "<h1>Document Deleted</h1>" +
+            "<p>The {0} document with UUID {1} has been successfully deleted.</p>" +
+            "<p><a href='/{2}'>Ver lista de documentos</a></p>" +
+            "<p><a href='/'>Volver al inicio</a></p>" +
+            "</body>" +
+            "</html>");
+
+    // Listados: {0}: tipo de documento; en cada elemento {0}: ruta del tipo, {1}: UUID
+    private static final PageTemplate LIST_HEADER = PageTemplate.compile("<html>" +
+            "<head><title>Lista de Documentos {0}</title></head>" +
+            "<body>" +
+            "<h1>Lista de Documentos {0}</h1>" +
+            "<ul>");
+    private static final PageTemplate LIST_ITEM = PageTemplate.compile(
+            "<li><a href='/{0}?uuid={1}'>{1}</a></li>");
+    private static final byte[] LIST_EMPTY =
+            "<li>No hay documentos disponibles</li>".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] LIST_FOOTER = ("</ul>" +
+            "<p><a href='/'>Volver al inicio</a></p>" +
+            "</body>" +
+            "</html>").getBytes(StandardCharsets.UTF_8);
+
+    private final HybridServer server;
+
+    public DocumentController(HybridServer server) {
+        this.server = server;
+    }
+
+    HTTPResponse handleGet(HTTPRequest request, DocumentType docType) {
+        String uuid = request.getResourceParameters().get("uuid");
+        String xsltUuid = request.getResourceParameters().get("xslt");
+        if (uuid != null && xsltUuid != null && docType == DocumentType.XML) {
+            return transformDocument(uuid, xsltUuid);
+        } else if (uuid != null) {
+            return serveDocument(request, uuid, docType);
+        } else {
+            return createDocumentList(docType);
+        }
+    }
+
+    // Carga un documento en las mismas cachés que llena su primer GET: ETag,
+    // versión comprimida con gzip (la preferida al negociar) y, si es un XSLT
+    // o un XSD, su versión compilada. Los documentos que se sirven en flujo
+    // no pasan por estas cachés. Devuelve false si el documento no existe.
+    boolean preload(DocumentType docType, String uuid)
+        throws SQLException, IOException, TransformerConfigurationException, SAXException {
+        Configuration conf = server.getConfiguration();
+        StoredPage page = server.getDAO(docType).getPage(uuid, conf.getStreamingThreshold());
+        if (page == null) {
+            return false;
+        }
+        if (!page.isLoaded()) {
+            return true;
+        }
+
+        ETagCache.Entry entry = cacheETag(docType, uuid, page);
+        if (isNegotiated(docType) && entry.getSize() >= conf.getCompressionThreshold()) {
+            getCompressedBody(docType, uuid, ContentEncoding.GZIP, page.getContent().getBytes(StandardCharsets.UTF_8));
+        }
+
+        if (docType == DocumentType.XSLT) {
+            join(getTransformAsync(server.getTransformCache(), uuid));
+        } else if (docType == DocumentType.XSD) {
+            join(getSchemaAsync(server.getTransformCache(), uuid));
+        }
+        return true;
+    }
+
+    // Los documentos se describen a partir de sus metadatos, sin leer el
+    // contenido; el resto de recursos responde con las cabeceras del GET
+    HTTPResponse handleHead(HTTPRequest request, DocumentType docType) {
+        String uuid = request.getResourceParameters().get("uuid");
+        if (uuid != null && request.getResourceParameters().get("xslt") == null) {
+            return describeDocument(request, uuid, docType);
+        }
+        return handleGet(request, docType);
+    }
+
+    HTTPResponse handleDelete(HTTPRequest request, DocumentType docType) {
+        String uuid = request.getResourceParameters().get("uuid");
+
+        System.out.println("[DELETE] UUID solicitado: " + uuid);
+
+        if (uuid == null || uuid.isEmpty()) {
+            return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - UUID parameter required");
+        }
+
+        return deleteDocument(uuid, docType);
+    }
+
+    // Método genérico para crear documentos
+    HTTPResponse createDocument(HTTPRequest request, DocumentType docType) {
+        if (request.hasPendingContent()) {
+            return uploadDocument(request, docType);
+        }
+
+        String contentParam = request.getResourceParameters().get(docType.getPath());
+
+        if (contentParam == null || contentParam.isEmpty()) {
+            return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Missing content parameter");
+        }
+
+        // Validación especial para XSLT
+        if (docType == DocumentType.XSLT) {
+            String xsdUuid = request.getResourceParameters().get("xsd");
+            
+            if (xsdUuid == null || xsdUuid.isEmpty()) {
+                return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Missing xsd parameter");
+            }
+
+            // Verificar que el XSD existe
+            HTTPResponse xsdError = checkXsd(xsdUuid);
+            if (xsdError != null) {
+                return xsdError;
+            }
+
+            // Guardar XSLT con su XSD asociado
+            return createXSLTDocument(contentParam, xsdUuid);
+        }
+
+        // Para HTML, XML, XSD
+        String uuid = server.getConfiguration().getIdGenerator().next();
+
+        try {
+            boolean saved = saveDocument(uuid, contentParam, docType);
+
+            if (!saved) {
+                return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+            }
+
+            server.getETagCache().put(docType, uuid, ETagCache.computeETag(contentParam));
+            return createSuccessResponse(uuid, docType);
+
+        } catch (SQLException e) {
+            System.err.println("[ServiceThread] Error en el POST: " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        }
+    }
+
+    // Guarda un documento leyendo el cuerpo de la petición como flujo: el valor
+    // del formulario (o el cuerpo completo, si se envía tal cual) se decodifica
+    // y se pasa a la base de datos sin construir el documento en memoria. El
+    // almacén devuelve el hash calculado durante la lectura, que da el ETag.
+    private HTTPResponse uploadDocument(HTTPRequest request, DocumentType docType) {
+        InputStream contentStream = request.getContentStream();
+        try {
+            return uploadDocument(request, docType, contentStream);
+        } finally {
+            discard(contentStream);
+        }
+    }
+
+    private HTTPResponse uploadDocument(HTTPRequest request, DocumentType docType, InputStream contentStream) {
+        String xsdUuid = null;
+        if (docType == DocumentType.XSLT) {
+            xsdUuid = request.getResourceParameters().get("xsd");
+
+            if (xsdUuid == null || xsdUuid.isEmpty()) {
+                return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Missing xsd parameter");
+            }
+
+            HTTPResponse xsdError = checkXsd(xsdUuid);
+            if (xsdError != null) {
+                return xsdError;
+            }
+        }
+
+        try {
+            InputStream body;
+            Charset charset;
+            if (isFormContent(request)) {
+                FormFieldInputStream field = new FormFieldInputStream(contentStream, docType.getPath());
+                if (!field.seek()) {
+                    return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Missing content parameter");
+                }
+                body = field;
+                charset = StandardCharsets.UTF_8;
+            } else {
+                body = contentStream;
+                charset = request.getContentCharset();
+                if (charset == null) {
+                    return createErrorResponse(HTTPResponseStatus.S415, "Unsupported Media Type");
+                }
+            }
+
+            PushbackInputStream content = new PushbackInputStream(body);
+            int first = content.read();
+            if (first == -1) {
+                return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Missing content parameter");
+            }
+            content.unread(first);
+
+            String uuid = server.getConfiguration().getIdGenerator().next();
+            String hash;
+
+            // Sin cerrar el reader: el flujo del cuerpo pertenece a la conexión
+            Reader reader = new InputStreamReader(content, charset);
+            if (docType == DocumentType.XSLT) {
+                hash = server.getStore(DocumentType.XSLT).savePage(uuid, reader, xsdUuid);
+            } else {
+                hash = server.getDAO(docType).savePage(uuid, reader);
+            }
+
+            if (hash == null) {
+                return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+            }
+
+            // El almacén calcula el hash del contenido en UTF-8 mientras lo
+            // guarda, sea cual sea la codificación del cuerpo
+            server.getETagCache().put(docType, uuid, ETagCache.fromHash(hash));
+            return createSuccessResponse(uuid, docType);
+
+        } catch (HTTPContentTooLargeException e) {
+            System.err.println("[ServiceThread] " + e.getMessage());
+            return createContentTooLargeResponse();
+        } catch (IOException e) {
+            System.err.println("[ServiceThread] Cuerpo de la petición no válido: " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Invalid content");
+        } catch (SQLException e) {
+            // El driver puede envolver el error de lectura del cuerpo
+            if (isContentTooLarge(e)) {
+                System.err.println("[ServiceThread] " + e.getMessage());
+                return createContentTooLargeResponse();
+            }
+            System.err.println("[ServiceThread] Error en el POST: " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        }
+    }
+
+    private static boolean isContentTooLarge(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HTTPContentTooLargeException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Consume lo que quede del cuerpo para no cerrar la conexión con datos
+    // sin leer (el cliente podría recibir un reset en lugar de la respuesta)
+    private static void discard(InputStream contentStream) {
+        byte[] buffer = new byte[8192];
+        try {
+            while (contentStream.read(buffer) != -1) {
+                // Resto del cuerpo
+            }
+        } catch (IOException e) {
+            // La conexión ya no es utilizable
+        }
+    }
+
+    // Las subidas de documentos se guardan a medida que se leen. Un XSLT enviado
+    // como formulario necesita antes el parámetro xsd, que solo se conoce sin
+    // leer el cuerpo si viene en la URL; en otro caso se lee el cuerpo completo.
+    boolean isStreamingUpload(HTTPRequest request) {
+        if (!HTTPRequestMethod.POST.equals(request.getMethod()) || !request.hasPendingContent()) {
+            return false;
+        }
+
+        DocumentType docType = DocumentType.fromPath(request.getResourceName());
+        if (docType == null) {
+            return false;
+        }
+
+        return !isFormContent(request)
+            || docType != DocumentType.XSLT
+            || request.getResourceParameters().containsKey("xsd");
+    }
+
+    private static boolean isFormContent(HTTPRequest request) {
+        String contentType = request.getHeaderParameter("Content-Type");
+        return contentType == null || contentType.toLowerCase().startsWith("application/x-www-form-urlencoded");
+    }
+
+    private HTTPResponse checkXsd(String xsdUuid) {
+        try {
+            PageDAO xsdDAO = server.getDAO(DocumentType.XSD);
+            if (!xsdDAO.pageExists(xsdUuid)) {
+                return createErrorResponse(HTTPResponseStatus.S404, "XSD Not Found");
+            }
+            return null;
+        } catch (SQLException e) {
+            System.err.println("[ServiceThread] Error verificando XSD: " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        }
+    }
+
+    private HTTPResponse createXSLTDocument(String content, String xsdUuid) {
+        String uuid = server.getConfiguration().getIdGenerator().next();
+
+        try {
+            DocumentStore xsltStore = server.getStore(DocumentType.XSLT);
+            boolean saved = xsltStore.savePage(uuid, content, xsdUuid);
+
+            if (!saved) {
+                return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+            }
+
+            server.getETagCache().put(DocumentType.XSLT, uuid, ETagCache.computeETag(content));
+            return createSuccessResponse(uuid, DocumentType.XSLT);
+
+        } catch (SQLException e) {
+            System.err.println("[ServiceThread] Error guardando XSLT: " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        }
+    }
+
+    private boolean saveDocument(String uuid, String content, DocumentType docType) throws SQLException {
+        // Los XSLT se guardan con su XSD asociado (createXSLTDocument)
+        if (docType == DocumentType.XSLT) {
+            return false;
+        }
+        return server.getDAO(docType).savePage(uuid, content);
+    }
+
+    // Método genérico para servir documentos. El contenido de un UUID no cambia,
+    // así que si el cliente ya tiene la versión actual (If-None-Match) se
+    // responde 304 sin consultar la base de datos. El 304 lleva el ETag de la
+    // representación que se enviaría con el Accept-Encoding de la petición.
+    private HTTPResponse serveDocument(HTTPRequest request, String uuid, DocumentType docType) {
+        String ifNoneMatch = request.getHeaderParameter("If-None-Match");
+
+        try {
+            ETagCache.Entry cached = server.getETagCache().getEntry(docType, uuid);
+            if (ifNoneMatch != null && cached != null && cached.isDescribed()) {
+                String etag = representationETag(cached, selectEncoding(request, docType, cached));
+                if (ETagCache.matches(ifNoneMatch, etag)) {
+                    return createNotModifiedResponse(docType, etag);
+                }
+            }
+
+            StoredPage page = server.getDAO(docType).getPage(uuid, server.getConfiguration().getStreamingThreshold());
+
+            if (page != null) {
+                server.getHotDocuments().record(docType, uuid);
+
+                if (!page.isLoaded()) {
+                    String etag = cached != null ? cached.getETag()
+                        : page.getHash() != null ? ETagCache.fromHash(page.getHash()) : null;
+                    if (etag == null) {
+                        ContentEncoding encoding = isNegotiated(docType)
+                            ? ContentEncoding.negotiate(request.getHeaderParameter("Accept-Encoding"))
+                            : ContentEncoding.IDENTITY;
+                        return streamDocument(uuid, docType, page.getSize(), null, encoding);
+                    }
+
+                    ETagCache.Entry entry = server.getETagCache().put(docType, uuid, etag, page.getSize(), true, false);
+                    ContentEncoding encoding = selectEncoding(request, docType, entry);
+                    if (ETagCache.matches(ifNoneMatch, representationETag(entry, encoding))) {
+                        return createNotModifiedResponse(docType, representationETag(entry, encoding));
+                    }
+                    return streamDocument(uuid, docType, page.getSize(), etag, encoding);
+                }
+
+                ETagCache.Entry entry = cacheETag(docType, uuid, page);
+                ContentEncoding encoding = selectEncoding(request, docType, entry);
+                String etag = representationETag(entry, encoding);
+                if (ETagCache.matches(ifNoneMatch, etag)) {
+                    return createNotModifiedResponse(docType, etag);
+                }
+
+                HTTPResponse response = new HTTPResponse();
+                response.setStatus(HTTPResponseStatus.S200);
+                response.putParameter("Content-Type", docType.getContentType());
+                response.putParameter("ETag", etag);
+                response.putParameter("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+                if (isNegotiated(docType)) {
+                    response.putParameter("Vary", "Accept-Encoding");
+                }
+                response.setContent(page.getContent());
+                if (encoding != ContentEncoding.IDENTITY) {
+                    response.setBody(usesStoredDeflate(entry, encoding)
+                        ? page.getDeflated()
+                        : getCompressedBody(docType, uuid, encoding, response.getBody()));
+                    response.putParameter("Content-Encoding", encoding.getName());
+                }
+                return response;
+            } else {
+                return createErrorResponse(HTTPResponseStatus.S404, 
+                    docType.name() + " Document Not Found");
+            }
+        } catch (Exception e) {
+            System.err.println("Error sirviendo documento " + uuid + ": " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        }
+    }
+
+    // Respuesta a HEAD sobre un documento: las mismas cabeceras que el GET
+    // (ETag de la representación, Vary, Content-Encoding y longitud), sacadas
+    // de los metadatos guardados sin transferir el contenido desde la base de
+    // datos. Si el GET enviaría una versión comprimida en memoria (su longitud
+    // depende de los bytes comprimidos) o su ETag aún no se conoce, se
+    // responde como el GET.
+    private HTTPResponse describeDocument(HTTPRequest request, String uuid, DocumentType docType) {
+        String ifNoneMatch = request.getHeaderParameter("If-None-Match");
+
+        try {
+            ETagCache.Entry cached = server.getETagCache().getEntry(docType, uuid);
+            if (ifNoneMatch != null && cached != null && cached.isDescribed()) {
+                String etag = representationETag(cached, selectEncoding(request, docType, cached));
+                if (ETagCache.matches(ifNoneMatch, etag)) {
+                    return createNotModifiedResponse(docType, etag);
+                }
+            }
+
+            PageMetadata metadata = server.getDAO(docType).getMetadata(uuid);
+            if (metadata == null) {
+                return createErrorResponse(HTTPResponseStatus.S404, docType.name() + " Document Not Found");
+            }
+
+            boolean streamed = metadata.getSize() > server.getConfiguration().getStreamingThreshold();
+            String etag = cached != null ? cached.getETag()
+                : metadata.getHash() != null ? ETagCache.fromHash(metadata.getHash()) : null;
+            if (etag == null && !streamed) {
+                return serveDocument(request, uuid, docType);
+            }
+
+            ContentEncoding encoding;
+            if (etag == null) {
+                encoding = isNegotiated(docType)
+                    ? ContentEncoding.negotiate(request.getHeaderParameter("Accept-Encoding"))
+                    : ContentEncoding.IDENTITY;
+            } else {
+                ETagCache.Entry entry;
+                if (cached != null && cached.isDescribed()) {
+                    entry = cached;
+                } else if (streamed) {
+                    entry = server.getETagCache().put(docType, uuid, etag, metadata.getSize(), true, false);
+                } else {
+                    // Sin cargar el documento no se sabe si se guarda comprimido:
+                    // la entrada completa la guarda el primer GET
+                    server.getETagCache().put(docType, uuid, etag);
+                    entry = new ETagCache.Entry(etag, metadata.getSize(), false, false);
+                }
+
+                encoding = selectEncoding(request, docType, entry);
+                if (!entry.isStreamed() && encoding != ContentEncoding.IDENTITY) {
+                    return serveDocument(request, uuid, docType);
+                }
+
+                etag = representationETag(entry, encoding);
+                if (ETagCache.matches(ifNoneMatch, etag)) {
+                    return createNotModifiedResponse(docType, etag);
+                }
+            }
+
+            HTTPResponse response = new HTTPResponse();
+            response.setStatus(HTTPResponseStatus.S200);
+            response.putParameter("Content-Type", docType.getContentType());
+            response.putParameter("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+            if (isNegotiated(docType)) {
+                response.putParameter("Vary", "Accept-Encoding");
+            }
+            if (etag != null) {
+                response.putParameter("ETag", etag);
+            }
+            // Como en streamDocument: comprimido en flujo, sin longitud conocida
+            if (encoding == ContentEncoding.IDENTITY) {
+                response.putParameter("Content-Length", String.valueOf(metadata.getSize()));
+            } else {
+                response.putParameter("Transfer-Encoding", "chunked");
+                response.putParameter("Content-Encoding", encoding.getName());
+            }
+            return response;
+        } catch (SQLException e) {
+            System.err.println("Error consultando documento " + uuid + ": " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        }
+    }
+
+    // Documentos que superan el umbral configurado: se copian de la base de
+    // datos a la conexión con un buffer fijo, sin cargarlos en memoria. El
+    // tamaño en bytes se conoce por la consulta, así que se envían con
+    // Content-Length. Si aún no se conoce el ETag se calcula durante la copia
+    // para las siguientes peticiones.
+    private HTTPResponse streamDocument(
+        String uuid, DocumentType docType, long size, String etag, ContentEncoding encoding
+    ) {
+        PageDAO dao = server.getDAO(docType);
+
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(HTTPResponseStatus.S200);
+        response.putParameter("Content-Type", docType.getContentType());
+        response.putParameter("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+        if (isNegotiated(docType)) {
+            response.putParameter("Vary", "Accept-Encoding");
+        }
+
+        StreamingContent content = out -> {
+            Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+            ContentDigestReader digest = null;
+
+            try (Reader page = dao.openPage(uuid)) {
+                if (page == null) {
+                    throw new IOException(docType.name() + " " + uuid + " eliminado durante el envío");
+                }
+
+                Reader reader = page;
+                if (etag == null) {
+                    digest = new ContentDigestReader(page);
+                    reader = digest;
+                }
+
+                char[] buffer = new char[8192];
+                int read;
+                while ((read = reader.read(buffer)) != -1) {
+                    writer.write(buffer, 0, read);
+                }
+                // Antes de enviar los últimos bytes, para que una petición
+                // posterior en la misma conexión ya encuentre el ETag
+                if (digest != null) {
+                    server.getETagCache().put(docType, uuid, ETagCache.fromHash(digest.getHash()), size, true, false);
+                }
+                // Sin cerrar: el stream de salida pertenece a la conexión
+                writer.flush();
+            } catch (SQLException e) {
+                throw new IOException("Error leyendo " + uuid + ": " + e.getMessage(), e);
+            }
+        };
+
+        // Comprimido en flujo (longitud desconocida, chunked); estos documentos
+        // no pasan por la caché de variantes comprimidas
+        if (encoding == ContentEncoding.IDENTITY) {
+            response.setStreamingContent(content, size);
+        } else {
+            response.setStreamingContent(encoding.encode(content));
+            response.putParameter("Content-Encoding", encoding.getName());
+        }
+        if (etag != null) {
+            response.putParameter("ETag", ETagCache.forEncoding(etag, encoding));
+        }
+        return response;
+    }
+
+    // Transforma un XML con un XSLT. El XML, el XSLT y el XSD asociado al
+    // XSLT se consultan a la vez (el XSD en cuanto se conoce su UUID), así
+    // que con el XSLT en caché la espera es de una sola consulta. El XML se
+    // valida primero contra el XSD y después se transforma escribiendo el
+    // resultado directamente en la conexión; si es grande se lee de la base
+    // de datos como flujo, así que la memoria usada no depende de su tamaño.
+    // La compilación, la validación y la transformación se hacen en el
+    // ejecutor de CPU: si está saturado se responde 503.
+    private HTTPResponse transformDocument(String uuid, String xsltUuid) {
+        TransformCache cache = server.getTransformCache();
+        CompletableFuture<StoredPage> xmlFuture = server.getStore(DocumentType.XML)
+            .getPageAsync(uuid, server.getConfiguration().getStreamingThreshold());
+        CompletableFuture<TransformCache.Transform> transformFuture = getTransformAsync(cache, xsltUuid);
+        CompletableFuture<Schema> schemaFuture = transformFuture.thenCompose(transform ->
+            transform == null || transform.getXsdUuid() == null
+                ? CompletableFuture.completedFuture(null)
+                : getSchemaAsync(cache, transform.getXsdUuid()));
+
+        try {
+            TransformCache.Transform transform = join(transformFuture);
+            if (transform == null) {
+                return createErrorResponse(HTTPResponseStatus.S404, "XSLT Not Found");
+            }
+
+            Schema schema = join(schemaFuture);
+            if (schema == null) {
+                return createErrorResponse(HTTPResponseStatus.S404, "XSD Not Found");
+            }
+
+            StoredPage xml = join(xmlFuture);
+            if (xml == null) {
+                return createErrorResponse(HTTPResponseStatus.S404, "XML Document Not Found");
+            }
+
+            HTTPResponse invalid = join(CompletableFuture.supplyAsync(() -> {
+                try (Reader reader = openXml(uuid, xml)) {
+                    if (reader == null) {
+                        return createErrorResponse(HTTPResponseStatus.S404, "XML Document Not Found");
+                    }
+                    schema.newValidator().validate(new StreamSource(reader));
+                    return null;
+                } catch (SAXException e) {
+                    return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - XML not valid for the XSD");
+                } catch (SQLException | IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, server.getCpuExecutor()));
+            if (invalid != null) {
+                return invalid;
+            }
+
+            HTTPResponse response = new HTTPResponse();
+            response.setStatus(HTTPResponseStatus.S200);
+            response.putParameter("Content-Type", "text/html");
+            response.setStreamingContent(out -> {
+                CompletableFuture<Void> done;
+                try {
+                    done = CompletableFuture.runAsync(() -> {
+                        try {
+                            transform(uuid, xml, transform.getTemplates(), out);
+                        } catch (IOException e) {
+                            throw new CompletionException(e);
+                        }
+                    }, server.getCpuExecutor());
+                } catch (RejectedExecutionException e) {
+                    // La respuesta ya ha empezado: se transforma en este hilo
+                    transform(uuid, xml, transform.getTemplates(), out);
+                    return;
+                }
+
+                try {
+                    done.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw e;
+                }
+            });
+            return response;
+
+        } catch (RejectedExecutionException e) {
+            return createBusyResponse();
+        } catch (TransformerConfigurationException | SAXException e) {
+            System.err.println("[ServiceThread] XSLT o XSD no válido: " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Invalid XSLT or XSD");
+        } catch (SQLException | IOException e) {
+            System.err.println("[ServiceThread] Error preparando la transformación: " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        }
+    }
+
+    private void transform(String uuid, StoredPage xml, Templates templates, OutputStream out) throws IOException {
+        try (Reader reader = openXml(uuid, xml)) {
+            if (reader == null) {
+                throw new IOException("XML " + uuid + " eliminado durante la transformación");
+            }
+            templates.newTransformer().transform(new StreamSource(reader), new StreamResult(out));
+        } catch (SQLException | TransformerException e) {
+            throw new IOException("Error transformando " + uuid + ": " + e.getMessage(), e);
+        }
+    }
+
+    // Respuesta cuando el ejecutor de CPU está saturado
+    private HTTPResponse createBusyResponse() {
+        HTTPResponse response = createErrorResponse(HTTPResponseStatus.S503, "Service Unavailable");
+        response.putParameter("Retry-After", String.valueOf(server.getConfiguration().getRetryAfter()));
+        return response;
+    }
+
+    // Contenido del XML que se transforma: el ya cargado o, si es grande, un
+    // flujo desde la base de datos (null si se ha borrado)
+    private Reader openXml(String uuid, StoredPage xml) throws SQLException {
+        return xml.isLoaded() ? new StringReader(xml.getContent()) : server.getDAO(DocumentType.XML).openPage(uuid);
+    }
+
+    // Compila un XSLT, o lo toma de la caché, junto con el UUID de su XSD. Si
+    // otro documento con el mismo contenido ya está compilado, se reutiliza
+    // su versión. El resultado es null si el XSLT no existe.
+    private CompletableFuture<TransformCache.Transform> getTransformAsync(TransformCache cache, String xsltUuid) {
+        TransformCache.Transform cached = cache.getTransform(xsltUuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        // Contenido y hash en una consulta y el XSD en otra, a la vez
+        DocumentStore store = server.getStore(DocumentType.XSLT);
+        CompletableFuture<String> xsdFuture = store.getXsdAsync(xsltUuid);
+        return store.getPageAsync(xsltUuid, Long.MAX_VALUE)
+            .thenApplyAsync(page -> {
+                if (page == null) {
+                    return null;
+                }
+
+                Templates templates = page.getHash() == null ? null : cache.getTemplatesByHash(page.getHash());
+                if (templates == null) {
+                    try {
+                        templates = TransformCache.compileTemplates(page.getContent());
+                    } catch (TransformerConfigurationException e) {
+                        throw new CompletionException(e);
+                    }
+                    if (page.getHash() != null) {
+                        cache.putTemplatesByHash(page.getHash(), templates);
+                    }
+                }
+                return templates;
+            }, server.getCpuExecutor())
+            .thenCombine(xsdFuture, (templates, xsdUuid) -> {
+                if (templates == null) {
+                    return null;
+                }
+
+                TransformCache.Transform transform = new TransformCache.Transform(templates, xsdUuid);
+                cache.putTransform(xsltUuid, transform);
+                return transform;
+            });
+    }
+
+    // Igual que getTransformAsync, para los XSD
+    private CompletableFuture<Schema> getSchemaAsync(TransformCache cache, String xsdUuid) {
+        Schema cached = cache.getSchema(xsdUuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        return server.getStore(DocumentType.XSD).getPageAsync(xsdUuid, Long.MAX_VALUE)
+            .thenApplyAsync(page -> {
+                if (page == null) {
+                    return null;
+                }
+
+                Schema schema = page.getHash() == null ? null : cache.getSchemaByHash(page.getHash());
+                if (schema == null) {
+                    try {
+                        schema = TransformCache.compileSchema(page.getContent());
+                    } catch (SAXException e) {
+                        throw new CompletionException(e);
+                    }
+                    if (page.getHash() != null) {
+                        cache.putSchemaByHash(page.getHash(), schema);
+                    }
+                }
+                cache.putSchema(xsdUuid, schema);
+                return schema;
+            }, server.getCpuExecutor());
+    }
+
+    // Espera el resultado de una consulta asíncrona y, si ha fallado, lanza
+    // la excepción original en lugar de la CompletionException que la envuelve
+    private static <T> T join(CompletableFuture<T> future)
+        throws SQLException, IOException, TransformerConfigurationException, SAXException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof TransformerConfigurationException) {
+                throw (TransformerConfigurationException) cause;
+            } else if (cause instanceof SAXException) {
+                throw (SAXException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw e;
+        }
+    }
+
+    // Codificación con la que se envía un documento almacenado según lo que
+    // acepte el cliente. Se decide igual para el 200 y para el 304, de modo
+    // que ambos lleven el mismo ETag. Si el documento se guarda comprimido en
+    // formato deflate y el cliente lo acepta, se envía tal cual.
+    private ContentEncoding selectEncoding(HTTPRequest request, DocumentType docType, ETagCache.Entry entry) {
+        Configuration conf = server.getConfiguration();
+        if (!isNegotiated(docType)) {
+            return ContentEncoding.IDENTITY;
+        }
+
+        String acceptEncoding = request.getHeaderParameter("Accept-Encoding");
+        // Los documentos en flujo no tienen longitud conocida: se comprimen siempre
+        if (entry.isStreamed()) {
+            return ContentEncoding.negotiate(acceptEncoding);
+        }
+        if (entry.getSize() < conf.getCompressionThreshold()) {
+            return ContentEncoding.IDENTITY;
+        }
+        if (entry.isDeflated() && ContentEncoding.accepts(acceptEncoding, ContentEncoding.DEFLATE)) {
+            return ContentEncoding.DEFLATE;
+        }
+        return ContentEncoding.negotiate(acceptEncoding);
+    }
+
+    // Si la respuesta depende del Accept-Encoding de la petición (Vary)
+    private boolean isNegotiated(DocumentType docType) {
+        return server.getConfiguration().isCompressionEnabled() && isCompressible(docType.getContentType());
+    }
+
+    private static boolean usesStoredDeflate(ETagCache.Entry entry, ContentEncoding encoding) {
+        return encoding == ContentEncoding.DEFLATE && entry.isDeflated() && !entry.isStreamed();
+    }
+
+    // ETag de la representación de un documento con la codificación indicada
+    private static String representationETag(ETagCache.Entry entry, ContentEncoding encoding) {
+        return usesStoredDeflate(entry, encoding)
+            ? ETagCache.forStoredDeflate(entry.getETag())
+            : ETagCache.forEncoding(entry.getETag(), encoding);
+    }
+
+    // ETag de un documento ya cargado (el de la caché, el del hash guardado
+    // o el calculado del contenido), que queda en la caché con los datos de
+    // su representación para las siguientes peticiones
+    private ETagCache.Entry cacheETag(DocumentType docType, String uuid, StoredPage page) {
+        String etag = server.getETagCache().get(docType, uuid);
+        if (etag == null) {
+            etag = page.getHash() != null
+                ? ETagCache.fromHash(page.getHash())
+                : ETagCache.computeETag(page.getContent());
+        }
+        return server.getETagCache().put(docType, uuid, etag, page.getSize(), false, page.getDeflated() != null);
+    }
+
+    // Versión comprimida de un documento, de la caché o comprimiéndolo y
+    // guardándolo en ella
+    private byte[] getCompressedBody(DocumentType docType, String uuid, ContentEncoding encoding, byte[] content) {
+        CompressedBodyCache cache = server.getCompressedCache();
+        byte[] body = cache.get(docType, uuid, encoding);
+        if (body == null) {
+            body = encoding.encode(content);
+            cache.put(docType, uuid, encoding, body);
+        }
+        return body;
+    }
+
+    // Comprime el resto de respuestas (listados, páginas de resultado...) que
+    // superen el tamaño mínimo configurado
+    HTTPResponse compressResponse(HTTPRequest request, HTTPResponse response) {
+        // Los documentos (con ETag) ya llevan la representación elegida
+        if (response.containsParameter("Content-Encoding") || response.containsParameter("ETag")) {
+            return response;
+        }
+
+        ContentEncoding encoding = negotiateEncoding(request, response);
+        if (encoding != ContentEncoding.IDENTITY) {
+            if (response.isStreaming()) {
+                response.setStreamingContent(encoding.encode(response.getStreamingContent()));
+            } else {
+                response.setBody(encoding.encode(response.getBody()));
+            }
+            response.putParameter("Content-Encoding", encoding.getName());
+        }
+        return response;
+    }
+
+    private ContentEncoding negotiateEncoding(HTTPRequest request, HTTPResponse response) {
+        Configuration conf = server.getConfiguration();
+        if (!conf.isCompressionEnabled()
+            || response.getStatus() != HTTPResponseStatus.S200
+            || !isCompressible(response.getParameters().get("Content-Type"))) {
+            return ContentEncoding.IDENTITY;
+        }
+
+        // La respuesta varía según lo que acepte el cliente
+        response.putParameter("Vary", "Accept-Encoding");
+
+        // Las respuestas streaming no tienen longitud conocida: se comprimen siempre
+        if (!response.isStreaming() && response.getBody().length < conf.getCompressionThreshold()) {
+            return ContentEncoding.IDENTITY;
+        }
+        return ContentEncoding.negotiate(request.getHeaderParameter("Accept-Encoding"));
+    }
+
+    private static boolean isCompressible(String contentType) {
+        return contentType != null && (contentType.startsWith("text/") || contentType.contains("xml"));
+    }
+
+    private HTTPResponse createNotModifiedResponse(String etag) {
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(HTTPResponseStatus.S304);
+        response.putParameter("ETag", etag);
+        response.putParameter("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+        return response;
+    }
+
+    // 304 de un GET de documento: con las mismas cabeceras de caché que el 200
+    private HTTPResponse createNotModifiedResponse(DocumentType docType, String etag) {
+        HTTPResponse response = createNotModifiedResponse(etag);
+        if (isNegotiated(docType)) {
+            response.putParameter("Vary", "Accept-Encoding");
+        }
+        return response;
+    }
+
+    // Método genérico para eliminar documentos
+    private HTTPResponse deleteDocument(String uuid, DocumentType docType) {
+        try {
+            boolean deleted = deleteDocumentByType(uuid, docType);
+            System.out.println("[DELETE] Documento eliminado? " + deleted);
+
+            if (deleted) {
+                server.getHotDocuments().forget(docType, uuid);
+                server.getETagCache().remove(docType, uuid);
+                server.getCompressedCache().remove(docType, uuid);
+                if (docType == DocumentType.XSLT) {
+                    server.getTransformCache().removeTransform(uuid);
+                } else if (docType == DocumentType.XSD) {
+                    server.getTransformCache().removeSchema(uuid);
+                }
+
+                HTTPResponse response = new HTTPResponse();
+                response.setStatus(HTTPResponseStatus.S200);
+                response.putParameter("Content-Type", "text/html");
+
+                response.setBody(DELETED_PAGE.render(docType.name(), uuid, docType.getPath()));
+                return response;
+            } else {
+                return createErrorResponse(HTTPResponseStatus.S404, "Document Not Found");
+            }
+        } catch (Exception e) {
+            System.err.println("Error eliminando documento " + uuid + ": " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        }
+    }
+
+    private boolean deleteDocumentByType(String uuid, DocumentType docType) throws SQLException {
+        return server.getDAO(docType).deletePage(uuid);
+    }
+
+    HTTPResponse createWelcomePage() {
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(HTTPResponseStatus.S200);
+        response.putParameter("Content-Type", "text/html");
+        response.setBody(WELCOME_PAGE);
+        return response;
+    }
+
+    HTTPResponse createMetricsResponse() {
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(HTTPResponseStatus.S200);
+        response.putParameter("Content-Type", "text/plain");
+        GroupCommitter groupCommitter = server.getGroupCommitter();
+        ReplicaRouter replicaRouter = server.getReplicaRouter();
+        Bulkhead dbExecutor = server.getDbExecutor();
+        ThreadPoolExecutor threadPool = server.getThreadPool();
+        response.setContent(server.getMetrics()
+            + String.format("\nconexiones: hilos=%d, activos=%d, en cola=%d",
+                threadPool.getMaximumPoolSize(), threadPool.getActiveCount(), threadPool.getQueue().size())
+            + "\ncpu: " + server.getCpuExecutor()
+            + (dbExecutor == null ? "" : "\nconsultas: " + dbExecutor)
+            + (groupCommitter == null ? "" : "\ngroup commit: " + groupCommitter)
+            + (replicaRouter == null ? "" : "\nréplicas: " + replicaRouter));
+        return response;
+    }
+
+    HTTPResponse createHealthResponse(boolean healthy) {
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(healthy ? HTTPResponseStatus.S200 : HTTPResponseStatus.S503);
+        response.putParameter("Content-Type", "text/plain");
+        response.setBody(healthy ? HEALTH_OK : HEALTH_NOT_READY);
+        return response;
+    }
+
+    private HTTPResponse createDocumentList(DocumentType docType) {
+        List<String> documents;
+
+        try {
+            documents = getDocumentsByType(docType);
+        } catch (Exception e) {
+            System.err.println("[ServiceThread] Error obteniendo lista de documentos: " + e.getMessage());
+            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error (Database Error)");
+        }
+
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(HTTPResponseStatus.S200);
+        response.putParameter("Content-Type", "text/html");
+
+        // La longitud del listado no se conoce de antemano: se envía en
+        // fragmentos a medida que se genera, sin construir el HTML completo
+        response.setStreamingContent(out -> {
+            LIST_HEADER.writeTo(out, docType.name());
+
+            if (documents != null && !documents.isEmpty()) {
+                for (String uuid : documents) {
+                    LIST_ITEM.writeTo(out, docType.getPath(), uuid);
+                }
+            } else {
+                out.write(LIST_EMPTY);
+            }
+
+            out.write(LIST_FOOTER);
+        });
+        return response;
+    }
+
+    // Solo los UUID: el listado no necesita el contenido de los documentos
+    private List<String> getDocumentsByType(DocumentType docType) throws SQLException {
+        return server.getDAO(docType).listPages();
+    }
+
+    private HTTPResponse createSuccessResponse(String uuid, DocumentType docType) {
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(HTTPResponseStatus.S200);
+        response.putParameter("Content-Type", "text/html");
+        response.setBody(CREATED_PAGE.render(docType.name(), docType.getPath(), uuid));
+        return response;
+    }
+
+    static HTTPResponse createErrorResponse(HTTPResponseStatus status, String message) {
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(status);
+        response.putParameter("Content-Type", "text/html");
+        response.setBody(ERROR_PAGE.render(String.valueOf(status.getCode()), message));
+        return response;
+    }
+
+    // Cuerpo de la petición por encima del máximo configurado: el resto no se
+    // ha leído, así que la conexión se cierra tras la respuesta
+    static HTTPResponse createContentTooLargeResponse() {
+        HTTPResponse response = createErrorResponse(HTTPResponseStatus.S413, HTTPResponseStatus.S413.getStatus());
+        response.putParameter("Connection", "close");
+        return response;
+    }
+
+    static HTTPResponse createInternalErrorResponse() {
+        HTTPResponse response = new HTTPResponse();
+        response.setStatus(HTTPResponseStatus.S500);
+        response.putParameter("Content-Type", "text/html");
+        response.setBody(INTERNAL_ERROR_PAGE);
+        return response;
+    }
+}
@@ -1,17 +1,30 @@
 package es.uvigo.esei.dai.hybridserver;
 
+import java.util.HashMap;
+import java.util.Map;
+
 public enum DocumentType {
-        HTML("html", "text/html"),
-        XML("xml", "application/xml"),
-        XSD("xsd", "application/xml"),
-        XSLT("xslt", "application/xslt+xml");
+        HTML("html", "text/html", "HTML"),
+        XML("xml", "application/xml", "XML"),
+        XSD("xsd", "application/xml", "XSD"),
+        XSLT("xslt", "application/xslt+xml", "XSL");
+
+        // Búsqueda directa por ruta, sin recorrer values() en cada petición
+        private static final Map<String, DocumentType> BY_PATH = new HashMap<>();
+        static {
+            for (DocumentType type : values()) {
+                BY_PATH.put(type.path, type);
+            }
+        }
 
         private final String path;
         private final String contentType;
+        private final String table;
 
-        DocumentType(String path, String contentType) {
+        DocumentType(String path, String contentType, String table) {
             this.path = path;
             this.contentType = contentType;
+            this.table = table;
         }
 
         public String getPath() {
@@ -22,13 +35,25 @@ public enum DocumentType {
             return contentType;
         }
 
+        /**
+         * Tabla de la base de datos en la que se almacenan los documentos de este tipo.
+         */
+        public String getTable() {
+            return table;
+        }
+
+        /**
+         * Si los documentos de este tipo referencian un XSD (columna {@code xsd}).
+         */
+        public boolean hasXsd() {
+            return this == XSLT;
+        }
+
         public static DocumentType fromPath(String path) {
-            String cleanPath = path.startsWith("/") ? path.substring(1) : path;
-            for (DocumentType type : values()) {
-                if (type.path.equals(cleanPath)) {
-                    return type;
-                }
+            if (path == null) {
+                return null;
             }
-            return null;
+            String cleanPath = path.startsWith("/") ? path.substring(1) : path;
+            return BY_PATH.get(cleanPath);
         }
     } 
\ No newline at end of file
@@ -0,0 +1,178 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import es.uvigo.esei.dai.hybridserver.dao.ContentDigestReader;
+import es.uvigo.esei.dai.hybridserver.http.ContentEncoding;
+
+/**
+ * ETags de los documentos almacenados. Como el contenido asociado a un UUID
+ * no cambia nunca, el hash se calcula una sola vez (al guardar el documento o
+ * la primera vez que se sirve) y se reutiliza para las peticiones
+ * condicionales ({@code If-None-Match}).
+ *
+ * Junto al ETag se guarda, si se conoce, lo necesario para saber qué
+ * representación se enviaría (tamaño, si se sirve en flujo y si se guarda
+ * comprimido), de modo que el 304 lleve el mismo ETag que llevaría el 200
+ * sin consultar la base de datos.
+ */
+public class ETagCache {
+  // Límite de ETags en memoria; por encima se descartan los usados hace más
+  // tiempo, que se vuelven a obtener al servir el documento
+  private static final int MAX_ENTRIES = 100000;
+
+  private final Map<String, Entry> etags;
+
+  public ETagCache() {
+    this.etags = LruMap.synchronizedMap(MAX_ENTRIES);
+  }
+
+  public String get(DocumentType type, String uuid) {
+    final Entry entry = etags.get(key(type, uuid));
+    return entry == null ? null : entry.getETag();
+  }
+
+  public Entry getEntry(DocumentType type, String uuid) {
+    return etags.get(key(type, uuid));
+  }
+
+  /**
+   * Guarda el ETag de un documento sin los datos de su representación. Si ya
+   * estaba guardado con ellos, se conservan.
+   */
+  public void put(DocumentType type, String uuid, String etag) {
+    etags.merge(key(type, uuid), new Entry(etag, -1, false, false),
+      (previous, entry) -> previous.getETag().equals(etag) ? previous : entry);
+  }
+
+  public Entry put(DocumentType type, String uuid, String etag, long size, boolean streamed, boolean deflated) {
+    final Entry entry = new Entry(etag, size, streamed, deflated);
+    etags.put(key(type, uuid), entry);
+    return entry;
+  }
+
+  public void remove(DocumentType type, String uuid) {
+    etags.remove(key(type, uuid));
+  }
+
+  private static String key(DocumentType type, String uuid) {
+    return type.getPath() + ':' + uuid;
+  }
+
+  /**
+   * Calcula el ETag fuerte (SHA-256 en hexadecimal, entre comillas) de un contenido.
+   */
+  public static String computeETag(String content) {
+    return '"' + sha256(content) + '"';
+  }
+
+  /**
+   * ETag a partir del SHA-256 en hexadecimal guardado con el documento.
+   */
+  public static String fromHash(String hash) {
+    return '"' + hash + '"';
+  }
+
+  public static String sha256(String content) {
+    return ContentDigestReader.sha256(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * ETag de la representación comprimida de un documento. Cada codificación
+   * es una representación distinta, así que se distingue con un sufijo.
+   */
+  public static String forEncoding(String etag, ContentEncoding encoding) {
+    if (encoding == ContentEncoding.IDENTITY) {
+      return etag;
+    }
+    return etag.substring(0, etag.length() - 1) + '-' + encoding.getName() + '"';
+  }
+
+  /**
+   * ETag de la versión comprimida en formato deflate guardada en la base de
+   * datos. Sus bytes no son los que genera el servidor al comprimir, así que
+   * es una representación distinta de la de {@link #forEncoding}.
+   */
+  public static String forStoredDeflate(String etag) {
+    return etag.substring(0, etag.length() - 1) + "-deflate-stored\"";
+  }
+
+  /**
+   * Comprueba si el valor de una cabecera {@code If-None-Match} coincide con
+   * el ETag indicado (comparación débil, como indica la RFC 7232). Cada
+   * codificación tiene su propio ETag, así que se compara con el de la
+   * representación que se enviaría.
+   */
+  public static boolean matches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || etag == null) {
+      return false;
+    }
+
+    for (String candidate : ifNoneMatch.split(",")) {
+      candidate = candidate.trim();
+      if (candidate.startsWith("W/")) {
+        candidate = candidate.substring(2);
+      }
+      if ("*".equals(candidate) || etag.equals(candidate)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * ETag de un documento junto con los datos que determinan la representación
+   * que se envía. Un tamaño negativo indica que no se conocen.
+   */
+  public static class Entry {
+    private final String etag;
+    private final long size;
+    private final boolean streamed;
+    private final boolean deflated;
+
+    public Entry(String etag, long size, boolean streamed, boolean deflated) {
+      this.etag = etag;
+      this.size = size;
+      this.streamed = streamed;
+      this.deflated = deflated;
+    }
+
+    public String getETag() {
+      return etag;
+    }
+
+    public long getSize() {
+      return size;
+    }
+
+    public boolean isDescribed() {
+      return size >= 0;
+    }
+
+    public boolean isStreamed() {
+      return streamed;
+    }
+
+    public boolean isDeflated() {
+      return deflated;
+    }
+  }
+}
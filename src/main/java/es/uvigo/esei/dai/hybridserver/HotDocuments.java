@@ -0,0 +1,143 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Cuenta los documentos servidos para poder guardar en un fichero los más
+ * solicitados y precargarlos en el siguiente arranque.
+ *
+ * El fichero tiene una línea por documento con el formato
+ * {@code <tipo> <uuid>}, por ejemplo {@code xml 6df1047e-cf19-4a83-8cf3-38f5e53f7725}.
+ */
+public class HotDocuments {
+  // Límite de documentos distintos contabilizados, para acotar la memoria
+  private static final int MAX_TRACKED = 10000;
+
+  private final Map<Entry, LongAdder> hits;
+
+  public HotDocuments() {
+    this.hits = new ConcurrentHashMap<>();
+  }
+
+  public void record(DocumentType type, String uuid) {
+    final Entry entry = new Entry(type, uuid);
+    LongAdder counter = hits.get(entry);
+
+    if (counter == null) {
+      if (hits.size() >= MAX_TRACKED) {
+        return;
+      }
+      counter = hits.computeIfAbsent(entry, key -> new LongAdder());
+    }
+
+    counter.increment();
+  }
+
+  public void forget(DocumentType type, String uuid) {
+    hits.remove(new Entry(type, uuid));
+  }
+
+  public List<Entry> getHottest(int limit) {
+    return hits.entrySet().stream()
+      .sorted(Comparator.comparingLong((Map.Entry<Entry, LongAdder> e) -> e.getValue().sum()).reversed())
+      .limit(limit)
+      .map(Map.Entry::getKey)
+      .collect(Collectors.toList());
+  }
+
+  public void save(Path file, int limit) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      for (Entry entry : getHottest(limit)) {
+        writer.write(entry.getType().getPath() + " " + entry.getUuid());
+        writer.newLine();
+      }
+    }
+  }
+
+  public static List<Entry> load(Path file) throws IOException {
+    final List<Entry> entries = new ArrayList<>();
+
+    if (!Files.exists(file)) {
+      return entries;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        final String[] parts = line.trim().split("\\s+");
+        if (parts.length == 2) {
+          final DocumentType type = DocumentType.fromPath(parts[0]);
+          if (type != null) {
+            entries.add(new Entry(type, parts[1]));
+          }
+        }
+      }
+    }
+
+    return entries;
+  }
+
+  public static class Entry {
+    private final DocumentType type;
+    private final String uuid;
+
+    public Entry(DocumentType type, String uuid) {
+      this.type = type;
+      this.uuid = uuid;
+    }
+
+    public DocumentType getType() {
+      return type;
+    }
+
+    public String getUuid() {
+      return uuid;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + uuid.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Entry)) {
+        return false;
+      }
+      final Entry other = (Entry) obj;
+      return type == other.type && uuid.equals(other.uuid);
+    }
+  }
+}
@@ -20,28 +20,69 @@ package es.uvigo.esei.dai.hybridserver;
 import java.io.IOException;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import es.uvigo.esei.dai.hybridserver.dao.XMLPageDatabaseDAO;
-import es.uvigo.esei.dai.hybridserver.dao.XSDPageDatabaseDAO;
-import es.uvigo.esei.dai.hybridserver.dao.XSLPageDatabaseDAO;
-import es.uvigo.esei.dai.hybridserver.dao.HTMLPageDatabaseDAO;
+import es.uvigo.esei.dai.hybridserver.dao.ConnectionPool;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentStore;
+import es.uvigo.esei.dai.hybridserver.dao.GroupCommitter;
+import es.uvigo.esei.dai.hybridserver.dao.PageDAO;
+import es.uvigo.esei.dai.hybridserver.dao.ReplicaRouter;
+import es.uvigo.esei.dai.hybridserver.dao.ShardMap;
+import es.uvigo.esei.dai.hybridserver.dao.StoreOptions;
+import es.uvigo.esei.dai.hybridserver.http.HTTPRequestMethod;
+import es.uvigo.esei.dai.hybridserver.http.HTTPResponseStatus;
 //import es.uvigo.esei.dai.hybridserver.dao.HTMLPageMemoryDAO;
 
 public class HybridServer implements AutoCloseable {
   private static final int SERVICE_PORT = 8888;
+  // Hilos y cola de los envíos de respuestas de rechazo
+  private static final int REJECTION_THREADS = 2;
+  private static final int REJECTION_QUEUE_SIZE = 64;
+  // Esperas (ms) entre reintentos de la comprobación inicial de la base de datos
+  private static final long WARMUP_INITIAL_BACKOFF = 500;
+  private static final long WARMUP_MAX_BACKOFF = 30000;
   private Thread serverThread;
-  private boolean stop;
-  private final ExecutorService threadPool;
+  private volatile ServerSocket serverSocket;
+  private volatile boolean stop;
+  private volatile boolean ready;
+  private final ThreadPoolExecutor threadPool;
+  private final ThreadPoolExecutor pipelinePool;
+  private final ThreadPoolExecutor rejectionPool;
+  private final Bulkhead cpuExecutor;
   private final int numClients;
+  private final AdmissionController admission;
+  private final ServerMetrics metrics;
+  private final Set<ServiceThread> connections = ConcurrentHashMap.newKeySet();
+  private final HotDocuments hotDocuments = new HotDocuments();
+  private final ETagCache etagCache = new ETagCache();
+  private final CompressedBodyCache compressedCache;
+  private final TransformCache transformCache = new TransformCache();
+  private final DocumentController documentController = new DocumentController(this);
+  private final Router router = createRouter();
 
-  // DAOs para cada tipo de documento
-  private HTMLPageDatabaseDAO htmlDAO; // DAO para páginas HTML  
-  private XMLPageDatabaseDAO xmlDAO; 
-  private XSDPageDatabaseDAO xsdDAO; 
-  private XSLPageDatabaseDAO xsltDAO;
+  // Almacén de documentos para cada tipo (una tabla por tipo)
+  private final Map<DocumentType, DocumentStore> stores = new EnumMap<>(DocumentType.class);
+  private ConnectionPool connectionPool;
+  private GroupCommitter groupCommitter;
+  private ReplicaRouter replicaRouter;
+  private ShardMap shardMap;
+  // Ejecutor de las consultas asíncronas a la base de datos (AsyncPageDAO)
+  private Bulkhead dbExecutor;
   
   private final Properties config; // Configuraciones del servidor
   private final int port;
@@ -52,19 +93,34 @@ public class HybridServer implements AutoCloseable {
     this.numClients = 50;
     this.port = SERVICE_PORT;
     this.config = null;
-    this.threadPool = Executors.newFixedThreadPool(numClients);
-    
-    
+    this.conf = new Configuration();
+    this.metrics = new ServerMetrics();
+    this.admission = new AdmissionController(conf.getMaxConnectionsPerClient());
+    this.threadPool = createThreadPool();
+    this.pipelinePool = createPipelinePool();
+    this.rejectionPool = createRejectionPool();
+    this.cpuExecutor = createCpuExecutor();
+    this.compressedCache = new CompressedBodyCache(conf.getCompressionCacheSize());
   }
 
 
+  // Los parámetros de ajuste (cola, keep-alive, compresión, réplicas...) no
+  // forman parte del esquema del fichero XML: se toman tal como vengan en la
+  // Configuration recibida, con sus valores por defecto si no se han fijado
+  // con sus setters. Solo el fichero de propiedades los lee (loadTuning).
   public HybridServer(Configuration conf) {
     // Inicializar con la configuración recibida del fichero XML
     this.conf = conf;
     this.numClients = conf.getNumClients();
     this.port = conf.getHttpPort();
     this.config = null;
-    this.threadPool = Executors.newFixedThreadPool(numClients);
+    this.metrics = new ServerMetrics();
+    this.admission = new AdmissionController(conf.getMaxConnectionsPerClient());
+    this.threadPool = createThreadPool();
+    this.pipelinePool = createPipelinePool();
+    this.rejectionPool = createRejectionPool();
+    this.cpuExecutor = createCpuExecutor();
+    this.compressedCache = new CompressedBodyCache(conf.getCompressionCacheSize());
     
     // Determinar tipo de DAO según configuración
     String dbUrl = conf.getDbURL();
@@ -74,10 +130,7 @@ public class HybridServer implements AutoCloseable {
     if (dbUrl != null && dbUser != null && dbPassword != null) {
       // Intentar usar base de datos
       try {
-        this.htmlDAO = new HTMLPageDatabaseDAO(dbUrl, dbUser, dbPassword);
-        this.xmlDAO = new XMLPageDatabaseDAO(dbUrl, dbUser, dbPassword);
-        this.xsdDAO = new XSDPageDatabaseDAO(dbUrl, dbUser, dbPassword);
-        this.xsltDAO = new XSLPageDatabaseDAO(dbUrl, dbUser, dbPassword);
+        bindStores(dbUrl, dbUser, dbPassword);
 
         System.out.println("Usando almacenamiento en base de datos con fichero config: " + dbUrl);
       } catch (Exception e) {
@@ -97,7 +150,19 @@ public class HybridServer implements AutoCloseable {
     this.config = properties;
     this.numClients = Integer.parseInt(properties.getProperty("numClients", "50"));
     this.port = Integer.parseInt(properties.getProperty("port", String.valueOf(SERVICE_PORT)));
-    this.threadPool = Executors.newFixedThreadPool(numClients);
+    this.conf = new Configuration(
+      port, numClients, null,
+      properties.getProperty("db.user"), properties.getProperty("db.password"), properties.getProperty("db.url"),
+      new ArrayList<>()
+    );
+    loadTuning(conf, properties);
+    this.metrics = new ServerMetrics();
+    this.admission = new AdmissionController(conf.getMaxConnectionsPerClient());
+    this.threadPool = createThreadPool();
+    this.pipelinePool = createPipelinePool();
+    this.rejectionPool = createRejectionPool();
+    this.cpuExecutor = createCpuExecutor();
+    this.compressedCache = new CompressedBodyCache(conf.getCompressionCacheSize());
     
     // Determinar tipo de DAO según configuración
     String dbUrl = properties.getProperty("db.url");
@@ -107,10 +172,7 @@ public class HybridServer implements AutoCloseable {
     if (dbUrl != null && dbUser != null && dbPassword != null) {
       // Intentar usar base de datos
       try {
-        this.htmlDAO = new HTMLPageDatabaseDAO(dbUrl, dbUser, dbPassword);
-        this.xmlDAO = new XMLPageDatabaseDAO(dbUrl, dbUser, dbPassword);
-        this.xsdDAO = new XSDPageDatabaseDAO(dbUrl, dbUser, dbPassword);
-        this.xsltDAO = new XSLPageDatabaseDAO(dbUrl, dbUser, dbPassword);
+        bindStores(dbUrl, dbUser, dbPassword);
 
         System.out.println("Usando almacenamiento en base de datos con fichero properties: " + dbUrl);
       } catch (Exception e) {
@@ -124,25 +186,389 @@ public class HybridServer implements AutoCloseable {
     }
   }
 
+  // Parámetros opcionales de ajuste del servidor en el fichero de propiedades
+  private static void loadTuning(Configuration conf, Properties properties) {
+    conf.setQueueSize(Integer.parseInt(
+      properties.getProperty("queueSize", String.valueOf(conf.getQueueSize()))));
+    conf.setRejectionPolicy(RejectionPolicy.fromName(
+      properties.getProperty("rejectionPolicy", conf.getRejectionPolicy().getName())));
+    conf.setMaxConnectionsPerClient(Integer.parseInt(
+      properties.getProperty("maxClientsPerIP", String.valueOf(conf.getMaxConnectionsPerClient()))));
+    conf.setRetryAfter(Integer.parseInt(
+      properties.getProperty("retryAfter", String.valueOf(conf.getRetryAfter()))));
+    conf.setDrainTimeout(Long.parseLong(
+      properties.getProperty("drainTimeout", String.valueOf(conf.getDrainTimeout()))));
+    conf.setWarmupFile(properties.getProperty("warmup.file", conf.getWarmupFile()));
+    conf.setWarmupSize(Integer.parseInt(
+      properties.getProperty("warmup.size", String.valueOf(conf.getWarmupSize()))));
+    conf.setCompressionEnabled(Boolean.parseBoolean(
+      properties.getProperty("compression.enabled", String.valueOf(conf.isCompressionEnabled()))));
+    conf.setCompressionThreshold(Integer.parseInt(
+      properties.getProperty("compression.threshold", String.valueOf(conf.getCompressionThreshold()))));
+    conf.setCompressionCacheSize(Long.parseLong(
+      properties.getProperty("compression.cacheSize", String.valueOf(conf.getCompressionCacheSize()))));
+    conf.setStreamingThreshold(Long.parseLong(
+      properties.getProperty("streaming.threshold", String.valueOf(conf.getStreamingThreshold()))));
+    conf.setKeepAlive(Boolean.parseBoolean(
+      properties.getProperty("keepAlive", String.valueOf(conf.isKeepAlive()))));
+    conf.setKeepAliveTimeout(Integer.parseInt(
+      properties.getProperty("keepAliveTimeout", String.valueOf(conf.getKeepAliveTimeout()))));
+    conf.setPipelineDepth(Integer.parseInt(
+      properties.getProperty("pipeline.depth", String.valueOf(conf.getPipelineDepth()))));
+    conf.setMaxBodySize(Long.parseLong(
+      properties.getProperty("maxBodySize", String.valueOf(conf.getMaxBodySize()))));
+    conf.setCpuThreads(Integer.parseInt(
+      properties.getProperty("cpu.threads", String.valueOf(conf.getCpuThreads()))));
+    conf.setCpuQueueSize(Integer.parseInt(
+      properties.getProperty("cpu.queueSize", String.valueOf(conf.getCpuQueueSize()))));
+    conf.setDbPoolSize(Integer.parseInt(
+      properties.getProperty("db.poolSize", String.valueOf(conf.getDbPoolSize()))));
+    conf.setDbMaxConnections(Integer.parseInt(
+      properties.getProperty("db.maxConnections", String.valueOf(conf.getDbMaxConnections()))));
+    conf.setDbMaxWait(Long.parseLong(
+      properties.getProperty("db.maxWait", String.valueOf(conf.getDbMaxWait()))));
+    conf.setPrepStmtCacheSize(Integer.parseInt(
+      properties.getProperty("db.prepStmtCacheSize", String.valueOf(conf.getPrepStmtCacheSize()))));
+    conf.setBinaryKeys(Boolean.parseBoolean(
+      properties.getProperty("db.binaryKeys", String.valueOf(conf.isBinaryKeys()))));
+    conf.setDocumentMetadata(Boolean.parseBoolean(
+      properties.getProperty("db.metadata", String.valueOf(conf.isDocumentMetadata()))));
+    conf.setStorageCompression(Boolean.parseBoolean(
+      properties.getProperty("db.compression", String.valueOf(conf.isStorageCompression()))));
+    conf.setStorageDeduplication(Boolean.parseBoolean(
+      properties.getProperty("db.deduplication", String.valueOf(conf.isStorageDeduplication()))));
+    conf.setGroupCommitMaxDelay(Integer.parseInt(
+      properties.getProperty("db.groupCommit.maxDelay", String.valueOf(conf.getGroupCommitMaxDelay()))));
+    conf.setGroupCommitBatchSize(Integer.parseInt(
+      properties.getProperty("db.groupCommit.batchSize", String.valueOf(conf.getGroupCommitBatchSize()))));
+    conf.setDbReplicas(parseList(properties.getProperty("db.replicas", "")));
+    conf.setDbShards(parseList(properties.getProperty("db.shards", "")));
+    conf.setReplicaPolicy(ReplicaRouter.Policy.fromName(
+      properties.getProperty("db.replicas.policy", conf.getReplicaPolicy().getName())));
+    conf.setReplicaReadYourWrites(Integer.parseInt(
+      properties.getProperty("db.replicas.readYourWrites", String.valueOf(conf.getReplicaReadYourWrites()))));
+    conf.setReplicaMaxLag(Integer.parseInt(
+      properties.getProperty("db.replicas.maxLag", String.valueOf(conf.getReplicaMaxLag()))));
+    conf.setDbAsyncThreads(Integer.parseInt(
+      properties.getProperty("db.async.threads", String.valueOf(conf.getDbAsyncThreads()))));
+    conf.setDbAsyncQueueSize(Integer.parseInt(
+      properties.getProperty("db.async.queueSize", String.valueOf(conf.getDbAsyncQueueSize()))));
+    conf.setIdGenerator(IdGenerator.fromName(
+      properties.getProperty("uuid.generator", conf.getIdGenerator().getName())));
+  }
+
+  // Pool fijo con cola acotada: cuando se llena se aplica la política de rechazo
+  // configurada en lugar de acumular conexiones indefinidamente.
+  private ThreadPoolExecutor createThreadPool() {
+    return new ThreadPoolExecutor(
+      numClients, numClients, 0L, TimeUnit.MILLISECONDS,
+      new ArrayBlockingQueue<>(Math.max(1, conf.getQueueSize())),
+      createRejectionHandler()
+    );
+  }
+
+  // Pool para las peticiones GET encadenadas (pipelining) de una misma
+  // conexión. Si está saturado, la petición se procesa en el propio hilo de
+  // la conexión, de modo que nunca queda esperando a un hueco en este pool.
+  private ThreadPoolExecutor createPipelinePool() {
+    final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+      numClients, numClients, 30L, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(Math.max(1, numClients * conf.getPipelineDepth())),
+      task -> {
+        final Thread thread = new Thread(task, "hybridserver-pipeline");
+        thread.setDaemon(true);
+        return thread;
+      },
+      new ThreadPoolExecutor.CallerRunsPolicy()
+    );
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  // Ejecutor de las transformaciones y validaciones, separado de los hilos
+  // que atienden las conexiones: como mucho ocupan un hilo por núcleo y, con
+  // su cola llena, las nuevas se rechazan con un 503 en lugar de acaparar los
+  // hilos de las conexiones.
+  private Bulkhead createCpuExecutor() {
+    final int threads = conf.getCpuThreads() > 0 ? conf.getCpuThreads() : Runtime.getRuntime().availableProcessors();
+    return new Bulkhead("cpu", threads, conf.getCpuQueueSize(), false);
+  }
+
+  private RejectedExecutionHandler createRejectionHandler() {
+    if (conf.getRejectionPolicy() == RejectionPolicy.DROP_OLDEST) {
+      return (task, executor) -> {
+        if (executor.isShutdown()) {
+          reject(task);
+          return;
+        }
+
+        final Runnable oldest = executor.getQueue().poll();
+        if (oldest != null) {
+          metrics.connectionDropped();
+          sendRejection((ServiceThread) oldest);
+        }
+
+        if (!executor.getQueue().offer(task)) {
+          reject(task);
+        }
+      };
+    } else {
+      return (task, executor) -> reject(task);
+    }
+  }
+
+  private void reject(Runnable task) {
+    metrics.connectionRejected();
+    sendRejection((ServiceThread) task);
+  }
+
+  // Pool para enviar las respuestas de rechazo fuera del hilo que acepta
+  // conexiones, de modo que un cliente lento no bloquee al resto
+  private ThreadPoolExecutor createRejectionPool() {
+    final ThreadPoolExecutor pool = new ThreadPoolExecutor(
+      REJECTION_THREADS, REJECTION_THREADS, 30L, TimeUnit.SECONDS,
+      new ArrayBlockingQueue<>(REJECTION_QUEUE_SIZE),
+      task -> {
+        final Thread thread = new Thread(task, "hybridserver-reject");
+        thread.setDaemon(true);
+        return thread;
+      }
+    );
+    pool.allowCoreThreadTimeOut(true);
+    return pool;
+  }
+
+  // Responde 503 a una conexión que no se va a atender. Si tampoco hay hueco
+  // para enviar el rechazo, la conexión se cierra sin respuesta.
+  private void sendRejection(ServiceThread connection) {
+    try {
+      rejectionPool.execute(() -> connection.reject(HTTPResponseStatus.S503, conf.getRetryAfter()));
+    } catch (RejectedExecutionException e) {
+      connection.abort();
+    }
+  }
+
   public int getPort() {
     return port;
   }
+
+  public ServerMetrics getMetrics() {
+    return metrics;
+  }
+
+  public AdmissionController getAdmissionController() {
+    return admission;
+  }
+
+  public HotDocuments getHotDocuments() {
+    return hotDocuments;
+  }
+
+  public ETagCache getETagCache() {
+    return etagCache;
+  }
+
+  public CompressedBodyCache getCompressedCache() {
+    return compressedCache;
+  }
+
+  public TransformCache getTransformCache() {
+    return transformCache;
+  }
+
+  public Configuration getConfiguration() {
+    return conf;
+  }
+
+  // Hilos que procesan las peticiones GET y HEAD encadenadas (pipelining)
+  ExecutorService getPipelinePool() {
+    return pipelinePool;
+  }
+
+  // Hilos que atienden las conexiones
+  ThreadPoolExecutor getThreadPool() {
+    return threadPool;
+  }
+
+  Bulkhead getCpuExecutor() {
+    return cpuExecutor;
+  }
+
+  /**
+   * @return Ejecutor de las consultas asíncronas, o null si se hacen en el
+   * hilo de la petición
+   */
+  Bulkhead getDbExecutor() {
+    return dbExecutor;
+  }
+
+  // Indica que el servidor se está cerrando: las conexiones persistentes no
+  // deben esperar más peticiones
+  boolean isStopping() {
+    return stop;
+  }
+
+  /**
+   * El servidor está vivo mientras acepta conexiones.
+   */
+  public boolean isLive() {
+    return serverSocket != null && !stop;
+  }
+
+  /**
+   * El servidor está listo cuando, además, ha terminado la inicialización en
+   * segundo plano (conexión con la base de datos y precarga de documentos).
+   */
+  public boolean isReady() {
+    return ready && isLive();
+  }
+
+  // Registro de las conexiones que se están atendiendo, usado al drenar
+  void connectionOpened(ServiceThread connection) {
+    connections.add(connection);
+  }
+
+  void connectionClosed(ServiceThread connection) {
+    connections.remove(connection);
+  }
   
-  // Getters for ServiceThread
-  public HTMLPageDatabaseDAO getHtmlDAO() {
-    return htmlDAO;
+  /**
+   * @return Agrupador de las escrituras de documentos, o null si el group
+   * commit está desactivado
+   */
+  public GroupCommitter getGroupCommitter() {
+    return groupCommitter;
+  }
+
+  /**
+   * @return Reparto de lecturas entre réplicas, o null si no hay réplicas
+   */
+  public ReplicaRouter getReplicaRouter() {
+    return replicaRouter;
+  }
+
+  public DocumentStore getStore(DocumentType docType) {
+    return stores.get(docType);
+  }
+
+  public PageDAO getDAO(DocumentType docType) {
+    return stores.get(docType);
+  }
+
+  // Cada tipo de documento queda asociado a su almacén una sola vez. Todos
+  // comparten el pool, cuyas conexiones guardan en caché las sentencias preparadas
+  private void bindStores(String dbUrl, String dbUser, String dbPassword) {
+    this.connectionPool = createPool(dbUrl, dbUser, dbPassword);
+
+    if (!conf.getDbShards().isEmpty()) {
+      // Cada shard necesitaría sus propias réplicas y su group commit
+      if (!conf.getDbReplicas().isEmpty() || conf.getGroupCommitMaxDelay() > 0) {
+        System.err.println("Aviso: con db.shards se ignoran db.replicas y db.groupCommit");
+      }
+      // Los shards usan las mismas credenciales y opciones que el principal
+      final List<ConnectionPool> shardPools = new ArrayList<>();
+      shardPools.add(connectionPool);
+      for (String shardUrl : conf.getDbShards()) {
+        shardPools.add(createPool(shardUrl, dbUser, dbPassword));
+      }
+      this.shardMap = new ShardMap(shardPools);
+    } else {
+      if (conf.getGroupCommitMaxDelay() > 0) {
+        this.groupCommitter = new GroupCommitter(
+          connectionPool, conf.getGroupCommitBatchSize(), conf.getGroupCommitMaxDelay());
+      }
+      if (!conf.getDbReplicas().isEmpty()) {
+        // Las réplicas usan las mismas credenciales y opciones que el primario
+        final List<ConnectionPool> replicaPools = new ArrayList<>();
+        for (String replicaUrl : conf.getDbReplicas()) {
+          replicaPools.add(createPool(replicaUrl, dbUser, dbPassword));
+        }
+        this.replicaRouter = new ReplicaRouter(connectionPool, replicaPools, conf.getReplicaPolicy(),
+          conf.getReplicaReadYourWrites(), conf.getReplicaMaxLag());
+      }
+    }
+
+    if (conf.getDbAsyncThreads() > 0) {
+      // Si su cola está llena (o ya se ha cerrado) la consulta se hace en el
+      // hilo que la pide: pierde el paralelismo, pero no falla ni se pierde
+      this.dbExecutor = new Bulkhead("db", conf.getDbAsyncThreads(), conf.getDbAsyncQueueSize(), true);
+    }
+
+    final StoreOptions options = new StoreOptions()
+      .setBinaryKeys(conf.isBinaryKeys())
+      .setMetadata(conf.isDocumentMetadata())
+      .setCompression(conf.isStorageCompression())
+      .setDeduplication(conf.isStorageDeduplication())
+      .setGroupCommitter(groupCommitter)
+      .setReplicaRouter(replicaRouter)
+      .setShards(shardMap)
+      .setExecutor(dbExecutor);
+    for (DocumentType type : DocumentType.values()) {
+      stores.put(type, new DocumentStore(type.getTable(), type.hasXsd(), connectionPool, options));
+    }
+  }
+
+  private ConnectionPool createPool(String dbUrl, String dbUser, String dbPassword) {
+    return new ConnectionPool(
+      ConnectionPool.withStatementCache(dbUrl, conf.getPrepStmtCacheSize()),
+      dbUser, dbPassword, conf.getDbPoolSize(), conf.getDbMaxConnections(), conf.getDbMaxWait()
+    );
+  }
+
+  // Lista separada por comas de una propiedad (URLs de réplicas o shards)
+  static List<String> parseList(String value) {
+    final List<String> items = new ArrayList<>();
+    for (String item : value.split(",")) {
+      if (!item.trim().isEmpty()) {
+        items.add(item.trim());
+      }
+    }
+    return items;
   }
 
-  public XMLPageDatabaseDAO getXmlDAO() {
-    return xmlDAO;
+  public Router getRouter() {
+    return router;
   }
 
-  public XSDPageDatabaseDAO getXsdDAO() {
-    return xsdDAO;
+  DocumentController getDocumentController() {
+    return documentController;
   }
 
-  public XSLPageDatabaseDAO getXslDAO() {
-    return xsltDAO;
+  // Rutas del servidor. Las de documentos se generan a partir de DocumentType;
+  // los recursos desconocidos mantienen las respuestas de siempre según el
+  // método (400 en GET y HEAD, 405 en POST, 404 en DELETE). Las peticiones
+  // HEAD reciben las cabeceras de la respuesta sin el cuerpo
+  private Router createRouter() {
+    final DocumentController controller = documentController;
+    final Router router = new Router(
+      request -> DocumentController.createErrorResponse(HTTPResponseStatus.S405, "Method Not Allowed"));
+
+    router.register(HTTPRequestMethod.GET, "", request -> controller.createWelcomePage());
+    router.register(HTTPRequestMethod.HEAD, "", request -> controller.createWelcomePage());
+
+    // Rutas de administración: vivo (acepta conexiones), listo (arranque
+    // completado) y métricas de admisión
+    router.register(HTTPRequestMethod.GET, "admin/live", request -> controller.createHealthResponse(isLive()));
+    router.register(HTTPRequestMethod.GET, "admin/ready", request -> controller.createHealthResponse(isReady()));
+    router.register(HTTPRequestMethod.HEAD, "admin/live", request -> controller.createHealthResponse(isLive()));
+    router.register(HTTPRequestMethod.HEAD, "admin/ready", request -> controller.createHealthResponse(isReady()));
+    router.register(HTTPRequestMethod.GET, "admin/metrics", request -> controller.createMetricsResponse());
+
+    for (DocumentType docType : DocumentType.values()) {
+      router.register(HTTPRequestMethod.GET, docType.getPath(), request -> controller.handleGet(request, docType));
+      router.register(HTTPRequestMethod.HEAD, docType.getPath(), request -> controller.handleHead(request, docType));
+      router.register(HTTPRequestMethod.POST, docType.getPath(), request -> controller.createDocument(request, docType));
+      router.register(HTTPRequestMethod.DELETE, docType.getPath(), request -> controller.handleDelete(request, docType));
+    }
+
+    router.fallback(HTTPRequestMethod.GET,
+      request -> DocumentController.createErrorResponse(HTTPResponseStatus.S400, "Bad Request"));
+    router.fallback(HTTPRequestMethod.HEAD,
+      request -> DocumentController.createErrorResponse(HTTPResponseStatus.S400, "Bad Request"));
+    router.fallback(HTTPRequestMethod.DELETE,
+      request -> DocumentController.createErrorResponse(HTTPResponseStatus.S404, "Not Found"));
+
+    return router;
   }
   
   public Properties getConfig() {
@@ -150,12 +576,24 @@ public class HybridServer implements AutoCloseable {
   }
 
   public void start() {
+    this.stop = false;
+    this.ready = false;
+
+    // El puerto se abre inmediatamente; la inicialización costosa se hace
+    // después en segundo plano mientras ya se aceptan conexiones
+    try {
+      this.serverSocket = new ServerSocket(getPort());
+      System.out.println("ServerSocket creado y escuchando en puerto " + getPort());
+    } catch (IOException e) {
+      System.err.println("Error iniciando ServerSocket: " + e.getMessage());
+      e.printStackTrace();
+      return;
+    }
+
     this.serverThread = new Thread() {
       @Override
       public void run() {
-        try (final ServerSocket serverSocket = new ServerSocket(getPort())) {
-          System.out.println("ServerSocket creado y escuchando en puerto " + getPort());
-          
+        try (final ServerSocket serverSocket = HybridServer.this.serverSocket) {
           while (!stop) {
             try {
               Socket socket = serverSocket.accept();
@@ -165,42 +603,139 @@ public class HybridServer implements AutoCloseable {
               }
 
               System.out.println("Nueva conexión aceptada desde: " + socket.getRemoteSocketAddress());
-              // Usar pool de hilos para manejar cada cliente
-              threadPool.execute(new ServiceThread(socket, HybridServer.this));
+              final ServiceThread serviceThread = new ServiceThread(socket, HybridServer.this);
+
+              // Limitar conexiones simultáneas de una misma IP
+              if (!admission.tryAcquire(socket.getInetAddress())) {
+                metrics.connectionRejectedPerClient();
+                sendRejection(serviceThread);
+                continue;
+              }
+
+              serviceThread.markAdmitted();
+              // Usar pool de hilos para manejar cada cliente. La conexión se
+              // cuenta como aceptada cuando empieza a atenderse: si la cola
+              // está llena se cuenta como rechazada o descartada
+              threadPool.execute(serviceThread);
             } catch (IOException e) {
               if (!stop) {
                 System.err.println("Error aceptando conexión: " + e.getMessage());
               }
             }
           }
-          System.out.println("Servidor detenido correctamente");
+          System.out.println("Servidor detenido correctamente (" + metrics + ")");
         } catch (IOException e) {
-          System.err.println("Error iniciando ServerSocket: " + e.getMessage());
-          e.printStackTrace();
+          System.err.println("Error cerrando ServerSocket: " + e.getMessage());
         }
       }
     };
 
-    this.stop = false;
     this.serverThread.start();
+    warmUp();
   }
 
-  @Override
-  public void close() {
-    // Liberar recursos: pool de hilos y servidor
-    this.stop = true;
+  // Comprueba en paralelo la conexión de cada DAO con la base de datos (lo que
+  // también carga el driver JDBC) y, después, precarga los documentos más
+  // solicitados en la ejecución anterior.
+  private void warmUp() {
+    final long startTime = System.currentTimeMillis();
+    final ExecutorService startupPool = Executors.newFixedThreadPool(DocumentType.values().length, task -> {
+      final Thread thread = new Thread(task, "hybridserver-startup");
+      thread.setDaemon(true);
+      return thread;
+    });
 
-    // Cerrar pool de hilos
-    if (threadPool != null) {
-      threadPool.shutdown();
+    final List<CompletableFuture<Void>> checks = new ArrayList<>();
+    for (DocumentType docType : DocumentType.values()) {
+      final PageDAO dao = getDAO(docType);
+      if (dao != null) {
+        checks.add(CompletableFuture.runAsync(() -> checkConnection(dao), startupPool));
+      }
+    }
+
+    CompletableFuture.allOf(checks.toArray(new CompletableFuture<?>[0]))
+      .thenRunAsync(this::preloadHotDocuments, startupPool)
+      .whenComplete((result, error) -> {
+        startupPool.shutdown();
+
+        if (error == null) {
+          this.ready = true;
+          System.out.println("Servidor listo en " + (System.currentTimeMillis() - startTime) + "ms");
+        } else {
+          System.err.println("Error en la inicialización del servidor: " + error.getMessage());
+        }
+      });
+  }
+
+  // Si la base de datos no responde (por ejemplo, porque aún está
+  // arrancando) se reintenta con esperas crecientes hasta que responda o se
+  // detenga el servidor, de modo que el servidor acaba estando listo.
+  private void checkConnection(PageDAO dao) {
+    long backoff = WARMUP_INITIAL_BACKOFF;
+    while (true) {
+      try {
+        dao.pageExists("00000000-0000-0000-0000-000000000000");
+        return;
+      } catch (Exception e) {
+        if (stop) {
+          throw new IllegalStateException("No se pudo conectar con la base de datos: " + e.getMessage(), e);
+        }
+        System.err.println("No se pudo conectar con la base de datos, reintento en " + backoff + "ms: " + e.getMessage());
+      }
+
+      try {
+        Thread.sleep(backoff);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Comprobación de la base de datos interrumpida", e);
+      }
+      backoff = Math.min(backoff * 2, WARMUP_MAX_BACKOFF);
+    }
+  }
+
+  private void preloadHotDocuments() {
+    if (conf.getWarmupFile() == null) {
+      return;
+    }
+
+    try {
+      int loaded = 0;
+      for (HotDocuments.Entry entry : HotDocuments.load(Paths.get(conf.getWarmupFile()))) {
+        if (getDAO(entry.getType()) != null && documentController.preload(entry.getType(), entry.getUuid())) {
+          loaded++;
+        }
+      }
+      System.out.println("Precargados " + loaded + " documentos desde " + conf.getWarmupFile());
+    } catch (Exception e) {
+      // La precarga es una optimización: si falla, el servidor sigue arrancando
+      System.err.println("Error precargando documentos: " + e.getMessage());
+    }
+  }
+
+  private void saveHotDocuments() {
+    if (conf.getWarmupFile() == null) {
+      return;
     }
 
-    // Intentar despertar el hilo servidor de forma segura
-    try (Socket socket = new Socket("localhost", getPort())) {
-      // Esta conexión se hace, simplemente, para "despertar" el hilo servidor
+    try {
+      hotDocuments.save(Paths.get(conf.getWarmupFile()), conf.getWarmupSize());
     } catch (IOException e) {
-      // Si no podemos conectar, el servidor probablemente ya está cerrado
-      System.err.println("No se pudo conectar para despertar el servidor (probablemente ya cerrado): " + e.getMessage());
+      System.err.println("Error guardando los documentos más solicitados: " + e.getMessage());
+    }
+  }
+
+  @Override
+  public void close() {
+    // Dejar de aceptar conexiones nuevas
+    this.stop = true;
+
+    // Cerrar el ServerSocket despierta al hilo servidor bloqueado en accept()
+    if (serverSocket != null) {
+      try {
+        serverSocket.close();
+      } catch (IOException e) {
+        System.err.println("Error cerrando el ServerSocket: " + e.getMessage());
+      }
     }
 
     if (serverThread != null) {
@@ -212,5 +747,83 @@ public class HybridServer implements AutoCloseable {
       }
       this.serverThread = null;
     }
+
+    // Terminar las peticiones en curso antes de liberar el pool
+    if (threadPool != null) {
+      drain();
+    }
+  }
+
+  // Espera a que terminen las peticiones en curso y encoladas hasta el plazo
+  // configurado. Al vencer el plazo, las encoladas reciben un 503 y las que
+  // siguen en proceso (o sin petición recibida) se cierran.
+  private void drain() {
+    final int pending = connections.size() + threadPool.getQueue().size();
+    System.out.println("Drenando " + pending + " peticiones (plazo " + conf.getDrainTimeout() + "ms)");
+
+    threadPool.shutdown();
+
+    // Las conexiones persistentes que esperan otra petición no tienen nada en
+    // curso: se cierran ya en lugar de esperar a que venza su inactividad
+    int idle = 0;
+    for (ServiceThread connection : connections) {
+      if (connection.closeIfIdle()) {
+        idle++;
+      }
+    }
+
+    int aborted = 0;
+    try {
+      if (!threadPool.awaitTermination(conf.getDrainTimeout(), TimeUnit.MILLISECONDS)) {
+        for (Runnable task : threadPool.shutdownNow()) {
+          sendRejection((ServiceThread) task);
+          aborted++;
+        }
+        for (ServiceThread connection : connections) {
+          connection.abort();
+          aborted++;
+        }
+      }
+    } catch (InterruptedException e) {
+      System.err.println("Interrupción mientras se drenaban las peticiones: " + e.getMessage());
+      threadPool.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+    pipelinePool.shutdownNow();
+    // Dar tiempo a que se envíen los rechazos ya encolados
+    rejectionPool.shutdown();
+    try {
+      rejectionPool.awaitTermination(ServiceThread.REJECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    cpuExecutor.shutdown();
+    System.out.println("Ejecutor de CPU: " + cpuExecutor);
+
+    System.out.println("Peticiones drenadas: " + Math.max(0, pending - idle - aborted)
+      + ", abortadas: " + aborted + ", conexiones inactivas cerradas: " + idle);
+    saveHotDocuments();
+    if (dbExecutor != null) {
+      // Las peticiones ya han terminado: no quedan consultas que esperar
+      dbExecutor.shutdown();
+      System.out.println("Ejecutor de consultas: " + dbExecutor);
+    }
+    if (groupCommitter != null) {
+      // Confirmar las escrituras que queden en cola antes de cerrar el pool
+      groupCommitter.close();
+      System.out.println("Group commit: " + groupCommitter);
+    }
+    if (replicaRouter != null) {
+      System.out.println("Réplicas: " + replicaRouter);
+      replicaRouter.close();
+    }
+    if (shardMap != null) {
+      shardMap.close();
+    }
+    if (connectionPool != null) {
+      connectionPool.close();
+    }
+    System.out.flush();
+    System.err.flush();
   }
 }
\ No newline at end of file
@@ -0,0 +1,79 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generador de los UUID que identifican a los documentos nuevos. Todos
+ * producen el formato textual habitual de 36 caracteres.
+ */
+public enum IdGenerator {
+  /** UUID versión 4, completamente aleatorio ({@link UUID#randomUUID()}). */
+  RANDOM("random") {
+    @Override
+    public String next() {
+      return UUID.randomUUID().toString();
+    }
+  },
+  /**
+   * UUID versión 7: los 48 bits más significativos son el instante de
+   * creación en milisegundos y el resto es aleatorio. Los documentos nuevos
+   * quedan al final del índice de la clave primaria en lugar de repartirse
+   * por todo él, y el aleatorio de cada hilo evita la contención de
+   * {@code SecureRandom} entre hilos.
+   */
+  TIME_ORDERED("time-ordered") {
+    @Override
+    public String next() {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      final long mostSigBits = (System.currentTimeMillis() << 16)
+        | 0x7000L // Versión 7
+        | (random.nextInt() & 0x0FFFL);
+      final long leastSigBits = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL)
+        | 0x8000000000000000L; // Variante IETF
+
+      return new UUID(mostSigBits, leastSigBits).toString();
+    }
+  };
+
+  private final String name;
+
+  private IdGenerator(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Genera un nuevo identificador de documento.
+   */
+  public abstract String next();
+
+  public static IdGenerator fromName(String name) {
+    for (IdGenerator generator : values()) {
+      if (generator.name.equalsIgnoreCase(name)) {
+        return generator;
+      }
+    }
+    throw new IllegalArgumentException("Generador de identificadores desconocido: " + name);
+  }
+}
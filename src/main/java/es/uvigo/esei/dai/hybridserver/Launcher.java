@@ -17,20 +17,66 @@
  */
 package es.uvigo.esei.dai.hybridserver;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Properties;
 
+import es.uvigo.esei.dai.hybridserver.dao.ConnectionPool;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentStore;
+import es.uvigo.esei.dai.hybridserver.dao.KeyMigration;
+import es.uvigo.esei.dai.hybridserver.dao.ShardMap;
+import es.uvigo.esei.dai.hybridserver.dao.ShardRebalancer;
+import es.uvigo.esei.dai.hybridserver.dao.StoreOptions;
+
 public class Launcher {
+  private static final String USAGE =
+    "Uso: java es.uvigo.esei.dai.hybridserver.Launcher [--cds archivo.jsa] [--training-run] [archivo_configuracion]\n"
+    + "     java es.uvigo.esei.dai.hybridserver.Launcher --migrate-keys archivo_configuracion\n"
+    + "     java es.uvigo.esei.dai.hybridserver.Launcher --train-dictionaries archivo_configuracion [muestras]\n"
+    + "     java es.uvigo.esei.dai.hybridserver.Launcher --rebalance-shards archivo_configuracion";
+  private static final int DEFAULT_DICTIONARY_SAMPLES = 200;
+
   public static void main(String[] args) {
     
     
     HybridServer server = null;
+    boolean trainingRun = false;
+
+    // Opciones de arranque
+    final List<String> arguments = new ArrayList<>(Arrays.asList(args));
+    if (arguments.size() >= 2 && "--cds".equals(arguments.get(0))) {
+      // Relanzar la JVM usando el archivo CDS generado por el perfil "cds"
+      arguments.remove(0);
+      System.exit(launchWithArchive(arguments.remove(0), arguments));
+    }
+    if (arguments.size() == 2 && "--migrate-keys".equals(arguments.get(0))) {
+      // Convertir las claves de las tablas a BINARY(16) y terminar
+      System.exit(migrateKeys(arguments.get(1)));
+    }
+    if ((arguments.size() == 2 || arguments.size() == 3) && "--train-dictionaries".equals(arguments.get(0))) {
+      // Entrenar los diccionarios de compresión de cada tabla y terminar
+      System.exit(trainDictionaries(arguments.get(1),
+        arguments.size() == 3 ? Integer.parseInt(arguments.get(2)) : DEFAULT_DICTIONARY_SAMPLES));
+    }
+    if (arguments.size() == 2 && "--rebalance-shards".equals(arguments.get(0))) {
+      // Mover cada documento a su shard (tras cambiar db.shards) y terminar
+      System.exit(rebalanceShards(arguments.get(1)));
+    }
+    if (!arguments.isEmpty() && "--training-run".equals(arguments.get(0))) {
+      arguments.remove(0);
+      trainingRun = true;
+    }
+    args = arguments.toArray(new String[0]);
     
     // Validar parámetros de entrada
     if (args.length > 1) {
       System.err.println("Error: Demasiados parámetros.");
-      System.err.println("Uso: java es.uvigo.esei.dai.hybridserver.Launcher [archivo_configuracion]");
+      System.err.println(USAGE);
       System.exit(1); 
     }
     
@@ -51,10 +97,16 @@ public class Launcher {
        
       }
       
+      if (trainingRun) {
+        new TrainingRun(server).run();
+        return;
+      }
+
       System.out.println("Hybrid Server iniciado en puerto " + server.getPort());
       System.out.println("URLs disponibles:");
       System.out.println("  - Página principal: http://localhost:" + server.getPort() + "/");
       System.out.println("  - Lista de páginas: http://localhost:" + server.getPort() + "/html");
+      System.out.println("  - Estado (vivo/listo): http://localhost:" + server.getPort() + "/admin/live, /admin/ready");
       
       //añadir ShutDown Hook
       //se ejecutara cuando la JVM se detenga (ej con Ctrl+C)
@@ -82,4 +134,140 @@ public class Launcher {
       e.printStackTrace();
     } 
   }
+
+  // Migra las tablas de documentos de la base de datos configurada a claves
+  // binarias. Devuelve el código de salida.
+  private static int migrateKeys(String configFile) {
+    final Properties properties = new Properties();
+    try (FileInputStream fis = new FileInputStream(configFile)) {
+      properties.load(fis);
+    } catch (IOException e) {
+      System.err.println("Error leyendo la configuración: " + e.getMessage());
+      return 1;
+    }
+
+    final int batchSize = Integer.parseInt(
+      properties.getProperty("db.migration.batchSize", String.valueOf(KeyMigration.DEFAULT_BATCH_SIZE)));
+    try (ConnectionPool pool = new ConnectionPool(
+      properties.getProperty("db.url"), properties.getProperty("db.user"), properties.getProperty("db.password"), 1
+    )) {
+      final KeyMigration migration = new KeyMigration(pool, batchSize);
+      for (DocumentType type : DocumentType.values()) {
+        migration.migrate(type.getTable(), type.hasXsd());
+      }
+    } catch (SQLException e) {
+      System.err.println("Error migrando las claves: " + e.getMessage());
+      return 1;
+    }
+
+    System.out.println("Migración terminada: reiniciar el servidor con db.binaryKeys=true");
+    return 0;
+  }
+
+  // Entrena un diccionario de compresión por tabla de documentos a partir de
+  // sus documentos guardados. Devuelve el código de salida.
+  private static int trainDictionaries(String configFile, int samples) {
+    final Properties properties = new Properties();
+    try (FileInputStream fis = new FileInputStream(configFile)) {
+      properties.load(fis);
+    } catch (IOException e) {
+      System.err.println("Error leyendo la configuración: " + e.getMessage());
+      return 1;
+    }
+
+    final StoreOptions options = new StoreOptions()
+      .setBinaryKeys(Boolean.parseBoolean(properties.getProperty("db.binaryKeys", "false")))
+      .setMetadata(Boolean.parseBoolean(properties.getProperty("db.metadata", "false")))
+      .setCompression(Boolean.parseBoolean(properties.getProperty("db.compression", "false")))
+      .setDeduplication(Boolean.parseBoolean(properties.getProperty("db.deduplication", "false")));
+    try (ConnectionPool pool = new ConnectionPool(
+      properties.getProperty("db.url"), properties.getProperty("db.user"), properties.getProperty("db.password"), 1
+    )) {
+      for (DocumentType type : DocumentType.values()) {
+        final DocumentStore store = new DocumentStore(type.getTable(), type.hasXsd(), pool, options);
+        final int id = store.trainDictionary(samples);
+        if (id < 0) {
+          System.out.println(type.getTable() + ": sin documentos, no se entrena diccionario");
+        } else {
+          System.out.println(type.getTable() + ": diccionario " + id + " entrenado");
+        }
+      }
+    } catch (SQLException e) {
+      System.err.println("Error entrenando los diccionarios: " + e.getMessage());
+      return 1;
+    }
+
+    System.out.println("Diccionarios entrenados: se usarán con db.compression=true al reiniciar el servidor");
+    return 0;
+  }
+
+  // Mueve cada documento al shard que le corresponde según db.url y
+  // db.shards. Debe hacerse con el servidor parado. Devuelve el código de salida.
+  private static int rebalanceShards(String configFile) {
+    final Properties properties = new Properties();
+    try (FileInputStream fis = new FileInputStream(configFile)) {
+      properties.load(fis);
+    } catch (IOException e) {
+      System.err.println("Error leyendo la configuración: " + e.getMessage());
+      return 1;
+    }
+
+    final String user = properties.getProperty("db.user");
+    final String password = properties.getProperty("db.password");
+    final List<ConnectionPool> pools = new ArrayList<>();
+    pools.add(new ConnectionPool(properties.getProperty("db.url"), user, password, 1));
+    for (String url : HybridServer.parseList(properties.getProperty("db.shards", ""))) {
+      pools.add(new ConnectionPool(url, user, password, 1));
+    }
+
+    final StoreOptions options = new StoreOptions()
+      .setBinaryKeys(Boolean.parseBoolean(properties.getProperty("db.binaryKeys", "false")))
+      .setDeduplication(Boolean.parseBoolean(properties.getProperty("db.deduplication", "false")));
+    final int batchSize = Integer.parseInt(
+      properties.getProperty("db.migration.batchSize", String.valueOf(KeyMigration.DEFAULT_BATCH_SIZE)));
+    final ShardMap shards = new ShardMap(pools);
+    try {
+      final ShardRebalancer rebalancer = new ShardRebalancer(shards, options, batchSize);
+      for (DocumentType type : DocumentType.values()) {
+        System.out.println(type.getTable() + ": " + rebalancer.rebalance(type.getTable()) + " documentos movidos");
+      }
+    } catch (SQLException e) {
+      System.err.println("Error repartiendo los documentos: " + e.getMessage());
+      return 1;
+    } finally {
+      // ShardMap cierra los shards añadidos; el principal se cierra aparte
+      shards.close();
+      pools.get(0).close();
+    }
+
+    System.out.println("Reparto terminado: " + pools.size() + " shards");
+    return 0;
+  }
+
+  // Arranca una nueva JVM con el mismo classpath que comparte las clases del
+  // archivo CDS indicado. Devuelve el código de salida del proceso hijo.
+  private static int launchWithArchive(String archive, List<String> arguments) {
+    if (!new File(archive).isFile()) {
+      System.err.println("Error: no existe el archivo CDS " + archive + " (generarlo con: mvn -Pcds package)");
+      return 1;
+    }
+
+    final List<String> command = new ArrayList<>();
+    command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    command.add("-XX:SharedArchiveFile=" + archive);
+    command.add("-cp");
+    command.add(System.getProperty("java.class.path"));
+    command.add(Launcher.class.getName());
+    command.addAll(arguments);
+
+    try {
+      return new ProcessBuilder(command).inheritIO().start().waitFor();
+    } catch (IOException e) {
+      System.err.println("Error lanzando el servidor con CDS: " + e.getMessage());
+      return 1;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 1;
+    }
+  }
 }
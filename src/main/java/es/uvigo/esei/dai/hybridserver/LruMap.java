@@ -0,0 +1,48 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mapa con un número máximo de entradas: al superarlo descarta la usada hace
+ * más tiempo. No es seguro entre hilos, así que las cachés lo usan a través
+ * de {@link #synchronizedMap(int)}.
+ */
+class LruMap<K, V> extends LinkedHashMap<K, V> {
+  private static final long serialVersionUID = 1L;
+
+  private final int maxEntries;
+
+  LruMap(int maxEntries) {
+    // Ordenado por acceso: la primera entrada es la usada hace más tiempo
+    super(16, 0.75f, true);
+    this.maxEntries = maxEntries;
+  }
+
+  static <K, V> Map<K, V> synchronizedMap(int maxEntries) {
+    return Collections.synchronizedMap(new LruMap<>(maxEntries));
+  }
+
+  @Override
+  protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+    return size() > maxEntries;
+  }
+}
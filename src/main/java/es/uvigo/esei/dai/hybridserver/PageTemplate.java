@@ -0,0 +1,168 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plantilla HTML precompilada: el texto fijo se codifica en UTF-8 una sola
+ * vez y las partes variables se indican con huecos {@code {0}}, {@code {1}}...
+ * que pueden repetirse. Al generar la página solo se codifican los valores,
+ * que se escapan para HTML.
+ */
+public class PageTemplate {
+  private final byte[][] segments;
+  private final int[] slots;
+  private final int fixedLength;
+
+  private PageTemplate(byte[][] segments, int[] slots) {
+    this.segments = segments;
+    this.slots = slots;
+
+    int length = 0;
+    for (byte[] segment : segments) {
+      length += segment.length;
+    }
+    this.fixedLength = length;
+  }
+
+  public static PageTemplate compile(String template) {
+    final List<byte[]> segments = new ArrayList<>();
+    final List<Integer> slots = new ArrayList<>();
+
+    int start = 0;
+    int open;
+    while ((open = template.indexOf('{', start)) != -1) {
+      final int close = template.indexOf('}', open);
+      if (close == -1) {
+        break;
+      }
+
+      final int slot;
+      try {
+        slot = Integer.parseInt(template.substring(open + 1, close));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid slot in template: " + template.substring(open, close + 1));
+      }
+
+      segments.add(template.substring(start, open).getBytes(StandardCharsets.UTF_8));
+      slots.add(slot);
+      start = close + 1;
+    }
+    segments.add(template.substring(start).getBytes(StandardCharsets.UTF_8));
+
+    return new PageTemplate(
+      segments.toArray(new byte[0][]),
+      slots.stream().mapToInt(Integer::intValue).toArray()
+    );
+  }
+
+  /**
+   * Genera la página completa con los valores indicados para cada hueco.
+   */
+  public byte[] render(String... values) {
+    final byte[][] encoded = encode(values);
+
+    int length = fixedLength;
+    for (int slot : slots) {
+      length += encoded[slot].length;
+    }
+
+    final byte[] page = new byte[length];
+    int position = 0;
+    for (int i = 0; i < slots.length; i++) {
+      System.arraycopy(segments[i], 0, page, position, segments[i].length);
+      position += segments[i].length;
+
+      final byte[] value = encoded[slots[i]];
+      System.arraycopy(value, 0, page, position, value.length);
+      position += value.length;
+    }
+    System.arraycopy(segments[slots.length], 0, page, position, segments[slots.length].length);
+
+    return page;
+  }
+
+  /**
+   * Escribe la página directamente en un flujo, sin construirla en memoria.
+   */
+  public void writeTo(OutputStream out, String... values) throws IOException {
+    final byte[][] encoded = encode(values);
+
+    for (int i = 0; i < slots.length; i++) {
+      out.write(segments[i]);
+      out.write(encoded[slots[i]]);
+    }
+    out.write(segments[slots.length]);
+  }
+
+  private static byte[][] encode(String... values) {
+    final byte[][] encoded = new byte[values.length][];
+    for (int i = 0; i < values.length; i++) {
+      encoded[i] = escape(values[i]).getBytes(StandardCharsets.UTF_8);
+    }
+    return encoded;
+  }
+
+  private static String escape(String value) {
+    if (value == null) {
+      return "";
+    }
+
+    StringBuilder escaped = null;
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      final String replacement;
+      switch (c) {
+        case '<':
+          replacement = "&lt;";
+          break;
+        case '>':
+          replacement = "&gt;";
+          break;
+        case '&':
+          replacement = "&amp;";
+          break;
+        case '"':
+          replacement = "&quot;";
+          break;
+        case '\'':
+          replacement = "&#39;";
+          break;
+        default:
+          replacement = null;
+      }
+
+      if (replacement != null) {
+        if (escaped == null) {
+          escaped = new StringBuilder(value.length() + 16).append(value, 0, i);
+        }
+        escaped.append(replacement);
+      } else if (escaped != null) {
+        escaped.append(c);
+      }
+    }
+
+    // Sin caracteres especiales (lo habitual) no se crea ninguna copia
+    return escaped == null ? value : escaped.toString();
+  }
+}
@@ -0,0 +1,47 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+/**
+ * Política aplicada cuando la cola de peticiones del servidor está llena.
+ */
+public enum RejectionPolicy {
+  /** Se responde inmediatamente a la nueva conexión con un 503. */
+  REJECT("reject"),
+  /** Se descarta (con un 503) la conexión más antigua de la cola y se encola la nueva. */
+  DROP_OLDEST("drop-oldest");
+
+  private final String name;
+
+  private RejectionPolicy(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public static RejectionPolicy fromName(String name) {
+    for (RejectionPolicy policy : values()) {
+      if (policy.name.equalsIgnoreCase(name)) {
+        return policy;
+      }
+    }
+    throw new IllegalArgumentException("Política de rechazo desconocida: " + name);
+  }
+}
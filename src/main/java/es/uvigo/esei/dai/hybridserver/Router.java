@@ -0,0 +1,81 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import es.uvigo.esei.dai.hybridserver.http.HTTPRequest;
+import es.uvigo.esei.dai.hybridserver.http.HTTPRequestMethod;
+
+/**
+ * Tabla de rutas del servidor: asocia cada método y recurso con su
+ * manejador, de modo que despachar una petición son dos búsquedas en mapas.
+ *
+ * Las peticiones a recursos sin ruta para su método se atienden con el
+ * manejador por defecto de ese método y, si no lo hay, con el general. Se
+ * pueden añadir rutas con el servidor en marcha.
+ */
+public class Router {
+  private final Map<HTTPRequestMethod, Map<String, RequestHandler>> routes;
+  private final Map<HTTPRequestMethod, RequestHandler> fallbacks;
+  private final RequestHandler defaultHandler;
+
+  public Router(RequestHandler defaultHandler) {
+    this.routes = new EnumMap<>(HTTPRequestMethod.class);
+    for (HTTPRequestMethod method : HTTPRequestMethod.values()) {
+      this.routes.put(method, new ConcurrentHashMap<>());
+    }
+    this.fallbacks = new ConcurrentHashMap<>();
+    this.defaultHandler = defaultHandler;
+  }
+
+  /**
+   * Registra el manejador de un recurso (sin la barra inicial; la raíz es
+   * la cadena vacía) para un método, sustituyendo al anterior si lo hubiera.
+   */
+  public Router register(HTTPRequestMethod method, String resource, RequestHandler handler) {
+    routes.get(method).put(normalize(resource), handler);
+    return this;
+  }
+
+  /**
+   * Registra el manejador de los recursos sin ruta propia para un método.
+   */
+  public Router fallback(HTTPRequestMethod method, RequestHandler handler) {
+    fallbacks.put(method, handler);
+    return this;
+  }
+
+  public RequestHandler route(HTTPRequest request) {
+    final RequestHandler handler = routes.get(request.getMethod()).get(normalize(request.getResourceName()));
+    if (handler != null) {
+      return handler;
+    }
+
+    return fallbacks.getOrDefault(request.getMethod(), defaultHandler);
+  }
+
+  private static String normalize(String resource) {
+    if (resource == null) {
+      return "";
+    }
+    return resource.startsWith("/") ? resource.substring(1) : resource;
+  }
+}
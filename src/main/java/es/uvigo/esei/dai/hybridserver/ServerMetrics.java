@@ -0,0 +1,98 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Contadores del servidor: conexiones aceptadas, rechazadas y tiempo que
+ * esperan las peticiones en la cola antes de ser atendidas.
+ *
+ * Cada conexión se cuenta una sola vez: como aceptada cuando empieza a
+ * atenderse, o como rechazada (cola llena), descartada (sacada de la cola
+ * para hacer sitio) o rechazada por cliente.
+ */
+public class ServerMetrics {
+  private final LongAdder accepted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder rejectedPerClient = new LongAdder();
+
+  private final LongAdder queueWaitCount = new LongAdder();
+  private final LongAdder queueWaitTotalNanos = new LongAdder();
+  private final LongAccumulator queueWaitMaxNanos = new LongAccumulator(Math::max, 0L);
+
+  public void connectionAccepted() {
+    accepted.increment();
+  }
+
+  public void connectionRejected() {
+    rejected.increment();
+  }
+
+  public void connectionDropped() {
+    dropped.increment();
+  }
+
+  public void connectionRejectedPerClient() {
+    rejectedPerClient.increment();
+  }
+
+  public void recordQueueWait(long nanos) {
+    queueWaitCount.increment();
+    queueWaitTotalNanos.add(nanos);
+    queueWaitMaxNanos.accumulate(nanos);
+  }
+
+  public long getAccepted() {
+    return accepted.sum();
+  }
+
+  public long getRejected() {
+    return rejected.sum();
+  }
+
+  public long getDropped() {
+    return dropped.sum();
+  }
+
+  public long getRejectedPerClient() {
+    return rejectedPerClient.sum();
+  }
+
+  public double getAverageQueueWaitMillis() {
+    final long count = queueWaitCount.sum();
+    return count == 0 ? 0d : (double) queueWaitTotalNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  public double getMaxQueueWaitMillis() {
+    return (double) queueWaitMaxNanos.get() / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+      "aceptadas=%d, rechazadas=%d, descartadas=%d, rechazadas por cliente=%d, "
+        + "espera media en cola=%.2fms, espera máxima en cola=%.2fms",
+      getAccepted(), getRejected(), getDropped(), getRejectedPerClient(),
+      getAverageQueueWaitMillis(), getMaxQueueWaitMillis()
+    );
+  }
+}
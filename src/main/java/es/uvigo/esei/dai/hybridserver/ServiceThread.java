@@ -17,437 +17,343 @@
  */
 package es.uvigo.esei.dai.hybridserver;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
+import java.io.OutputStream;
 import java.net.Socket;
-import java.sql.SQLException;
-import java.util.Map;
-import java.util.UUID;
-
-import es.uvigo.esei.dai.hybridserver.dao.PageDAO;
-import es.uvigo.esei.dai.hybridserver.dao.XMLPageDatabaseDAO;
-import es.uvigo.esei.dai.hybridserver.dao.XSDPageDatabaseDAO;
-import es.uvigo.esei.dai.hybridserver.dao.XSLPageDatabaseDAO;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import es.uvigo.esei.dai.hybridserver.http.HTTPContentTooLargeException;
+import es.uvigo.esei.dai.hybridserver.http.HTTPParseException;
 import es.uvigo.esei.dai.hybridserver.http.HTTPRequest;
 import es.uvigo.esei.dai.hybridserver.http.HTTPRequestMethod;
 import es.uvigo.esei.dai.hybridserver.http.HTTPResponse;
 import es.uvigo.esei.dai.hybridserver.http.HTTPResponseStatus;
 
 public class ServiceThread implements Runnable {
+    // Plazo (ms) para enviar una respuesta de rechazo y leer lo que quede de
+    // la petición antes de cerrar
+    static final int REJECTION_TIMEOUT = 1000;
+    // Bytes de la petición que se descartan como mucho al rechazarla
+    private static final int REJECTION_DRAIN_LIMIT = 64 * 1024;
+
     private final Socket socket;
     private final HybridServer server;
+    private final long enqueuedAt;
+    private final AtomicBoolean admitted;
+    private volatile boolean idle;
 
 
     public ServiceThread
     (Socket socket, HybridServer server) {
         this.socket = socket;
         this.server = server;
+        this.enqueuedAt = System.nanoTime();
+        this.admitted = new AtomicBoolean(false);
+        this.idle = false;
     }
 
-    @Override
-    public void run() {
-        HTTPResponse response;
-
-        try (InputStreamReader reader = new InputStreamReader(socket.getInputStream(), "UTF-8");
-                OutputStreamWriter writer = new OutputStreamWriter(socket.getOutputStream(), "UTF-8")) {
-
-            try {
-                System.out.println("[ServiceThread] Iniciando procesamiento de petición");
-
-                HTTPRequest request = new HTTPRequest(reader);
-
-                System.out.println(
-                        "[ServiceThread] Petición parseada: " + request.getMethod() + " " + request.getResourceName());
-
-                response = processRequest(request);
-
-                System.out.println("[ServiceThread] Respuesta generada: " + response.getStatus());
-                System.out.println("[ServiceThread] Content-Type: " + response.getParameters().get("Content-Type"));
-                System.out.println("[ServiceThread] Content-Length: " + response.getParameters().get("Content-Length"));
-
-            } catch (Exception e) {
-                System.err.println("[ServiceThread] Error procesando petición: " + e.getMessage());
-                e.printStackTrace();
-
-                response = new HTTPResponse();
-                response.setStatus(HTTPResponseStatus.S500);
-                response.putParameter("Content-Type", "text/html");
-                response.setContent("<html><body><h1>500 Internal Server Error</h1></body></html>");
-            }
-
-            response.print(writer);
-            writer.flush();
-            System.out.println("[ServiceThread] Respuesta enviada correctamente");
-
-        } catch (IOException ex) {
-            System.err.println("[ServiceThread] Error fatal de E/S al escribir en el socket: " + ex.getMessage());
-        } finally {
-            try {
-                if (socket != null && !socket.isClosed()) {
-                    socket.close();
-                }
-            } catch (IOException e) {
-                // Ignoramos errores al cerrar
-            }
-        }
-    }
-
-    private HTTPResponse processRequest(HTTPRequest request) {
-        if (HTTPRequestMethod.GET.equals(request.getMethod())) {
-            return handleGet(request);
-        } else if (HTTPRequestMethod.POST.equals(request.getMethod())) {
-            return handlePost(request);
-        } else if (HTTPRequestMethod.DELETE.equals(request.getMethod())) {
-            return handleDelete(request);
-        } else {
-            return createErrorResponse(HTTPResponseStatus.S405, "Method Not Allowed");
-        }
+    // Indica que la conexión ocupa una plaza del control de admisión por IP
+    void markAdmitted() {
+        this.admitted.set(true);
     }
 
-    private HTTPResponse handleGet(HTTPRequest request) {
-        String path = request.getResourceName();
+    // Rechaza la conexión sin procesar la petición (cola llena o demasiadas
+    // conexiones del mismo cliente). Solo escribe una respuesta corta y cierra
+    // su lado de la conexión; después descarta la petición que haya enviado
+    // el cliente, con un plazo, para que al cerrar reciba la respuesta en
+    // lugar de un reset.
+    void reject(HTTPResponseStatus status, int retryAfter) {
+        try {
+            socket.setSoTimeout(REJECTION_TIMEOUT);
 
-        if ("".equals(path) || "/".equals(path)) {
-            return createWelcomePage();
-        }
+            HTTPResponse response = DocumentController.createErrorResponse(status, status.getStatus());
+            response.putParameter("Retry-After", String.valueOf(retryAfter));
+            response.putParameter("Connection", "close");
 
-        DocumentType docType = DocumentType.fromPath(path);
-        if (docType != null) {
-            String uuid = request.getResourceParameters().get("uuid");
-            if (uuid != null) {
-                return serveDocument(uuid, docType);
-            } else {
-                return createDocumentList(docType);
-            }
+            response.print(socket.getOutputStream());
+            socket.shutdownOutput();
+            discardInput(REJECTION_DRAIN_LIMIT);
+        } catch (IOException e) {
+            System.err.println("[ServiceThread] Error enviando rechazo: " + e.getMessage());
+        } finally {
+            closeSocket();
         }
-
-        return createErrorResponse(HTTPResponseStatus.S400, "Bad Request");
     }
 
-    private HTTPResponse handlePost(HTTPRequest request) {
-        String path = request.getResourceName();
-        DocumentType docType = DocumentType.fromPath(path);
-
-        if (docType != null) {
-            return createDocument(request, docType);
-        }
-
-        return createErrorResponse(HTTPResponseStatus.S405, "Method Not Allowed");
-    }
-
-    private HTTPResponse handleDelete(HTTPRequest request) {
-        String path = request.getResourceName();
-        DocumentType docType = DocumentType.fromPath(path);
-
-        if (docType != null) {
-            String uuid = request.getResourceParameters().get("uuid");
-
-            System.out.println("[DELETE] UUID solicitado: " + uuid);
-
-            if (uuid == null || uuid.isEmpty()) {
-                return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - UUID parameter required");
+    // Lee y descarta lo recibido hasta que el cliente cierra, vence el plazo
+    // de lectura del socket o se alcanza el límite
+    private void discardInput(int limit) {
+        byte[] buffer = new byte[4096];
+        int total = 0;
+        try {
+            InputStream input = socket.getInputStream();
+            int read;
+            while (total < limit && (read = input.read(buffer)) != -1) {
+                total += read;
             }
-
-            return deleteDocument(uuid, docType);
+        } catch (IOException e) {
+            // Plazo vencido o conexión cerrada por el cliente
         }
-
-        return createErrorResponse(HTTPResponseStatus.S404, "Not Found");
     }
 
-    // Método genérico para crear documentos
-    private HTTPResponse createDocument(HTTPRequest request, DocumentType docType) {
-        String contentParam = request.getResourceParameters().get(docType.getPath());
+    @Override
+    public void run() {
+        server.getMetrics().connectionAccepted();
+        server.getMetrics().recordQueueWait(System.nanoTime() - enqueuedAt);
+        server.connectionOpened(this);
+
+        // HTTP delimita los cuerpos en bytes (Content-Length y tamaños de los
+        // fragmentos chunked): con ISO-8859-1 cada carácter leído es un byte.
+        // El reader se mantiene entre peticiones de una conexión persistente.
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+                OutputStream output = new BufferedOutputStream(socket.getOutputStream())) {
+
+            // Respuestas pendientes de enviar, en el orden de las peticiones
+            Deque<PendingResponse> pending = new ArrayDeque<>();
+            boolean persistent = true;
+            boolean first = true;
+
+            while (persistent) {
+                // Sin más peticiones ya recibidas (o con el máximo encadenado) se
+                // envían las respuestas pendientes antes de esperar a la siguiente
+                if (!pending.isEmpty()
+                    && (!reader.ready() || pending.size() >= server.getConfiguration().getPipelineDepth())) {
+                    writeResponses(pending, output);
+                }
 
-        if (contentParam == null || contentParam.isEmpty()) {
-            return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Missing content parameter");
-        }
+                if (!awaitRequest(reader, first)) {
+                    break;
+                }
+                first = false;
+
+                HTTPRequest request;
+                try {
+                    // El cuerpo se lee después, salvo en las subidas que se
+                    // guardan en flujo directamente desde el socket
+                    request = new HTTPRequest(reader, true, server.getConfiguration().getMaxBodySize());
+                    if (!server.getDocumentController().isStreamingUpload(request)) {
+                        request.readContent();
+                    }
+                } catch (HTTPContentTooLargeException e) {
+                    System.err.println("[ServiceThread] " + e.getMessage());
+                    pending.add(new PendingResponse(DocumentController.createContentTooLargeResponse(), false));
+                    break;
+                } catch (HTTPParseException e) {
+                    // Petición mal formada: error del cliente
+                    System.err.println("[ServiceThread] Petición no válida: " + e.getMessage());
+                    pending.add(new PendingResponse(
+                        DocumentController.createErrorResponse(HTTPResponseStatus.S400, HTTPResponseStatus.S400.getStatus()),
+                        false));
+                    break;
+                } catch (IOException e) {
+                    System.err.println("[ServiceThread] Error procesando petición: " + e.getMessage());
+                    pending.add(new PendingResponse(DocumentController.createInternalErrorResponse(), false));
+                    break;
+                }
 
-        // Validación especial para XSLT
-        if (docType == DocumentType.XSLT) {
-            String xsdUuid = request.getResourceParameters().get("xsd");
-            
-            if (xsdUuid == null || xsdUuid.isEmpty()) {
-                return createErrorResponse(HTTPResponseStatus.S400, "Bad Request - Missing xsd parameter");
-            }
+                System.out.println(
+                        "[ServiceThread] Petición parseada: " + request.getMethod() + " " + request.getResourceName());
 
-            // Verificar que el XSD existe
-            try {
-                XSDPageDatabaseDAO xsdDAO = server.getXsdDAO();
-                if (!xsdDAO.pageExists(xsdUuid)) {
-                    return createErrorResponse(HTTPResponseStatus.S404, "XSD Not Found");
+                persistent = isPersistent(request);
+
+                if (persistent && (HTTPRequestMethod.GET.equals(request.getMethod())
+                    || HTTPRequestMethod.HEAD.equals(request.getMethod()))) {
+                    // Los GET y HEAD no modifican nada: se procesan a la vez
+                    // que se leen las siguientes peticiones encadenadas
+                    final HTTPRequest getRequest = request;
+                    pending.add(new PendingResponse(
+                        CompletableFuture.supplyAsync(() -> handleRequest(getRequest), server.getPipelinePool()),
+                        true));
+                } else {
+                    // El resto se procesa en orden, después de las anteriores
+                    writeResponses(pending, output);
+
+                    HTTPResponse response = handleRequest(request);
+                    // Si una subida no ha consumido el cuerpo (o lo ha dejado a
+                    // medias, como al superar el tamaño máximo), la conexión no
+                    // puede reutilizarse
+                    persistent &= !request.hasPendingContent()
+                        && !"close".equalsIgnoreCase(response.getParameters().get("Connection"));
+                    pending.add(new PendingResponse(response, persistent));
                 }
-            } catch (SQLException e) {
-                System.err.println("[ServiceThread] Error verificando XSD: " + e.getMessage());
-                return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
             }
 
-            // Guardar XSLT con su XSD asociado
-            return createXSLTDocument(contentParam, xsdUuid);
-        }
+            writeResponses(pending, output);
 
-        // Para HTML, XML, XSD
-        String uuid = UUID.randomUUID().toString();
+        } catch (IOException ex) {
+            System.err.println("[ServiceThread] Error fatal de E/S al escribir en el socket: " + ex.getMessage());
+        } catch (RuntimeException ex) {
+            // Fallo al generar una respuesta mientras se enviaba (por ejemplo,
+            // en un contenido streaming): la conexión queda a medias y se cierra
+            System.err.println("[ServiceThread] Error enviando la respuesta: " + ex.getMessage());
+            ex.printStackTrace();
+        } finally {
+            closeSocket();
+            server.connectionClosed(this);
+        }
+    }
 
+    // Procesa una petición ya leída y genera su respuesta (nunca lanza excepciones)
+    private HTTPResponse handleRequest(HTTPRequest request) {
         try {
-            boolean saved = saveDocument(uuid, contentParam, docType);
-
-            if (!saved) {
-                return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+            DocumentController controller = server.getDocumentController();
+            HTTPResponse response = server.getRouter().route(request).handle(request);
+            response = controller.compressResponse(request, response);
+
+            // En HEAD solo se envían las cabeceras. HTTP/1.0 no admite
+            // chunked: se genera la respuesta completa
+            if (HTTPRequestMethod.HEAD.equals(request.getMethod())) {
+                response.setHeadOnly(true);
+            } else if (response.isStreaming() && response.getStreamingLength() < 0
+                && "HTTP/1.0".equals(request.getHttpVersion())) {
+                response.bufferStreamingContent();
             }
 
-            return createSuccessResponse(uuid, docType);
+            System.out.println("[ServiceThread] Respuesta generada: " + response.getStatus());
+            System.out.println("[ServiceThread] Content-Type: " + response.getParameters().get("Content-Type"));
+            System.out.println("[ServiceThread] Content-Length: " + response.getParameters().get("Content-Length"));
+            return response;
 
-        } catch (SQLException e) {
-            System.err.println("[ServiceThread] Error en el POST: " + e.getMessage());
-            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        } catch (Exception e) {
+            System.err.println("[ServiceThread] Error procesando petición: " + e.getMessage());
+            e.printStackTrace();
+            return DocumentController.createInternalErrorResponse();
         }
     }
 
-    private HTTPResponse createXSLTDocument(String content, String xsdUuid) {
-        String uuid = UUID.randomUUID().toString();
-
-        try {
-            XSLPageDatabaseDAO xsltDAO = server.getXslDAO();
-            boolean saved = xsltDAO.savePageXSL(uuid, content, xsdUuid);
-
-            if (!saved) {
-                return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
-            }
-
-            return createSuccessResponse(uuid, DocumentType.XSLT);
+    // La conexión se mantiene abierta si está habilitado en la configuración,
+    // el servidor no se está cerrando y el cliente no pide cerrarla (en
+    // HTTP/1.0 tiene que pedir expresamente que se mantenga)
+    private boolean isPersistent(HTTPRequest request) {
+        if (!server.getConfiguration().isKeepAlive() || server.isStopping()) {
+            return false;
+        }
 
-        } catch (SQLException e) {
-            System.err.println("[ServiceThread] Error guardando XSLT: " + e.getMessage());
-            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
+        String connection = request.getHeaderParameter("Connection");
+        if ("HTTP/1.0".equals(request.getHttpVersion())) {
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
         }
+        return connection == null || !connection.equalsIgnoreCase("close");
     }
 
-    private boolean saveDocument(String uuid, String content, DocumentType docType) throws SQLException {
-        switch (docType) {
-            case HTML:
-                return server.getHtmlDAO().savePage(uuid, content);
-            case XML:
-                return server.getXmlDAO().savePage(uuid, content);
-            case XSD:
-                return server.getXsdDAO().savePage(uuid, content);
-            default:
-                return false;
+    // Espera a que llegue la siguiente petición. Entre peticiones la conexión
+    // está inactiva: se cierra si vence el plazo configurado, si el cliente la
+    // cierra o si el servidor se está cerrando.
+    private boolean awaitRequest(BufferedReader reader, boolean first) throws IOException {
+        if (first) {
+            return true;
         }
-    }
 
-    // Método genérico para servir documentos
-    private HTTPResponse serveDocument(String uuid, DocumentType docType) {
+        socket.setSoTimeout(server.getConfiguration().getKeepAliveTimeout());
+        idle = true;
         try {
-            String content = getDocumentContent(uuid, docType);
-
-            if (content != null) {
-                HTTPResponse response = new HTTPResponse();
-                response.setStatus(HTTPResponseStatus.S200);
-                response.putParameter("Content-Type", docType.getContentType());
-                response.setContent(content);
-                return response;
-            } else {
-                return createErrorResponse(HTTPResponseStatus.S404, 
-                    docType.name() + " Document Not Found");
+            if (server.isStopping()) {
+                return false;
             }
-        } catch (Exception e) {
-            System.err.println("Error sirviendo documento " + uuid + ": " + e.getMessage());
-            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
-        }
-    }
 
-    private String getDocumentContent(String uuid, DocumentType docType) throws SQLException {
-        switch (docType) {
-            case HTML:
-                return server.getHtmlDAO().getPage(uuid);
-            case XML:
-                return server.getXmlDAO().getPage(uuid);
-            case XSD:
-                return server.getXsdDAO().getPage(uuid);
-            case XSLT:
-                return server.getXslDAO().getPage(uuid); 
-            default:
-                return null;
+            reader.mark(1);
+            if (reader.read() == -1) {
+                return false;
+            }
+            reader.reset();
+            return true;
+        } catch (IOException e) {
+            // Plazo de inactividad vencido o conexión cerrada sin petición en curso
+            return false;
+        } finally {
+            idle = false;
         }
     }
 
-    // Método genérico para eliminar documentos
-    private HTTPResponse deleteDocument(String uuid, DocumentType docType) {
-        try {
-            boolean deleted = deleteDocumentByType(uuid, docType);
-            System.out.println("[DELETE] Documento eliminado? " + deleted);
-
-            if (deleted) {
-                HTTPResponse response = new HTTPResponse();
-                response.setStatus(HTTPResponseStatus.S200);
-                response.putParameter("Content-Type", "text/html");
-
-                String html = "<html>" +
-                        "<head><title>Document Deleted</title></head>" +
-                        "<body>" +
-                        "<h1>Document Deleted</h1>" +
-                        "<p>The " + docType.name() + " document with UUID " + uuid + 
-                        " has been successfully deleted.</p>" +
-                        "<p><a href='/" + docType.getPath() + "'>Ver lista de documentos</a></p>" +
-                        "<p><a href='/'>Volver al inicio</a></p>" +
-                        "</body>" +
-                        "</html>";
-
-                response.setContent(html);
-                return response;
+    // Envía en orden las respuestas pendientes, esperando a las que aún se
+    // están procesando
+    private void writeResponses(Deque<PendingResponse> pending, OutputStream output) throws IOException {
+        PendingResponse next;
+        while ((next = pending.poll()) != null) {
+            HTTPResponse response = next.get();
+            if (next.isPersistent()) {
+                response.putParameter("Keep-Alive", "timeout=" + getKeepAliveSeconds());
             } else {
-                return createErrorResponse(HTTPResponseStatus.S404, "Document Not Found");
+                response.putParameter("Connection", "close");
             }
-        } catch (Exception e) {
-            System.err.println("Error eliminando documento " + uuid + ": " + e.getMessage());
-            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error");
-        }
-    }
 
-    private boolean deleteDocumentByType(String uuid, DocumentType docType) throws SQLException {
-        switch (docType) {
-            case HTML:
-                return server.getHtmlDAO().deletePage(uuid);
-            case XML:
-                return server.getXmlDAO().deletePage(uuid);
-            case XSD:
-                return server.getXsdDAO().deletePage(uuid);
-            case XSLT:
-                return server.getXslDAO().deletePage(uuid);
-            default:
-                return false;
+            response.print(output);
+            System.out.println("[ServiceThread] Respuesta enviada correctamente");
         }
     }
 
-    private HTTPResponse createWelcomePage() {
-        HTTPResponse response = new HTTPResponse();
-        response.setStatus(HTTPResponseStatus.S200);
-        response.putParameter("Content-Type", "text/html");
-
-        String html = "<html>" +
-                "<head><title>Pagina Principal - Hybrid Server</title></head>" +
-                "<body>" +
-                "<h1>Hybrid Server</h1>" +
-                "<h2>Servidor HTTP en Java</h2>" +
-                "<p>Bienvenido al servidor hibrido de documentos</p>" +
-                "<div>" +
-                "<h3>Tipos de documentos disponibles:</h3>" +
-                "<ul>" +
-                "<li><a href='/html'>Páginas HTML</a></li>" +
-                "<li><a href='/xml'>Documentos XML</a></li>" +
-                "<li><a href='/xsd'>Esquemas XSD</a></li>" +
-                "<li><a href='/xslt'>Transformaciones XSLT</a></li>" +
-                "</ul>" +
-                "</div>" +
-                "<hr>" +
-                "<p>Autores:</p>" +
-                "<p>Alejandro M Calvar Blanco</p>" +
-                "<p>David Fraga Rincon</p>" +
-                "</body>" +
-                "</html>";
-
-        response.setContent(html);
-        return response;
+    // Plazo de inactividad en segundos para la cabecera Keep-Alive: redondeado
+    // hacia arriba y como mínimo 1, ya que "timeout=0" indicaría al cliente
+    // que la conexión no se puede reutilizar
+    private int getKeepAliveSeconds() {
+        int millis = server.getConfiguration().getKeepAliveTimeout();
+        return Math.max(1, (millis + 999) / 1000);
     }
 
-    private HTTPResponse createDocumentList(DocumentType docType) {
-        Map<String, String> documents;
+    // Respuesta de una petición de la conexión, ya generada o en proceso
+    private static class PendingResponse {
+        private final CompletableFuture<HTTPResponse> response;
+        private final boolean persistent;
 
-        try {
-            documents = getDocumentsByType(docType);
-        } catch (Exception e) {
-            System.err.println("[ServiceThread] Error obteniendo lista de documentos: " + e.getMessage());
-            return createErrorResponse(HTTPResponseStatus.S500, "Internal Server Error (Database Error)");
+        public PendingResponse(HTTPResponse response, boolean persistent) {
+            this(CompletableFuture.completedFuture(response), persistent);
         }
 
-        HTTPResponse response = new HTTPResponse();
-        response.setStatus(HTTPResponseStatus.S200);
-        response.putParameter("Content-Type", "text/html");
-
-        StringBuilder html = new StringBuilder();
-        html.append("<html>");
-        html.append("<head><title>Lista de Documentos ").append(docType.name()).append("</title></head>");
-        html.append("<body>");
-        html.append("<h1>Lista de Documentos ").append(docType.name()).append("</h1>");
-        html.append("<ul>");
-
-        if (documents != null && !documents.isEmpty()) {
-            for (String uuid : documents.keySet()) {
-                html.append("<li>");
-                html.append("<a href='/").append(docType.getPath()).append("?uuid=")
-                    .append(uuid).append("'>").append(uuid).append("</a>");
-                html.append("</li>");
-            }
-        } else {
-            html.append("<li>No hay documentos disponibles</li>");
+        public PendingResponse(CompletableFuture<HTTPResponse> response, boolean persistent) {
+            this.response = response;
+            this.persistent = persistent;
         }
 
-        html.append("</ul>");
-        html.append("<p><a href='/'>Volver al inicio</a></p>");
-        html.append("</body>");
-        html.append("</html>");
-
-        response.setContent(html.toString());
-        return response;
-    }
+        public HTTPResponse get() {
+            try {
+                return response.join();
+            } catch (CompletionException | CancellationException e) {
+                return DocumentController.createInternalErrorResponse();
+            }
+        }
 
-    private Map<String, String> getDocumentsByType(DocumentType docType) throws SQLException {
-        switch (docType) {
-            case HTML:
-                return server.getHtmlDAO().getAllPages();
-            case XML:
-                return server.getXmlDAO().getAllPages();
-            case XSD:
-                return server.getXsdDAO().getAllPages();
-            case XSLT:
-                return server.getXslDAO().getAllPages();
-            default:
-                return null;
+        public boolean isPersistent() {
+            return persistent;
         }
     }
 
-    private HTTPResponse createSuccessResponse(String uuid, DocumentType docType) {
-        HTTPResponse response = new HTTPResponse();
-        response.setStatus(HTTPResponseStatus.S200);
-        response.putParameter("Content-Type", "text/html");
-
-        StringBuilder html = new StringBuilder();
-        html.append("<html>");
-        html.append("<head><title>Document Created</title></head>");
-        html.append("<body>");
-        html.append("<h1>").append(docType.name()).append(" Document Created</h1>");
-        html.append("<p>New document id: <a href=\"/").append(docType.getPath())
-            .append("?uuid=").append(uuid).append("\">").append(uuid).append("</a></p>");
-        html.append("<p><a href=\"/").append(docType.getPath())
-            .append("\">Ver lista de documentos</a></p>");
-        html.append("<p><a href=\"/\">Volver al inicio</a></p>");
-        html.append("</body>");
-        html.append("</html>");
-
-        response.setContent(html.toString());
-        return response;
+    // Cierra la conexión desde otro hilo, desbloqueando cualquier lectura o
+    // escritura pendiente sobre el socket
+    void abort() {
+        closeSocket();
     }
 
-    private HTTPResponse createErrorResponse(HTTPResponseStatus status, String message) {
-        HTTPResponse response = new HTTPResponse();
-        response.setStatus(status);
-        response.putParameter("Content-Type", "text/html");
-
-        String html = "<html>" +
-                "<head><title>" + getStatusCode(status) + " " + message + "</title></head>" +
-                "<body>" +
-                "<h1>" + getStatusCode(status) + " " + message + "</h1>" +
-                "<p><a href='/'>Volver al inicio</a></p>" +
-                "</body>" +
-                "</html>";
-
-        response.setContent(html);
-        return response;
+    // Cierra la conexión si está esperando otra petición sin ninguna en curso
+    boolean closeIfIdle() {
+        if (idle) {
+            closeSocket();
+            return true;
+        }
+        return false;
     }
 
-    private int getStatusCode(HTTPResponseStatus status) {
-        String statusName = status.name();
-        return Integer.parseInt(statusName.substring(1));
+    private void closeSocket() {
+        try {
+            if (socket != null && !socket.isClosed()) {
+                socket.close();
+            }
+        } catch (IOException e) {
+            // Ignoramos errores al cerrar
+        } finally {
+            if (admitted.compareAndSet(true, false)) {
+                server.getAdmissionController().release(socket.getInetAddress());
+            }
+        }
     }
-}
\ No newline at end of file
+}
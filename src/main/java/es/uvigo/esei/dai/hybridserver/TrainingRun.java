@@ -0,0 +1,178 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Ejecución de entrenamiento: arranca el servidor, le envía una mezcla de
+ * peticiones parecida a la de los tests (listados, altas, consultas y
+ * borrados de cada tipo de documento) y lo detiene.
+ *
+ * Se usa para generar el archivo CDS (Class Data Sharing) con las clases que
+ * carga el servidor y para medir el tiempo de arranque con y sin ese archivo.
+ */
+public class TrainingRun {
+  private static final long READY_TIMEOUT = 30000;
+  private static final Pattern UUID_PATTERN =
+    Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+  private static final String HTML = "<html><body><h1>Training</h1></body></html>";
+  private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><training><item>1</item></training>";
+  private static final String XSD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+    + "<xs:element name=\"training\"><xs:complexType><xs:sequence>"
+    + "<xs:element name=\"item\" type=\"xs:int\" maxOccurs=\"unbounded\"/>"
+    + "</xs:sequence></xs:complexType></xs:element></xs:schema>";
+  private static final String XSLT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+    + "<xsl:output method=\"html\"/>"
+    + "<xsl:template match=\"/\"><html><body><xsl:value-of select=\"training/item\"/></body></html></xsl:template>"
+    + "</xsl:stylesheet>";
+
+  private final HybridServer server;
+  private final String baseUrl;
+
+  public TrainingRun(HybridServer server) {
+    this.server = server;
+    this.baseUrl = "http://localhost:" + server.getPort() + "/";
+  }
+
+  public void run() {
+    server.start();
+
+    final long startupTime = waitUntilReady();
+    if (startupTime < 0) {
+      System.err.println("[Training] El servidor no estuvo listo en " + READY_TIMEOUT + "ms");
+    } else {
+      System.out.println("[Training] Tiempo de arranque (JVM hasta listo): " + startupTime + "ms");
+    }
+
+    final long requestsStart = System.nanoTime();
+    try {
+      sendRequestMix();
+    } catch (IOException e) {
+      System.err.println("[Training] Error enviando peticiones: " + e.getMessage());
+    }
+    System.out.println("[Training] Peticiones completadas en "
+      + (System.nanoTime() - requestsStart) / 1000000 + "ms");
+
+    server.close();
+  }
+
+  private long waitUntilReady() {
+    final long deadline = System.currentTimeMillis() + READY_TIMEOUT;
+
+    while (!server.isReady()) {
+      if (System.currentTimeMillis() > deadline) {
+        return -1;
+      }
+      try {
+        Thread.sleep(10);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return -1;
+      }
+    }
+
+    return System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+  }
+
+  private void sendRequestMix() throws IOException {
+    request("GET", "", null);
+    request("GET", "admin/ready", null);
+
+    for (DocumentType type : DocumentType.values()) {
+      request("GET", type.getPath(), null);
+    }
+
+    final String html = create(DocumentType.HTML, HTML, null);
+    final String xml = create(DocumentType.XML, XML, null);
+    final String xsd = create(DocumentType.XSD, XSD, null);
+    final String xslt = xsd == null ? null : create(DocumentType.XSLT, XSLT, xsd);
+
+    readAndDelete(DocumentType.HTML, html);
+    if (xml != null && xslt != null) {
+      request("GET", "xml?uuid=" + xml + "&xslt=" + xslt, null);
+    }
+    readAndDelete(DocumentType.XSLT, xslt);
+    readAndDelete(DocumentType.XSD, xsd);
+    readAndDelete(DocumentType.XML, xml);
+
+    request("GET", "html?uuid=00000000-0000-0000-0000-000000000000", null);
+  }
+
+  private String create(DocumentType type, String content, String xsd) throws IOException {
+    String form = type.getPath() + "=" + URLEncoder.encode(content, "UTF-8");
+    if (xsd != null) {
+      form += "&xsd=" + xsd;
+    }
+
+    final Matcher matcher = UUID_PATTERN.matcher(request("POST", type.getPath(), form));
+    return matcher.find() ? matcher.group() : null;
+  }
+
+  private void readAndDelete(DocumentType type, String uuid) throws IOException {
+    if (uuid != null) {
+      request("GET", type.getPath() + "?uuid=" + uuid, null);
+      request("DELETE", type.getPath() + "?uuid=" + uuid, null);
+    }
+  }
+
+  private String request(String method, String resource, String form) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + resource).openConnection();
+    connection.setRequestMethod(method);
+
+    if (form != null) {
+      final byte[] body = form.getBytes(StandardCharsets.UTF_8);
+      connection.setDoOutput(true);
+      connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
+      connection.setFixedLengthStreamingMode(body.length);
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(body);
+      }
+    }
+
+    final int status = connection.getResponseCode();
+    try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+      return in == null ? "" : readAll(in);
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  private static String readAll(InputStream in) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return new String(out.toByteArray(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,129 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import java.io.StringReader;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.Templates;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.Schema;
+import javax.xml.validation.SchemaFactory;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Caché de las transformaciones XSLT y los esquemas XSD ya compilados. Tanto
+ * {@link Templates} como {@link Schema} son inmutables y seguros entre
+ * hilos, así que cada documento se compila una sola vez. Además de por UUID,
+ * se guardan por el hash de su contenido, de modo que los documentos con el
+ * mismo contenido (subidos varias veces) comparten la versión compilada.
+ */
+public class TransformCache {
+  // Límite de elementos compilados de cada tipo que se mantienen en memoria;
+  // por encima se descartan los usados hace más tiempo
+  private static final int MAX_ENTRIES = 1000;
+
+  private final Map<String, Transform> transforms;
+  private final Map<String, Schema> schemas;
+  // Versiones compiladas por hash del contenido; no dependen de ningún UUID,
+  // así que no se eliminan al borrar documentos
+  private final Map<String, Templates> templatesByHash;
+  private final Map<String, Schema> schemasByHash;
+
+  public TransformCache() {
+    this.transforms = LruMap.synchronizedMap(MAX_ENTRIES);
+    this.schemas = LruMap.synchronizedMap(MAX_ENTRIES);
+    this.templatesByHash = LruMap.synchronizedMap(MAX_ENTRIES);
+    this.schemasByHash = LruMap.synchronizedMap(MAX_ENTRIES);
+  }
+
+  public Transform getTransform(String xsltUuid) {
+    return transforms.get(xsltUuid);
+  }
+
+  public void putTransform(String xsltUuid, Transform transform) {
+    transforms.put(xsltUuid, transform);
+  }
+
+  public void removeTransform(String xsltUuid) {
+    transforms.remove(xsltUuid);
+  }
+
+  public Schema getSchema(String xsdUuid) {
+    return schemas.get(xsdUuid);
+  }
+
+  public void putSchema(String xsdUuid, Schema schema) {
+    schemas.put(xsdUuid, schema);
+  }
+
+  public void removeSchema(String xsdUuid) {
+    schemas.remove(xsdUuid);
+  }
+
+  public Templates getTemplatesByHash(String hash) {
+    return templatesByHash.get(hash);
+  }
+
+  public void putTemplatesByHash(String hash, Templates templates) {
+    templatesByHash.put(hash, templates);
+  }
+
+  public Schema getSchemaByHash(String hash) {
+    return schemasByHash.get(hash);
+  }
+
+  public void putSchemaByHash(String hash, Schema schema) {
+    schemasByHash.put(hash, schema);
+  }
+
+  public static Templates compileTemplates(String xslt) throws TransformerConfigurationException {
+    return TransformerFactory.newInstance().newTemplates(new StreamSource(new StringReader(xslt)));
+  }
+
+  public static Schema compileSchema(String xsd) throws SAXException {
+    return SchemaFactory.newInstance(XMLConstants.W3C_XML_SCHEMA_NS_URI)
+      .newSchema(new StreamSource(new StringReader(xsd)));
+  }
+
+  /**
+   * Transformación XSLT compilada junto con el UUID del XSD con el que deben
+   * validarse los documentos antes de transformarlos.
+   */
+  public static class Transform {
+    private final Templates templates;
+    private final String xsdUuid;
+
+    public Transform(Templates templates, String xsdUuid) {
+      this.templates = templates;
+      this.xsdUuid = xsdUuid;
+    }
+
+    public Templates getTemplates() {
+      return templates;
+    }
+
+    public String getXsdUuid() {
+      return xsdUuid;
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Versión asíncrona de {@link PageDAO}: cada consulta se lanza en un
+ * ejecutor dedicado a la base de datos y devuelve un
+ * {@link CompletableFuture}, de modo que varias consultas independientes
+ * pueden hacerse a la vez y combinarse. Si la consulta falla, el futuro se
+ * completa con la {@link java.sql.SQLException} correspondiente.
+ */
+public interface AsyncPageDAO {
+
+    /**
+     * Obtiene todas las páginas almacenadas.
+     * @return Futuro con un mapa con UUID como clave y contenido como valor
+     */
+    CompletableFuture<Map<String, String>> getAllPagesAsync();
+
+    /**
+     * Obtiene los UUID de todas las páginas almacenadas, sin su contenido.
+     * @return Futuro con la lista de UUID
+     */
+    CompletableFuture<List<String>> listPagesAsync();
+
+    /**
+     * Obtiene una página por su UUID.
+     * @param uuid Identificador único de la página
+     * @return Futuro con el contenido de la página, o null si no existe
+     */
+    CompletableFuture<String> getPageAsync(String uuid);
+
+    /**
+     * Obtiene el tamaño de una página y, si no supera el máximo indicado, su
+     * contenido.
+     * @param uuid Identificador único de la página
+     * @param maxLoadedSize Tamaño máximo en bytes (UTF-8) para cargar el contenido
+     * @return Futuro con la página encontrada, o null si no existe
+     */
+    CompletableFuture<StoredPage> getPageAsync(String uuid, long maxLoadedSize);
+
+    /**
+     * Obtiene los metadatos de una página sin leer su contenido, si se guardan.
+     * @param uuid Identificador único de la página
+     * @return Futuro con los metadatos de la página, o null si no existe
+     */
+    CompletableFuture<PageMetadata> getMetadataAsync(String uuid);
+
+    /**
+     * Almacena una nueva página.
+     * @param uuid Identificador único de la página
+     * @param content Contenido de la página
+     * @return Futuro con true si se almacenó correctamente
+     */
+    CompletableFuture<Boolean> savePageAsync(String uuid, String content);
+
+    /**
+     * Elimina una página.
+     * @param uuid Identificador único de la página a eliminar
+     * @return Futuro con true si se eliminó, false si no existía
+     */
+    CompletableFuture<Boolean> deletePageAsync(String uuid);
+
+    /**
+     * Verifica si existe una página con el UUID dado.
+     * @param uuid Identificador único de la página
+     * @return Futuro con true si existe, false en caso contrario
+     */
+    CompletableFuture<Boolean> pageExistsAsync(String uuid);
+}
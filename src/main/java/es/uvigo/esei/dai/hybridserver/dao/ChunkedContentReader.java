@@ -0,0 +1,239 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Reader sobre el contenido de un documento que se lee de la base de datos
+ * por tramos de tamaño fijo ({@code SUBSTRING(content, ?, ?)}), con una
+ * consulta por tramo sobre la misma conexión. Aunque una consulta se lea en
+ * flujo, Connector/J carga cada fila completa en memoria; así, la memoria
+ * usada depende del tamaño del tramo y no del documento. La conexión se
+ * mantiene mientras se lee y se devuelve al cerrar el reader.
+ *
+ * La consulta recibe como parámetros la posición (desde 1) y la longitud del
+ * tramo de la columna {@code content} y, si el contenido puede guardarse
+ * comprimido, las de la columna {@code content_z}; el último parámetro es la
+ * clave del documento. Los documentos comprimidos se leen por tramos de
+ * bytes y se descomprimen a medida que se consumen.
+ */
+public class ChunkedContentReader extends Reader {
+    // Caracteres (o bytes comprimidos) que se leen en cada consulta
+    static final int CHUNK_SIZE = 256 * 1024;
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final Object key;
+    private final boolean compressed;
+    // Contenido sin comprimir: tramo actual y posición en él
+    private String chunk;
+    private int offset;
+    // Contenido comprimido: reader sobre los bytes descomprimidos
+    private Reader decompressed;
+    private long nextPosition;
+    private boolean lastChunk;
+
+    private ChunkedContentReader(Connection conn, PreparedStatement stmt, Object key, boolean compressed) {
+        this.conn = conn;
+        this.stmt = stmt;
+        this.key = key;
+        this.compressed = compressed;
+        this.nextPosition = 1;
+    }
+
+    /**
+     * Lee el primer tramo del documento y abre un reader sobre su contenido.
+     * Si no existe, libera la conexión y devuelve {@code null}; si falla,
+     * también la libera.
+     * @param decompressor Descompresión del contenido guardado en
+     * {@code content_z}, o null si no se guarda comprimido
+     */
+    public static ChunkedContentReader open(Connection conn, String sql, Object key, Decompressor decompressor)
+        throws SQLException {
+        PreparedStatement stmt = null;
+        try {
+            stmt = conn.prepareStatement(sql);
+            final ChunkedContentReader reader = new ChunkedContentReader(conn, stmt, key, decompressor != null);
+
+            try (ResultSet rs = reader.query()) {
+                if (rs.next()) {
+                    final String text = rs.getString("content");
+                    if (text != null) {
+                        reader.startText(text);
+                        return reader;
+                    }
+                    if (decompressor != null) {
+                        final byte[] bytes = rs.getBytes("content_z");
+                        if (bytes != null) {
+                            reader.startCompressed(bytes, decompressor.decompress(reader.new ChunkInputStream(bytes), rs));
+                            return reader;
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            closeQuietly(conn, stmt);
+            throw e;
+        }
+
+        closeQuietly(conn, stmt);
+        return null;
+    }
+
+    /**
+     * Descomprime el contenido guardado en {@code content_z}.
+     */
+    @FunctionalInterface
+    public interface Decompressor {
+        /**
+         * @param compressed Bytes comprimidos
+         * @param rs Primera fila leída, por ejemplo para obtener su diccionario
+         */
+        InputStream decompress(InputStream compressed, ResultSet rs) throws SQLException;
+    }
+
+    // Consulta el siguiente tramo
+    private ResultSet query() throws SQLException {
+        int index = 1;
+        stmt.setLong(index++, nextPosition);
+        stmt.setInt(index++, CHUNK_SIZE);
+        if (compressed) {
+            stmt.setLong(index++, nextPosition);
+            stmt.setInt(index++, CHUNK_SIZE);
+        }
+        stmt.setObject(index, key);
+        nextPosition += CHUNK_SIZE;
+        return stmt.executeQuery();
+    }
+
+    private void startText(String text) {
+        this.chunk = text;
+        this.offset = 0;
+        this.lastChunk = text.length() < CHUNK_SIZE;
+    }
+
+    private void startCompressed(byte[] bytes, InputStream content) {
+        this.decompressed = new InputStreamReader(content, StandardCharsets.UTF_8);
+        this.lastChunk = bytes.length < CHUNK_SIZE;
+    }
+
+    // Siguiente tramo de la columna indicada. Un tramo más corto que el
+    // pedido es el último; si ya no hay fila, el documento se ha borrado
+    // mientras se leía
+    private Object nextChunk(String column) throws IOException {
+        try (ResultSet rs = query()) {
+            if (!rs.next()) {
+                throw new IOException("Documento eliminado durante la lectura");
+            }
+            return "content".equals(column) ? rs.getString(column) : rs.getBytes(column);
+        } catch (SQLException e) {
+            throw new IOException("Error leyendo el documento: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (decompressed != null) {
+            return decompressed.read(cbuf, off, len);
+        }
+
+        while (offset == chunk.length()) {
+            if (lastChunk) {
+                return -1;
+            }
+            final String next = (String) nextChunk("content");
+            startText(next == null ? "" : next);
+        }
+
+        final int read = Math.min(len, chunk.length() - offset);
+        chunk.getChars(offset, offset + read, cbuf, off);
+        offset += read;
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeQuietly(conn, stmt);
+    }
+
+    // Bytes comprimidos del documento, tramo a tramo
+    private final class ChunkInputStream extends InputStream {
+        private byte[] bytes;
+        private int position;
+
+        private ChunkInputStream(byte[] first) {
+            this.bytes = first;
+            this.position = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+
+            while (position == bytes.length) {
+                if (lastChunk) {
+                    return -1;
+                }
+                final byte[] next = (byte[]) nextChunk("content_z");
+                this.bytes = next == null ? new byte[0] : next;
+                this.position = 0;
+                lastChunk = bytes.length < CHUNK_SIZE;
+            }
+
+            final int read = Math.min(len, bytes.length - position);
+            System.arraycopy(bytes, position, b, off, read);
+            position += read;
+            return read;
+        }
+    }
+
+    private static void closeQuietly(Connection conn, PreparedStatement stmt) {
+        try {
+            if (stmt != null) {
+                stmt.close();
+            }
+        } catch (SQLException e) {
+            // Ignoramos errores al cerrar
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // Ignoramos errores al cerrar
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool sencillo de conexiones JDBC. Las conexiones que se cierran vuelven al
+ * pool en lugar de cerrarse, de modo que se reutilizan entre peticiones junto
+ * con las sentencias preparadas que el driver tiene en caché para cada una.
+ *
+ * Antes de entregar una conexión que lleva tiempo sin usarse, o que ha dado
+ * un error de conexión (SQLSTATE de clase 08), se comprueba con
+ * {@link Connection#isValid(int)}, por si la base de datos la ha cerrado.
+ *
+ * Opcionalmente se limita el número de conexiones entregadas a la vez: con
+ * todas en uso, quien pide una espera a que se devuelva alguna durante un
+ * tiempo máximo y, si no, falla con {@link SQLTimeoutException}.
+ */
+public class ConnectionPool implements AutoCloseable {
+    // Tiempo sin usar (ms) a partir del cual se valida una conexión antes de entregarla
+    private static final long VALIDATION_INTERVAL = 30_000;
+    private static final int VALIDATION_TIMEOUT = 2;
+
+    private final String dbUrl;
+    private final String dbUser;
+    private final String dbPassword;
+    private final int maxIdle;
+    // Conexiones que se pueden entregar a la vez (null = sin límite) y espera
+    // máxima (ms) a que quede una libre
+    private final Semaphore permits;
+    private final long maxWaitMillis;
+    private final Deque<IdleConnection> idle = new ArrayDeque<>();
+    private final AtomicInteger active = new AtomicInteger();
+    private boolean closed;
+
+    /**
+     * @param maxIdle Número máximo de conexiones que se conservan abiertas sin usar
+     */
+    public ConnectionPool(String dbUrl, String dbUser, String dbPassword, int maxIdle) {
+        this(dbUrl, dbUser, dbPassword, maxIdle, 0, 0);
+    }
+
+    /**
+     * @param maxIdle Número máximo de conexiones que se conservan abiertas sin usar
+     * @param maxTotal Número máximo de conexiones entregadas a la vez (0 = sin
+     * límite). Si no es menor que {@code maxIdle}, es también el máximo de
+     * conexiones abiertas
+     * @param maxWaitMillis Espera máxima a que se devuelva una conexión
+     * cuando están todas en uso
+     */
+    public ConnectionPool(
+        String dbUrl, String dbUser, String dbPassword, int maxIdle, int maxTotal, long maxWaitMillis
+    ) {
+        this.dbUrl = dbUrl;
+        this.dbUser = dbUser;
+        this.dbPassword = dbPassword;
+        this.maxIdle = maxIdle;
+        this.permits = maxTotal > 0 ? new Semaphore(maxTotal, true) : null;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Añade a una URL de MySQL las opciones del driver que activan las
+     * sentencias preparadas en el servidor y su caché por conexión, salvo las
+     * que ya estén indicadas en la URL. Otras URLs se devuelven sin cambios.
+     * @param cacheSize Número de sentencias en caché por conexión
+     */
+    public static String withStatementCache(String dbUrl, int cacheSize) {
+        if (dbUrl == null || !dbUrl.startsWith("jdbc:mysql:") || cacheSize <= 0) {
+            return dbUrl;
+        }
+
+        StringBuilder url = new StringBuilder(dbUrl);
+        appendOption(url, "useServerPrepStmts", "true");
+        appendOption(url, "cachePrepStmts", "true");
+        appendOption(url, "prepStmtCacheSize", String.valueOf(cacheSize));
+        return url.toString();
+    }
+
+    private static void appendOption(StringBuilder url, String name, String value) {
+        int query = url.indexOf("?");
+        if (query >= 0 && (url.indexOf("?" + name + "=") >= 0 || url.indexOf("&" + name + "=") >= 0)) {
+            return;
+        }
+
+        url.append(query < 0 ? '?' : '&').append(name).append('=').append(value);
+    }
+
+    public String getDbUrl() {
+        return dbUrl;
+    }
+
+    /**
+     * Entrega una conexión del pool, o una nueva si no hay ninguna libre.
+     * Cerrar la conexión devuelta la devuelve al pool.
+     * @throws SQLTimeoutException Si se han entregado ya todas las conexiones
+     * permitidas y no se devuelve ninguna en el tiempo de espera
+     * @throws SQLException Si el pool está cerrado
+     */
+    public Connection getConnection() throws SQLException {
+        checkOpen();
+        acquirePermit();
+        try {
+            Connection conn = takeIdle();
+            if (conn == null) {
+                conn = DriverManager.getConnection(dbUrl, dbUser, dbPassword);
+            }
+
+            active.incrementAndGet();
+            return wrap(conn);
+        } catch (SQLException | RuntimeException e) {
+            releasePermit();
+            throw e;
+        }
+    }
+
+    private void checkOpen() throws SQLException {
+        synchronized (idle) {
+            if (closed) {
+                throw closedError();
+            }
+        }
+    }
+
+    private SQLException closedError() {
+        return new SQLException("El pool de conexiones con " + dbUrl + " está cerrado", "08003");
+    }
+
+    private void acquirePermit() throws SQLException {
+        if (permits == null) {
+            return;
+        }
+
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException(
+                    "No hay conexiones libres con " + dbUrl + " tras esperar " + maxWaitMillis + "ms", "HYT00");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrumpido esperando una conexión con " + dbUrl, e);
+        }
+    }
+
+    private void releasePermit() {
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    // Saca del pool una conexión válida, descartando las que ya no lo son
+    private Connection takeIdle() throws SQLException {
+        while (true) {
+            IdleConnection candidate;
+            synchronized (idle) {
+                // Se ha cerrado mientras se esperaba un permiso
+                if (closed) {
+                    throw closedError();
+                }
+                candidate = idle.pollFirst();
+            }
+            if (candidate == null) {
+                return null;
+            }
+
+            if ((!candidate.suspect && System.currentTimeMillis() - candidate.since < VALIDATION_INTERVAL)
+                || isValid(candidate.conn)) {
+                return candidate.conn;
+            }
+            closeQuietly(candidate.conn);
+        }
+    }
+
+    private static boolean isValid(Connection conn) {
+        try {
+            return conn.isValid(VALIDATION_TIMEOUT);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Devuelve una conexión al pool, o la cierra si el pool está lleno o
+    // cerrado. Si ha dado un error de conexión, se valida al volver a entregarla.
+    private void release(Connection conn, boolean suspect) {
+        try {
+            if (conn.isClosed()) {
+                return;
+            }
+            if (!conn.getAutoCommit()) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            closeQuietly(conn);
+            return;
+        }
+
+        synchronized (idle) {
+            if (!closed && idle.size() < maxIdle) {
+                // La más reciente se entrega primero: así las que sobran
+                // envejecen al final de la cola
+                idle.addFirst(new IdleConnection(conn, suspect));
+                return;
+            }
+        }
+        closeQuietly(conn);
+    }
+
+    /**
+     * @return Número de conexiones entregadas que aún no se han devuelto
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /**
+     * Cierra las conexiones libres. Las que estén en uso se cierran al
+     * devolverse y no se entregan más.
+     */
+    @Override
+    public void close() {
+        synchronized (idle) {
+            closed = true;
+            for (IdleConnection candidate : idle) {
+                closeQuietly(candidate.conn);
+            }
+            idle.clear();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            // Ignoramos errores al cerrar
+        }
+    }
+
+    private Connection wrap(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new PooledHandler(conn));
+    }
+
+    // Errores de conexión (SQLSTATE de clase 08), frente a los de la consulta
+    private static boolean isConnectionError(Throwable error) {
+        return error instanceof SQLException
+            && ((SQLException) error).getSQLState() != null
+            && ((SQLException) error).getSQLState().startsWith("08");
+    }
+
+    private static final class IdleConnection {
+        private final Connection conn;
+        private final boolean suspect;
+        private final long since = System.currentTimeMillis();
+
+        private IdleConnection(Connection conn, boolean suspect) {
+            this.conn = conn;
+            this.suspect = suspect;
+        }
+    }
+
+    // Delega en la conexión real salvo close(), que la devuelve al pool una
+    // sola vez. Las sentencias que crea también se envuelven, para que su
+    // getConnection() devuelva esta conexión y no la real.
+    private final class PooledHandler implements InvocationHandler {
+        private final Connection conn;
+        // Se consulta desde isClosed(), que puede llamarse desde otro hilo
+        private volatile boolean released;
+        // Ha habido un error de conexión en ella o en sus sentencias
+        private volatile boolean suspect;
+
+        private PooledHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (released) {
+                            return null;
+                        }
+                        released = true;
+                    }
+                    active.decrementAndGet();
+                    release(conn, suspect);
+                    releasePermit();
+                    return null;
+                case "isClosed":
+                    return released || conn.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + conn;
+                default:
+                    if (released) {
+                        throw new SQLException("La conexión ya se ha devuelto al pool");
+                    }
+                    final Object result = delegate(conn, method, args);
+                    if (result instanceof Statement && method.getReturnType().isInterface()) {
+                        return Proxy.newProxyInstance(
+                            Connection.class.getClassLoader(), new Class<?>[] { method.getReturnType() },
+                            new StatementHandler((Statement) result, proxy, this));
+                    }
+                    return result;
+            }
+        }
+
+        private Object delegate(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                if (isConnectionError(e.getCause())) {
+                    suspect = true;
+                }
+                throw e.getCause();
+            }
+        }
+    }
+
+    // Delega en la sentencia real salvo getConnection(), que devuelve la
+    // conexión del pool
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement stmt;
+        private final Object connection;
+        private final PooledHandler owner;
+
+        private StatementHandler(Statement stmt, Object connection, PooledHandler owner) {
+            this.stmt = stmt;
+            this.connection = connection;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled " + stmt;
+                default:
+                    return owner.delegate(stmt, method, args);
+            }
+        }
+    }
+}
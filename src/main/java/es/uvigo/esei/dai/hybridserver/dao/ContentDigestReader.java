@@ -0,0 +1,163 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reader que, a medida que se lee, calcula el tamaño en bytes y el resumen
+ * SHA-256 del contenido codificado en UTF-8, para guardar los metadatos de
+ * un documento recibido como flujo sin tenerlo completo en memoria.
+ */
+public class ContentDigestReader extends FilterReader {
+    private final MessageDigest digest;
+    private final byte[] encoded = new byte[4];
+    private long size;
+    private char pendingHigh;
+    private String hash;
+
+    public ContentDigestReader(Reader in) {
+        super(in);
+        this.digest = newDigest();
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int c = super.read();
+        if (c != -1) {
+            update((char) c);
+        }
+        return c;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        final int read = super.read(cbuf, off, len);
+        for (int i = 0; i < read; i++) {
+            update(cbuf[off + i]);
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        // Todo el contenido tiene que pasar por el resumen
+        final char[] buffer = new char[(int) Math.min(n, 8192)];
+        final int read = read(buffer, 0, buffer.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return SHA-256 en hexadecimal del contenido leído, que se da por
+     *         terminado en la primera llamada
+     */
+    public String getHash() {
+        if (hash == null) {
+            if (pendingHigh != 0) {
+                // Sustituto alto sin pareja al final: se codifica como '?', igual que String.getBytes
+                encode('?');
+                pendingHigh = 0;
+            }
+            hash = toHex(digest.digest());
+        }
+        return hash;
+    }
+
+    private void update(char c) {
+        if (pendingHigh != 0) {
+            final char high = pendingHigh;
+            pendingHigh = 0;
+            if (Character.isLowSurrogate(c)) {
+                encode(Character.toCodePoint(high, c));
+                return;
+            }
+            encode('?');
+        }
+
+        if (Character.isHighSurrogate(c)) {
+            pendingHigh = c;
+        } else if (Character.isLowSurrogate(c)) {
+            encode('?');
+        } else {
+            encode(c);
+        }
+    }
+
+    private void encode(int codePoint) {
+        final int length;
+        if (codePoint < 0x80) {
+            encoded[0] = (byte) codePoint;
+            length = 1;
+        } else if (codePoint < 0x800) {
+            encoded[0] = (byte) (0xC0 | (codePoint >> 6));
+            encoded[1] = (byte) (0x80 | (codePoint & 0x3F));
+            length = 2;
+        } else if (codePoint < 0x10000) {
+            encoded[0] = (byte) (0xE0 | (codePoint >> 12));
+            encoded[1] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            encoded[2] = (byte) (0x80 | (codePoint & 0x3F));
+            length = 3;
+        } else {
+            encoded[0] = (byte) (0xF0 | (codePoint >> 18));
+            encoded[1] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+            encoded[2] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+            encoded[3] = (byte) (0x80 | (codePoint & 0x3F));
+            length = 4;
+        }
+
+        digest.update(encoded, 0, length);
+        size += length;
+    }
+
+    /**
+     * @return SHA-256 en hexadecimal de un contenido ya codificado en UTF-8,
+     *         el mismo que se obtiene leyéndolo con esta clase
+     */
+    public static String sha256(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        final StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Compresión de los documentos guardados en la base de datos. Se usa el
+ * formato zlib, que es el de {@code Content-Encoding: deflate}: los
+ * documentos comprimidos sin diccionario pueden enviarse tal cual a los
+ * clientes que lo aceptan.
+ *
+ * Los diccionarios se entrenan con documentos ya guardados del mismo tipo,
+ * que suelen compartir cabeceras, espacios de nombres y nombres de elementos,
+ * y mejoran sobre todo la compresión de documentos pequeños.
+ */
+public final class DocumentCompressor {
+    /** Tamaño máximo de un diccionario: la ventana de deflate. */
+    public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+    private DocumentCompressor() {
+    }
+
+    /**
+     * Diccionario guardado en la base de datos, con su identificador.
+     */
+    public static final class Dictionary {
+        private final int id;
+        private final byte[] bytes;
+
+        public Dictionary(int id, byte[] bytes) {
+            this.id = id;
+            this.bytes = bytes;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Comprime un contenido completo.
+     * @param dictionary Diccionario a usar, o null para comprimir sin diccionario
+     */
+    public static byte[] compress(byte[] data, byte[] dictionary) {
+        final Deflater deflater = newDeflater(dictionary);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            final byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Devuelve un flujo con el contenido de {@code in} comprimido, que se
+     * genera a medida que se lee. Al cerrarlo se liberan los recursos del
+     * compresor.
+     */
+    public static InputStream compressing(InputStream in, byte[] dictionary) {
+        final Deflater deflater = newDeflater(dictionary);
+        return new DeflaterInputStream(in, deflater) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    /**
+     * Devuelve un flujo que descomprime lo que lee de {@code in}.
+     * @param dictionary Diccionario con el que se comprimió, o null si no se usó ninguno
+     */
+    public static InputStream decompressing(InputStream in, byte[] dictionary) {
+        return new InflatingInputStream(in, dictionary);
+    }
+
+    public static byte[] decompress(byte[] data, byte[] dictionary) {
+        try (InputStream in = decompressing(new ByteArrayInputStream(data), dictionary)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Contenido comprimido no válido", e);
+        }
+    }
+
+    /**
+     * Construye un diccionario con muestras de documentos: deflate busca
+     * coincidencias en el diccionario igual que en el contenido anterior, así
+     * que basta con concatenar el principio de cada muestra hasta llenar la
+     * ventana. Lo que más se repite entre documentos está al principio (la
+     * declaración XML, el elemento raíz y sus espacios de nombres).
+     * @return Diccionario, o null si no hay muestras
+     */
+    public static byte[] buildDictionary(List<byte[]> samples) {
+        if (samples.isEmpty()) {
+            return null;
+        }
+
+        final int share = Math.max(256, MAX_DICTIONARY_SIZE / samples.size());
+        final ByteArrayOutputStream dictionary = new ByteArrayOutputStream(MAX_DICTIONARY_SIZE);
+        for (byte[] sample : samples) {
+            final int length = Math.min(Math.min(share, sample.length), MAX_DICTIONARY_SIZE - dictionary.size());
+            if (length <= 0) {
+                break;
+            }
+            dictionary.write(sample, 0, length);
+        }
+        return dictionary.toByteArray();
+    }
+
+    private static Deflater newDeflater(byte[] dictionary) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+        if (dictionary != null) {
+            deflater.setDictionary(dictionary);
+        }
+        return deflater;
+    }
+}
@@ -0,0 +1,1018 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * DAO de documentos en base de datos, común a todos los tipos: cada
+ * instancia trabaja sobre una tabla {@code (uuid, content)} y, en el caso de
+ * las transformaciones XSLT, con la columna adicional {@code xsd} que
+ * referencia su esquema.
+ *
+ * Las sentencias SQL se construyen una vez por tabla y toda la gestión de
+ * conexiones y sentencias está en {@link #query} y {@link #update}, de modo
+ * que cualquier mejora en el acceso a datos se aplica a todos los tipos. Las
+ * conexiones salen de un {@link ConnectionPool} compartido, así que el mismo
+ * texto SQL aprovecha la caché de sentencias preparadas de cada conexión.
+ *
+ * Las claves pueden guardarse como texto ({@code VARCHAR(36)}) o, con
+ * {@code binaryKeys}, como {@code BINARY(16)}; la conversión se hace aquí, de
+ * modo que fuera del almacén los UUID son siempre texto.
+ *
+ * Con {@code metadata}, cada documento guarda al crearse su tamaño en bytes,
+ * el SHA-256 de su contenido y la fecha de creación (columnas {@code size},
+ * {@code hash} y {@code created}, que admiten nulos para las filas antiguas),
+ * y las consultas de metadatos no leen la columna {@code content}.
+ *
+ * Con {@code compression}, los documentos nuevos se guardan comprimidos en
+ * la columna {@code content_z} (con {@code content} a nulo) junto con el
+ * identificador del diccionario usado en {@code dict}; los diccionarios se
+ * entrenan con {@link #trainDictionary(int)} y se guardan en la tabla
+ * {@code DICTIONARY}. Las filas sin comprimir se siguen leyendo igual. La
+ * compresión necesita las columnas de metadatos para conocer el tamaño.
+ *
+ * Con {@code deduplication}, el contenido se guarda una sola vez por hash en
+ * la tabla {@code <tabla>_CONTENT}, con un contador de referencias, y los
+ * documentos nuevos solo guardan sus metadatos: subir de nuevo un documento
+ * ya guardado cuesta una actualización del contador y la inserción de la
+ * fila del documento. Al borrar el último documento que lo referencia se
+ * borra el contenido. Las filas con el contenido propio se siguen leyendo
+ * igual.
+ *
+ * Con un {@link GroupCommitter}, los documentos nuevos se confirman en lotes
+ * junto con los que guardan otros hilos a la vez. Las subidas como flujo no
+ * se agrupan, para no retener el lote mientras se recibe el contenido.
+ *
+ * Con un {@link ReplicaRouter}, las lecturas se reparten entre las réplicas,
+ * salvo las de documentos escritos (o los listados de tablas modificadas)
+ * hace poco desde este servidor.
+ *
+ * Con un {@link ShardMap}, cada documento se lee y escribe solo en su shard
+ * (con su contenido compartido, si hay deduplicación) y los listados
+ * consultan todos los shards a la vez. Los diccionarios de compresión se
+ * guardan en el primer shard.
+ *
+ * Las consultas de {@link AsyncPageDAO} se hacen en el ejecutor de las
+ * opciones o, si no hay, en el propio hilo que las pide.
+ */
+public class DocumentStore implements PageDAO, AsyncPageDAO {
+    // Por debajo de este tamaño (bytes) los documentos se guardan sin comprimir
+    private static final int MIN_COMPRESSED_SIZE = 64;
+
+    private final String table;
+    private final boolean hasXsd;
+    private final boolean binaryKeys;
+    private final boolean metadata;
+    private final boolean compression;
+    private final boolean deduplication;
+    private final ConnectionPool pool;
+    private final GroupCommitter groupCommitter;
+    private final ReplicaRouter replicaRouter;
+    private final ShardMap shards;
+    private final Executor executor;
+
+    // Diccionarios de compresión: el actual (con el que se comprime) y todos
+    // los usados en filas ya leídas, por identificador
+    private final Map<Integer, byte[]> dictionaries = new ConcurrentHashMap<>();
+    private volatile DocumentCompressor.Dictionary currentDictionary;
+    private volatile boolean dictionaryLoaded;
+
+    private final String selectAllSql;
+    private final String listSql;
+    private final String selectSql;
+    private final String selectSizedSql;
+    private final String selectChunkSql;
+    private final String insertSql;
+    private final String deleteSql;
+    private final String existsSql;
+    private final String selectXsdSql;
+    private final String selectMetadataSql;
+    private final String selectLengthSql;
+    private final String updateMetadataSql;
+    private final String sampleSql;
+    private final int bodyIndex;
+
+    // Sentencias sobre la tabla de contenidos compartidos
+    private final String insertContentSql;
+    private final String addReferenceSql;
+    private final String releaseSql;
+    private final String deleteUnusedSql;
+    private final String renameContentSql;
+    private final String deleteContentSql;
+    private final String selectReferenceSql;
+
+    /**
+     * @param table Nombre de la tabla
+     * @param hasXsd Si la tabla tiene la columna {@code xsd} (transformaciones XSLT)
+     * @param pool Pool del que se obtienen las conexiones
+     * @param options Opciones del esquema de la tabla
+     */
+    public DocumentStore(String table, boolean hasXsd, ConnectionPool pool, StoreOptions options) {
+        this.table = table;
+        this.hasXsd = hasXsd;
+        this.binaryKeys = options.isBinaryKeys();
+        this.compression = options.isCompression();
+        this.deduplication = options.isDeduplication();
+        this.metadata = options.isMetadata() || compression || deduplication;
+        this.pool = pool;
+        this.groupCommitter = options.getGroupCommitter();
+        this.replicaRouter = options.getReplicaRouter();
+        this.shards = options.getShards();
+        this.executor = options.getExecutor();
+        if (shards != null && (replicaRouter != null || groupCommitter != null)) {
+            throw new IllegalArgumentException("Con shards no se admiten réplicas ni group commit");
+        }
+
+        // Con deduplicación, el contenido está en la fila del documento (filas
+        // antiguas) o en la de su hash en la tabla de contenidos
+        final String contentTable = table + "_CONTENT";
+        final String owned = compression ? "content IS NULL AND content_z IS NULL" : "content IS NULL";
+        final String from = deduplication
+            ? table + " d LEFT JOIN " + contentTable + " b ON d." + owned.replace(" AND ", " AND d.")
+                + " AND b.hash = d.hash"
+            : table;
+        final String doc = deduplication ? "d." : "";
+
+        // Con metadatos, el tamaño se lee de su columna (salvo en filas antiguas)
+        final String size = metadata
+            ? "COALESCE(" + doc + "size, LENGTH(" + doc + "content))" : "LENGTH(content)";
+        final String content = column("content") + (compression ? ", " + column("content_z") + ", " + column("dict") : "");
+
+        this.selectAllSql = "SELECT " + doc + "uuid, " + content + " FROM " + from;
+        this.listSql = "SELECT uuid FROM " + table;
+        this.selectSql = "SELECT " + content + " FROM " + from + " WHERE " + doc + "uuid = ?";
+        // El contenido solo viaja si no supera el máximo; los documentos más
+        // grandes se leen después como flujo con openPage
+        this.selectSizedSql = "SELECT " + size + " AS size, " + (metadata ? doc + "hash, " : "NULL AS hash, ")
+            + "CASE WHEN " + size + " <= ? THEN " + body("content") + " END AS content"
+            + (compression
+                ? ", CASE WHEN " + size + " <= ? THEN " + body("content_z") + " END AS content_z, "
+                    + body("dict") + " AS dict"
+                : "")
+            + " FROM " + from + " WHERE " + doc + "uuid = ?";
+        // Tramos del contenido para leerlo como flujo (ver ChunkedContentReader)
+        this.selectChunkSql = "SELECT SUBSTRING(" + body("content") + ", ?, ?) AS content"
+            + (compression
+                ? ", SUBSTRING(" + body("content_z") + ", ?, ?) AS content_z, " + body("dict") + " AS dict"
+                : "")
+            + " FROM " + from + " WHERE " + doc + "uuid = ?";
+        this.sampleSql = "SELECT " + content + " FROM " + from + " LIMIT ?";
+        // Las columnas del contenido van al final para poder asignarlas igual
+        // aquí y en la tabla de contenidos
+        this.insertSql = "INSERT INTO " + table + " (uuid"
+            + (hasXsd ? ", xsd" : "") + (metadata ? ", size, hash, created" : "")
+            + ", content" + (compression ? ", content_z, dict" : "")
+            + ") VALUES (?" + (hasXsd ? ", ?" : "") + (metadata ? ", ?, ?, CURRENT_TIMESTAMP" : "")
+            + ", ?" + (compression ? ", ?, ?" : "") + ")";
+        this.bodyIndex = 2 + (hasXsd ? 1 : 0) + (metadata ? 2 : 0);
+        this.insertContentSql = "INSERT INTO " + contentTable + " (hash, refs, content"
+            + (compression ? ", content_z, dict" : "") + ") VALUES (?, 1, ?" + (compression ? ", ?, ?" : "")
+            + ")";
+        this.addReferenceSql = "UPDATE " + contentTable + " SET refs = refs + 1 WHERE hash = ?";
+        this.releaseSql = "UPDATE " + contentTable + " SET refs = refs - 1 WHERE hash = ?";
+        this.deleteUnusedSql = "DELETE FROM " + contentTable + " WHERE hash = ? AND refs <= 0";
+        this.renameContentSql = "UPDATE " + contentTable + " SET hash = ? WHERE hash = ?";
+        this.deleteContentSql = "DELETE FROM " + contentTable + " WHERE hash = ?";
+        this.selectReferenceSql = "SELECT hash, (" + owned + ") AS shared FROM " + table + " WHERE uuid = ? FOR UPDATE";
+        this.deleteSql = "DELETE FROM " + table + " WHERE uuid = ?";
+        this.existsSql = "SELECT 1 FROM " + table + " WHERE uuid = ? LIMIT 1";
+        this.selectXsdSql = hasXsd ? "SELECT xsd FROM " + table + " WHERE uuid = ?" : null;
+        this.selectMetadataSql = "SELECT size, hash, created FROM " + table + " WHERE uuid = ?";
+        this.selectLengthSql = "SELECT LENGTH(content) AS size FROM " + table + " WHERE uuid = ?";
+        this.updateMetadataSql = "UPDATE " + table + " SET size = ?, hash = ? WHERE uuid = ?";
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public boolean hasXsd() {
+        return hasXsd;
+    }
+
+    public boolean hasBinaryKeys() {
+        return binaryKeys;
+    }
+
+    public boolean hasMetadata() {
+        return metadata;
+    }
+
+    public boolean hasCompression() {
+        return compression;
+    }
+
+    public boolean hasDeduplication() {
+        return deduplication;
+    }
+
+    // Columna del contenido de un documento: con deduplicación, la de la
+    // tabla de contenidos si la fila la referencia
+    private String body(String column) {
+        return deduplication ? "CASE WHEN b.hash IS NULL THEN d." + column + " ELSE b." + column + " END" : column;
+    }
+
+    private String column(String column) {
+        return deduplication ? body(column) + " AS " + column : column;
+    }
+
+    // Conexión con la base de datos principal
+    private Connection getConnection() throws SQLException {
+        return pool.getConnection();
+    }
+
+    // Conexión con la base de datos (el shard) donde se guarda un documento
+    private Connection getConnection(String uuid) throws SQLException {
+        return shards == null ? getConnection() : shards.getPool(uuid).getConnection();
+    }
+
+
+    @Override
+    public Map<String, String> getAllPages() throws SQLException {
+        final List<Map<String, String>> results = readAll(selectAllSql, stmt -> {}, rs -> {
+            Map<String, String> pages = new HashMap<>();
+            while (rs.next()) {
+                pages.put(readKey(rs, "uuid"), readContent(rs));
+            }
+            return pages;
+        });
+
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        final Map<String, String> pages = new HashMap<>();
+        for (Map<String, String> result : results) {
+            pages.putAll(result);
+        }
+        return pages;
+    }
+
+    @Override
+    public List<String> listPages() throws SQLException {
+        final List<List<String>> results = readAll(listSql, stmt -> {}, rs -> {
+            List<String> uuids = new ArrayList<>();
+            while (rs.next()) {
+                uuids.add(readKey(rs, "uuid"));
+            }
+            return uuids;
+        });
+
+        if (results.size() == 1) {
+            return results.get(0);
+        }
+        final List<String> uuids = new ArrayList<>();
+        for (List<String> result : results) {
+            uuids.addAll(result);
+        }
+        return uuids;
+    }
+
+    @Override
+    public String getPage(String uuid) throws SQLException {
+        final Object key = toKey(uuid);
+        if (key == null) {
+            return null;
+        }
+
+        return read(uuid, selectSql, stmt -> setKey(stmt, 1, key),
+            rs -> rs.next() ? readContent(rs) : null);
+    }
+
+    /**
+     * Obtiene el tamaño, el hash y, si no supera el máximo, el contenido de
+     * un documento. Si está guardado comprimido sin diccionario, la página
+     * incluye también el contenido comprimido, que puede enviarse tal cual
+     * con {@code Content-Encoding: deflate}.
+     */
+    @Override
+    public StoredPage getPage(String uuid, long maxLoadedSize) throws SQLException {
+        final Object key = toKey(uuid);
+        if (key == null) {
+            return null;
+        }
+
+        return read(uuid, selectSizedSql,
+            stmt -> {
+                stmt.setLong(1, maxLoadedSize);
+                if (compression) {
+                    stmt.setLong(2, maxLoadedSize);
+                }
+                setKey(stmt, compression ? 3 : 2, key);
+            },
+            rs -> {
+                if (!rs.next()) {
+                    return null;
+                }
+
+                final byte[] deflated = compression && getDictionaryId(rs) == null ? rs.getBytes("content_z") : null;
+                return new StoredPage(rs.getLong("size"), readContent(rs), rs.getString("hash"), deflated);
+            });
+    }
+
+    /**
+     * Obtiene los metadatos de un documento. Si la tabla no los guarda (o la
+     * fila es anterior a ellos) solo se conoce el tamaño, que se calcula en la
+     * base de datos sin transferir el contenido.
+     */
+    @Override
+    public PageMetadata getMetadata(String uuid) throws SQLException {
+        final Object key = toKey(uuid);
+        if (key == null) {
+            return null;
+        }
+
+        if (metadata) {
+            final PageMetadata stored = read(uuid, selectMetadataSql, stmt -> setKey(stmt, 1, key), rs -> {
+                if (!rs.next()) {
+                    return null;
+                }
+                final long size = rs.getLong("size");
+                if (rs.wasNull()) {
+                    return new PageMetadata(-1, null, toMillis(rs.getTimestamp("created")));
+                }
+                return new PageMetadata(size, rs.getString("hash"), toMillis(rs.getTimestamp("created")));
+            });
+
+            if (stored == null || stored.getSize() >= 0) {
+                return stored;
+            }
+        }
+
+        return read(uuid, selectLengthSql, stmt -> setKey(stmt, 1, key),
+            rs -> rs.next() ? new PageMetadata(rs.getLong("size"), null, null) : null);
+    }
+
+    /**
+     * Abre el contenido de un documento como flujo de caracteres, sin
+     * cargarlo completo en memoria: se lee por tramos con
+     * {@link ChunkedContentReader}. Igual que el resto de lecturas, se hace
+     * en una réplica si las hay y, si falla, en el primario. El reader debe
+     * cerrarse para liberar la conexión con la base de datos.
+     * @param uuid Identificador único del documento
+     * @return Reader sobre el contenido, o null si no existe
+     */
+    @Override
+    public Reader openPage(String uuid) throws SQLException {
+        final Object key = toKey(uuid);
+        if (key == null) {
+            return null;
+        }
+
+        final ChunkedContentReader.Decompressor decompressor = compression
+            ? (compressed, rs) -> DocumentCompressor.decompressing(compressed, getDictionary(getDictionaryId(rs)))
+            : null;
+        return open(uuid, conn -> ChunkedContentReader.open(conn, selectChunkSql, key, decompressor));
+    }
+
+    @Override
+    public boolean savePage(String uuid, String content) throws SQLException {
+        requireNoXsd();
+        return savePage(uuid, content, null);
+    }
+
+    @Override
+    public String savePage(String uuid, Reader content) throws SQLException {
+        requireNoXsd();
+        return savePage(uuid, content, null);
+    }
+
+    /**
+     * Almacena un documento junto con el UUID de su XSD (solo en tablas con
+     * la columna {@code xsd}).
+     */
+    public boolean savePage(String uuid, String content, String xsd) throws SQLException {
+        if (uuid == null || content == null) {
+            return false;
+        }
+
+        if (!metadata) {
+            return insert(uuid, xsd, plain((stmt, index) -> stmt.setString(index, content)), null, null);
+        }
+
+        final byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        final String hash = ContentDigestReader.sha256(bytes);
+
+        if (compression && bytes.length >= MIN_COMPRESSED_SIZE) {
+            final DocumentCompressor.Dictionary dictionary = getCurrentDictionary();
+            // Se comprime al enviarlo, una sola vez: con deduplicación, si el
+            // contenido ya estaba guardado no hace falta
+            final byte[][] compressed = new byte[1][];
+            return insert(uuid, xsd, (stmt, index) -> {
+                if (compressed[0] == null) {
+                    compressed[0] = DocumentCompressor.compress(bytes, bytesOf(dictionary));
+                }
+                stmt.setNull(index, Types.LONGVARCHAR);
+                stmt.setBytes(index + 1, compressed[0]);
+                setDictionaryId(stmt, index + 2, dictionary);
+            }, (long) bytes.length, hash);
+        }
+        return insert(uuid, xsd, plain((stmt, index) -> stmt.setString(index, content)), (long) bytes.length, hash);
+    }
+
+    /**
+     * Igual que {@link #savePage(String, String, String)}, pero leyendo el
+     * contenido como flujo: se envía al driver sin construir el String. Los
+     * metadatos se calculan durante el envío y se guardan a continuación, en la
+     * misma transacción que el documento. Con compresión, el contenido también
+     * se comprime durante el envío; con deduplicación, se guarda primero con
+     * una clave provisional y, conocido su hash, se conserva o se descarta si
+     * ese contenido ya existía.
+     *
+     * @return SHA-256 en hexadecimal del contenido guardado (el mismo que se
+     *         guarda en los metadatos), o null si no se guardó
+     */
+    public String savePage(String uuid, Reader content, String xsd) throws SQLException {
+        if (uuid == null || content == null) {
+            return null;
+        }
+
+        // El hash se calcula aunque la tabla no guarde metadatos: es el ETag
+        final ContentDigestReader reader = new ContentDigestReader(content);
+        if (!metadata) {
+            return saved(reader,
+                insertStreamed(uuid, xsd, null, plain((stmt, index) -> stmt.setCharacterStream(index, reader))));
+        }
+
+        if (!compression) {
+            return saved(reader,
+                insertStreamed(uuid, xsd, reader, plain((stmt, index) -> stmt.setCharacterStream(index, reader))));
+        }
+
+        final DocumentCompressor.Dictionary dictionary = getCurrentDictionary();
+        try (InputStream compressed = DocumentCompressor.compressing(new ReaderInputStream(reader), bytesOf(dictionary))) {
+            return saved(reader, insertStreamed(uuid, xsd, reader, (stmt, index) -> {
+                stmt.setNull(index, Types.LONGVARCHAR);
+                stmt.setBinaryStream(index + 1, compressed);
+                setDictionaryId(stmt, index + 2, dictionary);
+            }));
+        } catch (IOException e) {
+            throw new SQLException("Error comprimiendo el contenido de " + uuid, e);
+        }
+    }
+
+    private static String saved(ContentDigestReader reader, boolean saved) {
+        return saved ? reader.getHash() : null;
+    }
+
+    // Guarda un documento cuyo tamaño y hash (si hay metadatos, reader no es
+    // null) solo se conocen después de enviar el contenido. No se usa el
+    // group commit: el lote quedaría esperando a que llegue el contenido.
+    private boolean insertStreamed(String uuid, String xsd, ContentDigestReader reader, Body body)
+        throws SQLException {
+        final Object key = toKey(uuid);
+        final Object xsdKey = toKey(xsd);
+        if (key == null) {
+            throw new SQLException("UUID no válido para una clave binaria: " + uuid);
+        }
+
+        if (!deduplication) {
+            if (reader == null) {
+                return written(uuid,
+                    update(uuid, insertSql, stmt -> bindDocument(stmt, key, xsdKey, null, null, body)) > 0);
+            }
+
+            // La fila y sus metadatos se confirman juntos: nunca queda a la
+            // vista un documento sin tamaño ni hash
+            return written(uuid, transaction(uuid, conn -> {
+                if (update(conn, insertSql, stmt -> bindDocument(stmt, key, xsdKey, null, null, body)) == 0) {
+                    return false;
+                }
+
+                update(conn, updateMetadataSql, stmt -> {
+                    stmt.setLong(1, reader.getSize());
+                    stmt.setString(2, reader.getHash());
+                    setKey(stmt, 3, key);
+                });
+                return true;
+            }));
+        }
+
+        return written(uuid, transaction(uuid, conn -> {
+            final String staging = "~" + uuid;
+            update(conn, insertContentSql, stmt -> {
+                stmt.setString(1, staging);
+                body.bind(stmt, 2);
+            });
+
+            final String hash = reader.getHash();
+            if (update(conn, addReferenceSql, stmt -> stmt.setString(1, hash)) > 0) {
+                update(conn, deleteContentSql, stmt -> stmt.setString(1, staging));
+            } else {
+                try {
+                    update(conn, renameContentSql, stmt -> {
+                        stmt.setString(1, hash);
+                        stmt.setString(2, staging);
+                    });
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Otra subida con el mismo contenido se ha guardado a la vez
+                    update(conn, addReferenceSql, stmt -> stmt.setString(1, hash));
+                    update(conn, deleteContentSql, stmt -> stmt.setString(1, staging));
+                }
+            }
+
+            return update(conn, insertSql,
+                stmt -> bindDocument(stmt, key, xsdKey, reader.getSize(), hash, this::bindShared)) > 0;
+        }));
+    }
+
+    /**
+     * Elimina un documento. Con deduplicación, si referenciaba un contenido
+     * compartido se libera su referencia y, si era la última, se borra.
+     */
+    @Override
+    public boolean deletePage(String uuid) throws SQLException {
+        final Object key = toKey(uuid);
+        if (key == null) {
+            return false;
+        }
+
+        if (!deduplication) {
+            return written(uuid, update(uuid, deleteSql, stmt -> setKey(stmt, 1, key)) > 0);
+        }
+
+        return written(uuid, transaction(uuid, conn -> {
+            final String hash = query(conn, selectReferenceSql, stmt -> setKey(stmt, 1, key),
+                rs -> rs.next() && rs.getBoolean("shared") ? rs.getString("hash") : null);
+            if (update(conn, deleteSql, stmt -> setKey(stmt, 1, key)) == 0) {
+                return false;
+            }
+
+            if (hash != null) {
+                update(conn, releaseSql, stmt -> stmt.setString(1, hash));
+                update(conn, deleteUnusedSql, stmt -> stmt.setString(1, hash));
+            }
+            return true;
+        }));
+    }
+
+    @Override
+    public boolean pageExists(String uuid) throws SQLException {
+        final Object key = toKey(uuid);
+        if (key == null) {
+            return false;
+        }
+
+        return read(uuid, existsSql, stmt -> setKey(stmt, 1, key), ResultSet::next);
+    }
+
+    /**
+     * Obtiene el UUID del XSD asociado a un documento (solo en tablas con la
+     * columna {@code xsd}).
+     * @return UUID del XSD, o null si el documento no existe
+     */
+    public String getXsd(String uuid) throws SQLException {
+        if (!hasXsd) {
+            throw new UnsupportedOperationException("La tabla " + table + " no tiene XSD asociado");
+        }
+        final Object key = toKey(uuid);
+        if (key == null) {
+            return null;
+        }
+
+        return read(uuid, selectXsdSql, stmt -> setKey(stmt, 1, key),
+            rs -> rs.next() ? readKey(rs, "xsd") : null);
+    }
+
+    @Override
+    public CompletableFuture<Map<String, String>> getAllPagesAsync() {
+        return async(this::getAllPages);
+    }
+
+    @Override
+    public CompletableFuture<List<String>> listPagesAsync() {
+        return async(this::listPages);
+    }
+
+    @Override
+    public CompletableFuture<String> getPageAsync(String uuid) {
+        return async(() -> getPage(uuid));
+    }
+
+    @Override
+    public CompletableFuture<StoredPage> getPageAsync(String uuid, long maxLoadedSize) {
+        return async(() -> getPage(uuid, maxLoadedSize));
+    }
+
+    @Override
+    public CompletableFuture<PageMetadata> getMetadataAsync(String uuid) {
+        return async(() -> getMetadata(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> savePageAsync(String uuid, String content) {
+        return async(() -> savePage(uuid, content));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> deletePageAsync(String uuid) {
+        return async(() -> deletePage(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> pageExistsAsync(String uuid) {
+        return async(() -> pageExists(uuid));
+    }
+
+    /**
+     * Versión asíncrona de {@link #getXsd(String)}.
+     */
+    public CompletableFuture<String> getXsdAsync(String uuid) {
+        return async(() -> getXsd(uuid));
+    }
+
+    /**
+     * Entrena un diccionario de compresión con una muestra de los documentos
+     * guardados y lo establece como actual: los documentos que se guarden a
+     * partir de ahora (en este servidor, o en otros al reiniciarse) se
+     * comprimirán con él.
+     * @param samples Número máximo de documentos de muestra
+     * @return Identificador del nuevo diccionario, o -1 si no hay documentos
+     */
+    public int trainDictionary(int samples) throws SQLException {
+        final List<byte[]> contents = new ArrayList<>();
+        for (List<byte[]> found : readAll(sampleSql,
+            stmt -> stmt.setInt(1, samples),
+            rs -> {
+                List<byte[]> shardContents = new ArrayList<>();
+                while (rs.next()) {
+                    shardContents.add(readContent(rs).getBytes(StandardCharsets.UTF_8));
+                }
+                return shardContents;
+            })) {
+            contents.addAll(found.subList(0, Math.min(found.size(), samples - contents.size())));
+        }
+
+        final byte[] dictionary = DocumentCompressor.buildDictionary(contents);
+        if (dictionary == null) {
+            return -1;
+        }
+
+        try (Connection conn = getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO DICTIONARY (doc_table, content) VALUES (?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, table);
+            stmt.setBytes(2, dictionary);
+            stmt.executeUpdate();
+
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No se ha obtenido el identificador del diccionario");
+                }
+                final int id = keys.getInt(1);
+                dictionaries.put(id, dictionary);
+                currentDictionary = new DocumentCompressor.Dictionary(id, dictionary);
+                dictionaryLoaded = true;
+                return id;
+            }
+        }
+    }
+
+    // Diccionario con el que se comprimen los documentos nuevos (el último
+    // entrenado para la tabla), o null si no hay ninguno
+    private DocumentCompressor.Dictionary getCurrentDictionary() throws SQLException {
+        if (!dictionaryLoaded) {
+            currentDictionary = query(
+                "SELECT id, content FROM DICTIONARY WHERE doc_table = ? ORDER BY id DESC LIMIT 1",
+                stmt -> stmt.setString(1, table),
+                rs -> rs.next() ? new DocumentCompressor.Dictionary(rs.getInt("id"), rs.getBytes("content")) : null);
+            if (currentDictionary != null) {
+                dictionaries.put(currentDictionary.getId(), currentDictionary.getBytes());
+            }
+            dictionaryLoaded = true;
+        }
+        return currentDictionary;
+    }
+
+    private byte[] getDictionary(Integer id) throws SQLException {
+        if (id == null) {
+            return null;
+        }
+
+        byte[] dictionary = dictionaries.get(id);
+        if (dictionary == null) {
+            dictionary = query("SELECT content FROM DICTIONARY WHERE id = ?", stmt -> stmt.setInt(1, id),
+                rs -> rs.next() ? rs.getBytes("content") : null);
+            if (dictionary == null) {
+                throw new SQLException("No existe el diccionario de compresión " + id);
+            }
+            dictionaries.put(id, dictionary);
+        }
+        return dictionary;
+    }
+
+    private static Integer getDictionaryId(ResultSet rs) throws SQLException {
+        final int id = rs.getInt("dict");
+        return rs.wasNull() ? null : id;
+    }
+
+    private static void setDictionaryId(PreparedStatement stmt, int index, DocumentCompressor.Dictionary dictionary)
+        throws SQLException {
+        if (dictionary == null) {
+            stmt.setNull(index, Types.INTEGER);
+        } else {
+            stmt.setInt(index, dictionary.getId());
+        }
+    }
+
+    private static byte[] bytesOf(DocumentCompressor.Dictionary dictionary) {
+        return dictionary == null ? null : dictionary.getBytes();
+    }
+
+    // Contenido de la fila actual, descomprimiéndolo si está guardado comprimido
+    private String readContent(ResultSet rs) throws SQLException {
+        final String content = rs.getString("content");
+        if (content != null || !compression) {
+            return content;
+        }
+
+        final byte[] compressed = rs.getBytes("content_z");
+        if (compressed == null) {
+            return null;
+        }
+        return new String(
+            DocumentCompressor.decompress(compressed, getDictionary(getDictionaryId(rs))), StandardCharsets.UTF_8);
+    }
+
+    // Guarda un documento. Con deduplicación, el contenido va a la tabla de
+    // contenidos en la misma transacción que la fila del documento; si ya
+    // estaba, solo se le suma una referencia y el cuerpo no se envía.
+    private boolean insert(String uuid, String xsd, Body body, Long size, String hash) throws SQLException {
+        final Object key = toKey(uuid);
+        final Object xsdKey = toKey(xsd);
+        if (key == null) {
+            throw new SQLException("UUID no válido para una clave binaria: " + uuid);
+        }
+
+        if (!deduplication) {
+            return written(uuid,
+                write(uuid, conn -> update(conn, insertSql, stmt -> bindDocument(stmt, key, xsdKey, size, hash, body)) > 0));
+        }
+
+        return written(uuid, write(uuid, conn -> {
+            // Si el contenido ya estaba solo se suma una referencia: el cuerpo
+            // no llega a enviarse (ni, con compresión, a comprimirse)
+            if (update(conn, addReferenceSql, stmt -> stmt.setString(1, hash)) == 0) {
+                try {
+                    update(conn, insertContentSql, stmt -> {
+                        stmt.setString(1, hash);
+                        body.bind(stmt, 2);
+                    });
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // Otra subida con el mismo contenido lo ha insertado a la vez
+                    update(conn, addReferenceSql, stmt -> stmt.setString(1, hash));
+                }
+            }
+            return update(conn, insertSql, stmt -> bindDocument(stmt, key, xsdKey, size, hash, this::bindShared)) > 0;
+        }));
+    }
+
+    private void bindDocument(PreparedStatement stmt, Object key, Object xsdKey, Long size, String hash, Body body)
+        throws SQLException {
+        setKey(stmt, 1, key);
+        if (hasXsd) {
+            setKey(stmt, 2, xsdKey);
+        }
+        if (metadata) {
+            final int index = hasXsd ? 3 : 2;
+            if (size == null) {
+                stmt.setNull(index, Types.BIGINT);
+            } else {
+                stmt.setLong(index, size);
+            }
+            stmt.setString(index + 1, hash);
+        }
+        body.bind(stmt, bodyIndex);
+    }
+
+    // Contenido sin comprimir: con compresión, sus columnas quedan a nulo
+    private Body plain(Body content) {
+        return (stmt, index) -> {
+            content.bind(stmt, index);
+            if (compression) {
+                stmt.setNull(index + 1, Types.LONGVARBINARY);
+                stmt.setNull(index + 2, Types.INTEGER);
+            }
+        };
+    }
+
+    // Fila de un documento cuyo contenido está en la tabla de contenidos
+    private void bindShared(PreparedStatement stmt, int index) throws SQLException {
+        plain((shared, column) -> shared.setNull(column, Types.LONGVARCHAR)).bind(stmt, index);
+    }
+
+    private static Long toMillis(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.getTime();
+    }
+
+    // Clave con la que se guarda un UUID, o null si no puede existir en la tabla
+    private Object toKey(String uuid) {
+        if (uuid == null) {
+            return null;
+        }
+
+        return binaryKeys ? UuidKeys.toBytes(uuid) : uuid;
+    }
+
+    private void setKey(PreparedStatement stmt, int index, Object key) throws SQLException {
+        if (key == null) {
+            stmt.setNull(index, binaryKeys ? Types.BINARY : Types.VARCHAR);
+        } else if (binaryKeys) {
+            stmt.setBytes(index, (byte[]) key);
+        } else {
+            stmt.setString(index, (String) key);
+        }
+    }
+
+    private String readKey(ResultSet rs, String column) throws SQLException {
+        return binaryKeys ? UuidKeys.fromBytes(rs.getBytes(column)) : rs.getString(column);
+    }
+
+    private void requireNoXsd() {
+        if (hasXsd) {
+            throw new UnsupportedOperationException("Los documentos de " + table + " necesitan su XSD");
+        }
+    }
+
+    // Registra la escritura de un documento para leerlo del primario mientras
+    // las réplicas se ponen al día
+    private boolean written(String uuid, boolean changed) {
+        if (changed && replicaRouter != null) {
+            replicaRouter.recordWrite(table, uuid);
+        }
+        return changed;
+    }
+
+    // Ejecuta una lectura de un documento (o de la tabla, si uuid es null) en
+    // una réplica si las hay, o con una conexión del pool
+    private <T> T read(String uuid, String sql, Binder binder, Mapper<T> mapper) throws SQLException {
+        if (replicaRouter != null) {
+            return replicaRouter.read(table, uuid, conn -> query(conn, sql, binder, mapper));
+        }
+
+        try (Connection conn = uuid == null ? getConnection() : getConnection(uuid)) {
+            return query(conn, sql, binder, mapper);
+        }
+    }
+
+    // Igual que read, pero la conexión pasa a ser del resultado (un flujo que
+    // la libera al cerrarse), así que work debe cerrarla si falla
+    private <T> T open(String uuid, GroupCommitter.Work<T> work) throws SQLException {
+        if (replicaRouter != null) {
+            return replicaRouter.open(table, uuid, work);
+        }
+        return work.run(getConnection(uuid));
+    }
+
+    // Ejecuta una consulta sobre toda la tabla: en todos los shards a la vez
+    // si los hay, con un resultado por shard
+    private <T> List<T> readAll(String sql, Binder binder, Mapper<T> mapper) throws SQLException {
+        if (shards == null) {
+            return Collections.singletonList(read(null, sql, binder, mapper));
+        }
+        return shards.scatter(conn -> query(conn, sql, binder, mapper));
+    }
+
+    // Ejecuta una consulta con una conexión del pool, que se devuelve al terminar
+    private <T> T query(String sql, Binder binder, Mapper<T> mapper) throws SQLException {
+        try (Connection conn = getConnection()) {
+            return query(conn, sql, binder, mapper);
+        }
+    }
+
+    private <T> T query(Connection conn, String sql, Binder binder, Mapper<T> mapper) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return mapper.map(rs);
+            }
+        }
+    }
+
+    // Ejecuta una sentencia de modificación sobre un documento y devuelve las
+    // filas afectadas
+    private int update(String uuid, String sql, Binder binder) throws SQLException {
+        try (Connection conn = getConnection(uuid)) {
+            return update(conn, sql, binder);
+        }
+    }
+
+    private int update(Connection conn, String sql, Binder binder) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            binder.bind(stmt);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // Ejecuta la escritura de un documento nuevo: agrupada con otras si hay
+    // group commit, en su propia transacción con deduplicación (son varias
+    // sentencias) o directamente en otro caso
+    private <T> T write(String uuid, GroupCommitter.Work<T> work) throws SQLException {
+        if (groupCommitter != null) {
+            return groupCommitter.execute(work);
+        }
+        if (deduplication) {
+            return transaction(uuid, work);
+        }
+
+        try (Connection conn = getConnection(uuid)) {
+            return work.run(conn);
+        }
+    }
+
+    // Ejecuta varias sentencias sobre un documento en una transacción
+    private <T> T transaction(String uuid, GroupCommitter.Work<T> work) throws SQLException {
+        try (Connection conn = getConnection(uuid)) {
+            conn.setAutoCommit(false);
+            try {
+                final T result = work.run(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Lanza una consulta en el ejecutor asíncrono; sin ejecutor se hace en el
+    // hilo actual y el futuro se devuelve ya completado
+    private <T> CompletableFuture<T> async(Call<T> call) {
+        if (executor == null) {
+            try {
+                return CompletableFuture.completedFuture(call.call());
+            } catch (SQLException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return call.call();
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    @FunctionalInterface
+    private interface Call<T> {
+        T call() throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Binder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface Mapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    // Asigna las columnas del contenido (content y, con compresión,
+    // content_z y dict) a partir del índice indicado
+    @FunctionalInterface
+    private interface Body {
+        void bind(PreparedStatement stmt, int index) throws SQLException;
+    }
+
+}
@@ -0,0 +1,307 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrupa las escrituras concurrentes en una sola transacción (group commit).
+ * Cada escritura espera en una cola hasta que un hilo propio la ejecuta junto
+ * con las que llegan durante el retardo máximo (o hasta completar un lote) y
+ * hace un único commit, de modo que la base de datos sincroniza el disco una
+ * vez por lote en lugar de una vez por documento. Quien escribe no recibe el
+ * resultado hasta que su lote se ha confirmado.
+ *
+ * Cada escritura se ejecuta tras un savepoint: si falla, solo se deshace la
+ * suya y el resto del lote se confirma igualmente. Si ni siquiera se puede
+ * volver al savepoint, se deshace todo y se repiten las demás en otra
+ * transacción.
+ */
+public class GroupCommitter implements AutoCloseable {
+    private static final long POLL_INTERVAL = 100;
+
+    private final ConnectionPool pool;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final BlockingQueue<Write<?>> pending = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private volatile boolean closed;
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAccumulator maxBatch = new LongAccumulator(Math::max, 0L);
+    private final LongAdder commitTotalNanos = new LongAdder();
+
+    /**
+     * @param pool Pool del que se obtiene la conexión de cada lote
+     * @param maxBatchSize Número máximo de escrituras por transacción
+     * @param maxDelayMillis Tiempo máximo que espera la primera escritura de
+     * un lote a que lleguen otras
+     */
+    public GroupCommitter(ConnectionPool pool, int maxBatchSize, long maxDelayMillis) {
+        this.pool = pool;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+        this.committer = new Thread(this::run, "group-commit");
+        this.committer.setDaemon(true);
+        this.committer.start();
+    }
+
+    /**
+     * Ejecuta una escritura en el siguiente lote y espera a que se confirme.
+     */
+    <T> T execute(Work<T> work) throws SQLException {
+        if (closed) {
+            throw new SQLException("El group commit está cerrado");
+        }
+
+        final Write<T> write = new Write<>(work);
+        pending.add(write);
+
+        try {
+            while (true) {
+                try {
+                    return write.result.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // Si se ha cerrado justo después de encolarla, nadie la ejecutará
+                    if (!committer.isAlive() && pending.remove(write)) {
+                        throw new SQLException("El group commit está cerrado");
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupción esperando la confirmación de la escritura", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    private void run() {
+        final List<Write<?>> batch = new ArrayList<>(maxBatchSize);
+
+        while (!closed || !pending.isEmpty()) {
+            try {
+                final Write<?> first = pending.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                final long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    final long remaining = deadline - System.nanoTime();
+                    final Write<?> next = remaining > 0
+                        ? pending.poll(remaining, TimeUnit.NANOSECONDS)
+                        : pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Se termina el lote en curso y se sigue hasta vaciar la cola
+            }
+
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<Write<?>> batch) {
+        final long start = System.nanoTime();
+
+        List<Write<?>> remaining = batch;
+        while (!remaining.isEmpty()) {
+            remaining = attempt(remaining);
+        }
+
+        batches.increment();
+        writes.add(batch.size());
+        maxBatch.accumulate(batch.size());
+        commitTotalNanos.add(System.nanoTime() - start);
+
+        for (Write<?> write : batch) {
+            if (write.failure != null) {
+                failedWrites.increment();
+            }
+            write.complete();
+        }
+    }
+
+    // Ejecuta las escrituras en una transacción. Si no se puede deshacer una
+    // que falla hasta su savepoint, la transacción entera queda en duda: se
+    // deshace y se devuelven las demás escrituras aún sin fallo para
+    // repetirlas en una transacción nueva. Cada reintento tiene al menos una
+    // escritura menos, así que el lote siempre termina.
+    private List<Write<?>> attempt(List<Write<?>> writes) {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Write<?> write : writes) {
+                    final Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        write.run(conn);
+                        conn.releaseSavepoint(savepoint);
+                    } catch (SQLException | RuntimeException e) {
+                        write.failure = e;
+                        if (!rollback(conn, savepoint)) {
+                            conn.rollback();
+                            return survivors(writes);
+                        }
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Error confirmando un lote de " + writes.size() + " escrituras: " + e.getMessage());
+            for (Write<?> write : writes) {
+                if (write.failure == null) {
+                    write.failure = e;
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static boolean rollback(Connection conn, Savepoint savepoint) {
+        try {
+            conn.rollback(savepoint);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error deshaciendo una escritura hasta su savepoint: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static List<Write<?>> survivors(List<Write<?>> writes) {
+        final List<Write<?>> survivors = new ArrayList<>(writes.size());
+        for (Write<?> write : writes) {
+            if (write.failure == null) {
+                survivors.add(write);
+            }
+        }
+        return survivors;
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getWrites() {
+        return writes.sum();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.sum();
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatch.get();
+    }
+
+    public double getAverageBatchSize() {
+        final long count = batches.sum();
+        return count == 0 ? 0d : (double) writes.sum() / count;
+    }
+
+    public double getAverageCommitMillis() {
+        final long count = batches.sum();
+        return count == 0 ? 0d : (double) commitTotalNanos.sum() / count / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Deja de aceptar escrituras y espera a que se confirmen las pendientes.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "lotes=%d, escrituras=%d, fallidas=%d, tamaño medio=%.1f, tamaño máximo=%d, commit medio=%.2fms",
+            getBatches(), getWrites(), getFailedWrites(), getAverageBatchSize(), getMaxBatchSize(),
+            getAverageCommitMillis()
+        );
+    }
+
+    /**
+     * Escritura sobre la conexión de un lote.
+     */
+    @FunctionalInterface
+    interface Work<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private static class Write<T> {
+        private final Work<T> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+        private Exception failure;
+
+        Write(Work<T> work) {
+            this.work = work;
+        }
+
+        void run(Connection conn) throws SQLException {
+            value = work.run(conn);
+        }
+
+        void complete() {
+            if (failure == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(failure);
+            }
+        }
+    }
+}
@@ -17,7 +17,14 @@
  */
 package es.uvigo.esei.dai.hybridserver.dao;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -44,12 +51,40 @@ public class HTMLPageMemoryDAO implements PageDAO {
     public Map<String, String> getAllPages() {
         return new HashMap<>(pages);
     }
+
+    @Override
+    public List<String> listPages() {
+        return new ArrayList<>(pages.keySet());
+    }
     
     @Override
     public String getPage(String uuid) {
         return pages.get(uuid);
     }
     
+    @Override
+    public StoredPage getPage(String uuid, long maxLoadedSize) {
+        String content = pages.get(uuid);
+        if (content == null) {
+            return null;
+        }
+
+        // En memoria el contenido ya está cargado: se devuelve siempre
+        return new StoredPage(content.getBytes(StandardCharsets.UTF_8).length, content);
+    }
+
+    @Override
+    public Reader openPage(String uuid) {
+        String content = pages.get(uuid);
+        return content == null ? null : new StringReader(content);
+    }
+
+    @Override
+    public PageMetadata getMetadata(String uuid) {
+        String content = pages.get(uuid);
+        return content == null ? null : new PageMetadata(content.getBytes(StandardCharsets.UTF_8).length, null, null);
+    }
+    
     @Override
     public boolean savePage(String uuid, String content) {
         if (uuid == null || content == null) {
@@ -59,6 +94,28 @@ public class HTMLPageMemoryDAO implements PageDAO {
         return true;
     }
     
+    @Override
+    public String savePage(String uuid, Reader content) throws SQLException {
+        if (uuid == null || content == null) {
+            return null;
+        }
+
+        // En memoria el contenido acaba completo en el mapa de todos modos
+        ContentDigestReader reader = new ContentDigestReader(content);
+        StringBuilder page = new StringBuilder();
+        char[] buffer = new char[8192];
+        try {
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                page.append(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            // Igual que el driver JDBC cuando falla la lectura del flujo
+            throw new SQLException("Error leyendo el contenido de " + uuid, e);
+        }
+        return savePage(uuid, page.toString()) ? reader.getHash() : null;
+    }
+    
     @Override
     public boolean deletePage(String uuid) {
         if (uuid == null) {
@@ -0,0 +1,110 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Flujo que descomprime datos en formato zlib, aplicando el diccionario
+ * cuando el contenido lo pide ({@link java.util.zip.InflaterInputStream} no
+ * admite diccionarios).
+ */
+class InflatingInputStream extends FilterInputStream {
+    private final Inflater inflater = new Inflater();
+    private final byte[] dictionary;
+    private final byte[] buffer = new byte[8192];
+    private boolean closed;
+
+    InflatingInputStream(InputStream in, byte[] dictionary) {
+        super(in);
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Flujo cerrado");
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        try {
+            while (true) {
+                final int inflated = inflater.inflate(b, off, len);
+                if (inflated > 0) {
+                    return inflated;
+                }
+                if (inflater.finished()) {
+                    return -1;
+                }
+                if (inflater.needsDictionary()) {
+                    if (dictionary == null) {
+                        throw new IOException("El contenido necesita un diccionario que no está disponible");
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (inflater.needsInput()) {
+                    final int read = in.read(buffer);
+                    if (read == -1) {
+                        throw new EOFException("Contenido comprimido incompleto");
+                    }
+                    inflater.setInput(buffer, 0, read);
+                }
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Contenido comprimido no válido", e);
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        final byte[] skipped = new byte[(int) Math.min(n, 8192)];
+        final int read = read(skipped, 0, skipped.length);
+        return Math.max(read, 0);
+    }
+
+    @Override
+    public int available() throws IOException {
+        return closed || inflater.finished() ? 0 : 1;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            inflater.end();
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Migra una tabla de documentos de claves {@code VARCHAR(36)} a
+ * {@code BINARY(16)} (también la columna {@code xsd} de la tabla XSL) sin
+ * detener el servidor mientras se copian los datos:
+ * <ol>
+ *   <li>Crea {@code <tabla>_bin} con la misma estructura y las claves binarias.</li>
+ *   <li>Copia las filas por lotes, en orden de clave, cada lote en su propia
+ *   transacción. El contenido se copia dentro de MySQL, sin pasar por aquí.</li>
+ *   <li>Recoge las filas insertadas y borradas durante la copia.</li>
+ *   <li>Intercambia las tablas con un único {@code RENAME TABLE}; la original
+ *   queda como {@code <tabla>_old}.</li>
+ *   <li>Copia las filas insertadas en la original durante el intercambio.</li>
+ * </ol>
+ * Tras la migración el servidor debe reiniciarse con {@code db.binaryKeys=true}.
+ * Si se interrumpe, puede volver a ejecutarse: las filas ya copiadas se ignoran.
+ */
+public class KeyMigration {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    private final ConnectionPool pool;
+    private final int batchSize;
+
+    public KeyMigration(ConnectionPool pool, int batchSize) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param table Tabla a migrar
+     * @param hasXsd Si la tabla tiene la columna {@code xsd}, que también se convierte
+     * @return Número de filas copiadas, o -1 si la tabla ya tenía claves binarias
+     */
+    public long migrate(String table, boolean hasXsd) throws SQLException {
+        final String target = table + "_bin";
+        final String old = table + "_old";
+
+        try (Connection conn = pool.getConnection()) {
+            if (isBinary(conn, table, "uuid")) {
+                System.out.println("La tabla " + table + " ya tiene claves binarias");
+                return -1;
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + target + " LIKE " + table);
+                if (!isBinary(conn, target, "uuid")) {
+                    stmt.execute("ALTER TABLE " + target + " MODIFY uuid BINARY(16) NOT NULL");
+                }
+                if (hasXsd && !isBinary(conn, target, "xsd")) {
+                    stmt.execute("ALTER TABLE " + target + " MODIFY xsd BINARY(16)");
+                }
+            }
+
+            final String copySql = copySql(conn, table, target, hasXsd);
+            long copied = copyBatches(conn, table, copySql);
+
+            // Filas insertadas por detrás del cursor o borradas durante la copia
+            copied += execute(conn, copySql + " AND NOT EXISTS (SELECT 1 FROM " + target
+                + " b WHERE b.uuid = " + toBinary("s.uuid") + ")");
+            final int deleted = execute(conn, "DELETE FROM " + target + " WHERE "
+                + toText("uuid") + " NOT IN (SELECT uuid FROM " + table + ")");
+
+            final int invalid = count(conn, "SELECT COUNT(*) FROM " + table + " WHERE NOT (" + validKey("uuid") + ")");
+            if (invalid > 0) {
+                System.err.println("Aviso: " + invalid + " filas de " + table
+                    + " tienen un UUID no válido y no se han copiado");
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("RENAME TABLE " + table + " TO " + old + ", " + target + " TO " + table);
+            }
+
+            // Inserciones que llegaron a la tabla original justo antes del intercambio
+            copied += execute(conn, copySql(conn, old, table, hasXsd) + " AND NOT EXISTS (SELECT 1 FROM "
+                + table + " b WHERE b.uuid = " + toBinary("s.uuid") + ")");
+
+            System.out.println("Tabla " + table + " migrada: " + copied + " filas copiadas, "
+                + deleted + " borradas durante la copia. La original se conserva como " + old);
+            return copied;
+        }
+    }
+
+    // Copia las filas de la tabla original en lotes ordenados por clave
+    private long copyBatches(Connection conn, String table, String copySql) throws SQLException {
+        final String nextSql = "SELECT uuid FROM " + table + " WHERE uuid > ? ORDER BY uuid LIMIT 1 OFFSET ?";
+        final String batchSql = copySql + " AND s.uuid > ? AND s.uuid <= ?";
+
+        long copied = 0;
+        String from = "";
+        while (true) {
+            // Última clave del lote: solo se leen claves, nunca el contenido
+            String to = null;
+            try (PreparedStatement stmt = conn.prepareStatement(nextSql)) {
+                stmt.setString(1, from);
+                stmt.setInt(2, batchSize - 1);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        to = rs.getString(1);
+                    }
+                }
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(to == null ? copySql + " AND s.uuid > ?" : batchSql)) {
+                stmt.setString(1, from);
+                if (to != null) {
+                    stmt.setString(2, to);
+                }
+                copied += stmt.executeUpdate();
+            }
+
+            if (to == null) {
+                return copied;
+            }
+            from = to;
+            System.out.println(table + ": " + copied + " filas copiadas");
+        }
+    }
+
+    // INSERT ... SELECT que copia todas las columnas convirtiendo las claves
+    private static String copySql(Connection conn, String source, String target, boolean hasXsd) throws SQLException {
+        final List<String> columns = columns(conn, source);
+        final List<String> values = new ArrayList<>(columns.size());
+        for (String column : columns) {
+            values.add("uuid".equals(column) || (hasXsd && "xsd".equals(column))
+                ? toBinary("s." + column) : "s." + column);
+        }
+
+        return "INSERT IGNORE INTO " + target + " (" + String.join(", ", columns) + ") SELECT "
+            + String.join(", ", values) + " FROM " + source + " s WHERE " + validKey("s.uuid");
+    }
+
+    private static String toBinary(String column) {
+        return "UNHEX(REPLACE(" + column + ", '-', ''))";
+    }
+
+    private static String toText(String column) {
+        return "INSERT(INSERT(INSERT(INSERT(LOWER(HEX(" + column + ")), 9, 0, '-'), 14, 0, '-'), 19, 0, '-'), 24, 0, '-')";
+    }
+
+    private static String validKey(String column) {
+        return "LENGTH(" + column + ") = 36 AND " + toBinary(column) + " IS NOT NULL";
+    }
+
+    private static List<String> columns(Connection conn, String table) throws SQLException {
+        final List<String> columns = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "SELECT COLUMN_NAME FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? ORDER BY ORDINAL_POSITION")) {
+            stmt.setString(1, table);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    columns.add(rs.getString(1));
+                }
+            }
+        }
+        return columns;
+    }
+
+    private static boolean isBinary(Connection conn, String table, String column) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+            "SELECT DATA_TYPE FROM information_schema.COLUMNS "
+                + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            stmt.setString(1, table);
+            stmt.setString(2, column);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && "binary".equalsIgnoreCase(rs.getString(1));
+            }
+        }
+    }
+
+    private static int execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            return stmt.executeUpdate(sql);
+        }
+    }
+
+    private static int count(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
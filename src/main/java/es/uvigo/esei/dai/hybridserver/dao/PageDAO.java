@@ -17,7 +17,9 @@
  */
 package es.uvigo.esei.dai.hybridserver.dao;
 
+import java.io.Reader;
 import java.sql.SQLException;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -31,6 +33,12 @@ public interface PageDAO {
      * @return Mapa con UUID como clave y contenido HTML como valor
      */
     Map<String, String> getAllPages()throws SQLException;
+
+    /**
+     * Obtiene los UUID de todas las páginas almacenadas, sin su contenido.
+     * @return Lista de UUID
+     */
+    List<String> listPages() throws SQLException;
     
     /**
      * Obtiene una página HTML por su UUID.
@@ -38,6 +46,30 @@ public interface PageDAO {
      * @return Contenido HTML de la página, o null si no existe
      */
     String getPage(String uuid)throws SQLException;
+
+    /**
+     * Obtiene el tamaño de una página y, si no supera el máximo indicado, su
+     * contenido, de modo que los documentos grandes no se carguen en memoria.
+     * @param uuid Identificador único de la página
+     * @param maxLoadedSize Tamaño máximo en bytes (UTF-8) para cargar el contenido
+     * @return Página encontrada, o null si no existe
+     */
+    StoredPage getPage(String uuid, long maxLoadedSize) throws SQLException;
+
+    /**
+     * Abre el contenido de una página como flujo de caracteres. El reader debe
+     * cerrarse para liberar los recursos asociados.
+     * @param uuid Identificador único de la página
+     * @return Reader sobre el contenido, o null si no existe
+     */
+    Reader openPage(String uuid) throws SQLException;
+
+    /**
+     * Obtiene los metadatos de una página sin leer su contenido, si se guardan.
+     * @param uuid Identificador único de la página
+     * @return Metadatos de la página, o null si no existe
+     */
+    PageMetadata getMetadata(String uuid) throws SQLException;
     
     /**
      * Almacena una nueva página HTML.
@@ -46,6 +78,16 @@ public interface PageDAO {
      * @return true si se almacenó correctamente, false en caso contrario
      */
     boolean savePage(String uuid, String content) throws SQLException; 
+
+    /**
+     * Almacena una nueva página leyendo su contenido como flujo, sin
+     * necesidad de tenerlo completo en memoria.
+     * @param uuid Identificador único de la página
+     * @param content Reader con el contenido de la página
+     * @return SHA-256 en hexadecimal del contenido almacenado (codificado en
+     *         UTF-8), calculado durante la lectura, o null si no se almacenó
+     */
+    String savePage(String uuid, Reader content) throws SQLException;
     
     /**
      * Elimina una página HTML.
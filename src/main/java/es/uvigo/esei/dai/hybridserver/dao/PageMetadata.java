@@ -0,0 +1,54 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+/**
+ * Metadatos de un documento almacenado, que se pueden consultar sin leer su
+ * contenido: tamaño en bytes (UTF-8), resumen SHA-256 del contenido en
+ * hexadecimal y momento de creación. El resumen y la fecha solo se conocen si
+ * la tabla guarda los metadatos.
+ */
+public class PageMetadata {
+    private final long size;
+    private final String hash;
+    private final Long created;
+
+    public PageMetadata(long size, String hash, Long created) {
+        this.size = size;
+        this.hash = hash;
+        this.created = created;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return SHA-256 del contenido en UTF-8, en hexadecimal, o null si no se conoce
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return Milisegundos desde la época en que se creó el documento, o null si no se conoce
+     */
+    public Long getCreated() {
+        return created;
+    }
+}
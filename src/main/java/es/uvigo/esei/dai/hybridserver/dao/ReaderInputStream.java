@@ -0,0 +1,100 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flujo de bytes con el contenido de un Reader codificado en UTF-8, que se
+ * genera a medida que se lee. Cerrarlo no cierra el Reader, que pertenece a
+ * quien lo creó (por ejemplo, el cuerpo de una petición).
+ */
+class ReaderInputStream extends InputStream {
+    private final Reader reader;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(4096);
+    private final ByteBuffer bytes = ByteBuffer.allocate(8192);
+    private boolean endOfInput;
+    private boolean finished;
+
+    ReaderInputStream(Reader reader) {
+        this.reader = reader;
+        this.chars.flip();
+        this.bytes.flip();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!bytes.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return bytes.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!bytes.hasRemaining() && !fill()) {
+            return -1;
+        }
+
+        final int read = Math.min(len, bytes.remaining());
+        bytes.get(b, off, read);
+        return read;
+    }
+
+    // Codifica más caracteres; devuelve false al terminar el contenido
+    private boolean fill() throws IOException {
+        bytes.compact();
+        try {
+            while (bytes.position() == 0 && !finished) {
+                if (!endOfInput) {
+                    chars.compact();
+                    endOfInput = reader.read(chars) < 0;
+                    chars.flip();
+                }
+
+                final CoderResult result = encoder.encode(chars, bytes, endOfInput);
+                if (endOfInput && result.isUnderflow()) {
+                    encoder.flush(bytes);
+                    finished = true;
+                }
+            }
+        } finally {
+            bytes.flip();
+        }
+        return bytes.hasRemaining();
+    }
+
+    @Override
+    public void close() {
+        // El Reader no se cierra
+    }
+}
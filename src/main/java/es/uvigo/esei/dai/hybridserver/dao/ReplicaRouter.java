@@ -0,0 +1,367 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Reparte las lecturas de los documentos entre réplicas de solo lectura de
+ * la base de datos. Las escrituras siguen yendo al primario ({@code db.url}).
+ *
+ * Para que quien acaba de escribir un documento lo lea, las lecturas de un
+ * UUID escrito hace menos de {@code readYourWrites} ms (y los listados de
+ * una tabla escrita en ese plazo) se hacen en el primario. Las réplicas que
+ * fallan o cuyo retraso supera {@code maxLag} segundos se dejan de usar
+ * durante un tiempo y sus lecturas van también al primario.
+ *
+ * El retraso se consulta periódicamente en un hilo propio, no durante las
+ * lecturas, y en ese mismo hilo se olvidan las escrituras que ya no son
+ * recientes.
+ */
+public class ReplicaRouter implements AutoCloseable {
+    // Tiempo (ms) que se deja sin usar una réplica que ha fallado o va retrasada
+    private static final long RETRY_INTERVAL = 10_000;
+    // Frecuencia (ms) con la que se consulta el retraso de cada réplica y se
+    // purgan las escrituras que ya no son recientes
+    private static final long LAG_CHECK_INTERVAL = 5_000;
+
+    /**
+     * Forma de elegir la réplica de cada lectura.
+     */
+    public enum Policy {
+        ROUND_ROBIN("round-robin"),
+        LEAST_LOADED("least-loaded");
+
+        private final String name;
+
+        private Policy(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public static Policy fromName(String name) {
+            for (Policy policy : values()) {
+                if (policy.name.equalsIgnoreCase(name.trim())) {
+                    return policy;
+                }
+            }
+            throw new IllegalArgumentException("Política de réplicas desconocida: " + name);
+        }
+    }
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas;
+    private final Policy policy;
+    private final long readYourWritesMillis;
+    private final int maxLagSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+
+    // Instante de la última escritura de cada documento ("tabla/uuid") y de
+    // cada tabla. No se distingue quién escribió: tras cualquier escritura,
+    // todos los listados de la tabla van al primario durante readYourWrites.
+    // Con muchas escrituras los listados apenas usan las réplicas, a cambio de
+    // no tener que seguir la sesión de cada cliente.
+    private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+    private final Map<String, Long> tableWrites = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService checker;
+
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    /**
+     * @param primary Pool de la base de datos principal
+     * @param replicas Pools de las réplicas de solo lectura
+     * @param readYourWritesMillis Tiempo tras una escritura durante el que se
+     * lee del primario
+     * @param maxLagSeconds Retraso máximo admitido de una réplica (0 = no se comprueba)
+     */
+    public ReplicaRouter(
+        ConnectionPool primary, List<ConnectionPool> replicas, Policy policy,
+        long readYourWritesMillis, int maxLagSeconds
+    ) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>();
+        for (ConnectionPool replica : replicas) {
+            this.replicas.add(new Replica(this.replicas.size() + 1, replica));
+        }
+        this.policy = policy;
+        this.readYourWritesMillis = readYourWritesMillis;
+        this.maxLagSeconds = maxLagSeconds;
+
+        if (this.replicas.isEmpty()) {
+            this.checker = null;
+        } else {
+            this.checker = Executors.newSingleThreadScheduledExecutor(task -> {
+                final Thread thread = new Thread(task, "replica-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.checker.scheduleWithFixedDelay(this::check, 0, LAG_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Tarea periódica: purga las escrituras caducadas y consulta el retraso
+    // de las réplicas
+    private void check() {
+        try {
+            final long now = System.currentTimeMillis();
+            recentWrites.values().removeIf(written -> now - written > readYourWritesMillis);
+            tableWrites.values().removeIf(written -> now - written > readYourWritesMillis);
+
+            if (maxLagSeconds > 0) {
+                for (Replica replica : replicas) {
+                    replica.checkLag();
+                }
+            }
+        } catch (RuntimeException e) {
+            // Una excepción cancelaría las siguientes ejecuciones
+            System.err.println("Error comprobando las réplicas: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Registra la escritura de un documento: durante un tiempo, sus lecturas
+     * y los listados de su tabla se hacen en el primario.
+     */
+    void recordWrite(String table, String uuid) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        tableWrites.put(table, now);
+        recentWrites.put(table + "/" + uuid, now);
+    }
+
+    /**
+     * Ejecuta una lectura en una réplica o, si se ha escrito hace poco o no
+     * hay ninguna disponible, en el primario. Si falla en la réplica, se
+     * repite en el primario.
+     * @param uuid Documento leído, o null en los listados de toda la tabla
+     */
+    <T> T read(String table, String uuid, GroupCommitter.Work<T> work) throws SQLException {
+        final Replica replica = isRecentlyWritten(table, uuid) ? null : select();
+        if (replica != null) {
+            try (Connection conn = replica.pool.getConnection()) {
+                final T result = work.run(conn);
+                replica.reads.increment();
+                return result;
+            } catch (SQLException e) {
+                replica.failed(e);
+                fallbacks.increment();
+            }
+        }
+
+        try (Connection conn = primary.getConnection()) {
+            primaryReads.increment();
+            return work.run(conn);
+        }
+    }
+
+    /**
+     * Igual que {@link #read}, pero la conexión pasa a ser del resultado (por
+     * ejemplo, un flujo que la cierra al cerrarse), así que {@code work} debe
+     * cerrarla si falla. Si falla en la réplica, se repite en el primario.
+     */
+    <T> T open(String table, String uuid, GroupCommitter.Work<T> work) throws SQLException {
+        final Replica replica = isRecentlyWritten(table, uuid) ? null : select();
+        if (replica != null) {
+            try {
+                final T result = work.run(replica.pool.getConnection());
+                replica.reads.increment();
+                return result;
+            } catch (SQLException e) {
+                replica.failed(e);
+                fallbacks.increment();
+            }
+        }
+
+        primaryReads.increment();
+        return work.run(primary.getConnection());
+    }
+
+    private boolean isRecentlyWritten(String table, String uuid) {
+        final Long written = uuid == null ? tableWrites.get(table) : recentWrites.get(table + "/" + uuid);
+        return written != null && System.currentTimeMillis() - written <= readYourWritesMillis;
+    }
+
+    // Réplica disponible según la política, o null si no hay ninguna
+    private Replica select() {
+        final int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+
+        final int start = Math.floorMod(next.getAndIncrement(), size);
+        Replica selected = null;
+        for (int i = 0; i < size; i++) {
+            final Replica candidate = replicas.get((start + i) % size);
+            if (!candidate.isAvailable()) {
+                continue;
+            }
+            if (policy == Policy.ROUND_ROBIN) {
+                return candidate;
+            }
+            if (selected == null || candidate.pool.getActiveCount() < selected.pool.getActiveCount()) {
+                selected = candidate;
+            }
+        }
+        return selected;
+    }
+
+    public long getPrimaryReads() {
+        return primaryReads.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    /**
+     * Cierra los pools de las réplicas. El del primario lo cierra quien lo creó.
+     */
+    @Override
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        for (Replica replica : replicas) {
+            replica.pool.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder text = new StringBuilder()
+            .append("lecturas en primario=").append(getPrimaryReads())
+            .append(", recurridas al primario=").append(getFallbacks());
+        for (Replica replica : replicas) {
+            text.append(", ").append(replica);
+        }
+        return text.toString();
+    }
+
+    private final class Replica {
+        private final int index;
+        private final ConnectionPool pool;
+        private final LongAdder reads = new LongAdder();
+        private volatile long unavailableUntil;
+        // Servidores anteriores a MySQL 8.0.22 solo entienden SHOW SLAVE STATUS
+        private boolean legacyStatus;
+        // Ya se ha avisado de que no se puede consultar el retraso
+        private boolean lagUnknown;
+
+        private Replica(int index, ConnectionPool pool) {
+            this.index = index;
+            this.pool = pool;
+        }
+
+        private boolean isAvailable() {
+            return System.currentTimeMillis() >= unavailableUntil;
+        }
+
+        private void checkLag() {
+            try (Connection conn = pool.getConnection()) {
+                final Long lag;
+                if (legacyStatus) {
+                    lag = queryLag(conn, "SHOW SLAVE STATUS", "Seconds_Behind_Master");
+                } else {
+                    lag = queryReplicaLag(conn);
+                }
+                lagUnknown = false;
+
+                // Nulo: la replicación está detenida
+                if (lag == null || lag > maxLagSeconds) {
+                    System.err.println("Réplica " + index + " retrasada ("
+                        + (lag == null ? "replicación detenida" : lag + "s") + "), se usa el primario");
+                    unavailableUntil = System.currentTimeMillis() + RETRY_INTERVAL;
+                }
+            } catch (SQLException e) {
+                if (isConnectionError(e)) {
+                    failed(e);
+                } else if (!lagUnknown) {
+                    // Sin permiso REPLICATION CLIENT, por ejemplo: se sigue
+                    // usando la réplica sin saber su retraso
+                    lagUnknown = true;
+                    System.err.println("No se puede consultar el retraso de la réplica " + index + ": "
+                        + e.getMessage());
+                }
+            }
+        }
+
+        private Long queryReplicaLag(Connection conn) throws SQLException {
+            try {
+                return queryLag(conn, "SHOW REPLICA STATUS", "Seconds_Behind_Source");
+            } catch (SQLException e) {
+                if (isConnectionError(e)) {
+                    throw e;
+                }
+
+                final Long lag = queryLag(conn, "SHOW SLAVE STATUS", "Seconds_Behind_Master");
+                legacyStatus = true;
+                return lag;
+            }
+        }
+
+        // Retraso en segundos, 0 si no es una réplica o null si la
+        // replicación está detenida
+        private Long queryLag(Connection conn, String sql, String column) throws SQLException {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                if (!rs.next()) {
+                    return 0L;
+                }
+
+                final long lag = rs.getLong(column);
+                return rs.wasNull() ? null : lag;
+            }
+        }
+
+        private void failed(SQLException e) {
+            if (isConnectionError(e)) {
+                System.err.println("Réplica " + index + " no disponible: " + e.getMessage());
+                unavailableUntil = System.currentTimeMillis() + RETRY_INTERVAL;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "réplica " + index + "=" + reads.sum() + (System.currentTimeMillis() < unavailableUntil ? " (no disponible)" : "");
+        }
+    }
+
+    // Errores de conexión (SQLSTATE de clase 08), frente a los de la consulta
+    private static boolean isConnectionError(SQLException e) {
+        return e.getSQLState() == null || e.getSQLState().startsWith("08");
+    }
+}
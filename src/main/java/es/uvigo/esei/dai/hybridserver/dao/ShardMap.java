@@ -0,0 +1,163 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reparto de los documentos entre varias bases de datos (shards). Cada
+ * documento se guarda en el shard que indica el hash consistente "jump"
+ * (Lamping y Veach) de su UUID: al añadir shards al final de la lista solo
+ * cambian de sitio los documentos que pasan a los nuevos, y el reparto no
+ * depende de ningún estado guardado.
+ *
+ * El primer shard es la base de datos principal ({@code db.url}), donde
+ * también se guardan los diccionarios de compresión.
+ */
+public class ShardMap implements AutoCloseable {
+    private final List<ConnectionPool> shards;
+    private final ExecutorService executor;
+
+    /**
+     * @param shards Pools de los shards, empezando por el principal
+     */
+    public ShardMap(List<ConnectionPool> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("Se necesita al menos un shard");
+        }
+
+        this.shards = new ArrayList<>(shards);
+        // Un hilo por shard para consultar todos a la vez en los listados
+        final AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(shards.size(), runnable -> {
+            final Thread thread = new Thread(runnable, "shard-query-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int size() {
+        return shards.size();
+    }
+
+    public ConnectionPool get(int shard) {
+        return shards.get(shard);
+    }
+
+    public ConnectionPool getPool(String uuid) {
+        return shards.get(shardOf(uuid, shards.size()));
+    }
+
+    /**
+     * @return Shard de un documento con el número de shards indicado
+     */
+    public static int shardOf(String uuid, int shards) {
+        return jumpHash(keyOf(uuid), shards);
+    }
+
+    // Clave de 64 bits del UUID, mezclada para que los UUID con los bits
+    // altos ordenados por tiempo (versión 7) se repartan igual de bien
+    private static long keyOf(String uuid) {
+        long key;
+        try {
+            final UUID parsed = UUID.fromString(uuid);
+            key = parsed.getMostSignificantBits() ^ Long.rotateLeft(parsed.getLeastSignificantBits(), 32);
+        } catch (IllegalArgumentException e) {
+            key = uuid.hashCode();
+        }
+
+        // Finalizador de MurmurHash3
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // Jump consistent hash: https://arxiv.org/abs/1406.2294
+    static int jumpHash(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    /**
+     * Ejecuta una consulta en todos los shards a la vez y devuelve los
+     * resultados en el orden de los shards.
+     */
+    <T> List<T> scatter(GroupCommitter.Work<T> work) throws SQLException {
+        final List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (ConnectionPool shard : shards) {
+            futures.add(executor.submit(() -> {
+                try (Connection conn = shard.getConnection()) {
+                    return work.run(conn);
+                }
+            }));
+        }
+
+        final List<T> results = new ArrayList<>(shards.size());
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupción consultando los shards", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        } finally {
+            for (Future<T> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Cierra los pools de los shards añadidos. El del principal lo cierra
+     * quien lo creó.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (int i = 1; i < shards.size(); i++) {
+            shards.get(i).close();
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Herramienta para usar sin el servidor en marcha que coloca cada documento
+ * en el shard que le corresponde, por ejemplo tras añadir shards al final de
+ * {@code db.shards}. Recorre cada tabla de cada shard por lotes, en orden de
+ * clave, y mueve los documentos cuyo shard ha cambiado: primero los inserta
+ * en el nuevo (ignorando los que ya estén) y después los borra del antiguo,
+ * así que si se interrumpe puede volver a ejecutarse.
+ *
+ * Con deduplicación, el contenido compartido se copia al nuevo shard (o se
+ * suma una referencia si ya estaba) y se libera en el antiguo.
+ */
+public class ShardRebalancer {
+    private final ShardMap shards;
+    private final boolean binaryKeys;
+    private final boolean deduplication;
+    private final int batchSize;
+
+    public ShardRebalancer(ShardMap shards, StoreOptions options, int batchSize) {
+        this.shards = shards;
+        this.binaryKeys = options.isBinaryKeys();
+        this.deduplication = options.isDeduplication();
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param table Tabla a repartir
+     * @return Número de documentos movidos
+     */
+    public long rebalance(String table) throws SQLException {
+        long moved = 0;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            moved += rebalance(table, shard);
+        }
+        return moved;
+    }
+
+    private long rebalance(String table, int shard) throws SQLException {
+        final String batchSql = "SELECT uuid FROM " + table + " WHERE uuid > ? ORDER BY uuid LIMIT ?";
+
+        long moved = 0;
+        long scanned = 0;
+        try (Connection source = shards.get(shard).getConnection()) {
+            Object from = binaryKeys ? new byte[0] : "";
+            while (true) {
+                // Solo se leen claves; el contenido se lee al mover cada documento
+                final List<Object> keys = new ArrayList<>(batchSize);
+                try (PreparedStatement stmt = source.prepareStatement(batchSql)) {
+                    stmt.setObject(1, from);
+                    stmt.setInt(2, batchSize);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            keys.add(rs.getObject(1));
+                        }
+                    }
+                }
+                if (keys.isEmpty()) {
+                    break;
+                }
+
+                for (Object key : keys) {
+                    final String uuid = binaryKeys ? UuidKeys.fromBytes((byte[]) key) : (String) key;
+                    final int target = ShardMap.shardOf(uuid, shards.size());
+                    if (target != shard) {
+                        move(table, key, source, target);
+                        moved++;
+                    }
+                }
+
+                scanned += keys.size();
+                from = keys.get(keys.size() - 1);
+                System.out.println(table + " (shard " + shard + "): " + scanned + " revisados, " + moved + " movidos");
+            }
+        }
+        return moved;
+    }
+
+    // Copia un documento (y su contenido compartido) a su shard y lo borra del actual
+    private void move(String table, Object key, Connection source, int target) throws SQLException {
+        try (Connection conn = shards.get(target).getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                final Row row = readRow(source, "SELECT * FROM " + table + " WHERE uuid = ?", key);
+                // Si no está en el origen se ha borrado; si ya está en el
+                // destino, lo copió una ejecución anterior interrumpida
+                if (row != null && readRow(conn, "SELECT uuid FROM " + table + " WHERE uuid = ?", key) == null) {
+                    final String hash = deduplication ? row.getSharedHash() : null;
+                    if (hash != null
+                        && update(conn, "UPDATE " + table + "_CONTENT SET refs = refs + 1 WHERE hash = ?", hash) == 0) {
+                        final Row content = readRow(source, "SELECT * FROM " + table + "_CONTENT WHERE hash = ?", hash);
+                        if (content != null) {
+                            content.set("refs", 1);
+                            content.insert(conn, table + "_CONTENT");
+                        }
+                    }
+                    row.insert(conn, table);
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+
+        source.setAutoCommit(false);
+        try {
+            final Row row = readRow(source, "SELECT * FROM " + table + " WHERE uuid = ? FOR UPDATE", key);
+            update(source, "DELETE FROM " + table + " WHERE uuid = ?", key);
+            if (deduplication && row != null && row.getSharedHash() != null) {
+                update(source, "UPDATE " + table + "_CONTENT SET refs = refs - 1 WHERE hash = ?", row.getSharedHash());
+                update(source, "DELETE FROM " + table + "_CONTENT WHERE hash = ? AND refs <= 0", row.getSharedHash());
+            }
+            source.commit();
+        } catch (SQLException | RuntimeException e) {
+            source.rollback();
+            throw e;
+        } finally {
+            source.setAutoCommit(true);
+        }
+    }
+
+    private static Row readRow(Connection conn, String sql, Object key) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+
+                final ResultSetMetaData meta = rs.getMetaData();
+                final Row row = new Row();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    row.columns.add(meta.getColumnLabel(i));
+                    row.values.add(rs.getObject(i));
+                }
+                return row;
+            }
+        }
+    }
+
+    private static int update(Connection conn, String sql, Object key) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, key);
+            return stmt.executeUpdate();
+        }
+    }
+
+    // Fila leída con todas sus columnas, para copiarla a otra base de datos
+    private static final class Row {
+        private final List<String> columns = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+
+        private Object get(String column) {
+            final int index = columns.indexOf(column);
+            return index < 0 ? null : values.get(index);
+        }
+
+        private void set(String column, Object value) {
+            values.set(columns.indexOf(column), value);
+        }
+
+        // Hash del contenido compartido que referencia, o null si la fila
+        // guarda su propio contenido
+        private String getSharedHash() {
+            final Object hash = get("hash");
+            return hash != null && get("content") == null && get("content_z") == null ? hash.toString() : null;
+        }
+
+        private void insert(Connection conn, String table) throws SQLException {
+            final String sql = "INSERT IGNORE INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + String.join(", ", Collections.nCopies(columns.size(), "?")) + ")";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (int i = 0; i < values.size(); i++) {
+                    stmt.setObject(i + 1, values.get(i));
+                }
+                stmt.executeUpdate();
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Opciones de almacenamiento comunes a todas las tablas de documentos, que
+ * dependen del esquema de la base de datos.
+ */
+public class StoreOptions {
+    private boolean binaryKeys;
+    private boolean metadata;
+    private boolean compression;
+    private boolean deduplication;
+    private GroupCommitter groupCommitter;
+    private ReplicaRouter replicaRouter;
+    private ShardMap shards;
+    private Executor executor;
+
+    /**
+     * @return Si las claves (y la columna {@code xsd}) son {@code BINARY(16)}
+     */
+    public boolean isBinaryKeys() {
+        return binaryKeys;
+    }
+
+    public StoreOptions setBinaryKeys(boolean binaryKeys) {
+        this.binaryKeys = binaryKeys;
+        return this;
+    }
+
+    /**
+     * @return Si las tablas tienen las columnas de metadatos {@code size},
+     * {@code hash} y {@code created}
+     */
+    public boolean isMetadata() {
+        return metadata;
+    }
+
+    public StoreOptions setMetadata(boolean metadata) {
+        this.metadata = metadata;
+        return this;
+    }
+
+    /**
+     * @return Si los documentos nuevos se guardan comprimidos (columnas
+     * {@code content_z} y {@code dict}); implica los metadatos
+     */
+    public boolean isCompression() {
+        return compression;
+    }
+
+    public StoreOptions setCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    /**
+     * @return Si el contenido se guarda una sola vez por hash en la tabla
+     * {@code <tabla>_CONTENT} y los documentos lo referencian; implica los
+     * metadatos
+     */
+    public boolean isDeduplication() {
+        return deduplication;
+    }
+
+    public StoreOptions setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+        return this;
+    }
+
+    /**
+     * @return Agrupador con el que se confirman los documentos nuevos en
+     * lotes, o null para confirmar cada uno por separado
+     */
+    public GroupCommitter getGroupCommitter() {
+        return groupCommitter;
+    }
+
+    public StoreOptions setGroupCommitter(GroupCommitter groupCommitter) {
+        this.groupCommitter = groupCommitter;
+        return this;
+    }
+
+    /**
+     * @return Reparto de las lecturas entre réplicas, o null para leer
+     * siempre del pool del almacén
+     */
+    public ReplicaRouter getReplicaRouter() {
+        return replicaRouter;
+    }
+
+    public StoreOptions setReplicaRouter(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+        return this;
+    }
+
+    /**
+     * @return Reparto de los documentos entre shards, o null si todos se
+     * guardan en el pool del almacén
+     */
+    public ShardMap getShards() {
+        return shards;
+    }
+
+    public StoreOptions setShards(ShardMap shards) {
+        this.shards = shards;
+        return this;
+    }
+
+    /**
+     * @return Ejecutor de las consultas asíncronas, o null para hacerlas en
+     * el hilo que las pide
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public StoreOptions setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+}
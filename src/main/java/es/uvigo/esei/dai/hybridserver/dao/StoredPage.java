@@ -0,0 +1,74 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+/**
+ * Resultado de consultar un documento almacenado: su tamaño en bytes (UTF-8)
+ * y, si no supera el máximo indicado en la consulta, su contenido. Los
+ * documentos más grandes se leen después como flujo con
+ * {@link PageDAO#openPage(String)}. Si se guardan los metadatos del
+ * documento, incluye también el resumen de su contenido y, si está guardado
+ * comprimido sin diccionario, su forma comprimida.
+ */
+public class StoredPage {
+    private final long size;
+    private final String content;
+    private final String hash;
+    private final byte[] deflated;
+
+    public StoredPage(long size, String content) {
+        this(size, content, null, null);
+    }
+
+    public StoredPage(long size, String content, String hash, byte[] deflated) {
+        this.size = size;
+        this.content = content;
+        this.hash = hash;
+        this.deflated = deflated;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return Contenido del documento, o null si no se ha cargado por su tamaño
+     */
+    public String getContent() {
+        return content;
+    }
+
+    /**
+     * @return SHA-256 del contenido en UTF-8, en hexadecimal, o null si no se conoce
+     */
+    public String getHash() {
+        return hash;
+    }
+
+    /**
+     * @return Contenido comprimido en formato zlib (el de
+     * {@code Content-Encoding: deflate}), o null si no se guarda así
+     */
+    public byte[] getDeflated() {
+        return deflated;
+    }
+
+    public boolean isLoaded() {
+        return content != null;
+    }
+}
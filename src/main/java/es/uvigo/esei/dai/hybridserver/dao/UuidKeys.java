@@ -0,0 +1,65 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Conversión entre el formato textual de los UUID y los 16 bytes con los que
+ * se guardan en las tablas con claves {@code BINARY(16)}. El orden de los
+ * bytes es el del texto, así que los UUID ordenados por tiempo siguen
+ * ordenados como claves binarias.
+ */
+final class UuidKeys {
+    private static final int TEXT_LENGTH = 36;
+
+    private UuidKeys() {
+    }
+
+    /**
+     * @return Los 16 bytes del UUID, o null si el texto no es un UUID (y por
+     * tanto no puede estar en una tabla con claves binarias)
+     */
+    static byte[] toBytes(String uuid) {
+        if (uuid == null || uuid.length() != TEXT_LENGTH) {
+            return null;
+        }
+
+        final UUID value;
+        try {
+            value = UUID.fromString(uuid);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        return ByteBuffer.allocate(16)
+            .putLong(value.getMostSignificantBits())
+            .putLong(value.getLeastSignificantBits())
+            .array();
+    }
+
+    static String fromBytes(byte[] key) {
+        if (key == null) {
+            return null;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(key);
+        return new UUID(buffer.getLong(), buffer.getLong()).toString();
+    }
+}
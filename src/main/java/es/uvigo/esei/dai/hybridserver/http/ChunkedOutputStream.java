@@ -0,0 +1,111 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Flujo que codifica lo que se escribe en él con
+ * {@code Transfer-Encoding: chunked}. Los datos se agrupan en un buffer para
+ * no enviar fragmentos demasiado pequeños.
+ *
+ * Al cerrarlo (o llamar a {@link #finish()}) se envía el fragmento final,
+ * pero el flujo subyacente no se cierra, ya que pertenece a la conexión.
+ */
+public class ChunkedOutputStream extends OutputStream {
+  private static final byte[] CRLF = { '\r', '\n' };
+  private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.US_ASCII);
+
+  private final OutputStream out;
+  private final byte[] buffer;
+  private int count;
+  private boolean finished;
+
+  public ChunkedOutputStream(OutputStream out) {
+    this(out, 8192);
+  }
+
+  public ChunkedOutputStream(OutputStream out, int chunkSize) {
+    this.out = out;
+    this.buffer = new byte[chunkSize];
+    this.count = 0;
+    this.finished = false;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    if (count == buffer.length) {
+      flushChunk();
+    }
+    buffer[count++] = (byte) b;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    if (len >= buffer.length) {
+      // Los bloques grandes se envían directamente como un fragmento
+      flushChunk();
+      writeChunk(b, off, len);
+    } else {
+      if (len > buffer.length - count) {
+        flushChunk();
+      }
+      System.arraycopy(b, off, buffer, count, len);
+      count += len;
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    flushChunk();
+    out.flush();
+  }
+
+  public void finish() throws IOException {
+    if (!finished) {
+      flushChunk();
+      out.write(LAST_CHUNK);
+      out.flush();
+      finished = true;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+  }
+
+  private void flushChunk() throws IOException {
+    if (count > 0) {
+      writeChunk(buffer, 0, count);
+      count = 0;
+    }
+  }
+
+  private void writeChunk(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return;
+    }
+    out.write(Integer.toHexString(len).getBytes(StandardCharsets.US_ASCII));
+    out.write(CRLF);
+    out.write(b, off, len);
+    out.write(CRLF);
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reader que decodifica un cuerpo enviado con
+ * {@code Transfer-Encoding: chunked}, devolviendo solo los datos de los
+ * fragmentos. Los tamaños de los fragmentos se interpretan en caracteres,
+ * por lo que para que coincidan con los bytes del mensaje el reader
+ * subyacente debe usar una codificación de un byte por carácter
+ * (ISO-8859-1).
+ *
+ * Al cerrarlo no se cierra el reader subyacente, que pertenece a la conexión.
+ */
+public class ChunkedReader extends Reader {
+  private final BufferedReader reader;
+  private int remaining;
+  private boolean finished;
+
+  public ChunkedReader(BufferedReader reader) {
+    this.reader = reader;
+    this.remaining = 0;
+    this.finished = false;
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+
+    if (remaining == 0 && !finished) {
+      nextChunk();
+    }
+    if (finished) {
+      return -1;
+    }
+
+    final int read = reader.read(cbuf, off, Math.min(len, remaining));
+    if (read == -1) {
+      throw new IOException("Unexpected end of chunked content");
+    }
+
+    remaining -= read;
+    if (remaining == 0) {
+      // Cada fragmento termina con CRLF
+      final String end = reader.readLine();
+      if (end == null || !end.isEmpty()) {
+        throw new IOException("Invalid chunk terminator");
+      }
+    }
+
+    return read;
+  }
+
+  private void nextChunk() throws IOException {
+    final String line = reader.readLine();
+    if (line == null) {
+      throw new IOException("Unexpected end of chunked content");
+    }
+
+    // Se ignoran las posibles extensiones del fragmento (";nombre=valor")
+    final int extension = line.indexOf(';');
+    final String size = (extension >= 0 ? line.substring(0, extension) : line).trim();
+
+    try {
+      this.remaining = Integer.parseInt(size, 16);
+    } catch (NumberFormatException e) {
+      throw new IOException("Invalid chunk size: " + line);
+    }
+    if (remaining < 0) {
+      throw new IOException("Invalid chunk size: " + line);
+    }
+
+    if (remaining == 0) {
+      // Fragmento final: descartar las cabeceras finales (trailers) hasta la línea vacía
+      String trailer;
+      while ((trailer = reader.readLine()) != null && !trailer.isEmpty()) {
+        // Los trailers no se usan
+      }
+      this.finished = true;
+    }
+  }
+
+  @Override
+  public void close() {
+    // El reader subyacente pertenece a la conexión y no se cierra
+  }
+}
@@ -0,0 +1,190 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Codificaciones de contenido (cabecera {@code Content-Encoding}) que puede
+ * usar el servidor para comprimir las respuestas.
+ */
+public enum ContentEncoding {
+  GZIP("gzip"),
+  DEFLATE("deflate"),
+  IDENTITY("identity");
+
+  private final String name;
+
+  private ContentEncoding(String name) {
+    this.name = name;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Elige la codificación a usar según la cabecera {@code Accept-Encoding} del
+   * cliente: la de mayor peso ({@code q}) entre gzip y deflate y, a igualdad
+   * de peso, gzip. Las codificaciones con {@code q=0} no se aceptan; si el
+   * cliente no acepta ninguna, se envía el contenido sin comprimir.
+   */
+  public static ContentEncoding negotiate(String acceptEncoding) {
+    if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+      return IDENTITY;
+    }
+
+    final double gzip = quality(acceptEncoding, GZIP);
+    final double deflate = quality(acceptEncoding, DEFLATE);
+    if (gzip <= 0 && deflate <= 0) {
+      return IDENTITY;
+    }
+    return gzip >= deflate ? GZIP : DEFLATE;
+  }
+
+  /**
+   * Indica si la cabecera {@code Accept-Encoding} del cliente admite la
+   * codificación indicada, aunque no sea la preferida por el servidor.
+   */
+  public static boolean accepts(String acceptEncoding, ContentEncoding encoding) {
+    if (encoding == IDENTITY) {
+      return true;
+    }
+    if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+      return false;
+    }
+    return quality(acceptEncoding, encoding) > 0;
+  }
+
+  // Peso que da el cliente a una codificación: el de su entrada en la
+  // cabecera o, si no aparece, el de "*" (0 si tampoco aparece)
+  private static double quality(String acceptEncoding, ContentEncoding encoding) {
+    double any = 0;
+    for (String coding : acceptEncoding.split(",")) {
+      final String[] parts = coding.trim().split(";");
+      final String name = parts[0].trim().toLowerCase();
+
+      if (encoding.name.equals(name) || (encoding == GZIP && "x-gzip".equals(name))) {
+        return parseQuality(parts);
+      } else if ("*".equals(name)) {
+        any = parseQuality(parts);
+      }
+    }
+    return any;
+  }
+
+  // Valor del parámetro "q" (1 si no se indica); uno mal formado cuenta
+  // como "q=0", es decir, como no aceptado
+  private static double parseQuality(String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      final String[] keyValue = parts[i].split("=", 2);
+      if (keyValue.length == 2 && "q".equalsIgnoreCase(keyValue[0].trim())) {
+        try {
+          final double q = Double.parseDouble(keyValue[1].trim());
+          return q >= 0 && q <= 1 ? q : 0;
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+      }
+    }
+    return 1;
+  }
+
+  /**
+   * Devuelve un flujo que codifica lo que se escribe en él y lo envía a
+   * {@code out}. Al cerrarlo se cierra también {@code out}.
+   */
+  public OutputStream wrap(OutputStream out) throws IOException {
+    switch (this) {
+      case GZIP:
+        return new GZIPOutputStream(out, 8192);
+      case DEFLATE:
+        return new DeflaterOutputStream(out);
+      default:
+        return out;
+    }
+  }
+
+  /**
+   * Devuelve un contenido que genera el indicado ya codificado.
+   */
+  public StreamingContent encode(StreamingContent content) {
+    if (this == IDENTITY) {
+      return content;
+    }
+
+    // No se cierra el flujo codificado, porque cerraría también el de la
+    // conexión: finish() completa la compresión y el Deflater se libera
+    // aparte, también si la escritura falla
+    if (this == GZIP) {
+      return out -> {
+        final GZIPEncoder encoded = new GZIPEncoder(out);
+        try {
+          content.writeTo(encoded);
+          encoded.finish();
+        } finally {
+          encoded.end();
+        }
+      };
+    } else {
+      return out -> {
+        final Deflater deflater = new Deflater();
+        try {
+          final DeflaterOutputStream encoded = new DeflaterOutputStream(out, deflater, 8192);
+          content.writeTo(encoded);
+          encoded.finish();
+        } finally {
+          deflater.end();
+        }
+      };
+    }
+  }
+
+  public byte[] encode(byte[] data) {
+    if (this == IDENTITY) {
+      return data;
+    }
+
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+    try (OutputStream out = wrap(bytes)) {
+      out.write(data);
+    } catch (IOException e) {
+      // No se produce al escribir en memoria
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  // GZIPOutputStream no permite indicar el Deflater que usa: se expone para
+  // poder liberarlo sin cerrar el flujo de destino
+  private static final class GZIPEncoder extends GZIPOutputStream {
+    public GZIPEncoder(OutputStream out) throws IOException {
+      super(out, 8192);
+    }
+
+    public void end() {
+      def.end();
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Flujo para cuerpos con {@code Content-Length} que se generan al enviarse.
+ * Comprueba que se escribe exactamente la longitud anunciada: si se intenta
+ * escribir de más, o {@link #finish()} detecta que falta contenido, se lanza
+ * una excepción para cerrar la conexión en lugar de desincronizar al cliente.
+ *
+ * Al cerrarlo no se cierra el flujo subyacente, que pertenece a la conexión.
+ */
+public class FixedLengthOutputStream extends FilterOutputStream {
+  private final long length;
+  private long written;
+
+  public FixedLengthOutputStream(OutputStream out, long length) {
+    super(out);
+    this.length = length;
+    this.written = 0;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    checkLength(1);
+    out.write(b);
+    written++;
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    checkLength(len);
+    out.write(b, off, len);
+    written += len;
+  }
+
+  public void finish() throws IOException {
+    if (written != length) {
+      throw new IOException("Content shorter than its Content-Length: " + written + " of " + length);
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    finish();
+  }
+
+  private void checkLength(int len) throws IOException {
+    if (written + len > length) {
+      throw new IOException("Content longer than its Content-Length: " + length);
+    }
+  }
+}
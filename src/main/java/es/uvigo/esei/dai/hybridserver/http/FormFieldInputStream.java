@@ -0,0 +1,164 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Extrae el valor de un campo de un cuerpo
+ * {@code application/x-www-form-urlencoded} decodificándolo a medida que se
+ * lee, sin cargar el cuerpo completo en memoria. Tras {@link #seek()} el
+ * flujo devuelve los bytes del valor ya decodificados (en la codificación
+ * con la que se generó el formulario, normalmente UTF-8) hasta el siguiente
+ * {@code &} o el final del cuerpo.
+ */
+public class FormFieldInputStream extends InputStream {
+  // Los nombres de campo más largos no pueden coincidir y no se acumulan
+  private static final int MAX_NAME_LENGTH = 256;
+
+  private final InputStream in;
+  private final String field;
+  private final byte[] buffer;
+  private int position;
+  private int limit;
+  private boolean inValue;
+
+  public FormFieldInputStream(InputStream in, String field) {
+    this.in = in;
+    this.field = field;
+    this.buffer = new byte[8192];
+    this.position = 0;
+    this.limit = 0;
+    this.inValue = false;
+  }
+
+  /**
+   * Avanza hasta el valor del campo, descartando los campos anteriores.
+   * @return true si se encontró el campo, false si el cuerpo termina antes
+   */
+  public boolean seek() throws IOException {
+    final StringBuilder name = new StringBuilder();
+
+    while (true) {
+      name.setLength(0);
+
+      int c;
+      while ((c = next()) != -1 && c != '=' && c != '&') {
+        if (name.length() <= MAX_NAME_LENGTH) {
+          name.append((char) c);
+        }
+      }
+
+      if (c == '=') {
+        if (name.length() <= MAX_NAME_LENGTH && field.equals(decodeName(name.toString()))) {
+          this.inValue = true;
+          return true;
+        }
+        skipValue();
+      } else if (c == -1) {
+        return false;
+      }
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!inValue) {
+      return -1;
+    }
+
+    final int c = next();
+    switch (c) {
+      case -1:
+      case '&':
+        this.inValue = false;
+        return -1;
+      case '+':
+        return ' ';
+      case '%':
+        return (hexDigit(next()) << 4) | hexDigit(next());
+      default:
+        return c;
+    }
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+
+    int count = 0;
+    while (count < len) {
+      // Evita bloquear esperando más datos si ya hay algo que devolver
+      if (count > 0 && position == limit) {
+        break;
+      }
+
+      final int c = read();
+      if (c == -1) {
+        break;
+      }
+      b[off + count++] = (byte) c;
+    }
+    return count == 0 ? -1 : count;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  private void skipValue() throws IOException {
+    int c;
+    while ((c = next()) != -1 && c != '&') {
+      // Valor de otro campo
+    }
+  }
+
+  private int next() throws IOException {
+    if (position == limit) {
+      final int read = in.read(buffer, 0, buffer.length);
+      if (read <= 0) {
+        return -1;
+      }
+      this.position = 0;
+      this.limit = read;
+    }
+    return buffer[position++] & 0xFF;
+  }
+
+  private static int hexDigit(int c) throws IOException {
+    final int digit = c == -1 ? -1 : Character.digit(c, 16);
+    if (digit == -1) {
+      throw new IOException("Invalid percent-encoding in form content");
+    }
+    return digit;
+  }
+
+  private static String decodeName(String name) throws IOException {
+    try {
+      return URLDecoder.decode(name, StandardCharsets.UTF_8.name());
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid field name in form content: " + name);
+    }
+  }
+}
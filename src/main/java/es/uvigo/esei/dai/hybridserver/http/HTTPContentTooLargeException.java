@@ -0,0 +1,33 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import java.io.IOException;
+
+/**
+ * El cuerpo de una petición supera el tamaño máximo admitido por el servidor.
+ * Se responde con un 413 y se cierra la conexión, ya que el resto del cuerpo
+ * no se ha leído.
+ */
+public class HTTPContentTooLargeException extends IOException {
+  private static final long serialVersionUID = 1L;
+
+  public HTTPContentTooLargeException(long maxContentLength) {
+    super("El cuerpo de la petición supera el máximo de " + maxContentLength + " bytes");
+  }
+}
@@ -19,8 +19,11 @@ package es.uvigo.esei.dai.hybridserver.http;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -33,22 +36,66 @@ public class HTTPRequest {
   private Map<String, String> headerParameters;
   private String content;
   private int contentLength;
+  private boolean chunked;
+  private BufferedReader pendingContent;
+  // Si el reader toma cada byte de la conexión como un carácter (ISO-8859-1)
+  private final boolean byteFramed;
+  // Tamaño máximo del cuerpo en bytes (0 = sin límite)
+  private final long maxContentLength;
 
   public HTTPRequest(Reader reader) throws IOException, HTTPParseException {
+    this(reader, false);
+  }
+
+  /**
+   * Analiza una petición. Si {@code deferContent} es {@code true} solo se
+   * leen la línea de petición y las cabeceras, y el cuerpo queda pendiente en
+   * el reader para leerlo como flujo con {@link #getContentStream()} o
+   * completo con {@link #readContent()}.
+   */
+  public HTTPRequest(Reader reader, boolean deferContent) throws IOException, HTTPParseException {
+    this(reader, deferContent, false, 0);
+  }
+
+  /**
+   * Analiza una petición leída de la conexión con ISO-8859-1, de modo que
+   * cada carácter es un byte y el cuerpo se delimita en bytes, como indica
+   * HTTP. El cuerpo se decodifica después con el charset de su
+   * {@code Content-Type} (UTF-8 si no se indica). Si {@code maxContentLength}
+   * es mayor que 0, los cuerpos más largos (declarados en
+   * {@code Content-Length} o recibidos en fragmentos) se rechazan con
+   * {@link HTTPContentTooLargeException}.
+   */
+  public HTTPRequest(Reader reader, boolean deferContent, long maxContentLength)
+    throws IOException, HTTPParseException {
+    this(reader, deferContent, true, maxContentLength);
+  }
+
+  private HTTPRequest(Reader reader, boolean deferContent, boolean byteFramed, long maxContentLength)
+    throws IOException, HTTPParseException {
+    this.byteFramed = byteFramed;
+    this.maxContentLength = maxContentLength;
     this.resourceParameters = new LinkedHashMap <>();
     this.headerParameters = new LinkedHashMap <>();
     this.contentLength = 0;
+    this.chunked = false;
     this.content = null;
+    this.pendingContent = null;
 
     try {
-      parseRequest(reader);
+      parseRequest(reader, deferContent);
+    } catch (HTTPContentTooLargeException e) {
+      throw e;
     } catch (Exception e) {
       throw new HTTPParseException("Error parsing HTTP request: " + e.getMessage());
     }
   }
 
-  private void parseRequest(Reader reader) throws IOException {
-    BufferedReader bufferedReader = new BufferedReader(reader);
+  private void parseRequest(Reader reader, boolean deferContent) throws IOException {
+    // En conexiones persistentes el reader se reutiliza entre peticiones: se
+    // respeta si ya tiene buffer para no perder lo que haya leído por adelantado
+    BufferedReader bufferedReader = reader instanceof BufferedReader
+      ? (BufferedReader) reader : new BufferedReader(reader);
 
     String requestLine = bufferedReader.readLine();
     if (requestLine == null || requestLine.trim().isEmpty()) {
@@ -59,8 +106,12 @@ public class HTTPRequest {
 
     parseHeaders(bufferedReader);
 
-    if (contentLength > 0) {
-      parseContent(bufferedReader);
+    if (deferContent && (chunked || contentLength > 0)) {
+      this.pendingContent = bufferedReader;
+    } else if (chunked) {
+      parseContent(readChunkedContent(bufferedReader));
+    } else if (contentLength > 0) {
+      parseContent(readContent(bufferedReader));
     }
   }
 
@@ -134,10 +185,14 @@ public class HTTPRequest {
        
         if ("content-length".equals(headerName.toLowerCase())) {
           try {
-            this.contentLength = Integer.parseInt(headerValue);
+            final long length = Long.parseLong(headerValue);
+            checkContentLength(length);
+            this.contentLength = (int) Math.min(length, Integer.MAX_VALUE);
           } catch (NumberFormatException e) {
             this.contentLength = 0;
           }
+        } else if ("transfer-encoding".equals(headerName.toLowerCase())) {
+          this.chunked = headerValue.toLowerCase().contains("chunked");
         }
       } else {
         throw new IOException("Invalid header format: " + line);
@@ -145,7 +200,13 @@ public class HTTPRequest {
     }
   }
 
-  private void parseContent(BufferedReader reader) throws IOException {
+  private void checkContentLength(long length) throws HTTPContentTooLargeException {
+    if (maxContentLength > 0 && length > maxContentLength) {
+      throw new HTTPContentTooLargeException(maxContentLength);
+    }
+  }
+
+  private String readContent(BufferedReader reader) throws IOException {
     char[] buffer = new char[contentLength];
     int totalRead = 0;
     while (totalRead < contentLength) {
@@ -154,18 +215,33 @@ public class HTTPRequest {
         break;
       totalRead += read;
     }
-    String rawContent = new String(buffer, 0, totalRead);
+    return new String(buffer, 0, totalRead);
+  }
 
-    // localizar Content-Type de forma case-insensitive (guardamos headers con case
-    // original)
-    String contentType = null;
-    for (Map.Entry<String, String> e : headerParameters.entrySet()) {
-      if ("content-type".equalsIgnoreCase(e.getKey())) {
-        contentType = e.getValue();
-        break;
+  // Cuerpo con Transfer-Encoding: chunked (la longitud no se conoce de antemano)
+  private String readChunkedContent(BufferedReader reader) throws IOException {
+    final StringBuilder rawContent = new StringBuilder();
+    final char[] buffer = new char[8192];
+
+    try (ChunkedReader chunkedReader = new ChunkedReader(reader)) {
+      int read;
+      while ((read = chunkedReader.read(buffer)) != -1) {
+        rawContent.append(buffer, 0, read);
+        checkContentLength(rawContent.length());
       }
     }
 
+    this.contentLength = rawContent.length();
+    return rawContent.toString();
+  }
+
+  private void parseContent(String rawContent) throws IOException {
+    rawContent = decodeContent(rawContent);
+
+    // localizar Content-Type de forma case-insensitive (guardamos headers con case
+    // original)
+    String contentType = getHeaderParameter("Content-Type");
+
     // Detectar form-urlencoded aunque no exista Content-Type: si hay pares
     // clave=valor
     boolean looksLikeForm = rawContent != null && rawContent.contains("=");
@@ -194,6 +270,41 @@ public class HTTPRequest {
     }
   }
 
+  // Si el cuerpo se ha leído byte a byte, se decodifica con el charset de la
+  // petición (UTF-8 si no se indica o no se conoce)
+  private String decodeContent(String rawContent) {
+    if (!byteFramed || rawContent == null) {
+      return rawContent;
+    }
+
+    final Charset charset = getContentCharset();
+    return new String(rawContent.getBytes(StandardCharsets.ISO_8859_1),
+      charset == null ? StandardCharsets.UTF_8 : charset);
+  }
+
+  /**
+   * Devuelve el charset indicado en la cabecera {@code Content-Type}: UTF-8
+   * si no se indica o {@code null} si no es válido o no está soportado.
+   */
+  public Charset getContentCharset() {
+    final String contentType = getHeaderParameter("Content-Type");
+    if (contentType == null) {
+      return StandardCharsets.UTF_8;
+    }
+
+    for (String param : contentType.split(";")) {
+      final String[] keyValue = param.trim().split("=", 2);
+      if (keyValue.length == 2 && "charset".equalsIgnoreCase(keyValue[0].trim())) {
+        try {
+          return Charset.forName(keyValue[1].trim().replace("\"", ""));
+        } catch (IllegalArgumentException e) {
+          return null;
+        }
+      }
+    }
+    return StandardCharsets.UTF_8;
+  }
+
   public HTTPRequestMethod getMethod() {
     return method;
   }
@@ -230,6 +341,19 @@ public class HTTPRequest {
     return headerParameters;
   }
 
+  /**
+   * Devuelve el valor de una cabecera sin distinguir mayúsculas de minúsculas
+   * en su nombre, o {@code null} si no se ha recibido.
+   */
+  public String getHeaderParameter(String name) {
+    for (Map.Entry<String, String> header : headerParameters.entrySet()) {
+      if (header.getKey().equalsIgnoreCase(name)) {
+        return header.getValue();
+      }
+    }
+    return null;
+  }
+
   public String getContent() {
     return content;
   }
@@ -238,6 +362,128 @@ public class HTTPRequest {
     return contentLength;
   }
 
+  public boolean isChunked() {
+    return chunked;
+  }
+
+  public boolean hasPendingContent() {
+    return pendingContent != null;
+  }
+
+  /**
+   * Lee el cuerpo pendiente de una petición analizada con el contenido
+   * diferido y lo procesa igual que si se hubiese leído en el constructor.
+   */
+  public void readContent() throws IOException {
+    if (pendingContent == null) {
+      return;
+    }
+
+    final BufferedReader reader = pendingContent;
+    this.pendingContent = null;
+
+    if (chunked) {
+      parseContent(readChunkedContent(reader));
+    } else {
+      parseContent(readContent(reader));
+    }
+  }
+
+  /**
+   * Devuelve el cuerpo pendiente como flujo de bytes, deshaciendo la
+   * codificación chunked si la hay. Cada carácter del reader original se
+   * toma como un byte, por lo que este debe usar ISO-8859-1. El flujo solo
+   * puede obtenerse una vez y cerrarlo no cierra la conexión. Si el cuerpo
+   * en fragmentos supera el tamaño máximo, la lectura falla con
+   * {@link HTTPContentTooLargeException}.
+   */
+  public InputStream getContentStream() {
+    if (pendingContent == null) {
+      throw new IllegalStateException("No pending content");
+    }
+
+    final BufferedReader reader = pendingContent;
+    this.pendingContent = null;
+
+    return chunked
+      ? new ContentInputStream(new ChunkedReader(reader), -1, maxContentLength)
+      : new ContentInputStream(reader, contentLength, 0);
+  }
+
+  // Adapta el reader del cuerpo a bytes, limitado a la longitud declarada
+  // (un límite negativo indica que el propio reader marca el final). Si se
+  // indica un máximo, leer más bytes es un error.
+  private static class ContentInputStream extends InputStream {
+    private final Reader reader;
+    private final char[] buffer;
+    private final long maxLength;
+    private long remaining;
+    private long total;
+
+    public ContentInputStream(Reader reader, long length, long maxLength) {
+      this.reader = reader;
+      this.buffer = new char[8192];
+      this.maxLength = maxLength;
+      this.remaining = length;
+      this.total = 0;
+    }
+
+    private void count(int read) throws HTTPContentTooLargeException {
+      total += read;
+      if (maxLength > 0 && total > maxLength) {
+        throw new HTTPContentTooLargeException(maxLength);
+      }
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (remaining == 0) {
+        return -1;
+      }
+
+      final int c = reader.read();
+      if (c == -1) {
+        this.remaining = 0;
+        return -1;
+      }
+      if (remaining > 0) {
+        remaining--;
+      }
+      count(1);
+      return c & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if (remaining == 0) {
+        return -1;
+      }
+
+      int toRead = Math.min(len, buffer.length);
+      if (remaining > 0) {
+        toRead = (int) Math.min(toRead, remaining);
+      }
+
+      final int read = reader.read(buffer, 0, toRead);
+      if (read == -1) {
+        this.remaining = 0;
+        return -1;
+      }
+
+      for (int i = 0; i < read; i++) {
+        b[off + i] = (byte) buffer[i];
+      }
+      if (remaining > 0) {
+        remaining -= read;
+      }
+      count(read);
+      return read;
+    }
+  }
+
   @Override
   public String toString() {
     final StringBuilder sb = new StringBuilder().append(this.getMethod().name()).append(' ')
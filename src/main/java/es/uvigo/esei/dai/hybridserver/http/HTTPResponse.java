@@ -17,25 +17,39 @@
  */
 package es.uvigo.esei.dai.hybridserver.http;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 public class HTTPResponse {
+  private static final byte[] HEADER_SEPARATOR = { ':', ' ' };
+  private static final byte[] CRLF = { '\r', '\n' };
+
   private HTTPResponseStatus status;
   private String version;
   private String content;
+  private byte[] body;
+  private StreamingContent streamingContent;
+  private long streamingLength;
+  private boolean headOnly;
   private final Map<String, String> parameters;
 
   public HTTPResponse() {
     this.status = HTTPResponseStatus.S200;
     this.version = "HTTP/1.1";
     this.content = "";
+    this.streamingLength = -1;
     this.parameters = new HashMap<>();
 
     
@@ -63,10 +77,115 @@ public class HTTPResponse {
 
   public void setContent(String content) {
     this.content = content != null ? content : "";
+    this.body = null;
+    clearStreamingContent();
     // Update Content-Length automatically
     putParameter("Content-Length", String.valueOf(this.content.getBytes().length));
   }
 
+  /**
+   * Establece el cuerpo de la respuesta como bytes ya codificados (por
+   * ejemplo, comprimidos). Estas respuestas deben enviarse con
+   * {@link #print(OutputStream)}.
+   */
+  public void setBody(byte[] body) {
+    this.body = body;
+    this.content = "";
+    clearStreamingContent();
+    putParameter("Content-Length", String.valueOf(body == null ? 0 : body.length));
+  }
+
+  /**
+   * Devuelve el cuerpo de la respuesta en bytes: el establecido con
+   * {@link #setBody(byte[])} o, si no hay, el contenido codificado en UTF-8.
+   */
+  public byte[] getBody() {
+    return body != null ? body : content.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Establece un contenido que se genera al enviar la respuesta, directamente
+   * sobre la conexión y con {@code Transfer-Encoding: chunked}, de modo que no
+   * es necesario tenerlo completo en memoria. Estas respuestas deben enviarse
+   * con {@link #print(OutputStream)}.
+   */
+  public void setStreamingContent(StreamingContent streamingContent) {
+    this.streamingContent = streamingContent;
+    this.streamingLength = -1;
+    this.content = "";
+    this.body = null;
+    removeParameter("Content-Length");
+    putParameter("Transfer-Encoding", "chunked");
+  }
+
+  /**
+   * Establece un contenido que se genera al enviar la respuesta cuya longitud
+   * en bytes se conoce de antemano: se envía con {@code Content-Length} en
+   * lugar de en fragmentos.
+   */
+  public void setStreamingContent(StreamingContent streamingContent, long length) {
+    this.streamingContent = streamingContent;
+    this.streamingLength = length;
+    this.content = "";
+    this.body = null;
+    removeParameter("Transfer-Encoding");
+    putParameter("Content-Length", String.valueOf(length));
+  }
+
+  public StreamingContent getStreamingContent() {
+    return streamingContent;
+  }
+
+  public boolean isStreaming() {
+    return streamingContent != null;
+  }
+
+  /**
+   * Longitud en bytes del contenido streaming, o -1 si no se conoce y se
+   * envía en fragmentos.
+   */
+  public long getStreamingLength() {
+    return streamingLength;
+  }
+
+  /**
+   * Genera en memoria el contenido de una respuesta de tipo streaming y lo
+   * convierte en un cuerpo normal con {@code Content-Length}, para los
+   * clientes que no admiten la codificación chunked (HTTP/1.0).
+   */
+  public void bufferStreamingContent() throws IOException {
+    if (streamingContent != null) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      streamingContent.writeTo(bytes);
+      setBody(bytes.toByteArray());
+    }
+  }
+
+  /**
+   * Indica que la respuesta corresponde a una petición HEAD: se envían la
+   * línea de estado y las cabeceras (incluida la longitud que tendría el
+   * cuerpo) pero no el cuerpo, que tampoco se genera si es streaming.
+   */
+  public void setHeadOnly(boolean headOnly) {
+    this.headOnly = headOnly;
+  }
+
+  public boolean isHeadOnly() {
+    return headOnly;
+  }
+
+  private void clearStreamingContent() {
+    if (streamingContent != null) {
+      streamingContent = null;
+      streamingLength = -1;
+      removeParameter("Transfer-Encoding");
+    }
+  }
+
+  private boolean hasBody() {
+    return body != null ? body.length > 0 : (content != null && !content.isEmpty());
+  }
+
   public Map<String, String> getParameters() {
     return parameters;
   }
@@ -91,65 +210,120 @@ public class HTTPResponse {
     return new ArrayList<>(parameters.keySet());
   }
 
+  /**
+   * Envía la respuesta como texto. Solo admite cuerpos de texto: las
+   * respuestas streaming y las de cuerpo binario (comprimido o que no es
+   * UTF-8 válido) deben enviarse con {@link #print(OutputStream)}.
+   *
+   * @throws IllegalStateException si la respuesta no se puede representar como texto
+   */
   public void print(Writer writer) throws IOException {
+    if (isStreaming()) {
+      throw new IllegalStateException("Las respuestas streaming solo se pueden enviar como bytes");
+    }
+    final String text = body != null ? decodeTextBody() : content;
+
     PrintWriter printWriter = new PrintWriter(writer, false); // Disable auto-flush to prevent issues
 
-    // Status line
-    printWriter.print(version + " " + getStatusCode(status) + " " + getStatusMessage(status) + "\r\n");
+    printHead(printWriter);
 
-    boolean contentEmpty = (content == null || content.isEmpty());
+    // Posible cuerpo
+    if (hasBody() && !headOnly) {
+      printWriter.print(text);
+    }
 
-    // Sólo actualizar Content-Length si hay contenido
-    if (!contentEmpty) {
-      putParameter("Content-Length", String.valueOf(content.getBytes("UTF-8").length));
+    printWriter.flush();
+  }
+
+  /**
+   * Envía la respuesta a un flujo de bytes. A diferencia de
+   * {@link #print(Writer)}, el cuerpo se escribe tal cual, por lo que admite
+   * contenido binario como el comprimido.
+   */
+  public void print(OutputStream out) throws IOException {
+    // El cuerpo se codifica una sola vez para la cabecera y el envío
+    final byte[] bytes = !isStreaming() && hasBody() ? getBody() : null;
+    printHead(out, bytes);
+
+    if (headOnly) {
+      // Sin cuerpo
+    } else if (isStreaming() && streamingLength >= 0) {
+      final FixedLengthOutputStream fixed = new FixedLengthOutputStream(out, streamingLength);
+      streamingContent.writeTo(fixed);
+      fixed.finish();
+    } else if (isStreaming()) {
+      // Si falla la generación no se envía el fragmento final, de modo que el
+      // cliente detecta que la respuesta está incompleta
+      final ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+      streamingContent.writeTo(chunked);
+      chunked.finish();
+    } else if (bytes != null) {
+      out.write(bytes);
     }
 
-    // Si no hay parámetros a imprimir (map vacío) -> línea en blanco y fin
-    if (parameters.isEmpty()) {
-      printWriter.print("\r\n");
-      printWriter.flush();
-      return;
+    out.flush();
+  }
+
+  // Igual que printHead(PrintWriter) pero escribiendo bytes directamente, con
+  // la línea de estado ya codificada y sin crear un codificador por respuesta
+  private void printHead(OutputStream out, byte[] bytes) throws IOException {
+    out.write(status.getStatusLine(version));
+
+    if (bytes != null) {
+      putParameter("Content-Length", String.valueOf(bytes.length));
     }
 
-    // Imprimir cabeceras existentes (solo las que el objeto tiene)
     for (Map.Entry<String, String> param : parameters.entrySet()) {
-      printWriter.print(param.getKey() + ": " + param.getValue() + "\r\n");
+      writeLatin1(out, param.getKey());
+      out.write(HEADER_SEPARATOR);
+      writeLatin1(out, param.getValue());
+      out.write(CRLF);
     }
 
-    // Separador y posible cuerpo
-    printWriter.print("\r\n");
-    if (!contentEmpty) {
-      printWriter.print(content);
-      
+    out.write(CRLF);
+  }
+
+  private static void writeLatin1(OutputStream out, String value) throws IOException {
+    for (int i = 0; i < value.length(); i++) {
+      out.write(value.charAt(i));
     }
+  }
 
-    printWriter.flush();
+  // Cuerpo establecido como bytes, si es texto UTF-8 sin codificación de contenido
+  private String decodeTextBody() {
+    if (containsParameter("Content-Encoding")) {
+      throw new IllegalStateException("El cuerpo está codificado con " + parameters.get("Content-Encoding")
+        + ": solo se puede enviar como bytes");
+    }
+
+    try {
+      return StandardCharsets.UTF_8.newDecoder()
+        .onMalformedInput(CodingErrorAction.REPORT)
+        .onUnmappableCharacter(CodingErrorAction.REPORT)
+        .decode(ByteBuffer.wrap(body))
+        .toString();
+    } catch (CharacterCodingException e) {
+      throw new IllegalStateException("El cuerpo no es texto UTF-8: solo se puede enviar como bytes", e);
+    }
   }
 
-  private int getStatusCode(HTTPResponseStatus status) {
-    String statusName = status.name();
-    return Integer.parseInt(statusName.substring(1)); // Remove 'S' prefix
-  }
-
-  private String getStatusMessage(HTTPResponseStatus status) {
-    switch (status) {
-      case S200:
-        return "OK";
-      case S201:
-        return "Created";
-      case S204:
-        return "No Content";
-      case S400:
-        return "Bad Request";
-      case S404:
-        return "Not Found";
-      case S405:
-        return "Method Not Allowed";
-      case S500:
-        return "Internal Server Error";
-      default:
-        return "Unknown";
+  // Línea de estado, cabeceras y línea en blanco de separación
+  private void printHead(PrintWriter printWriter) {
+    // Status line
+    printWriter.print(version + " " + status.getCode() + " " + status.getStatus() + "\r\n");
+
+    // Sólo actualizar Content-Length si hay contenido
+    if (hasBody()) {
+      putParameter("Content-Length", String.valueOf(getBody().length));
     }
+
+    // Imprimir cabeceras existentes (solo las que el objeto tiene)
+    for (Map.Entry<String, String> param : parameters.entrySet()) {
+      printWriter.print(param.getKey() + ": " + param.getValue() + "\r\n");
+    }
+
+    // Separador
+    printWriter.print("\r\n");
   }
 
   @Override
@@ -17,6 +17,8 @@
  */
 package es.uvigo.esei.dai.hybridserver.http;
 
+import java.nio.charset.StandardCharsets;
+
 public enum HTTPResponseStatus {
   S100("Continue"),
   S101("Switching Protocols"),
@@ -59,12 +61,16 @@ public enum HTTPResponseStatus {
   S504("Gateway Time-out"),
   S505("HTTP Version not supported");
 
+  private static final String DEFAULT_VERSION = "HTTP/1.1";
+
   private final int code;
   private final String status;
+  private final byte[] statusLine;
 
   private HTTPResponseStatus(String status) {
     this.code = Integer.parseInt(this.name().substring(1));
     this.status = status;
+    this.statusLine = (DEFAULT_VERSION + " " + code + " " + status + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
   }
 
   public int getCode() {
@@ -75,6 +81,15 @@ public enum HTTPResponseStatus {
     return this.status;
   }
 
+  // Línea de estado ya codificada, incluido el CRLF final. Solo se precalcula
+  // para la versión habitual; el array es compartido y no debe modificarse.
+  byte[] getStatusLine(String version) {
+    if (DEFAULT_VERSION.equals(version)) {
+      return this.statusLine;
+    }
+    return (version + " " + code + " " + status + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+  }
+
   public static HTTPResponseStatus forCode(int code) {
     return HTTPResponseStatus.valueOf("S" + code);
   }
@@ -0,0 +1,34 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Contenido de una respuesta que se genera directamente sobre el flujo de
+ * salida, sin conocer su longitud de antemano (se envía con
+ * {@code Transfer-Encoding: chunked}).
+ */
+@FunctionalInterface
+public interface StreamingContent {
+  /**
+   * Escribe el contenido en el flujo. No debe cerrarlo.
+   */
+  void writeTo(OutputStream out) throws IOException;
+}
@@ -0,0 +1,116 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+@Timeout(5L)
+public class BulkheadTest {
+  private final CountDownLatch release = new CountDownLatch(1);
+  private Bulkhead bulkhead;
+
+  @AfterEach
+  public void tearDown() {
+    release.countDown();
+    bulkhead.shutdown();
+  }
+
+  // Ocupa el único hilo y la única plaza de la cola
+  private void saturate() throws InterruptedException {
+    final CountDownLatch started = new CountDownLatch(1);
+    bulkhead.execute(() -> {
+      started.countDown();
+      await(release);
+    });
+    started.await(2L, TimeUnit.SECONDS);
+    bulkhead.execute(() -> await(release));
+  }
+
+  @Test
+  public void testRejectsWhenFull() throws InterruptedException {
+    this.bulkhead = new Bulkhead("cpu", 1, 1, false);
+    saturate();
+
+    assertThat(bulkhead.getActiveCount(), is(equalTo(1)));
+    assertThat(bulkhead.getQueueSize(), is(equalTo(1)));
+    assertThrows(RejectedExecutionException.class, () -> bulkhead.execute(() -> {}));
+    assertThat(bulkhead.getRejected(), is(equalTo(1L)));
+  }
+
+  @Test
+  public void testCallerRunsWhenFull() throws InterruptedException {
+    this.bulkhead = new Bulkhead("db", 1, 1, true);
+    saturate();
+
+    final String[] thread = new String[1];
+    bulkhead.execute(() -> thread[0] = Thread.currentThread().getName());
+
+    assertThat(thread[0], is(equalTo(Thread.currentThread().getName())));
+    assertThat(bulkhead.getCallerRuns(), is(equalTo(1L)));
+    assertThat(bulkhead.getRejected(), is(equalTo(0L)));
+  }
+
+  @Test
+  public void testCountsCompletedTasks() throws InterruptedException {
+    this.bulkhead = new Bulkhead("cpu", 2, 4, false);
+    final CountDownLatch done = new CountDownLatch(3);
+    final String[] thread = new String[1];
+
+    for (int i = 0; i < 3; i++) {
+      bulkhead.execute(() -> {
+        thread[0] = Thread.currentThread().getName();
+        done.countDown();
+      });
+    }
+
+    assertThat(done.await(2L, TimeUnit.SECONDS), is(true));
+    assertThat(thread[0], startsWith("hybridserver-cpu-"));
+    for (int i = 0; i < 100 && bulkhead.getCompleted() < 3L; i++) {
+      Thread.sleep(10L);
+    }
+    assertThat(bulkhead.getCompleted(), is(equalTo(3L)));
+  }
+
+  @Test
+  public void testRejectsAfterShutdown() {
+    this.bulkhead = new Bulkhead("cpu", 1, 1, false);
+    bulkhead.shutdown();
+
+    assertThrows(RejectedExecutionException.class, () -> bulkhead.execute(() -> {}));
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(4L, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
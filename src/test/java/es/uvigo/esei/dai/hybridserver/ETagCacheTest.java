@@ -0,0 +1,98 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import es.uvigo.esei.dai.hybridserver.http.ContentEncoding;
+
+public class ETagCacheTest {
+  private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+
+  @Test
+  public void testSameContentSameETag() {
+    assertThat(ETagCache.computeETag("<html/>"), is(equalTo(ETagCache.computeETag("<html/>"))));
+    assertThat(ETagCache.computeETag("<html/>"), is(not(equalTo(ETagCache.computeETag("<html></html>")))));
+  }
+
+  @Test
+  public void testETagFromStoredHash() {
+    final String content = "<html><body>ñandú</body></html>";
+
+    assertThat(ETagCache.fromHash(ETagCache.sha256(content)), is(equalTo(ETagCache.computeETag(content))));
+  }
+
+  @Test
+  public void testEncodingsHaveDifferentETags() {
+    final String etag = ETagCache.computeETag("<html/>");
+    final String gzip = ETagCache.forEncoding(etag, ContentEncoding.GZIP);
+
+    assertThat(ETagCache.forEncoding(etag, ContentEncoding.IDENTITY), is(equalTo(etag)));
+    assertThat(gzip, is(not(equalTo(etag))));
+    assertThat(gzip, is(not(equalTo(ETagCache.forEncoding(etag, ContentEncoding.DEFLATE)))));
+    assertThat(ETagCache.forStoredDeflate(etag), is(not(equalTo(ETagCache.forEncoding(etag, ContentEncoding.DEFLATE)))));
+  }
+
+  @Test
+  public void testMatches() {
+    final String etag = ETagCache.computeETag("<html/>");
+
+    assertThat(ETagCache.matches(etag, etag), is(true));
+    assertThat(ETagCache.matches("W/" + etag, etag), is(true));
+    assertThat(ETagCache.matches("\"other\", " + etag, etag), is(true));
+    assertThat(ETagCache.matches("*", etag), is(true));
+    assertThat(ETagCache.matches("\"other\"", etag), is(false));
+    assertThat(ETagCache.matches(null, etag), is(false));
+  }
+
+  @Test
+  public void testCompressedETagDoesNotMatchIdentity() {
+    final String etag = ETagCache.computeETag("<html/>");
+
+    assertThat(ETagCache.matches(ETagCache.forEncoding(etag, ContentEncoding.GZIP), etag), is(false));
+    assertThat(ETagCache.matches(etag, ETagCache.forEncoding(etag, ContentEncoding.GZIP)), is(false));
+  }
+
+  @Test
+  public void testPutWithoutRepresentationKeepsDescribedEntry() {
+    final ETagCache cache = new ETagCache();
+    final String etag = ETagCache.computeETag("<html/>");
+
+    cache.put(DocumentType.HTML, UUID, etag, 7, false, false);
+    cache.put(DocumentType.HTML, UUID, etag);
+
+    assertThat(cache.getEntry(DocumentType.HTML, UUID).isDescribed(), is(true));
+    assertThat(cache.getEntry(DocumentType.HTML, UUID).getSize(), is(equalTo(7L)));
+  }
+
+  @Test
+  public void testRemove() {
+    final ETagCache cache = new ETagCache();
+    cache.put(DocumentType.HTML, UUID, ETagCache.computeETag("<html/>"));
+
+    cache.remove(DocumentType.HTML, UUID);
+
+    assertThat(cache.get(DocumentType.HTML, UUID), is(nullValue()));
+  }
+}
@@ -0,0 +1,98 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+public class IdGeneratorTest {
+  private static final int COUNT = 10000;
+
+  @Test
+  public void testRandomIsVersion4() {
+    for (int i = 0; i < 100; i++) {
+      final UUID uuid = UUID.fromString(IdGenerator.RANDOM.next());
+
+      assertThat(uuid.version(), is(equalTo(4)));
+      assertThat(uuid.variant(), is(equalTo(2)));
+    }
+  }
+
+  @Test
+  public void testTimeOrderedIsVersion7() {
+    for (int i = 0; i < 100; i++) {
+      final UUID uuid = UUID.fromString(IdGenerator.TIME_ORDERED.next());
+
+      assertThat(uuid.version(), is(equalTo(7)));
+      assertThat(uuid.variant(), is(equalTo(2)));
+    }
+  }
+
+  @Test
+  public void testTimeOrderedCarriesCreationTime() {
+    final long before = System.currentTimeMillis();
+    final String uuid = IdGenerator.TIME_ORDERED.next();
+    final long after = System.currentTimeMillis();
+
+    final long timestamp = UUID.fromString(uuid).getMostSignificantBits() >>> 16;
+    assertTrue(timestamp >= before && timestamp <= after,
+      "Instante " + timestamp + " fuera de [" + before + ", " + after + "]");
+  }
+
+  @Test
+  public void testTimeOrderedSortsByCreation() throws InterruptedException {
+    String previous = IdGenerator.TIME_ORDERED.next();
+    for (int i = 0; i < 5; i++) {
+      Thread.sleep(2L);
+      final String next = IdGenerator.TIME_ORDERED.next();
+
+      // En texto, como se comparan las claves CHAR(36) del índice
+      assertTrue(next.compareTo(previous) > 0, next + " no es posterior a " + previous);
+      previous = next;
+    }
+  }
+
+  @Test
+  public void testUnique() {
+    for (IdGenerator generator : IdGenerator.values()) {
+      final Set<String> ids = new HashSet<>();
+      for (int i = 0; i < COUNT; i++) {
+        final String id = generator.next();
+        assertThat(id.length(), is(equalTo(36)));
+        ids.add(id);
+      }
+      assertThat(ids.size(), is(equalTo(COUNT)));
+    }
+  }
+
+  @Test
+  public void testFromName() {
+    assertThat(IdGenerator.fromName("random"), is(equalTo(IdGenerator.RANDOM)));
+    assertThat(IdGenerator.fromName("Time-Ordered"), is(equalTo(IdGenerator.TIME_ORDERED)));
+    assertThrows(IllegalArgumentException.class, () -> IdGenerator.fromName("secuencial"));
+  }
+}
@@ -0,0 +1,82 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class PageTemplateTest {
+  @Test
+  public void testRenderWithoutSlots() {
+    final PageTemplate template = PageTemplate.compile("<html><body>Hybrid Server</body></html>");
+
+    assertThat(text(template.render()), is(equalTo("<html><body>Hybrid Server</body></html>")));
+  }
+
+  @Test
+  public void testRenderRepeatedSlots() {
+    final PageTemplate template = PageTemplate.compile("<a href=\"{0}?uuid={1}\">{1}</a>");
+
+    assertThat(text(template.render("html", "abc")), is(equalTo("<a href=\"html?uuid=abc\">abc</a>")));
+  }
+
+  @Test
+  public void testRenderEscapesValues() {
+    final PageTemplate template = PageTemplate.compile("<p>{0}</p>");
+
+    assertThat(text(template.render("<b>\"a\" & 'b'</b>")),
+      is(equalTo("<p>&lt;b&gt;&quot;a&quot; &amp; &#39;b&#39;&lt;/b&gt;</p>")));
+    assertThat(text(template.render((String) null)), is(equalTo("<p></p>")));
+  }
+
+  @Test
+  public void testRenderEncodesUtf8() {
+    final PageTemplate template = PageTemplate.compile("<p>Código {0}</p>");
+    final byte[] page = template.render("ñandú");
+
+    assertThat(page.length, is(equalTo("<p>Código ñandú</p>".getBytes(StandardCharsets.UTF_8).length)));
+    assertThat(text(page), is(equalTo("<p>Código ñandú</p>")));
+  }
+
+  @Test
+  public void testWriteToMatchesRender() throws IOException {
+    final PageTemplate template = PageTemplate.compile("<h1>{0}</h1><p>{1}: {0}</p>");
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    template.writeTo(out, "404", "Not <Found>");
+
+    assertThat(out.toByteArray(), is(equalTo(template.render("404", "Not <Found>"))));
+  }
+
+  @Test
+  public void testInvalidSlot() {
+    assertThrows(IllegalArgumentException.class, () -> PageTemplate.compile("<p>{nombre}</p>"));
+  }
+
+  private static String text(byte[] page) {
+    return new String(page, StandardCharsets.UTF_8);
+  }
+}
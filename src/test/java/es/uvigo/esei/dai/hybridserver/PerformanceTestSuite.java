@@ -0,0 +1,81 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import org.junit.platform.suite.api.SelectClasses;
+import org.junit.platform.suite.api.Suite;
+
+import es.uvigo.esei.dai.hybridserver.dao.AsyncDocumentStoreTest;
+import es.uvigo.esei.dai.hybridserver.dao.ConnectionPoolTest;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentCompressorTest;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentStoreDeduplicationTest;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentStoreTest;
+import es.uvigo.esei.dai.hybridserver.dao.GroupCommitterTest;
+import es.uvigo.esei.dai.hybridserver.dao.ReplicaRouterTest;
+import es.uvigo.esei.dai.hybridserver.dao.ShardMapTest;
+import es.uvigo.esei.dai.hybridserver.dao.UuidKeysTest;
+import es.uvigo.esei.dai.hybridserver.http.ChunkedTransferEncodingTest;
+import es.uvigo.esei.dai.hybridserver.http.ContentEncodingTest;
+import es.uvigo.esei.dai.hybridserver.http.HTTPResponseStatusTest;
+import es.uvigo.esei.dai.hybridserver.performance.AdmissionControlTest;
+import es.uvigo.esei.dai.hybridserver.performance.CompressedDocumentRequestsWithDatabaseTest;
+import es.uvigo.esei.dai.hybridserver.performance.ConcurrentTransformTest;
+import es.uvigo.esei.dai.hybridserver.performance.CpuBulkheadTest;
+import es.uvigo.esei.dai.hybridserver.performance.DocumentRequestsWithDatabaseTest;
+import es.uvigo.esei.dai.hybridserver.performance.GracefulShutdownTest;
+import es.uvigo.esei.dai.hybridserver.performance.KeepAliveAndPipeliningTest;
+import es.uvigo.esei.dai.hybridserver.performance.StreamedDocumentTest;
+import es.uvigo.esei.dai.hybridserver.performance.StreamedTransformTest;
+import es.uvigo.esei.dai.hybridserver.performance.StreamedUploadTest;
+import es.uvigo.esei.dai.hybridserver.performance.WarmupTest;
+
+@Suite
+@SelectClasses({
+  AdmissionControlTest.class,
+  BulkheadTest.class,
+  CpuBulkheadTest.class,
+  GracefulShutdownTest.class,
+  WarmupTest.class,
+  TrainingRunTest.class,
+  PageTemplateTest.class,
+  RouterTest.class,
+  IdGeneratorTest.class,
+  UuidKeysTest.class,
+  HTTPResponseStatusTest.class,
+  ETagCacheTest.class,
+  DocumentRequestsWithDatabaseTest.class,
+  StreamedDocumentTest.class,
+  StreamedTransformTest.class,
+  ConcurrentTransformTest.class,
+  StreamedUploadTest.class,
+  ContentEncodingTest.class,
+  DocumentCompressorTest.class,
+  CompressedDocumentRequestsWithDatabaseTest.class,
+  ChunkedTransferEncodingTest.class,
+  KeepAliveAndPipeliningTest.class,
+  DocumentStoreTest.class,
+  AsyncDocumentStoreTest.class,
+  DocumentStoreDeduplicationTest.class,
+  GroupCommitterTest.class,
+  ReplicaRouterTest.class,
+  ShardMapTest.class,
+  ConnectionPoolTest.class
+})
+public class PerformanceTestSuite {
+
+}
@@ -0,0 +1,106 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import es.uvigo.esei.dai.hybridserver.http.HTTPParseException;
+import es.uvigo.esei.dai.hybridserver.http.HTTPRequest;
+import es.uvigo.esei.dai.hybridserver.http.HTTPRequestMethod;
+import es.uvigo.esei.dai.hybridserver.http.HTTPResponse;
+
+public class RouterTest {
+  private final RequestHandler defaultHandler = request -> new HTTPResponse();
+  private final RequestHandler welcome = request -> new HTTPResponse();
+  private final RequestHandler getHtml = request -> new HTTPResponse();
+  private final RequestHandler postHtml = request -> new HTTPResponse();
+  private final RequestHandler getFallback = request -> new HTTPResponse();
+
+  private Router router;
+
+  @BeforeEach
+  public void setUp() {
+    this.router = new Router(defaultHandler)
+      .register(HTTPRequestMethod.GET, "", welcome)
+      .register(HTTPRequestMethod.GET, "html", getHtml)
+      .register(HTTPRequestMethod.POST, "/html", postHtml)
+      .fallback(HTTPRequestMethod.GET, getFallback);
+  }
+
+  @Test
+  public void testRouteByMethodAndResource() throws Exception {
+    assertThat(router.route(request("GET /html HTTP/1.1")), is(sameInstance(getHtml)));
+    assertThat(router.route(request("GET /html?uuid=abc HTTP/1.1")), is(sameInstance(getHtml)));
+    assertThat(router.route(request("POST /html HTTP/1.1")), is(sameInstance(postHtml)));
+  }
+
+  @Test
+  public void testRouteRoot() throws Exception {
+    assertThat(router.route(request("GET / HTTP/1.1")), is(sameInstance(welcome)));
+  }
+
+  @Test
+  public void testUnknownResourceUsesMethodFallback() throws Exception {
+    assertThat(router.route(request("GET /desconocido HTTP/1.1")), is(sameInstance(getFallback)));
+  }
+
+  @Test
+  public void testMethodWithoutRouteUsesDefault() throws Exception {
+    assertThat(router.route(request("PUT /html HTTP/1.1")), is(sameInstance(defaultHandler)));
+    assertThat(router.route(request("POST /desconocido HTTP/1.1")), is(sameInstance(defaultHandler)));
+  }
+
+  @Test
+  public void testRegisterReplacesRoute() throws Exception {
+    final RequestHandler other = request -> new HTTPResponse();
+    router.register(HTTPRequestMethod.GET, "/html", other);
+
+    assertThat(router.route(request("GET /html HTTP/1.1")), is(sameInstance(other)));
+  }
+
+  @Test
+  public void testServerRoutes() throws Exception {
+    final Router routes = new HybridServer().getRouter();
+
+    assertThat(status(routes, "GET / HTTP/1.1"), is(equalTo(200)));
+    assertThat(status(routes, "HEAD / HTTP/1.1"), is(equalTo(200)));
+    assertThat(status(routes, "GET /desconocido HTTP/1.1"), is(equalTo(400)));
+    assertThat(status(routes, "HEAD /desconocido HTTP/1.1"), is(equalTo(400)));
+    assertThat(status(routes, "POST /desconocido HTTP/1.1"), is(equalTo(405)));
+    assertThat(status(routes, "PUT /html HTTP/1.1"), is(equalTo(405)));
+    assertThat(status(routes, "DELETE /desconocido HTTP/1.1"), is(equalTo(404)));
+  }
+
+  private static int status(Router router, String requestLine) throws IOException, HTTPParseException {
+    final HTTPRequest request = request(requestLine);
+    return router.route(request).handle(request).getStatus().getCode();
+  }
+
+  private static HTTPRequest request(String requestLine) throws IOException, HTTPParseException {
+    return new HTTPRequest(new StringReader(requestLine + "\r\nHost: localhost\r\n\r\n"));
+  }
+}
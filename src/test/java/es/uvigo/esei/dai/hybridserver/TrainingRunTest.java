@@ -0,0 +1,89 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.dao.StubDatabase;
+
+/**
+ * La ejecución de entrenamiento con la que se genera el archivo CDS recorre
+ * las operaciones de todos los tipos de documento y deja el servidor cerrado.
+ */
+@Timeout(10L)
+public class TrainingRunTest {
+  private static final String[] TABLES = { "HTML", "XML", "XSD", "XSL" };
+
+  private StubDatabase database;
+  private HybridServer server;
+
+  @BeforeEach
+  public void setUp() {
+    // Todos los documentos existen y todas las escrituras tienen éxito
+    this.database = new StubDatabase((sql, params) ->
+      sql.startsWith("SELECT 1 FROM") ? rows(row("1", 1)) : sql.startsWith("SELECT") ? rows() : 1);
+
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("db.url", database.getUrl());
+    properties.setProperty("db.user", "hsdb");
+    properties.setProperty("db.password", "hsdbpass");
+    this.server = new HybridServer(properties);
+  }
+
+  @AfterEach
+  public void tearDown() {
+    if (this.server.isLive()) {
+      this.server.close();
+    }
+    this.database.close();
+  }
+
+  @Test
+  public void testRunCreatesAndDeletesEveryDocumentType() {
+    new TrainingRun(server).run();
+
+    assertThat(server.isLive(), is(false));
+    for (String table : TABLES) {
+      final Object created = findUuid("INSERT INTO " + table + " ");
+      assertThat("Sin alta de " + table, created, is(notNullValue()));
+      assertThat(findUuid("DELETE FROM " + table + " WHERE uuid = ?"), is(equalTo(created)));
+    }
+  }
+
+  private Object findUuid(String statement) {
+    for (StubDatabase.Execution execution : database.getExecutions()) {
+      if (execution.getSql().startsWith(statement)) {
+        return execution.getParams().get(0);
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import es.uvigo.esei.dai.hybridserver.dao.ConnectionPool;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentCompressor;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentStore;
+import es.uvigo.esei.dai.hybridserver.dao.StoreOptions;
+
+/**
+ * Mide el efecto de la compresión del contenido sobre una tabla de
+ * documentos: tamaño total sin comprimir, comprimido sin diccionario y con
+ * un diccionario entrenado con los propios documentos; latencia de lectura
+ * de un documento guardado sin comprimir y comprimido; y tamaño de la tabla
+ * según {@code information_schema}.
+ *
+ * Uso: {@code CompressionBenchmark <db.url> <db.user> <db.password> [tabla] [muestras]}
+ * con tabla HTML, XML (por defecto) o XSD,
+ * contra una base de datos con las columnas de compresión de
+ * {@code migrate-database.sql}.
+ */
+public class CompressionBenchmark {
+  private static final int READS = 200;
+
+  public static void main(String[] args) throws SQLException {
+    if (args.length < 3) {
+      System.err.println("Uso: CompressionBenchmark <db.url> <db.user> <db.password> [tabla] [muestras]");
+      System.exit(1);
+    }
+
+    final String table = args.length > 3 ? args[3] : "XML";
+    final int samples = args.length > 4 ? Integer.parseInt(args[4]) : 200;
+
+    try (ConnectionPool pool = new ConnectionPool(args[0], args[1], args[2], 1)) {
+      final DocumentStore plain = new DocumentStore(table, false, pool, new StoreOptions().setMetadata(true));
+      final DocumentStore compressed = new DocumentStore(table, false, pool, new StoreOptions().setCompression(true));
+
+      final List<byte[]> documents = new ArrayList<>();
+      for (String content : compressed.getAllPages().values()) {
+        if (documents.size() == samples) {
+          break;
+        }
+        documents.add(content.getBytes(StandardCharsets.UTF_8));
+      }
+      if (documents.isEmpty()) {
+        System.err.println("La tabla " + table + " no tiene documentos");
+        System.exit(1);
+      }
+
+      measureSizes(documents);
+      measureReads("Lectura sin comprimir", plain, documents);
+      measureReads("Lectura comprimida", compressed, documents);
+      printTableSize(pool, table);
+    }
+  }
+
+  private static void measureSizes(List<byte[]> documents) {
+    final byte[] dictionary = DocumentCompressor.buildDictionary(documents);
+
+    long raw = 0;
+    long deflated = 0;
+    long withDictionary = 0;
+    for (byte[] document : documents) {
+      raw += document.length;
+      deflated += DocumentCompressor.compress(document, null).length;
+      withDictionary += DocumentCompressor.compress(document, dictionary).length;
+    }
+
+    System.out.printf("%-30s %12d bytes%n", "Sin comprimir", raw);
+    System.out.printf("%-30s %12d bytes (%.1f%%)%n", "Deflate", deflated, 100.0 * deflated / raw);
+    System.out.printf("%-30s %12d bytes (%.1f%%)%n", "Deflate con diccionario", withDictionary, 100.0 * withDictionary / raw);
+  }
+
+  // Guarda una copia de cada documento con el almacén indicado y mide el
+  // tiempo medio de lectura completa de las copias
+  private static void measureReads(String name, DocumentStore store, List<byte[]> documents) throws SQLException {
+    final List<String> uuids = new ArrayList<>();
+    try {
+      for (byte[] document : documents) {
+        final String uuid = UUID.randomUUID().toString();
+        store.savePage(uuid, new String(document, StandardCharsets.UTF_8));
+        uuids.add(uuid);
+      }
+
+      // Calentamiento del JIT
+      for (String uuid : uuids) {
+        store.getPage(uuid);
+      }
+
+      final long start = System.nanoTime();
+      for (int i = 0; i < READS; i++) {
+        for (String uuid : uuids) {
+          store.getPage(uuid);
+        }
+      }
+      final long elapsed = System.nanoTime() - start;
+
+      System.out.printf("%-30s %12.1f µs/documento%n", name, elapsed / 1000.0 / READS / uuids.size());
+    } finally {
+      for (String uuid : uuids) {
+        store.deletePage(uuid);
+      }
+    }
+  }
+
+  private static void printTableSize(ConnectionPool pool, String table) throws SQLException {
+    try (Connection conn = pool.getConnection();
+         PreparedStatement stmt = conn.prepareStatement(
+           "SELECT data_length, index_length FROM information_schema.tables"
+           + " WHERE table_schema = DATABASE() AND table_name = ?")) {
+      stmt.setString(1, table);
+      try (ResultSet rs = stmt.executeQuery()) {
+        if (rs.next()) {
+          System.out.printf("%-30s %12d bytes de datos, %d de índices%n",
+            "Tabla " + table, rs.getLong("data_length"), rs.getLong("index_length"));
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.bench;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import es.uvigo.esei.dai.hybridserver.IdGenerator;
+import es.uvigo.esei.dai.hybridserver.dao.ConnectionPool;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentStore;
+import es.uvigo.esei.dai.hybridserver.dao.StoreOptions;
+
+/**
+ * Compara los generadores de identificadores: primero la generación pura
+ * desde varios hilos a la vez y, si se indica una base de datos, las
+ * inserciones por segundo en la tabla HTML con cada uno.
+ *
+ * Uso: {@code IdGeneratorBenchmark [<db.url> <db.user> <db.password> [inserciones]]}
+ * contra una base de datos creada con {@code init-database.sql}. Las filas
+ * insertadas se borran al terminar.
+ */
+public class IdGeneratorBenchmark {
+  private static final int THREADS = Runtime.getRuntime().availableProcessors();
+  private static final int IDS_PER_THREAD = 1_000_000;
+  private static final String CONTENT = "<html>benchmark</html>";
+
+  public static void main(String[] args) throws Exception {
+    for (IdGenerator generator : IdGenerator.values()) {
+      generate(generator);
+    }
+
+    if (args.length >= 3) {
+      final int inserts = args.length > 3 ? Integer.parseInt(args[3]) : 50_000;
+      final String url = ConnectionPool.withStatementCache(args[0], 250);
+
+      for (IdGenerator generator : IdGenerator.values()) {
+        try (ConnectionPool pool = new ConnectionPool(url, args[1], args[2], THREADS)) {
+          insert(generator, new DocumentStore("HTML", false, pool, new StoreOptions()), inserts);
+        }
+      }
+    }
+  }
+
+  private static void generate(IdGenerator generator) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    try {
+      final List<Future<?>> tasks = new ArrayList<>();
+      final long start = System.nanoTime();
+      for (int i = 0; i < THREADS; i++) {
+        tasks.add(executor.submit(() -> {
+          for (int j = 0; j < IDS_PER_THREAD; j++) {
+            generator.next();
+          }
+        }));
+      }
+      for (Future<?> task : tasks) {
+        task.get();
+      }
+      final long elapsed = System.nanoTime() - start;
+
+      // Tiempo por identificador en cada hilo, con todos los hilos generando a la vez
+      System.out.printf("Generación %-14s %6.1f ns/id (%d hilos)%n",
+        generator.getName(), (double) elapsed / IDS_PER_THREAD, THREADS);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static void insert(IdGenerator generator, DocumentStore store, int inserts) throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+    final List<String> uuids = new ArrayList<>(inserts);
+    for (int i = 0; i < inserts; i++) {
+      uuids.add(generator.next());
+    }
+
+    try {
+      final long start = System.nanoTime();
+      for (String uuid : uuids) {
+        executor.execute(() -> {
+          try {
+            store.savePage(uuid, CONTENT);
+          } catch (SQLException e) {
+            throw new RuntimeException(e);
+          }
+        });
+      }
+      executor.shutdown();
+      executor.awaitTermination(1, TimeUnit.HOURS);
+      final long elapsed = System.nanoTime() - start;
+
+      System.out.printf("Inserción  %-14s %8.0f inserciones/s (%d hilos)%n",
+        generator.getName(), inserts / (elapsed / 1e9), THREADS);
+    } finally {
+      for (String uuid : uuids) {
+        store.deletePage(uuid);
+      }
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.bench;
+
+import java.sql.SQLException;
+import java.util.UUID;
+
+import es.uvigo.esei.dai.hybridserver.dao.ConnectionPool;
+import es.uvigo.esei.dai.hybridserver.dao.DocumentStore;
+import es.uvigo.esei.dai.hybridserver.dao.StoreOptions;
+
+/**
+ * Mide el coste por consulta de {@code getPage} sobre la tabla HTML en tres
+ * configuraciones: una conexión nueva por consulta (como hacían los DAO),
+ * conexiones reutilizadas sin caché de sentencias, y conexiones reutilizadas
+ * con las sentencias preparadas en el servidor y en caché.
+ *
+ * Uso: {@code PreparedStatementBenchmark <db.url> <db.user> <db.password> [consultas]}
+ * contra una base de datos creada con {@code init-database.sql}.
+ */
+public class PreparedStatementBenchmark {
+  public static void main(String[] args) throws SQLException {
+    if (args.length < 3) {
+      System.err.println("Uso: PreparedStatementBenchmark <db.url> <db.user> <db.password> [consultas]");
+      System.exit(1);
+    }
+
+    final String url = args[0];
+    final String user = args[1];
+    final String password = args[2];
+    final int queries = args.length > 3 ? Integer.parseInt(args[3]) : 10_000;
+
+    run("Conexión nueva por consulta", new ConnectionPool(url, user, password, 0), queries);
+    run("Conexiones reutilizadas", new ConnectionPool(url, user, password, 1), queries);
+    run("Reutilizadas con caché de sentencias",
+      new ConnectionPool(ConnectionPool.withStatementCache(url, 250), user, password, 1), queries);
+  }
+
+  private static void run(String name, ConnectionPool pool, int queries) throws SQLException {
+    try (ConnectionPool connections = pool) {
+      final DocumentStore store = new DocumentStore("HTML", false, connections, new StoreOptions());
+      final String uuid = UUID.randomUUID().toString();
+      store.savePage(uuid, "<html>benchmark</html>");
+
+      try {
+        // Calentamiento: JIT y, en su caso, preparación de las sentencias
+        for (int i = 0; i < Math.min(1000, queries); i++) {
+          store.getPage(uuid);
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < queries; i++) {
+          store.getPage(uuid);
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        System.out.printf("%-40s %8.1f µs/consulta%n", name, elapsed / 1000.0 / queries);
+      } finally {
+        store.deletePage(uuid);
+      }
+    }
+  }
+}
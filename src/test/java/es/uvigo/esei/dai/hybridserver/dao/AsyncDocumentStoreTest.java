@@ -0,0 +1,138 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.startsWith;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import es.uvigo.esei.dai.hybridserver.Bulkhead;
+
+public class AsyncDocumentStoreTest {
+    private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+    private static final String XSD_UUID = "ddcab7d0-636c-4ed8-8a2a-0ce7c1b6d7ab";
+    private static final String CONTENT = "<xsl:stylesheet/>";
+
+    private StubDatabase database;
+    private ConnectionPool pool;
+    private Bulkhead executor;
+
+    private DocumentStore store(StubDatabase.Handler handler, Bulkhead executor) {
+        this.database = new StubDatabase(handler);
+        this.pool = database.createPool(4);
+        this.executor = executor;
+        return new DocumentStore("XSL", true, pool, new StoreOptions().setExecutor(executor));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+        pool.close();
+        database.close();
+    }
+
+    @Test
+    public void testWithoutExecutorCompletesImmediately() {
+        final DocumentStore store = store((sql, params) -> rows(row("content", CONTENT)), null);
+
+        final CompletableFuture<String> page = store.getPageAsync(UUID);
+
+        assertThat(page.isDone(), is(true));
+        assertThat(page.join(), is(equalTo(CONTENT)));
+    }
+
+    @Test
+    public void testQueriesRunConcurrently() throws Exception {
+        // Ninguna consulta termina hasta que han empezado las dos
+        final CountDownLatch started = new CountDownLatch(2);
+        final DocumentStore store = store((sql, params) -> {
+            started.countDown();
+            try {
+                if (!started.await(2L, TimeUnit.SECONDS)) {
+                    throw new SQLException("Las consultas no se han hecho a la vez");
+                }
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            assertThat(Thread.currentThread().getName(), startsWith("hybridserver-db-"));
+            return sql.startsWith("SELECT xsd ") ? rows(row("xsd", XSD_UUID)) : rows(row("content", CONTENT));
+        }, new Bulkhead("db", 2, 8, true));
+
+        final CompletableFuture<String> page = store.getPageAsync(UUID);
+        final CompletableFuture<String> xsd = store.getXsdAsync(UUID);
+
+        assertThat(page.get(3L, TimeUnit.SECONDS), is(equalTo(CONTENT)));
+        assertThat(xsd.get(3L, TimeUnit.SECONDS), is(equalTo(XSD_UUID)));
+    }
+
+    @Test
+    public void testFailedQueryCompletesExceptionally() {
+        final DocumentStore store = store((sql, params) -> {
+            throw new SQLException("Base de datos caída");
+        }, new Bulkhead("db", 2, 8, true));
+
+        final CompletionException exception =
+            assertThrows(CompletionException.class, () -> store.pageExistsAsync(UUID).join());
+        assertThat(exception.getCause(), is(instanceOf(SQLException.class)));
+    }
+
+    @Test
+    public void testFullQueueRunsOnCaller() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final DocumentStore store = store((sql, params) -> {
+            if (!Thread.currentThread().getName().startsWith("hybridserver-db-")) {
+                return rows(row("1", 1));
+            }
+            try {
+                release.await(2L, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new SQLException(e);
+            }
+            return rows();
+        }, new Bulkhead("db", 1, 1, true));
+
+        // Una consulta ocupa el único hilo y otra la cola
+        final CompletableFuture<Boolean> running = store.pageExistsAsync(UUID);
+        final CompletableFuture<Boolean> queued = store.pageExistsAsync(UUID);
+
+        final CompletableFuture<Boolean> callerRuns = store.pageExistsAsync(UUID);
+        assertThat(callerRuns.isDone(), is(true));
+        assertThat(callerRuns.join(), is(true));
+        assertThat(executor.getCallerRuns(), is(equalTo(1L)));
+
+        release.countDown();
+        assertThat(running.get(3L, TimeUnit.SECONDS), is(false));
+        assertThat(queued.get(3L, TimeUnit.SECONDS), is(false));
+    }
+}
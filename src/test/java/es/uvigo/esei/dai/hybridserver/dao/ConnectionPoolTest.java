@@ -0,0 +1,261 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+@Timeout(10L)
+public class ConnectionPoolTest {
+    private static final String SELECT = "SELECT content FROM HTML WHERE uuid = ?";
+
+    private StubDatabase database;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        this.database = new StubDatabase((sql, params) -> rows());
+        this.pool = database.createPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.pool.close();
+        this.database.close();
+    }
+
+    private ConnectionPool createBoundedPool(int maxTotal, long maxWaitMillis) {
+        this.pool.close();
+        this.pool = new ConnectionPool(database.getUrl(), "user", "password", 2, maxTotal, maxWaitMillis);
+        return pool;
+    }
+
+    private static void query(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT)) {
+            stmt.setString(1, "a");
+            stmt.executeQuery().close();
+        }
+    }
+
+    @Test
+    public void testClosedConnectionIsReused() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            assertThat(pool.getActiveCount(), is(equalTo(1)));
+            query(conn);
+        }
+        assertThat(pool.getActiveCount(), is(equalTo(0)));
+        assertThat(pool.getIdleCount(), is(equalTo(1)));
+
+        try (Connection conn = pool.getConnection()) {
+            query(conn);
+        }
+        assertThat(database.getConnections(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testConnectionIsReturnedOnlyOnce() throws SQLException {
+        final Connection conn = pool.getConnection();
+        conn.close();
+        conn.close();
+
+        assertThat(conn.isClosed(), is(true));
+        assertThat(pool.getActiveCount(), is(equalTo(0)));
+        assertThat(pool.getIdleCount(), is(equalTo(1)));
+        assertThrows(SQLException.class, () -> query(conn));
+    }
+
+    @Test
+    public void testOnlyMaxIdleConnectionsAreKept() throws SQLException {
+        final Connection first = pool.getConnection();
+        final Connection second = pool.getConnection();
+        final Connection third = pool.getConnection();
+        first.close();
+        second.close();
+        third.close();
+
+        assertThat(database.getConnections(), is(equalTo(3)));
+        assertThat(pool.getIdleCount(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testUnfinishedTransactionIsRolledBack() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            query(conn);
+        }
+
+        assertThat(database.getStatements().contains("ROLLBACK"), is(true));
+        try (Connection conn = pool.getConnection()) {
+            assertThat(conn.getAutoCommit(), is(true));
+        }
+    }
+
+    @Test
+    public void testStatementReturnsPooledConnection() throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT)) {
+            assertThat(stmt.getConnection(), is(sameInstance(conn)));
+
+            // Cerrarla a través de la sentencia también la devuelve al pool
+            stmt.getConnection().close();
+            assertThat(pool.getActiveCount(), is(equalTo(0)));
+        }
+        assertThat(pool.getIdleCount(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testConnectionErrorForcesValidation() throws SQLException {
+        database.setHandler((sql, params) -> {
+            throw new SQLException("Communications link failure", "08S01");
+        });
+        try (Connection conn = pool.getConnection()) {
+            assertThrows(SQLException.class, () -> query(conn));
+        }
+
+        database.setValid(false);
+        try (Connection conn = pool.getConnection()) {
+            assertThat(conn.isClosed(), is(false));
+            assertThat(pool.getIdleCount(), is(equalTo(0)));
+        }
+        assertThat(database.getConnections(), is(equalTo(2)));
+    }
+
+    @Test
+    public void testQueryErrorDoesNotForceValidation() throws SQLException {
+        database.setHandler((sql, params) -> {
+            throw new SQLException("Table 'HTML' doesn't exist", "42S02");
+        });
+        try (Connection conn = pool.getConnection()) {
+            assertThrows(SQLException.class, () -> query(conn));
+        }
+
+        // Se ha usado hace poco: se entrega sin comprobarla
+        database.setValid(false);
+        try (Connection conn = pool.getConnection()) {
+            assertThat(conn.isClosed(), is(false));
+        }
+        assertThat(database.getConnections(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testExhaustedPoolTimesOut() throws SQLException {
+        createBoundedPool(1, 100);
+
+        final Connection conn = pool.getConnection();
+        final SQLTimeoutException timeout = assertThrows(SQLTimeoutException.class, pool::getConnection);
+        assertThat(timeout.getSQLState(), is(equalTo("HYT00")));
+        assertThat(pool.getActiveCount(), is(equalTo(1)));
+
+        // Al devolverla queda libre el permiso
+        conn.close();
+        try (Connection next = pool.getConnection()) {
+            query(next);
+            assertThat(pool.getActiveCount(), is(equalTo(1)));
+        }
+    }
+
+    @Test
+    public void testWaitingRequestGetsReturnedConnection() throws Exception {
+        createBoundedPool(1, 5000);
+
+        final Connection conn = pool.getConnection();
+        final CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        Thread.sleep(100);
+        assertThat(waiting.isDone(), is(false));
+
+        conn.close();
+        try (Connection next = waiting.get(2, TimeUnit.SECONDS)) {
+            assertThat(next.isClosed(), is(false));
+        }
+        assertThat(database.getConnections(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testClosedPoolClosesReturnedConnections() throws SQLException {
+        final Connection conn = pool.getConnection();
+        try (Connection idle = pool.getConnection()) {
+            query(idle);
+        }
+
+        pool.close();
+        assertThat(pool.getIdleCount(), is(equalTo(0)));
+
+        conn.close();
+        assertThat(pool.getIdleCount(), is(equalTo(0)));
+        assertThat(pool.getActiveCount(), is(equalTo(0)));
+    }
+
+    @Test
+    public void testClosedPoolRefusesConnections() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            query(conn);
+        }
+        pool.close();
+
+        final SQLException error = assertThrows(SQLException.class, pool::getConnection);
+        assertThat(error.getSQLState(), is(equalTo("08003")));
+        assertThat(database.getConnections(), is(equalTo(1)));
+    }
+
+    @Test
+    public void testWaitingRequestFailsWhenPoolCloses() throws Exception {
+        createBoundedPool(1, 5000);
+
+        final Connection conn = pool.getConnection();
+        final CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+            try {
+                return pool.getConnection();
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(100);
+
+        pool.close();
+        conn.close();
+
+        final ExecutionException error = assertThrows(ExecutionException.class, () -> waiting.get(2, TimeUnit.SECONDS));
+        assertThat(error.getCause().getCause(), is(instanceOf(SQLException.class)));
+        assertThat(database.getConnections(), is(equalTo(1)));
+    }
+}
@@ -0,0 +1,195 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class DocumentCompressorTest {
+    private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+
+    // Documento pequeño como los que se suben habitualmente: casi todo es
+    // la estructura que comparte con el resto de documentos de su tipo
+    private static byte[] document(int i) {
+        return ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+            + "<catalogo xmlns=\"http://www.esei.uvigo.es/dai/hybridserver/catalogo\">"
+            + "<producto id=\"" + i + "\"><nombre>Producto " + i + "</nombre>"
+            + "<precio moneda=\"EUR\">" + (i * 3 % 100) + "</precio></producto></catalogo>")
+            .getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] trainedDictionary() {
+        final List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            samples.add(document(i));
+        }
+        return DocumentCompressor.buildDictionary(samples);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.transferTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testRoundTripWithoutDictionary() {
+        final byte[] data = document(1);
+
+        assertThat(DocumentCompressor.decompress(DocumentCompressor.compress(data, null), null), is(equalTo(data)));
+    }
+
+    @Test
+    public void testWithoutDictionaryIsDeflateEncoding() throws IOException {
+        final byte[] data = document(1);
+        final byte[] compressed = DocumentCompressor.compress(data, null);
+
+        // Se puede enviar tal cual con Content-Encoding: deflate
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(readAll(in), is(equalTo(data)));
+        }
+    }
+
+    @Test
+    public void testBuildDictionary() {
+        assertThat(DocumentCompressor.buildDictionary(Collections.emptyList()), is(nullValue()));
+
+        final byte[] dictionary = trainedDictionary();
+        assertTrue(dictionary.length <= DocumentCompressor.MAX_DICTIONARY_SIZE, "Diccionario de " + dictionary.length);
+        assertThat(Arrays.copyOf(dictionary, document(0).length), is(equalTo(document(0))));
+
+        final List<byte[]> large = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            large.add(new byte[DocumentCompressor.MAX_DICTIONARY_SIZE]);
+        }
+        assertThat(DocumentCompressor.buildDictionary(large).length,
+            is(equalTo(DocumentCompressor.MAX_DICTIONARY_SIZE)));
+    }
+
+    @Test
+    public void testRoundTripWithTrainedDictionary() {
+        final byte[] dictionary = trainedDictionary();
+        final byte[] data = document(1234);
+
+        final byte[] compressed = DocumentCompressor.compress(data, dictionary);
+
+        assertThat(DocumentCompressor.decompress(compressed, dictionary), is(equalTo(data)));
+    }
+
+    @Test
+    public void testTrainedDictionaryImprovesSmallDocuments() {
+        final byte[] dictionary = trainedDictionary();
+        final byte[] data = document(1234);
+
+        final int withDictionary = DocumentCompressor.compress(data, dictionary).length;
+        final int withoutDictionary = DocumentCompressor.compress(data, null).length;
+
+        assertTrue(withDictionary < withoutDictionary / 2,
+            "Con diccionario " + withDictionary + " bytes, sin diccionario " + withoutDictionary);
+    }
+
+    @Test
+    public void testDictionaryIsRequiredToDecompress() {
+        final byte[] compressed = DocumentCompressor.compress(document(1), trainedDictionary());
+
+        assertThrows(UncheckedIOException.class, () -> DocumentCompressor.decompress(compressed, null));
+    }
+
+    @Test
+    public void testStreamedCompression() throws IOException {
+        final byte[] dictionary = trainedDictionary();
+        final byte[] data = document(1);
+
+        final byte[] compressed;
+        try (InputStream in = DocumentCompressor.compressing(new ByteArrayInputStream(data), dictionary)) {
+            compressed = readAll(in);
+        }
+        try (InputStream in = DocumentCompressor.decompressing(new ByteArrayInputStream(compressed), dictionary)) {
+            assertThat(readAll(in), is(equalTo(data)));
+        }
+    }
+
+    @Test
+    public void testStoreCompressesWithTrainedDictionary() throws SQLException {
+        final String content = new String(document(1234), StandardCharsets.UTF_8);
+        final byte[][] stored = new byte[2][];
+        final StubDatabase database = new StubDatabase((sql, params) -> {
+            if (sql.endsWith(" LIMIT ?")) {
+                final List<Object[]> samples = new ArrayList<>();
+                for (int i = 0; i < 10; i++) {
+                    samples.add(row("content", new String(document(i), StandardCharsets.UTF_8),
+                        "content_z", null, "dict", null));
+                }
+                return rows(samples.toArray(new Object[0][]));
+            } else if (sql.startsWith("INSERT INTO DICTIONARY ")) {
+                stored[0] = (byte[]) params.get(1);
+                return 1;
+            } else if (sql.startsWith("INSERT INTO HTML ")) {
+                assertThat(params.get(3), is(nullValue()));
+                assertThat(params.get(4), is(instanceOf(byte[].class)));
+                assertThat(params.get(5), is(equalTo((Object) 1)));
+                stored[1] = (byte[]) params.get(4);
+                return 1;
+            } else if (sql.startsWith("SELECT content FROM DICTIONARY ")) {
+                return rows(row("content", stored[0]));
+            }
+            return rows(row("content", null, "content_z", stored[1], "dict", 1));
+        });
+        final ConnectionPool pool = database.createPool(2);
+        try {
+            final StoreOptions options = new StoreOptions().setMetadata(true).setCompression(true);
+            final DocumentStore store = new DocumentStore("HTML", false, pool, options);
+
+            assertThat(store.trainDictionary(10), is(equalTo(1)));
+            assertThat(store.savePage(UUID, content), is(true));
+
+            assertThat(DocumentCompressor.decompress(stored[1], stored[0]),
+                is(equalTo(content.getBytes(StandardCharsets.UTF_8))));
+            assertThat(store.getPage(UUID), is(equalTo(content)));
+
+            // Otro servidor carga el diccionario de la base de datos para leerlo
+            final DocumentStore other = new DocumentStore("HTML", false, pool, options);
+            assertThat(other.getPage(UUID), is(equalTo(content)));
+        } finally {
+            pool.close();
+            database.close();
+        }
+    }
+}
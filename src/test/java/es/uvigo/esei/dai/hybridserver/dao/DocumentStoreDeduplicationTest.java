@@ -0,0 +1,237 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DocumentStoreDeduplicationTest {
+    private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+    private static final String OTHER_UUID = "79e01232-5ea4-41c8-9331-1c1880a1d3c2";
+    private static final String CONTENT = "<html><body>Contenido compartido</body></html>";
+
+    private static final String INSERT_CONTENT =
+        "INSERT INTO HTML_CONTENT (hash, refs, content) VALUES (?, 1, ?)";
+    private static final String ADD_REFERENCE = "UPDATE HTML_CONTENT SET refs = refs + 1 WHERE hash = ?";
+    private static final String RELEASE = "UPDATE HTML_CONTENT SET refs = refs - 1 WHERE hash = ?";
+    private static final String DELETE_UNUSED = "DELETE FROM HTML_CONTENT WHERE hash = ? AND refs <= 0";
+    private static final String RENAME_CONTENT = "UPDATE HTML_CONTENT SET hash = ? WHERE hash = ?";
+    private static final String DELETE_CONTENT = "DELETE FROM HTML_CONTENT WHERE hash = ?";
+    private static final String DELETE = "DELETE FROM HTML WHERE uuid = ?";
+
+    private StubDatabase database;
+    private ConnectionPool pool;
+    private DocumentStore store;
+
+    @BeforeEach
+    public void setUp() {
+        this.database = new StubDatabase((sql, params) -> sql.startsWith("SELECT") ? rows() : 1);
+        this.pool = database.createPool(2);
+        this.store = new DocumentStore("HTML", false, pool,
+            new StoreOptions().setMetadata(true).setDeduplication(true));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.pool.close();
+        this.database.close();
+    }
+
+    private static String hashOf(String content) {
+        return ContentDigestReader.sha256(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isInsertDocument(String sql) {
+        return sql.startsWith("INSERT INTO HTML (");
+    }
+
+    @Test
+    public void testSaveOfNewContent() throws SQLException {
+        database.setHandler((sql, params) -> ADD_REFERENCE.equals(sql) ? 0 : 1);
+
+        assertThat(store.savePage(UUID, CONTENT), is(true));
+
+        final List<StubDatabase.Execution> executions = database.getExecutions();
+        assertThat(executions.size(), is(equalTo(4)));
+        assertThat(executions.get(0).getSql(), is(equalTo(ADD_REFERENCE)));
+        assertThat(executions.get(0).getParams(), is(equalTo(Arrays.<Object>asList(hashOf(CONTENT)))));
+        assertThat(executions.get(1).getSql(), is(equalTo(INSERT_CONTENT)));
+        assertThat(executions.get(1).getParams(), is(equalTo(Arrays.<Object>asList(hashOf(CONTENT), CONTENT))));
+        assertThat(isInsertDocument(executions.get(2).getSql()), is(true));
+        assertThat(executions.get(2).getParams().get(0), is(equalTo((Object) UUID)));
+        assertThat(executions.get(3).getSql(), is(equalTo("COMMIT")));
+    }
+
+    @Test
+    public void testSaveOfExistingContentDoesNotSendContent() throws SQLException {
+        assertThat(store.savePage(UUID, CONTENT), is(true));
+
+        final List<StubDatabase.Execution> executions = database.getExecutions();
+        assertThat(executions.size(), is(equalTo(3)));
+        assertThat(executions.get(0).getSql(), is(equalTo(ADD_REFERENCE)));
+        assertThat(isInsertDocument(executions.get(1).getSql()), is(true));
+        assertThat(executions.get(2).getSql(), is(equalTo("COMMIT")));
+        assertThat(database.getStatements(), not(hasItem(INSERT_CONTENT)));
+        // El contenido de un duplicado no debe viajar a la base de datos
+        for (StubDatabase.Execution execution : executions) {
+            assertThat(execution.getParams().contains(CONTENT), is(false));
+        }
+    }
+
+    @Test
+    public void testConcurrentInsertOfSameContentAddsReference() throws SQLException {
+        final int[] references = { 0 };
+        database.setHandler((sql, params) -> {
+            if (ADD_REFERENCE.equals(sql)) {
+                return references[0]++ == 0 ? 0 : 1;
+            } else if (INSERT_CONTENT.equals(sql)) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate entry", "23000");
+            }
+            return 1;
+        });
+
+        assertThat(store.savePage(UUID, CONTENT), is(true));
+
+        final List<String> statements = database.getStatements();
+        assertThat(statements.subList(0, 3),
+            is(equalTo(Arrays.asList(ADD_REFERENCE, INSERT_CONTENT, ADD_REFERENCE))));
+        assertThat(statements, hasItem("COMMIT"));
+        assertThat(statements, not(hasItem("ROLLBACK")));
+    }
+
+    @Test
+    public void testSameContentSharesHash() throws SQLException {
+        assertThat(store.savePage(UUID, CONTENT), is(true));
+        assertThat(store.savePage(OTHER_UUID, CONTENT), is(true));
+
+        final List<StubDatabase.Execution> executions = database.getExecutions();
+        assertThat(executions.get(3).getSql(), is(equalTo(ADD_REFERENCE)));
+        assertThat(executions.get(3).getParams().get(0), is(equalTo(executions.get(0).getParams().get(0))));
+        // La fila del documento no guarda el contenido, solo su hash
+        assertThat(executions.get(4).getParams().contains(CONTENT), is(false));
+        assertThat(executions.get(4).getParams(), hasItem((Object) hashOf(CONTENT)));
+    }
+
+    @Test
+    public void testFailedInsertRollsBackReference() {
+        database.setHandler((sql, params) -> {
+            if (isInsertDocument(sql)) {
+                throw new SQLException("Duplicate entry", "23000");
+            }
+            return 1;
+        });
+
+        assertThrows(SQLException.class, () -> store.savePage(UUID, CONTENT));
+
+        final List<String> statements = database.getStatements();
+        assertThat(statements.get(0), is(equalTo(ADD_REFERENCE)));
+        assertThat(statements, hasItem("ROLLBACK"));
+        assertThat(statements, not(hasItem("COMMIT")));
+    }
+
+    @Test
+    public void testStreamedSaveOfExistingContent() throws SQLException {
+        assertThat(store.savePage(UUID, new StringReader(CONTENT), null), is(equalTo(hashOf(CONTENT))));
+
+        final List<StubDatabase.Execution> executions = database.getExecutions();
+        assertThat(executions.get(0).getSql(), is(equalTo(INSERT_CONTENT)));
+        assertThat(executions.get(0).getParams().get(0), is(equalTo((Object) ("~" + UUID))));
+        assertThat(executions.get(1).getSql(), is(equalTo(ADD_REFERENCE)));
+        assertThat(executions.get(1).getParams().get(0), is(equalTo((Object) hashOf(CONTENT))));
+        assertThat(executions.get(2).getSql(), is(equalTo(DELETE_CONTENT)));
+        assertThat(executions.get(2).getParams().get(0), is(equalTo((Object) ("~" + UUID))));
+        assertThat(isInsertDocument(executions.get(3).getSql()), is(true));
+        assertThat(executions.get(4).getSql(), is(equalTo("COMMIT")));
+        assertThat(database.getStatements(), not(hasItem(RENAME_CONTENT)));
+    }
+
+    @Test
+    public void testStreamedSaveOfNewContent() throws SQLException {
+        database.setHandler((sql, params) -> ADD_REFERENCE.equals(sql) ? 0 : 1);
+
+        assertThat(store.savePage(UUID, new StringReader(CONTENT), null), is(equalTo(hashOf(CONTENT))));
+
+        final List<StubDatabase.Execution> executions = database.getExecutions();
+        assertThat(executions.get(1).getSql(), is(equalTo(ADD_REFERENCE)));
+        assertThat(executions.get(2).getSql(), is(equalTo(RENAME_CONTENT)));
+        assertThat(executions.get(2).getParams(),
+            is(equalTo(Arrays.<Object>asList(hashOf(CONTENT), "~" + UUID))));
+        assertThat(isInsertDocument(executions.get(3).getSql()), is(true));
+        assertThat(database.getStatements(), not(hasItem(DELETE_CONTENT)));
+    }
+
+    @Test
+    public void testDeleteReleasesSharedContent() throws SQLException {
+        final String hash = hashOf(CONTENT);
+        database.setHandler((sql, params) ->
+            sql.startsWith("SELECT hash") ? rows(row("hash", hash, "shared", 1)) : 1);
+
+        assertThat(store.deletePage(UUID), is(true));
+
+        final List<StubDatabase.Execution> executions = database.getExecutions();
+        assertThat(executions.size(), is(equalTo(5)));
+        assertThat(executions.get(0).getSql().endsWith("FOR UPDATE"), is(true));
+        assertThat(executions.get(1).getSql(), is(equalTo(DELETE)));
+        assertThat(executions.get(2).getSql(), is(equalTo(RELEASE)));
+        assertThat(executions.get(2).getParams().get(0), is(equalTo((Object) hash)));
+        assertThat(executions.get(3).getSql(), is(equalTo(DELETE_UNUSED)));
+        assertThat(executions.get(3).getParams().get(0), is(equalTo((Object) hash)));
+        assertThat(executions.get(4).getSql(), is(equalTo("COMMIT")));
+    }
+
+    @Test
+    public void testDeleteOfOwnContentKeepsReferences() throws SQLException {
+        database.setHandler((sql, params) ->
+            sql.startsWith("SELECT hash") ? rows(row("hash", hashOf(CONTENT), "shared", 0)) : 1);
+
+        assertThat(store.deletePage(UUID), is(true));
+
+        final List<String> statements = database.getStatements();
+        assertThat(statements, hasItem(DELETE));
+        assertThat(statements, not(hasItem(RELEASE)));
+        assertThat(statements, not(hasItem(DELETE_UNUSED)));
+    }
+
+    @Test
+    public void testDeleteOfMissingDocument() throws SQLException {
+        database.setHandler((sql, params) -> sql.startsWith("SELECT") ? rows() : 0);
+
+        assertThat(store.deletePage(UUID), is(false));
+
+        final List<String> statements = database.getStatements();
+        assertThat(statements, not(hasItem(RELEASE)));
+        assertThat(statements, not(hasItem(DELETE_UNUSED)));
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Operaciones básicas de {@link DocumentStore} sobre cada una de las tablas
+ * de documentos (la de XSLT con su XSD asociado), con el esquema sin
+ * metadatos, compresión ni deduplicación.
+ */
+public class DocumentStoreTest {
+    private static final String[] TABLES = { "HTML", "XML", "XSD", "XSL" };
+    private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+    private static final String OTHER_UUID = "79e01232-5ea4-41c8-9331-1c1880a1d3c2";
+    private static final String XSD_UUID = "ddcab7d0-636c-4ed8-8a2a-0ce7c1b6d7ab";
+    private static final String MISSING_UUID = "12345678-abcd-1234-ab12-9876543210ab";
+
+    private StubDocuments documents;
+    private StubDatabase database;
+    private ConnectionPool pool;
+
+    @BeforeEach
+    public void setUp() {
+        this.documents = new StubDocuments();
+        this.database = new StubDatabase(documents);
+        this.pool = database.createPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.pool.close();
+        this.database.close();
+    }
+
+    private DocumentStore store(String table) {
+        return new DocumentStore(table, "XSL".equals(table), pool, new StoreOptions());
+    }
+
+    private static String content(String table) {
+        return "<" + table.toLowerCase() + ">Contenido de " + table + " con ñ</" + table.toLowerCase() + ">";
+    }
+
+    private static boolean save(DocumentStore store, String uuid, String content) throws SQLException {
+        return store.hasXsd() ? store.savePage(uuid, content, XSD_UUID) : store.savePage(uuid, content);
+    }
+
+    @Test
+    public void testSaveAndGet() throws SQLException {
+        for (String table : TABLES) {
+            final DocumentStore store = store(table);
+
+            assertThat(table, save(store, UUID, content(table)), is(true));
+
+            assertThat(table, store.getPage(UUID), is(equalTo(content(table))));
+            assertThat(table, store.pageExists(UUID), is(true));
+            assertThat(table, documents.get(table, UUID), is(equalTo(content(table))));
+        }
+    }
+
+    @Test
+    public void testListAndGetAll() throws SQLException {
+        for (String table : TABLES) {
+            final DocumentStore store = store(table);
+            save(store, UUID, content(table));
+            save(store, OTHER_UUID, "<otro/>");
+
+            assertThat(table, store.listPages().size(), is(equalTo(2)));
+            assertThat(table, store.listPages(), hasItem(UUID));
+            assertThat(table, store.listPages(), hasItem(OTHER_UUID));
+            assertThat(table, store.getAllPages().get(UUID), is(equalTo(content(table))));
+            assertThat(table, store.getAllPages().get(OTHER_UUID), is(equalTo("<otro/>")));
+        }
+    }
+
+    @Test
+    public void testGetSizedPage() throws SQLException {
+        for (String table : TABLES) {
+            final DocumentStore store = store(table);
+            save(store, UUID, content(table));
+            final long size = content(table).getBytes(StandardCharsets.UTF_8).length;
+
+            final StoredPage loaded = store.getPage(UUID, size);
+            assertThat(table, loaded.getSize(), is(equalTo(size)));
+            assertThat(table, loaded.isLoaded(), is(true));
+            assertThat(table, loaded.getContent(), is(equalTo(content(table))));
+
+            // Por encima del máximo solo se obtiene el tamaño
+            final StoredPage unloaded = store.getPage(UUID, size - 1);
+            assertThat(table, unloaded.getSize(), is(equalTo(size)));
+            assertThat(table, unloaded.isLoaded(), is(false));
+
+            assertThat(table, store.getMetadata(UUID).getSize(), is(equalTo(size)));
+        }
+    }
+
+    @Test
+    public void testOpenPage() throws SQLException, IOException {
+        for (String table : TABLES) {
+            final DocumentStore store = store(table);
+            save(store, UUID, content(table));
+
+            try (Reader reader = store.openPage(UUID)) {
+                final StringWriter writer = new StringWriter();
+                reader.transferTo(writer);
+                assertThat(table, writer.toString(), is(equalTo(content(table))));
+            }
+        }
+    }
+
+    @Test
+    public void testStreamedSave() throws SQLException {
+        for (String table : TABLES) {
+            final DocumentStore store = store(table);
+            final StringReader reader = new StringReader(content(table));
+
+            final String hash = store.hasXsd()
+                ? store.savePage(UUID, reader, XSD_UUID)
+                : store.savePage(UUID, reader);
+
+            assertThat(table, hash, is(equalTo(
+                ContentDigestReader.sha256(content(table).getBytes(StandardCharsets.UTF_8)))));
+            assertThat(table, documents.get(table, UUID), is(equalTo(content(table))));
+        }
+    }
+
+    @Test
+    public void testDelete() throws SQLException {
+        for (String table : TABLES) {
+            final DocumentStore store = store(table);
+            save(store, UUID, content(table));
+            save(store, OTHER_UUID, "<otro/>");
+
+            assertThat(table, store.deletePage(UUID), is(true));
+            assertThat(table, store.deletePage(UUID), is(false));
+
+            assertThat(table, store.getPage(UUID), is(nullValue()));
+            assertThat(table, store.pageExists(UUID), is(false));
+            assertThat(table, store.listPages(), not(hasItem(UUID)));
+            assertThat(table, store.getPage(OTHER_UUID), is(equalTo("<otro/>")));
+        }
+    }
+
+    @Test
+    public void testMissingDocument() throws SQLException {
+        for (String table : TABLES) {
+            final DocumentStore store = store(table);
+
+            assertThat(table, store.getPage(MISSING_UUID), is(nullValue()));
+            assertThat(table, store.getPage(MISSING_UUID, 1024), is(nullValue()));
+            assertThat(table, store.getMetadata(MISSING_UUID), is(nullValue()));
+            assertThat(table, store.openPage(MISSING_UUID), is(nullValue()));
+            assertThat(table, store.pageExists(MISSING_UUID), is(false));
+            assertThat(table, store.listPages().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void testXsdOfStylesheet() throws SQLException {
+        final DocumentStore store = store("XSL");
+        store.savePage(UUID, content("XSL"), XSD_UUID);
+
+        assertThat(store.getXsd(UUID), is(equalTo(XSD_UUID)));
+        assertThat(store.getXsd(MISSING_UUID), is(nullValue()));
+    }
+
+    @Test
+    public void testXsdOnlyInStylesheetTable() {
+        assertThrows(UnsupportedOperationException.class, () -> store("XSL").savePage(UUID, content("XSL")));
+        assertThrows(UnsupportedOperationException.class, () -> store("HTML").getXsd(UUID));
+    }
+}
@@ -0,0 +1,158 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+@Timeout(10L)
+public class GroupCommitterTest {
+    private static final int BATCH_SIZE = 4;
+    private static final String WRITE = "UPDATE HTML SET size = ? WHERE uuid = ?";
+
+    private StubDatabase database;
+    private ConnectionPool pool;
+    private GroupCommitter committer;
+    private ExecutorService writers;
+
+    @BeforeEach
+    public void setUp() {
+        this.database = new StubDatabase((sql, params) -> {
+            if (params.contains("fail")) {
+                throw new SQLException("Duplicate entry", "23000");
+            }
+            return 1;
+        });
+        this.pool = database.createPool(2);
+        // Con un retardo largo el lote solo se cierra al completarse
+        this.committer = new GroupCommitter(pool, BATCH_SIZE, 5000);
+        this.writers = Executors.newFixedThreadPool(BATCH_SIZE);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.writers.shutdownNow();
+        this.committer.close();
+        this.pool.close();
+        this.database.close();
+    }
+
+    // Lanza a la vez una escritura por UUID, de modo que formen un solo lote
+    private List<Future<Integer>> writeAll(String... uuids) {
+        final List<Future<Integer>> results = new ArrayList<>();
+        for (String uuid : uuids) {
+            results.add(writers.submit(() -> committer.execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(WRITE)) {
+                    stmt.setLong(1, 10);
+                    stmt.setString(2, uuid);
+                    return stmt.executeUpdate();
+                }
+            })));
+        }
+        return results;
+    }
+
+    private int count(String statement) {
+        return Collections.frequency(database.getStatements(), statement);
+    }
+
+    @Test
+    public void testWritesShareOneCommit() throws Exception {
+        for (Future<Integer> result : writeAll("a", "b", "c", "d")) {
+            assertThat(result.get(), is(equalTo(1)));
+        }
+
+        assertThat(count(WRITE), is(equalTo(4)));
+        assertThat(count("COMMIT"), is(equalTo(1)));
+        assertThat(committer.getBatches(), is(equalTo(1L)));
+        assertThat(committer.getMaxBatchSize(), is(equalTo(4L)));
+    }
+
+    @Test
+    public void testFailingWriteOnlyRollsBackItself() throws Exception {
+        final List<Future<Integer>> results = writeAll("a", "fail", "c", "d");
+
+        assertThat(results.get(0).get(), is(equalTo(1)));
+        assertThat(results.get(2).get(), is(equalTo(1)));
+        assertThat(results.get(3).get(), is(equalTo(1)));
+        final ExecutionException failure = assertThrows(ExecutionException.class, () -> results.get(1).get());
+        assertThat(failure.getCause(), is(instanceOf(SQLException.class)));
+
+        assertThat(count("ROLLBACK TO SAVEPOINT"), is(equalTo(1)));
+        assertThat(count("ROLLBACK"), is(equalTo(0)));
+        assertThat(count("COMMIT"), is(equalTo(1)));
+        assertThat(committer.getFailedWrites(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testFailedSavepointRollbackRetriesOthers() throws Exception {
+        database.setFailSavepointRollback(true);
+
+        final List<Future<Integer>> results = writeAll("a", "fail", "c", "d");
+
+        assertThat(results.get(0).get(), is(equalTo(1)));
+        assertThat(results.get(2).get(), is(equalTo(1)));
+        assertThat(results.get(3).get(), is(equalTo(1)));
+        assertThrows(ExecutionException.class, () -> results.get(1).get());
+
+        // Se deshace la transacción entera y las demás se repiten en otra
+        assertThat(count("ROLLBACK"), is(equalTo(1)));
+        assertThat(count("COMMIT"), is(equalTo(1)));
+        assertThat(committer.getBatches(), is(equalTo(1L)));
+        assertThat(committer.getFailedWrites(), is(equalTo(1L)));
+
+        // La última ejecución de cada escritura es la confirmada
+        final List<String> statements = database.getStatements();
+        final List<StubDatabase.Execution> executions = database.getExecutions();
+        final int rollback = statements.indexOf("ROLLBACK");
+        final List<String> committed = new ArrayList<>();
+        for (StubDatabase.Execution execution : executions.subList(rollback + 1, executions.size())) {
+            if (WRITE.equals(execution.getSql())) {
+                committed.add((String) execution.getParams().get(1));
+            }
+        }
+        Collections.sort(committed);
+        assertThat(committed, is(equalTo(Arrays.asList("a", "c", "d"))));
+    }
+
+    @Test
+    public void testClosedCommitterRejectsWrites() {
+        committer.close();
+
+        assertThrows(SQLException.class, () -> committer.execute(conn -> 1));
+    }
+}
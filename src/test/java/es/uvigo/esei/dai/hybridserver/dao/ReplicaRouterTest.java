@@ -0,0 +1,242 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+@Timeout(10L)
+public class ReplicaRouterTest {
+    private static final String SELECT = "SELECT content FROM HTML WHERE uuid = ?";
+    private static final String REPLICA_STATUS = "SHOW REPLICA STATUS";
+    private static final String SLAVE_STATUS = "SHOW SLAVE STATUS";
+
+    private StubDatabase primary;
+    private StubDatabase firstReplica;
+    private StubDatabase secondReplica;
+    private ConnectionPool primaryPool;
+    private ReplicaRouter router;
+
+    @BeforeEach
+    public void setUp() {
+        this.primary = new StubDatabase(answer("primario"));
+        this.firstReplica = new StubDatabase(answer("réplica 1"));
+        this.secondReplica = new StubDatabase(answer("réplica 2"));
+        this.primaryPool = primary.createPool(2);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        if (router != null) {
+            router.close();
+        }
+        this.primaryPool.close();
+        this.primary.close();
+        this.firstReplica.close();
+        this.secondReplica.close();
+    }
+
+    // Cada base de datos responde a las lecturas con su nombre
+    private static StubDatabase.Handler answer(String name) {
+        return (sql, params) -> rows(row("content", name));
+    }
+
+    private ReplicaRouter createRouter(long readYourWritesMillis, int maxLagSeconds, StubDatabase... replicas) {
+        final ConnectionPool[] pools = new ConnectionPool[replicas.length];
+        for (int i = 0; i < replicas.length; i++) {
+            pools[i] = replicas[i].createPool(2);
+        }
+        this.router = new ReplicaRouter(
+            primaryPool, Arrays.asList(pools), ReplicaRouter.Policy.ROUND_ROBIN, readYourWritesMillis, maxLagSeconds);
+        return router;
+    }
+
+    private String read(String uuid) throws SQLException {
+        return router.read("HTML", uuid, conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(SELECT)) {
+                stmt.setString(1, uuid == null ? "" : uuid);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? rs.getString("content") : null;
+                }
+            }
+        });
+    }
+
+    private static void awaitStatement(StubDatabase database, String sql) throws InterruptedException {
+        while (!database.getStatements().contains(sql)) {
+            Thread.sleep(10);
+        }
+    }
+
+    // El retraso se consulta en otro hilo: se espera a que deje de usarse la
+    // réplica (si no ocurre, vence el tiempo máximo del test)
+    private void awaitPrimaryReads() throws Exception {
+        while (!"primario".equals(read("a"))) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testReadsAreSpreadOverReplicas() throws SQLException {
+        createRouter(1000, 0, firstReplica, secondReplica);
+
+        final String first = read("a");
+        final String second = read("b");
+
+        assertThat(first.equals(second), is(false));
+        assertThat(first.startsWith("réplica"), is(true));
+        assertThat(second.startsWith("réplica"), is(true));
+        assertThat(read("c"), is(equalTo(first)));
+        assertThat(router.getPrimaryReads(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testRecentWritesAreReadFromPrimary() throws SQLException {
+        createRouter(60_000, 0, firstReplica);
+
+        router.recordWrite("HTML", "a");
+
+        assertThat(read("a"), is(equalTo("primario")));
+        assertThat(read(null), is(equalTo("primario")));
+        assertThat(read("b"), is(equalTo("réplica 1")));
+        assertThat(router.getPrimaryReads(), is(equalTo(2L)));
+    }
+
+    @Test
+    public void testWritesStopBeingRecent() throws Exception {
+        createRouter(50, 0, firstReplica);
+
+        router.recordWrite("HTML", "a");
+        Thread.sleep(100);
+
+        assertThat(read("a"), is(equalTo("réplica 1")));
+        assertThat(read(null), is(equalTo("réplica 1")));
+    }
+
+    @Test
+    public void testWithoutReplicasReadsFromPrimary() throws SQLException {
+        createRouter(1000, 5);
+
+        router.recordWrite("HTML", "a");
+
+        assertThat(read("b"), is(equalTo("primario")));
+        assertThat(router.getFallbacks(), is(equalTo(0L)));
+    }
+
+    @Test
+    public void testFailedReplicaFallsBackToPrimary() throws SQLException {
+        firstReplica.setHandler((sql, params) -> {
+            throw new SQLException("Communications link failure", "08S01");
+        });
+        createRouter(1000, 0, firstReplica);
+
+        assertThat(read("a"), is(equalTo("primario")));
+        assertThat(router.getFallbacks(), is(equalTo(1L)));
+
+        // La réplica se deja de usar durante un tiempo
+        assertThat(read("a"), is(equalTo("primario")));
+        assertThat(router.getFallbacks(), is(equalTo(1L)));
+        assertThat(Collections.frequency(firstReplica.getStatements(), SELECT), is(equalTo(1)));
+    }
+
+    @Test
+    public void testQueryErrorKeepsReplicaAvailable() throws SQLException {
+        firstReplica.setHandler((sql, params) -> {
+            throw new SQLException("Table 'HTML' doesn't exist", "42S02");
+        });
+        createRouter(1000, 0, firstReplica);
+
+        assertThat(read("a"), is(equalTo("primario")));
+
+        firstReplica.setHandler(answer("réplica 1"));
+        assertThat(read("a"), is(equalTo("réplica 1")));
+        assertThat(router.getFallbacks(), is(equalTo(1L)));
+    }
+
+    @Test
+    public void testLaggingReplicaIsNotUsed() throws Exception {
+        firstReplica.setHandler((sql, params) ->
+            REPLICA_STATUS.equals(sql) ? rows(row("Seconds_Behind_Source", 60)) : rows(row("content", "réplica 1")));
+        createRouter(1000, 5, firstReplica);
+        awaitPrimaryReads();
+
+        assertThat(read("b"), is(equalTo("primario")));
+        assertThat(firstReplica.getStatements(), not(hasItem(SLAVE_STATUS)));
+    }
+
+    @Test
+    public void testReplicaWithinLagIsUsed() throws Exception {
+        firstReplica.setHandler((sql, params) ->
+            REPLICA_STATUS.equals(sql) ? rows(row("Seconds_Behind_Source", 2)) : rows(row("content", "réplica 1")));
+        createRouter(1000, 5, firstReplica);
+        awaitStatement(firstReplica, REPLICA_STATUS);
+
+        assertThat(read("a"), is(equalTo("réplica 1")));
+    }
+
+    @Test
+    public void testStoppedReplicationIsNotUsed() throws Exception {
+        firstReplica.setHandler((sql, params) ->
+            REPLICA_STATUS.equals(sql) ? rows(row("Seconds_Behind_Source", null)) : rows(row("content", "réplica 1")));
+        createRouter(1000, 5, firstReplica);
+        awaitPrimaryReads();
+
+        assertThat(read("b"), is(equalTo("primario")));
+    }
+
+    @Test
+    public void testLagCheckFallsBackToSlaveStatus() throws Exception {
+        firstReplica.setHandler((sql, params) -> {
+            if (REPLICA_STATUS.equals(sql)) {
+                throw new SQLException("You have an error in your SQL syntax", "42000");
+            } else if (SLAVE_STATUS.equals(sql)) {
+                return rows(row("Seconds_Behind_Master", 60));
+            }
+            return rows(row("content", "réplica 1"));
+        });
+        createRouter(1000, 5, firstReplica);
+        awaitPrimaryReads();
+
+        assertThat(read("b"), is(equalTo("primario")));
+        assertThat(firstReplica.getStatements(), hasItem(SLAVE_STATUS));
+    }
+
+    @Test
+    public void testLagIsNotCheckedWithoutMaximum() throws Exception {
+        createRouter(1000, 0, firstReplica);
+
+        assertThat(read("a"), is(equalTo("réplica 1")));
+        assertThat(firstReplica.getStatements(), not(hasItem(REPLICA_STATUS)));
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+public class ShardMapTest {
+    private static final int DOCUMENTS = 20_000;
+
+    // UUID aleatorios, pero siempre los mismos
+    private static List<String> randomUuids() {
+        final Random random = new Random(42);
+        final List<String> uuids = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            uuids.add(new UUID(random.nextLong(), random.nextLong()).toString());
+        }
+        return uuids;
+    }
+
+    // UUID de versión 7: los bits altos son una marca de tiempo creciente
+    private static List<String> timeOrderedUuids() {
+        final Random random = new Random(42);
+        final long start = 1_700_000_000_000L;
+        final List<String> uuids = new ArrayList<>(DOCUMENTS);
+        for (int i = 0; i < DOCUMENTS; i++) {
+            final long high = ((start + i) << 16) | 0x7000L | (random.nextInt() & 0xfffL);
+            final long low = (random.nextLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+            uuids.add(new UUID(high, low).toString());
+        }
+        return uuids;
+    }
+
+    private static void assertBalanced(List<String> uuids, int shards) {
+        final int[] counts = new int[shards];
+        for (String uuid : uuids) {
+            counts[ShardMap.shardOf(uuid, shards)]++;
+        }
+
+        final double expected = (double) uuids.size() / shards;
+        for (int shard = 0; shard < shards; shard++) {
+            assertTrue(Math.abs(counts[shard] - expected) < expected * 0.1,
+                "Shard " + shard + " has " + counts[shard] + " documents, expected about " + expected);
+        }
+    }
+
+    @Test
+    public void testShardIsStableAndInRange() {
+        for (String uuid : randomUuids().subList(0, 1000)) {
+            for (int shards = 1; shards <= 8; shards++) {
+                final int shard = ShardMap.shardOf(uuid, shards);
+                assertTrue(shard >= 0 && shard < shards, uuid + " assigned to shard " + shard + " of " + shards);
+                assertThat(ShardMap.shardOf(uuid, shards), is(equalTo(shard)));
+            }
+            assertThat(ShardMap.shardOf(uuid, 1), is(equalTo(0)));
+        }
+    }
+
+    @Test
+    public void testNonUuidKeysAreAccepted() {
+        final int shard = ShardMap.shardOf("not-a-uuid", 4);
+
+        assertTrue(shard >= 0 && shard < 4);
+        assertThat(ShardMap.shardOf("not-a-uuid", 4), is(equalTo(shard)));
+    }
+
+    @Test
+    public void testRandomUuidsAreBalanced() {
+        assertBalanced(randomUuids(), 4);
+        assertBalanced(randomUuids(), 7);
+    }
+
+    @Test
+    public void testTimeOrderedUuidsAreBalanced() {
+        assertBalanced(timeOrderedUuids(), 4);
+        assertBalanced(timeOrderedUuids(), 7);
+    }
+
+    @Test
+    public void testAddingShardOnlyMovesDocumentsToIt() {
+        for (int shards = 1; shards < 8; shards++) {
+            int moved = 0;
+            for (String uuid : randomUuids()) {
+                final int before = ShardMap.shardOf(uuid, shards);
+                final int after = ShardMap.shardOf(uuid, shards + 1);
+                if (before != after) {
+                    assertThat(after, is(equalTo(shards)));
+                    moved++;
+                }
+            }
+
+            // Solo se mueve la parte que corresponde al nuevo shard
+            final double expected = (double) DOCUMENTS / (shards + 1);
+            assertTrue(Math.abs(moved - expected) < expected * 0.1,
+                moved + " documents moved adding shard " + shards + ", expected about " + expected);
+        }
+    }
+
+    @Test
+    public void testEmptyShardListIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new ShardMap(Collections.<ConnectionPool>emptyList()));
+    }
+
+    @Test
+    public void testPoolOfDocument() throws SQLException {
+        try (StubDatabase first = new StubDatabase((sql, params) -> rows());
+             StubDatabase second = new StubDatabase((sql, params) -> rows());
+             ConnectionPool primary = first.createPool(1);
+             ShardMap shards = new ShardMap(Arrays.asList(primary, second.createPool(1)))) {
+            for (String uuid : randomUuids().subList(0, 100)) {
+                assertThat(shards.getPool(uuid), is(sameInstance(shards.get(ShardMap.shardOf(uuid, 2)))));
+            }
+        }
+    }
+
+    @Test
+    public void testScatterKeepsShardOrder() throws SQLException {
+        try (StubDatabase first = new StubDatabase((sql, params) -> rows(row("count", 3)));
+             StubDatabase second = new StubDatabase((sql, params) -> rows(row("count", 5)));
+             ConnectionPool primary = first.createPool(1);
+             ShardMap shards = new ShardMap(Arrays.asList(primary, second.createPool(1)))) {
+            final List<Integer> counts = shards.scatter(conn -> {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT COUNT(*) AS count FROM HTML")) {
+                    return rs.next() ? rs.getInt("count") : 0;
+                }
+            });
+
+            assertThat(counts, is(equalTo(Arrays.asList(3, 5))));
+        }
+    }
+
+    @Test
+    public void testScatterPropagatesShardErrors() {
+        try (StubDatabase first = new StubDatabase((sql, params) -> rows());
+             StubDatabase second = new StubDatabase((sql, params) -> {
+                 throw new SQLException("Table 'HTML' doesn't exist", "42S02");
+             });
+             ConnectionPool primary = first.createPool(1);
+             ShardMap shards = new ShardMap(Arrays.asList(primary, second.createPool(1)))) {
+            final SQLException error = assertThrows(SQLException.class, () -> shards.scatter(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    return stmt.executeQuery("SELECT uuid FROM HTML").next();
+                }
+            }));
+
+            assertThat(error.getSQLState(), is(equalTo("42S02")));
+        }
+    }
+}
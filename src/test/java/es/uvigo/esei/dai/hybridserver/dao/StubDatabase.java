@@ -0,0 +1,481 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Base de datos simulada para probar el acceso a datos sin un servidor
+ * MySQL. Un driver JDBC registrado para las URL {@code jdbc:stub:<nombre>}
+ * entrega conexiones que no ejecutan nada: cada sentencia se pasa al
+ * {@link Handler} de la base de datos, que decide su resultado, y se anota
+ * junto con los commits y rollbacks para comprobarlos después. Las pruebas
+ * de otros paquetes la usan como base de datos de un {@link
+ * es.uvigo.esei.dai.hybridserver.HybridServer} configurado con su URL.
+ */
+public final class StubDatabase implements AutoCloseable {
+    private static final Map<String, StubDatabase> DATABASES = new ConcurrentHashMap<>();
+    private static final AtomicInteger NEXT = new AtomicInteger();
+
+    static {
+        try {
+            DriverManager.registerDriver(new StubDriver());
+        } catch (SQLException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * Resultado de cada sentencia: una lista de filas ({@link #rows}) para las
+     * consultas o el número de filas afectadas para las modificaciones. Puede
+     * lanzar una {@link SQLException} para simular errores.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        Object execute(String sql, List<Object> params) throws SQLException;
+    }
+
+    /**
+     * Sentencia ejecutada, con sus parámetros en orden. Los commits y
+     * rollbacks se anotan como {@code COMMIT}, {@code ROLLBACK} y
+     * {@code ROLLBACK TO SAVEPOINT}.
+     */
+    public static final class Execution {
+        private final String sql;
+        private final List<Object> params;
+
+        private Execution(String sql, List<Object> params) {
+            this.sql = sql;
+            this.params = params;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public List<Object> getParams() {
+            return params;
+        }
+
+        @Override
+        public String toString() {
+            return sql + " " + params;
+        }
+    }
+
+    private final String url;
+    private volatile Handler handler;
+    private final List<Execution> executions = Collections.synchronizedList(new ArrayList<>());
+    private volatile boolean failSavepointRollback;
+    private volatile boolean valid = true;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    public StubDatabase(Handler handler) {
+        this.url = "jdbc:stub:db" + NEXT.incrementAndGet();
+        this.handler = handler;
+        DATABASES.put(url, this);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    ConnectionPool createPool(int maxIdle) {
+        return new ConnectionPool(url, "user", "password", maxIdle);
+    }
+
+    public void setHandler(Handler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Hace que deshacer hasta un savepoint falle, como cuando la base de
+     * datos ya ha abortado la transacción.
+     */
+    void setFailSavepointRollback(boolean fail) {
+        this.failSavepointRollback = fail;
+    }
+
+    void setValid(boolean valid) {
+        this.valid = valid;
+    }
+
+    /**
+     * @return Número de conexiones abiertas con el driver
+     */
+    int getConnections() {
+        return connections.get();
+    }
+
+    public List<Execution> getExecutions() {
+        synchronized (executions) {
+            return new ArrayList<>(executions);
+        }
+    }
+
+    /**
+     * @return el SQL de las sentencias ejecutadas (y de los commits y
+     * rollbacks), en orden.
+     */
+    public List<String> getStatements() {
+        final List<String> statements = new ArrayList<>();
+        for (Execution execution : getExecutions()) {
+            statements.add(execution.getSql());
+        }
+        return statements;
+    }
+
+    public void clear() {
+        executions.clear();
+    }
+
+    @Override
+    public void close() {
+        DATABASES.remove(url);
+    }
+
+    /**
+     * Filas de una consulta, cada una como pares columna, valor.
+     */
+    public static List<Map<String, Object>> rows(Object[]... rows) {
+        final List<Map<String, Object>> result = new ArrayList<>();
+        for (Object[] row : rows) {
+            final Map<String, Object> columns = new LinkedHashMap<>();
+            for (int i = 0; i < row.length; i += 2) {
+                columns.put((String) row[i], row[i + 1]);
+            }
+            result.add(columns);
+        }
+        return result;
+    }
+
+    public static Object[] row(Object... columns) {
+        return columns;
+    }
+
+    private Object execute(String sql, List<Object> params) throws SQLException {
+        executions.add(new Execution(sql, params));
+        return handler.execute(sql, params);
+    }
+
+    private void record(String event) {
+        executions.add(new Execution(event, Collections.emptyList()));
+    }
+
+    private Connection connect() {
+        connections.incrementAndGet();
+        final boolean[] autoCommit = { true };
+        final boolean[] closed = { false };
+
+        return proxy(Connection.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "prepareStatement":
+                case "prepareCall":
+                    return prepare((String) args[0], proxy);
+                case "createStatement":
+                    return statement(proxy);
+                case "setAutoCommit":
+                    autoCommit[0] = (Boolean) args[0];
+                    return null;
+                case "getAutoCommit":
+                    return autoCommit[0];
+                case "commit":
+                    record("COMMIT");
+                    return null;
+                case "rollback":
+                    if (args != null && args.length == 1) {
+                        if (failSavepointRollback) {
+                            throw new SQLException("Savepoint does not exist", "42000");
+                        }
+                        record("ROLLBACK TO SAVEPOINT");
+                    } else {
+                        record("ROLLBACK");
+                    }
+                    return null;
+                case "setSavepoint":
+                    return proxy(Savepoint.class, (savepoint, m, a) -> defaultValue(m.getReturnType()));
+                case "releaseSavepoint":
+                    return null;
+                case "isValid":
+                    return valid && !closed[0];
+                case "isClosed":
+                    return closed[0];
+                case "close":
+                    closed[0] = true;
+                    return null;
+                default:
+                    return objectMethod(proxy, method.getName(), args, "StubConnection " + url);
+            }
+        });
+    }
+
+    private Statement statement(Object connection) {
+        return proxy(Statement.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "executeQuery":
+                    return resultSet(execute((String) args[0], Collections.emptyList()));
+                case "executeUpdate":
+                    return updateCount(execute((String) args[0], Collections.emptyList()));
+                case "execute":
+                    return execute((String) args[0], Collections.emptyList()) instanceof List;
+                case "getConnection":
+                    return connection;
+                case "close":
+                    return null;
+                default:
+                    return objectMethod(proxy, method.getName(), args, "StubStatement");
+            }
+        });
+    }
+
+    private PreparedStatement prepare(String sql, Object connection) {
+        final Map<Integer, Object> params = new TreeMap<>();
+        final Object[] generatedKeys = { null };
+
+        return proxy(PreparedStatement.class, (proxy, method, args) -> {
+            final String name = method.getName();
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                params.put((Integer) args[0], parameter(name, args[1]));
+                return null;
+            }
+
+            switch (name) {
+                case "executeQuery":
+                    return resultSet(execute(sql, new ArrayList<>(params.values())));
+                case "executeUpdate": {
+                    final Object result = execute(sql, new ArrayList<>(params.values()));
+                    generatedKeys[0] = result;
+                    return updateCount(result);
+                }
+                case "execute":
+                    return execute(sql, new ArrayList<>(params.values())) instanceof List;
+                case "getGeneratedKeys":
+                    return resultSet(rows(row("GENERATED_KEY", 1)));
+                case "clearParameters":
+                    params.clear();
+                    return null;
+                case "getConnection":
+                    return connection;
+                case "close":
+                    return null;
+                default:
+                    return objectMethod(proxy, name, args, "StubPreparedStatement " + sql);
+            }
+        });
+    }
+
+    // Valor de un parámetro: los flujos se leen enteros, los nulos se guardan
+    // como null. Como en el driver de MySQL, un error leyendo el flujo llega
+    // envuelto en una SQLException.
+    private static Object parameter(String setter, Object value) throws SQLException {
+        try {
+            return readParameter(setter, value);
+        } catch (IOException e) {
+            throw new SQLException("Error leyendo el parámetro: " + e.getMessage(), e);
+        }
+    }
+
+    private static Object readParameter(String setter, Object value) throws IOException {
+        if ("setNull".equals(setter)) {
+            return null;
+        } else if (value instanceof Reader) {
+            final StringBuilder text = new StringBuilder();
+            final char[] buffer = new char[4096];
+            int read;
+            while ((read = ((Reader) value).read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+            return text.toString();
+        } else if (value instanceof InputStream) {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ((InputStream) value).transferTo(bytes);
+            return bytes.toByteArray();
+        }
+        return value;
+    }
+
+    private static int updateCount(Object result) {
+        return result instanceof Integer ? (Integer) result : 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ResultSet resultSet(Object result) {
+        final List<Map<String, Object>> rows = result instanceof List
+            ? (List<Map<String, Object>>) result : Collections.emptyList();
+        final int[] current = { -1 };
+        final boolean[] wasNull = { false };
+
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            final String name = method.getName();
+            switch (name) {
+                case "next":
+                    return ++current[0] < rows.size();
+                case "wasNull":
+                    return wasNull[0];
+                case "close":
+                    return null;
+                case "isClosed":
+                    return false;
+                default:
+                    break;
+            }
+
+            if (name.startsWith("get") && args != null && args.length == 1) {
+                final Object value = column(rows.get(current[0]), args[0]);
+                wasNull[0] = value == null;
+                return convert(value, method.getReturnType());
+            }
+            return objectMethod(proxy, name, args, "StubResultSet");
+        });
+    }
+
+    private static Object column(Map<String, Object> row, Object column) throws SQLException {
+        if (column instanceof Integer) {
+            final List<Object> values = new ArrayList<>(row.values());
+            return values.get((Integer) column - 1);
+        }
+
+        for (Map.Entry<String, Object> entry : row.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase((String) column)) {
+                return entry.getValue();
+            }
+        }
+        throw new SQLException("Columna desconocida: " + column);
+    }
+
+    private static Object convert(Object value, Class<?> type) {
+        if (value == null) {
+            return defaultValue(type);
+        } else if (type == String.class) {
+            return value instanceof byte[] ? new String((byte[]) value) : value.toString();
+        } else if (type == long.class) {
+            return ((Number) value).longValue();
+        } else if (type == int.class) {
+            return ((Number) value).intValue();
+        } else if (type == boolean.class) {
+            return value instanceof Boolean ? value : ((Number) value).intValue() != 0;
+        } else if (type == Reader.class) {
+            return new StringReader(value.toString());
+        } else if (type == InputStream.class) {
+            return new ByteArrayInputStream((byte[]) value);
+        }
+        return value;
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == int.class) {
+            return 0;
+        }
+        return null;
+    }
+
+    private static Object objectMethod(Object proxy, String name, Object[] args, String description)
+        throws SQLException {
+        switch (name) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return description;
+            default:
+                throw new SQLFeatureNotSupportedException(name + (args == null ? "()" : Arrays.toString(args)));
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StubDatabase.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    private static final class StubDriver implements Driver {
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+
+            final StubDatabase database = DATABASES.get(url);
+            if (database == null) {
+                throw new SQLException("Base de datos no disponible: " + url, "08001");
+            }
+            return database.connect();
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url != null && url.startsWith("jdbc:stub:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+}
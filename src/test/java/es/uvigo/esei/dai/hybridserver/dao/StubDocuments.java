@@ -0,0 +1,132 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tablas de documentos en memoria para una {@link StubDatabase}: responde a
+ * las sentencias que genera {@link DocumentStore} con el esquema básico (sin
+ * metadatos, compresión ni deduplicación), de modo que un servidor
+ * configurado con la URL de la base de datos funciona como con MySQL.
+ */
+public final class StubDocuments implements StubDatabase.Handler {
+    private static final Pattern TABLE = Pattern.compile(" (?:FROM|INTO) (\\w+)");
+
+    private final Map<String, Map<String, Document>> tables = new ConcurrentHashMap<>();
+
+    public void put(String table, String uuid, String content) {
+        put(table, uuid, content, null);
+    }
+
+    public void put(String table, String uuid, String content, String xsd) {
+        table(table).put(uuid, new Document(content, xsd));
+    }
+
+    public String get(String table, String uuid) {
+        final Document document = table(table).get(uuid);
+        return document == null ? null : document.content;
+    }
+
+    public int size(String table) {
+        return table(table).size();
+    }
+
+    @Override
+    public Object execute(String sql, List<Object> params) throws SQLException {
+        final Matcher matcher = TABLE.matcher(sql);
+        if (!matcher.find()) {
+            throw new SQLException("Sentencia no emulada: " + sql);
+        }
+        final Map<String, Document> table = table(matcher.group(1));
+
+        if (sql.startsWith("INSERT INTO ")) {
+            final String xsd = params.size() == 3 ? (String) params.get(1) : null;
+            final Document document = new Document((String) params.get(params.size() - 1), xsd);
+            if (table.putIfAbsent((String) params.get(0), document) != null) {
+                throw new SQLIntegrityConstraintViolationException("Duplicate entry", "23000");
+            }
+            return 1;
+        } else if (sql.startsWith("DELETE FROM ")) {
+            return table.remove(params.get(0)) == null ? 0 : 1;
+        } else if (sql.startsWith("SELECT uuid FROM ")) {
+            final List<Object[]> uuids = new ArrayList<>();
+            for (String uuid : table.keySet()) {
+                uuids.add(row("uuid", uuid));
+            }
+            return rows(uuids.toArray(new Object[0][]));
+        } else if (sql.startsWith("SELECT uuid, content FROM ")) {
+            final List<Object[]> documents = new ArrayList<>();
+            table.forEach((uuid, document) -> documents.add(row("uuid", uuid, "content", document.content)));
+            return rows(documents.toArray(new Object[0][]));
+        }
+
+        // El resto de consultas buscan un documento por su UUID, el último parámetro
+        final Document document = table.get(params.get(params.size() - 1));
+        if (document == null) {
+            return rows();
+        } else if (sql.startsWith("SELECT 1 FROM ")) {
+            return rows(row("1", 1));
+        } else if (sql.startsWith("SELECT LENGTH(content) AS size, NULL AS hash, ")) {
+            final long maxLoaded = ((Number) params.get(0)).longValue();
+            return rows(row("size", document.size(), "hash", null,
+                "content", document.size() <= maxLoaded ? document.content : null));
+        } else if (sql.startsWith("SELECT LENGTH(content) AS size FROM ")) {
+            return rows(row("size", document.size()));
+        } else if (sql.startsWith("SELECT SUBSTRING(content, ?, ?) AS content FROM ")) {
+            // Posiciones en caracteres, empezando en 1
+            final int start = Math.min(((Number) params.get(0)).intValue() - 1, document.content.length());
+            final int end = Math.min(start + ((Number) params.get(1)).intValue(), document.content.length());
+            return rows(row("content", document.content.substring(start, end)));
+        } else if (sql.startsWith("SELECT xsd FROM ")) {
+            return rows(row("xsd", document.xsd));
+        } else if (sql.startsWith("SELECT content FROM ")) {
+            return rows(row("content", document.content));
+        }
+        throw new SQLException("Sentencia no emulada: " + sql);
+    }
+
+    private Map<String, Document> table(String name) {
+        return tables.computeIfAbsent(name, key -> new ConcurrentHashMap<>());
+    }
+
+    private static final class Document {
+        private final String content;
+        private final String xsd;
+
+        private Document(String content, String xsd) {
+            this.content = content;
+            this.xsd = xsd;
+        }
+
+        private long size() {
+            return content.getBytes(StandardCharsets.UTF_8).length;
+        }
+    }
+}
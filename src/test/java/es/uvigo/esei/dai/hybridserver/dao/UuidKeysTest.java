@@ -0,0 +1,124 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.dao;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import es.uvigo.esei.dai.hybridserver.IdGenerator;
+
+public class UuidKeysTest {
+    private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+
+    @Test
+    public void testRoundTrip() {
+        for (IdGenerator generator : IdGenerator.values()) {
+            for (int i = 0; i < 100; i++) {
+                final String uuid = generator.next();
+                final byte[] key = UuidKeys.toBytes(uuid);
+
+                assertThat(key.length, is(equalTo(16)));
+                assertThat(UuidKeys.fromBytes(key), is(equalTo(uuid)));
+            }
+        }
+    }
+
+    @Test
+    public void testBytesFollowText() {
+        assertThat(UuidKeys.toBytes(UUID), is(equalTo(new byte[] {
+            0x6d, (byte) 0xf1, 0x04, 0x7e, (byte) 0xcf, 0x19, 0x4a, (byte) 0x83,
+            (byte) 0x8c, (byte) 0xf3, 0x38, (byte) 0xf5, (byte) 0xe5, 0x3f, 0x77, 0x25
+        })));
+    }
+
+    @Test
+    public void testBinaryOrderMatchesTextOrder() throws InterruptedException {
+        final List<String> uuids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            uuids.add(IdGenerator.TIME_ORDERED.next());
+            Thread.sleep(2L);
+        }
+
+        for (int i = 1; i < uuids.size(); i++) {
+            // Como compara MySQL las claves BINARY(16): byte a byte, sin signo
+            final int order = Arrays.compareUnsigned(
+                UuidKeys.toBytes(uuids.get(i - 1)), UuidKeys.toBytes(uuids.get(i)));
+            assertTrue(order < 0, uuids.get(i - 1) + " no precede a " + uuids.get(i));
+        }
+    }
+
+    @Test
+    public void testInvalidText() {
+        assertThat(UuidKeys.toBytes(null), is(nullValue()));
+        assertThat(UuidKeys.toBytes("no-es-un-uuid"), is(nullValue()));
+        assertThat(UuidKeys.toBytes("6df1047e-cf19-4a83-8cf3-38f5e53f772z"), is(nullValue()));
+        assertThat(UuidKeys.fromBytes(null), is(nullValue()));
+    }
+
+    @Test
+    public void testStoreBindsBinaryKeys() throws SQLException {
+        final byte[] key = UuidKeys.toBytes(UUID);
+        final StubDatabase database = new StubDatabase((sql, params) ->
+            sql.startsWith("SELECT uuid ") ? rows(row("uuid", key)) : sql.startsWith("SELECT") ? rows() : 1);
+        final ConnectionPool pool = database.createPool(2);
+        try {
+            final DocumentStore store = new DocumentStore("HTML", false, pool, new StoreOptions().setBinaryKeys(true));
+
+            assertThat(store.savePage(UUID, "<html/>"), is(true));
+            final Object param = database.getExecutions().get(0).getParams().get(0);
+            assertThat(param, is(instanceOf(byte[].class)));
+            assertThat((byte[]) param, is(equalTo(key)));
+
+            assertThat(store.listPages(), is(equalTo(Arrays.asList(UUID))));
+        } finally {
+            pool.close();
+            database.close();
+        }
+    }
+
+    @Test
+    public void testStoreSkipsInvalidKeys() throws SQLException {
+        final StubDatabase database = new StubDatabase((sql, params) -> rows());
+        final ConnectionPool pool = database.createPool(2);
+        try {
+            final DocumentStore store = new DocumentStore("HTML", false, pool, new StoreOptions().setBinaryKeys(true));
+
+            // Un texto que no es un UUID no puede estar en la tabla: ni se consulta
+            assertThat(store.getPage("no-es-un-uuid"), is(nullValue()));
+            assertThat(store.pageExists("no-es-un-uuid"), is(false));
+            assertThat(store.deletePage("no-es-un-uuid"), is(false));
+            assertThat(database.getExecutions().isEmpty(), is(true));
+        } finally {
+            pool.close();
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class ChunkedTransferEncodingTest {
+  private static final String FORM_HEADERS =
+    "POST /html HTTP/1.1\r\n" +
+    "Host: localhost\r\n" +
+    "Transfer-Encoding: chunked\r\n" +
+    "Content-Type: application/x-www-form-urlencoded\r\n" +
+    "\r\n";
+
+  // Simula la conexión: cada byte de la cadena UTF-8 es un carácter ISO-8859-1
+  private static String asBytes(String text) {
+    return new String(text.getBytes(StandardCharsets.UTF_8), StandardCharsets.ISO_8859_1);
+  }
+
+  @Test
+  public void testChunkedForm() throws Exception {
+    final String request = FORM_HEADERS +
+      "5\r\nhtml=\r\n" +
+      "b;ext=1\r\n%3Cp%3EHola\r\n" +
+      "7\r\n%3C%2Fp\r\n" +
+      "3\r\n%3E\r\n" +
+      "0\r\n\r\n";
+
+    final HTTPRequest httpRequest = new HTTPRequest(new StringReader(request));
+
+    assertThat(httpRequest.isChunked(), is(true));
+    assertThat(httpRequest.getResourceParameters().get("html"), is(equalTo("<p>Hola</p>")));
+    assertThat(httpRequest.getContentLength(), is(equalTo(26)));
+  }
+
+  @Test
+  public void testChunkedTrailersAreSkipped() throws Exception {
+    final String request = FORM_HEADERS +
+      "6\r\nhtml=a\r\n" +
+      "0\r\n" +
+      "Expires: 0\r\n" +
+      "X-Checksum: 1234\r\n" +
+      "\r\n" +
+      "GET /html HTTP/1.1\r\n" +
+      "Host: localhost\r\n" +
+      "\r\n";
+
+    final BufferedReader reader = new BufferedReader(new StringReader(request));
+    final HTTPRequest first = new HTTPRequest(reader);
+    final HTTPRequest second = new HTTPRequest(reader);
+
+    assertThat(first.getResourceParameters().get("html"), is(equalTo("a")));
+    assertThat(first.getHeaderParameters().containsKey("Expires"), is(false));
+    assertThat(second.getMethod(), is(equalTo(HTTPRequestMethod.GET)));
+    assertThat(second.getResourceName(), is(equalTo("html")));
+  }
+
+  @Test
+  public void testChunkedBytesDecodedAsUTF8() throws Exception {
+    final String body = asBytes("html=ñandú");
+    final String request = FORM_HEADERS.replace("urlencoded", "urlencoded; charset=UTF-8") +
+      Integer.toHexString(7) + "\r\n" + body.substring(0, 7) + "\r\n" +
+      Integer.toHexString(body.length() - 7) + "\r\n" + body.substring(7) + "\r\n" +
+      "0\r\n\r\n";
+
+    final HTTPRequest httpRequest = new HTTPRequest(new StringReader(request), false, 1024);
+
+    assertThat(httpRequest.getResourceParameters().get("html"), is(equalTo("ñandú")));
+    assertThat(httpRequest.getContentLength(), is(equalTo(body.length())));
+  }
+
+  @Test
+  public void testDeferredChunkedContent() throws Exception {
+    final String request = FORM_HEADERS +
+      "4\r\nhtml\r\n" +
+      "2\r\n=a\r\n" +
+      "0\r\n\r\n";
+
+    final HTTPRequest httpRequest = new HTTPRequest(new StringReader(request), true, 1024);
+    assertThat(httpRequest.hasPendingContent(), is(true));
+
+    try (InputStream content = httpRequest.getContentStream()) {
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      content.transferTo(bytes);
+      assertThat(bytes.toString(StandardCharsets.ISO_8859_1.name()), is(equalTo("html=a")));
+    }
+  }
+
+  @Test
+  public void testDeclaredContentTooLarge() {
+    final String request =
+      "POST /html HTTP/1.1\r\n" +
+      "Host: localhost\r\n" +
+      "Content-Type: application/x-www-form-urlencoded\r\n" +
+      "Content-Length: 11\r\n" +
+      "\r\n" +
+      "html=abcdef";
+
+    assertThrows(HTTPContentTooLargeException.class,
+      () -> new HTTPRequest(new StringReader(request), false, 10));
+  }
+
+  @Test
+  public void testChunkedContentTooLarge() {
+    final String request = FORM_HEADERS +
+      "6\r\nhtml=a\r\n" +
+      "6\r\nbcdefg\r\n" +
+      "0\r\n\r\n";
+
+    assertThrows(HTTPContentTooLargeException.class,
+      () -> new HTTPRequest(new StringReader(request), false, 10));
+  }
+
+  @Test
+  public void testDeferredChunkedContentTooLarge() throws Exception {
+    final String request = FORM_HEADERS +
+      "6\r\nhtml=a\r\n" +
+      "6\r\nbcdefg\r\n" +
+      "0\r\n\r\n";
+
+    final HTTPRequest httpRequest = new HTTPRequest(new StringReader(request), true, 10);
+
+    assertThrows(HTTPContentTooLargeException.class, () -> {
+      try (InputStream content = httpRequest.getContentStream()) {
+        content.transferTo(new ByteArrayOutputStream());
+      }
+    });
+  }
+
+  @Test
+  public void testInvalidChunkSize() {
+    final String request = FORM_HEADERS +
+      "zz\r\nhtml=a\r\n" +
+      "0\r\n\r\n";
+
+    assertThrows(HTTPParseException.class, () -> new HTTPRequest(new StringReader(request)));
+  }
+
+  @Test
+  public void testContentWithinLimit() throws IOException, HTTPParseException {
+    final String request = FORM_HEADERS +
+      "a\r\nhtml=abcde\r\n" +
+      "0\r\n\r\n";
+
+    final HTTPRequest httpRequest = new HTTPRequest(new StringReader(request), false, 10);
+
+    assertThat(httpRequest.getResourceParameters().get("html"), is(equalTo("abcde")));
+  }
+
+  @Test
+  public void testStreamingResponseIsChunked() throws IOException {
+    final HTTPResponse response = new HTTPResponse();
+    response.setStatus(HTTPResponseStatus.S200);
+    response.setVersion(HTTPHeaders.HTTP_1_1.getHeader());
+    response.setStreamingContent(out -> {
+      for (int i = 0; i < 1000; i++) {
+        out.write(asBytes("<li>ñandú " + i + "</li>").getBytes(StandardCharsets.ISO_8859_1));
+      }
+    });
+
+    final String printed = print(response);
+    final int bodyStart = printed.indexOf("\r\n\r\n") + 4;
+
+    assertThat(printed, containsString("Transfer-Encoding: chunked\r\n"));
+    assertThat(printed.substring(0, bodyStart), not(containsString("Content-Length")));
+    assertThat(printed.endsWith("0\r\n\r\n"), is(true));
+
+    final StringBuilder expected = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      expected.append(asBytes("<li>ñandú " + i + "</li>"));
+    }
+    assertThat(readChunked(printed.substring(bodyStart)), is(equalTo(expected.toString())));
+  }
+
+  @Test
+  public void testStreamingResponseWithKnownLength() throws IOException {
+    final byte[] body = "<html></html>".getBytes(StandardCharsets.UTF_8);
+    final HTTPResponse response = new HTTPResponse();
+    response.setStatus(HTTPResponseStatus.S200);
+    response.setVersion(HTTPHeaders.HTTP_1_1.getHeader());
+    response.setStreamingContent(out -> out.write(body), body.length);
+
+    final String printed = print(response);
+
+    assertThat(printed, containsString("Content-Length: " + body.length + "\r\n"));
+    assertThat(printed, not(containsString("Transfer-Encoding")));
+    assertThat(printed.endsWith("\r\n\r\n<html></html>"), is(true));
+  }
+
+  @Test
+  public void testBufferedStreamingResponse() throws IOException {
+    final HTTPResponse response = new HTTPResponse();
+    response.setStatus(HTTPResponseStatus.S200);
+    response.setVersion("HTTP/1.0");
+    response.setStreamingContent(out -> out.write("ñandú".getBytes(StandardCharsets.UTF_8)));
+    response.bufferStreamingContent();
+
+    final String printed = print(response);
+
+    assertThat(printed, not(containsString("Transfer-Encoding")));
+    assertThat(printed, containsString("Content-Length: 7\r\n"));
+    assertThat(printed.endsWith("\r\n\r\n" + asBytes("ñandú")), is(true));
+  }
+
+  @Test
+  public void testHeadStreamingResponseHasNoBody() throws IOException {
+    final HTTPResponse response = new HTTPResponse();
+    response.setStatus(HTTPResponseStatus.S200);
+    response.setVersion(HTTPHeaders.HTTP_1_1.getHeader());
+    response.setStreamingContent(out -> {
+      throw new IOException("No debe generarse el contenido");
+    });
+    response.setHeadOnly(true);
+
+    final String printed = print(response);
+
+    assertThat(printed, containsString("Transfer-Encoding: chunked\r\n"));
+    assertThat(printed.endsWith("\r\n\r\n"), is(true));
+  }
+
+  @Test
+  public void testChunkedOutputRoundTrip() throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final ChunkedOutputStream chunked = new ChunkedOutputStream(bytes, 16);
+    final String text = asBytes("Un texto más largo que un fragmento, ñandú incluido");
+    chunked.write(text.getBytes(StandardCharsets.ISO_8859_1));
+    chunked.finish();
+
+    assertThat(readChunked(bytes.toString(StandardCharsets.ISO_8859_1.name())), is(equalTo(text)));
+  }
+
+  private static String print(HTTPResponse response) throws IOException {
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.print(out);
+    return out.toString(StandardCharsets.ISO_8859_1.name());
+  }
+
+  private static String readChunked(String chunkedBody) throws IOException {
+    final StringBuilder content = new StringBuilder();
+    final char[] buffer = new char[64];
+    try (ChunkedReader reader = new ChunkedReader(new BufferedReader(new StringReader(chunkedBody)))) {
+      int read;
+      while ((read = reader.read(buffer)) != -1) {
+        content.append(buffer, 0, read);
+      }
+    }
+    return content.toString();
+  }
+}
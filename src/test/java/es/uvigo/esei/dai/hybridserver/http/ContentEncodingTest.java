@@ -0,0 +1,120 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+public class ContentEncodingTest {
+  private static final byte[] CONTENT =
+    "<html><body>Contenido de prueba, contenido de prueba, contenido de prueba</body></html>"
+      .getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void testNegotiateWithoutHeader() {
+    assertThat(ContentEncoding.negotiate(null), is(equalTo(ContentEncoding.IDENTITY)));
+    assertThat(ContentEncoding.negotiate(""), is(equalTo(ContentEncoding.IDENTITY)));
+  }
+
+  @Test
+  public void testNegotiatePrefersGzipOnTies() {
+    assertThat(ContentEncoding.negotiate("deflate, gzip"), is(equalTo(ContentEncoding.GZIP)));
+    assertThat(ContentEncoding.negotiate("*"), is(equalTo(ContentEncoding.GZIP)));
+    assertThat(ContentEncoding.negotiate("x-gzip"), is(equalTo(ContentEncoding.GZIP)));
+  }
+
+  @Test
+  public void testNegotiateByQuality() {
+    assertThat(ContentEncoding.negotiate("gzip;q=0.5, deflate;q=0.8"), is(equalTo(ContentEncoding.DEFLATE)));
+    assertThat(ContentEncoding.negotiate("gzip; q=1.0, deflate; q=0.1"), is(equalTo(ContentEncoding.GZIP)));
+  }
+
+  @Test
+  public void testNegotiateRefusedEncodings() {
+    assertThat(ContentEncoding.negotiate("gzip;q=0"), is(equalTo(ContentEncoding.IDENTITY)));
+    assertThat(ContentEncoding.negotiate("gzip;q=0, deflate"), is(equalTo(ContentEncoding.DEFLATE)));
+    assertThat(ContentEncoding.negotiate("br"), is(equalTo(ContentEncoding.IDENTITY)));
+    assertThat(ContentEncoding.negotiate("gzip;q=abc"), is(equalTo(ContentEncoding.IDENTITY)));
+  }
+
+  @Test
+  public void testExplicitEntryOverridesWildcard() {
+    assertThat(ContentEncoding.negotiate("*;q=0.1, deflate"), is(equalTo(ContentEncoding.DEFLATE)));
+    assertThat(ContentEncoding.negotiate("*, gzip;q=0"), is(equalTo(ContentEncoding.DEFLATE)));
+  }
+
+  @Test
+  public void testAccepts() {
+    assertThat(ContentEncoding.accepts("gzip", ContentEncoding.DEFLATE), is(false));
+    assertThat(ContentEncoding.accepts("gzip, deflate;q=0.1", ContentEncoding.DEFLATE), is(true));
+    assertThat(ContentEncoding.accepts(null, ContentEncoding.IDENTITY), is(true));
+  }
+
+  @Test
+  public void testEncodeBytes() throws IOException {
+    assertThat(gunzip(ContentEncoding.GZIP.encode(CONTENT)), is(equalTo(CONTENT)));
+    assertThat(inflate(ContentEncoding.DEFLATE.encode(CONTENT)), is(equalTo(CONTENT)));
+    assertThat(ContentEncoding.IDENTITY.encode(CONTENT), is(equalTo(CONTENT)));
+  }
+
+  @Test
+  public void testEncodeStreamingContentLeavesOutputOpen() throws IOException {
+    final StreamingContent content = out -> out.write(CONTENT);
+
+    for (ContentEncoding encoding : new ContentEncoding[] { ContentEncoding.GZIP, ContentEncoding.DEFLATE }) {
+      final boolean[] closed = { false };
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream() {
+        @Override
+        public void close() {
+          closed[0] = true;
+        }
+      };
+
+      encoding.encode(content).writeTo(bytes);
+
+      assertThat(closed[0], is(false));
+      assertThat(encoding == ContentEncoding.GZIP ? gunzip(bytes.toByteArray()) : inflate(bytes.toByteArray()),
+        is(equalTo(CONTENT)));
+    }
+  }
+
+  private static byte[] gunzip(byte[] data) throws IOException {
+    return readAll(new GZIPInputStream(new ByteArrayInputStream(data)));
+  }
+
+  private static byte[] inflate(byte[] data) throws IOException {
+    return readAll(new InflaterInputStream(new ByteArrayInputStream(data)));
+  }
+
+  private static byte[] readAll(InputStream input) throws IOException {
+    try (InputStream in = input) {
+      return in.readAllBytes();
+    }
+  }
+}
@@ -0,0 +1,66 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.http;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+public class HTTPResponseStatusTest {
+  @Test
+  public void testCodeFromName() {
+    for (HTTPResponseStatus status : HTTPResponseStatus.values()) {
+      assertThat(status.getCode(), is(equalTo(Integer.parseInt(status.name().substring(1)))));
+      assertThat(HTTPResponseStatus.forCode(status.getCode()), is(equalTo(status)));
+    }
+  }
+
+  @Test
+  public void testPrecomputedStatusLine() {
+    for (HTTPResponseStatus status : HTTPResponseStatus.values()) {
+      final String expected = "HTTP/1.1 " + status.getCode() + " " + status.getStatus() + "\r\n";
+
+      assertThat(new String(status.getStatusLine("HTTP/1.1"), StandardCharsets.ISO_8859_1), is(equalTo(expected)));
+    }
+    assertThat(new String(HTTPResponseStatus.S404.getStatusLine("HTTP/1.0"), StandardCharsets.ISO_8859_1),
+      is(equalTo("HTTP/1.0 404 Not Found\r\n")));
+  }
+
+  @Test
+  public void testPrintBytesMatchesPrintWriter() throws IOException {
+    final HTTPResponse response = new HTTPResponse();
+    response.setStatus(HTTPResponseStatus.S200);
+    response.setVersion(HTTPHeaders.HTTP_1_1.getHeader());
+    response.putParameter("Content-Type", "text/html");
+    response.setContent("<html><body>Código ñandú</body></html>");
+
+    final StringWriter writer = new StringWriter();
+    response.print(writer);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.print(out);
+
+    assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), is(equalTo(writer.toString())));
+  }
+}
@@ -0,0 +1,159 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.ServerMetrics;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+@Timeout(5L)
+public class AdmissionControlTest {
+  private static final String GET_WELCOME = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+  private HybridServer server;
+
+  @BeforeEach
+  public void startServer() {
+    final Properties properties = new Properties();
+    properties.setProperty("maxClientsPerIP", "1");
+    startServer(properties);
+  }
+
+  private void startServer(Properties properties) {
+    properties.setProperty("port", "8888");
+    properties.setProperty("keepAlive", "true");
+    properties.setProperty("retryAfter", "7");
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.server.close();
+  }
+
+  @Test
+  public void testSecondConnectionFromSameClientIsRejected() throws IOException {
+    try (RawHttpConnection first = new RawHttpConnection(server.getPort())) {
+      first.send(GET_WELCOME);
+      assertThat(first.readResponse().getStatus(), is(equalTo(200)));
+
+      try (RawHttpConnection second = new RawHttpConnection(server.getPort())) {
+        second.send(GET_WELCOME);
+
+        final Response rejection = second.readResponse();
+        assertThat(rejection.getStatus(), is(equalTo(503)));
+        assertThat(rejection.getHeader("Retry-After"), is(equalTo("7")));
+        assertThat(rejection.getHeader("Connection"), is(equalTo("close")));
+        assertThat("The rejected connection should be closed", second.isClosedByServer(), is(true));
+      }
+
+      // La conexión admitida sigue atendiéndose
+      first.send(GET_WELCOME);
+      assertThat(first.readResponse().getContent(), containsString("Hybrid Server"));
+    }
+
+    // La rechazada no se cuenta como aceptada
+    final ServerMetrics metrics = server.getMetrics();
+    assertThat(metrics.getAccepted(), is(equalTo(1L)));
+    assertThat(metrics.getRejectedPerClient(), is(equalTo(1L)));
+    assertThat(metrics.getRejected(), is(equalTo(0L)));
+  }
+
+  @Test
+  public void testConnectionBeyondQueueIsRejected() throws IOException {
+    this.server.close();
+    final Properties properties = new Properties();
+    properties.setProperty("numClients", "1");
+    properties.setProperty("queueSize", "1");
+    properties.setProperty("maxClientsPerIP", "0");
+    startServer(properties);
+
+    // La primera ocupa el único hilo y la segunda el único hueco de la cola
+    final RawHttpConnection working = new RawHttpConnection(server.getPort());
+    working.send(GET_WELCOME);
+    assertThat(working.readResponse().getStatus(), is(equalTo(200)));
+
+    try (RawHttpConnection queued = new RawHttpConnection(server.getPort())) {
+      queued.send(GET_WELCOME);
+
+      try (RawHttpConnection rejected = new RawHttpConnection(server.getPort())) {
+        rejected.send(GET_WELCOME);
+
+        final Response rejection = rejected.readResponse();
+        assertThat(rejection.getStatus(), is(equalTo(503)));
+        assertThat(rejection.getHeader("Retry-After"), is(equalTo("7")));
+      }
+
+      final ServerMetrics metrics = server.getMetrics();
+      assertThat(metrics.getAccepted(), is(equalTo(1L)));
+      assertThat(metrics.getRejected(), is(equalTo(1L)));
+      assertThat(metrics.getRejectedPerClient(), is(equalTo(0L)));
+
+      // Al quedar libre el hilo se atiende la que esperaba en la cola
+      working.close();
+      assertThat(queued.readResponse().getStatus(), is(equalTo(200)));
+      assertThat(metrics.getAccepted(), is(equalTo(2L)));
+    }
+  }
+
+  @Test
+  public void testClientIsAdmittedAgainAfterClosing() throws IOException {
+    try (RawHttpConnection first = new RawHttpConnection(server.getPort())) {
+      first.send(GET_WELCOME);
+      assertThat(first.readResponse().getStatus(), is(equalTo(200)));
+    }
+
+    // La plaza se libera cuando el servidor cierra su lado de la conexión
+    Response response = null;
+    for (int attempt = 0; attempt < 20; attempt++) {
+      try (RawHttpConnection next = new RawHttpConnection(server.getPort())) {
+        next.send(GET_WELCOME);
+        response = next.readResponse();
+      }
+      if (response.getStatus() == 200) {
+        break;
+      }
+      sleep(100);
+    }
+    assertThat(response.getStatus(), is(equalTo(200)));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,153 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.jupiter.api.Test;
+
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+/**
+ * Las mismas peticiones que {@link DocumentRequestsWithDatabaseTest}, con la
+ * compresión activada para documentos de cualquier tamaño.
+ */
+public class CompressedDocumentRequestsWithDatabaseTest extends DocumentRequestsWithDatabaseTest {
+  private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+  private static final String CONTENT =
+    "<html><body>This is the html page 6df1047e-cf19-4a83-8cf3-38f5e53f7725.</body></html>";
+  private static final String RESOURCE = "/html?uuid=" + UUID;
+
+  @Override
+  protected void configure(Properties properties) {
+    properties.setProperty("compression.enabled", "true");
+    properties.setProperty("compression.threshold", "0");
+  }
+
+  @Test
+  public void testGzipWhenAccepted() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(RESOURCE));
+      final Response identity = connection.readResponse();
+
+      connection.send(get(RESOURCE, "Accept-Encoding: gzip, deflate"));
+      final Response gzip = connection.readResponse();
+
+      assertThat(gzip.getStatus(), is(equalTo(200)));
+      assertThat(gzip.getHeader("Content-Encoding"), is(equalTo("gzip")));
+      assertThat(gzip.getHeader("Vary"), is(equalTo("Accept-Encoding")));
+      assertThat(decode(new GZIPInputStream(new ByteArrayInputStream(gzip.getBody()))), is(equalTo(CONTENT)));
+      assertThat(gzip.getHeader("ETag"), is(not(equalTo(identity.getHeader("ETag")))));
+
+      assertThat(identity.getHeader("Content-Encoding"), is(nullValue()));
+      assertThat(identity.getHeader("Vary"), is(equalTo("Accept-Encoding")));
+    }
+  }
+
+  @Test
+  public void testEncodingWithHighestQuality() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(RESOURCE, "Accept-Encoding: gzip;q=0.5, deflate"));
+      final Response deflate = connection.readResponse();
+
+      assertThat(deflate.getHeader("Content-Encoding"), is(equalTo("deflate")));
+      assertThat(decode(new InflaterInputStream(new ByteArrayInputStream(deflate.getBody()))), is(equalTo(CONTENT)));
+    }
+  }
+
+  @Test
+  public void testRefusedEncodingIsNotUsed() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(RESOURCE, "Accept-Encoding: gzip;q=0"));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getHeader("Content-Encoding"), is(nullValue()));
+      assertThat(response.getContent(), is(equalTo(CONTENT)));
+    }
+  }
+
+  @Test
+  public void testNotModifiedOnlyForSameEncoding() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(RESOURCE, "Accept-Encoding: gzip"));
+      final String etag = connection.readResponse().getHeader("ETag");
+
+      connection.send(get(RESOURCE, "Accept-Encoding: gzip", "If-None-Match: " + etag));
+      final Response notModified = connection.readResponse();
+      assertThat(notModified.getStatus(), is(equalTo(304)));
+      assertThat(notModified.getHeader("ETag"), is(equalTo(etag)));
+      assertThat(notModified.getHeader("Vary"), is(equalTo("Accept-Encoding")));
+
+      // Sin gzip la representación es otra: se envía completa
+      connection.send(get(RESOURCE, "If-None-Match: " + etag));
+      final Response identity = connection.readResponse();
+      assertThat(identity.getStatus(), is(equalTo(200)));
+      assertThat(identity.getContent(), is(equalTo(CONTENT)));
+    }
+  }
+
+  @Test
+  public void testHeadDescribesNegotiatedRepresentation() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(head(RESOURCE, "Accept-Encoding: gzip"));
+      final Response head = connection.readResponse(true);
+
+      connection.send(get(RESOURCE, "Accept-Encoding: gzip"));
+      final Response gzip = connection.readResponse();
+
+      assertThat(head.getStatus(), is(equalTo(200)));
+      assertThat(head.getHeader("Content-Encoding"), is(equalTo("gzip")));
+      assertThat(head.getHeader("Vary"), is(equalTo("Accept-Encoding")));
+      assertThat(head.getHeader("ETag"), is(equalTo(gzip.getHeader("ETag"))));
+      assertThat(head.getHeader("Content-Length"), is(equalTo(gzip.getHeader("Content-Length"))));
+
+      // El ETag con el que se compara es el de la representación negociada
+      connection.send(head(RESOURCE, "Accept-Encoding: gzip", "If-None-Match: " + gzip.getHeader("ETag")));
+      assertThat(connection.readResponse(true).getStatus(), is(equalTo(304)));
+
+      connection.send(head(RESOURCE, "If-None-Match: " + gzip.getHeader("ETag")));
+      final Response identity = connection.readResponse(true);
+      assertThat(identity.getStatus(), is(equalTo(200)));
+      assertThat(identity.getHeader("Content-Encoding"), is(nullValue()));
+      assertThat(identity.getHeader("Content-Length"), is(equalTo(String.valueOf(CONTENT.length()))));
+    }
+  }
+
+  private static String head(String resource, String... headers) {
+    return get(resource, headers).replaceFirst("GET", "HEAD");
+  }
+
+  private static String decode(InputStream input) throws IOException {
+    try (InputStream decoded = input) {
+      return new String(decoded.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
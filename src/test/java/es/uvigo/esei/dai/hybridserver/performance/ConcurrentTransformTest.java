@@ -0,0 +1,199 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.dao.StubDatabase;
+import es.uvigo.esei.dai.hybridserver.dao.StubDocuments;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+/**
+ * Consultas de una transformación hechas a la vez: el XML, el XSLT y el XSD
+ * se piden a la base de datos en paralelo y, con el XSLT ya compilado, basta
+ * con la consulta del XML.
+ */
+@Timeout(5L)
+public class ConcurrentTransformTest {
+  private static final String XML_UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+  private static final String XSD_UUID = "ddcab7d0-636c-4ed8-8a2a-0ce7c1b6d7ab";
+  private static final String XSLT_UUID = "5da4a5ae-0d8e-4b1f-8a83-0f0e68cd4a54";
+  private static final long QUERY_DELAY = 50L;
+
+  private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<items><item>1</item><item>2</item><item>3</item></items>";
+  private static final String XSD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+    + "<xs:element name=\"items\"><xs:complexType><xs:sequence>"
+    + "<xs:element name=\"item\" type=\"xs:int\" maxOccurs=\"unbounded\"/>"
+    + "</xs:sequence></xs:complexType></xs:element></xs:schema>";
+  private static final String XSLT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+    + "<xsl:output method=\"html\"/>"
+    + "<xsl:template match=\"/\"><html><body><p id=\"sum\"><xsl:value-of select=\"sum(items/item)\"/></p>"
+    + "</body></html></xsl:template>"
+    + "</xsl:stylesheet>";
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private final AtomicInteger maxInFlight = new AtomicInteger();
+
+  private StubDatabase database;
+  private HybridServer server;
+
+  @BeforeEach
+  public void startServer() {
+    final StubDocuments documents = new StubDocuments();
+    documents.put("XML", XML_UUID, XML);
+    documents.put("XSD", XSD_UUID, XSD);
+    documents.put("XSL", XSLT_UUID, XSLT, XSD_UUID);
+
+    // Cada consulta tarda lo mismo y se cuentan las que coinciden en el tiempo
+    this.database = new StubDatabase((sql, params) -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(QUERY_DELAY);
+        return documents.execute(sql, params);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException(e);
+      } finally {
+        inFlight.decrementAndGet();
+      }
+    });
+
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("keepAlive", "true");
+    properties.setProperty("db.url", database.getUrl());
+    properties.setProperty("db.user", "hsdb");
+    properties.setProperty("db.password", "hsdbpass");
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.server.close();
+    this.database.close();
+  }
+
+  @Test
+  public void testLookupsRunConcurrently() throws IOException {
+    awaitReady();
+    database.clear();
+    maxInFlight.set(0);
+
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get());
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getContent(), containsString("<p id=\"sum\">6</p>"));
+    }
+
+    // XML, XSLT y xsd del XSLT a la vez y, después, el XSD (el tiempo total
+    // no se compara: la primera compilación del XSLT lo domina)
+    assertThat(database.getStatements().size(), is(equalTo(4)));
+    assertTrue(maxInFlight.get() >= 3, "Máximo de consultas simultáneas: " + maxInFlight.get());
+  }
+
+  @Test
+  public void testCachedTransformNeedsOneQuery() throws IOException {
+    awaitReady();
+
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get());
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+
+      database.clear();
+      connection.send(get());
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+    }
+
+    assertThat(database.getStatements().size(), is(equalTo(1)));
+    assertThat(database.getStatements().get(0), containsString(" FROM XML "));
+  }
+
+  @Test
+  public void testConcurrentTransforms() throws Exception {
+    awaitReady();
+
+    final ExecutorService clients = Executors.newFixedThreadPool(8);
+    try {
+      final List<Future<Response>> responses = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        responses.add(clients.submit(() -> {
+          try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+            connection.send(get());
+            return connection.readResponse();
+          }
+        }));
+      }
+
+      for (Future<Response> response : responses) {
+        assertThat(response.get().getStatus(), is(equalTo(200)));
+        assertThat(response.get().getContent(), containsString("<p id=\"sum\">6</p>"));
+      }
+    } finally {
+      clients.shutdownNow();
+    }
+  }
+
+  // Espera a que termine el arranque, que también consulta la base de datos
+  private void awaitReady() throws IOException {
+    for (int i = 0; i < 40; i++) {
+      try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+        connection.send("GET /admin/ready HTTP/1.1\r\nHost: localhost\r\n\r\n");
+        if (connection.readResponse().getStatus() == 200) {
+          return;
+        }
+      }
+      try {
+        Thread.sleep(QUERY_DELAY);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  private static String get() {
+    return "GET /xml?uuid=" + XML_UUID + "&xslt=" + XSLT_UUID + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+  }
+}
@@ -0,0 +1,181 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.dao.StubDatabase;
+import es.uvigo.esei.dai.hybridserver.dao.StubDocuments;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+/**
+ * Ejecutor de CPU saturado: con su único hilo ocupado y la cola llena, una
+ * transformación más se rechaza con 503 y Retry-After en lugar de esperar,
+ * mientras las ya admitidas terminan con normalidad.
+ */
+@Timeout(5L)
+public class CpuBulkheadTest {
+  private static final String XML_UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+  private static final String LARGE_XML_UUID = "79e01232-5ea4-41c8-9331-1c1880a1d3c2";
+  private static final String XSD_UUID = "ddcab7d0-636c-4ed8-8a2a-0ce7c1b6d7ab";
+  private static final String XSLT_UUID = "5da4a5ae-0d8e-4b1f-8a83-0f0e68cd4a54";
+  private static final int LARGE_ITEMS = 500;
+  private static final String RETRY_AFTER = "7";
+
+  private static final String XSD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+    + "<xs:element name=\"items\"><xs:complexType><xs:sequence>"
+    + "<xs:element name=\"item\" type=\"xs:int\" maxOccurs=\"unbounded\"/>"
+    + "</xs:sequence></xs:complexType></xs:element></xs:schema>";
+  private static final String XSLT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+    + "<xsl:output method=\"html\"/>"
+    + "<xsl:template match=\"/\"><html><body><p id=\"count\"><xsl:value-of select=\"count(items/item)\"/></p>"
+    + "</body></html></xsl:template>"
+    + "</xsl:stylesheet>";
+
+  // La lectura por tramos del XML grande, que se hace al validarlo en el
+  // ejecutor de CPU, espera hasta que se libera
+  private final CountDownLatch reading = new CountDownLatch(1);
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private StubDatabase database;
+  private HybridServer server;
+
+  @BeforeEach
+  public void startServer() {
+    final StubDocuments documents = new StubDocuments();
+    documents.put("XML", XML_UUID, items(3));
+    documents.put("XML", LARGE_XML_UUID, items(LARGE_ITEMS));
+    documents.put("XSD", XSD_UUID, XSD);
+    documents.put("XSL", XSLT_UUID, XSLT, XSD_UUID);
+    this.database = new StubDatabase((sql, params) -> {
+      if (sql.startsWith("SELECT SUBSTRING(")) {
+        reading.countDown();
+        try {
+          release.await(4L, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SQLException(e);
+        }
+      }
+      return documents.execute(sql, params);
+    });
+
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("numClients", "10");
+    properties.setProperty("cpu.threads", "1");
+    properties.setProperty("cpu.queueSize", "1");
+    properties.setProperty("retryAfter", RETRY_AFTER);
+    properties.setProperty("streaming.threshold", "1024");
+    properties.setProperty("db.url", database.getUrl());
+    properties.setProperty("db.user", "hsdb");
+    properties.setProperty("db.password", "hsdbpass");
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.release.countDown();
+    this.server.close();
+    this.database.close();
+  }
+
+  @Test
+  public void testSaturatedExecutorAnswersBusy() throws Exception {
+    // El XSLT y el XSD quedan compilados: las siguientes peticiones solo
+    // usan el ejecutor de CPU para validar y transformar
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(XML_UUID));
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+    }
+
+    try (RawHttpConnection running = new RawHttpConnection(server.getPort());
+      RawHttpConnection queued = new RawHttpConnection(server.getPort());
+      RawHttpConnection rejected = new RawHttpConnection(server.getPort())) {
+      running.send(get(LARGE_XML_UUID));
+      assertThat(reading.await(2L, TimeUnit.SECONDS), is(true));
+      queued.send(get(LARGE_XML_UUID));
+      awaitCpuMetrics("activos=1, en cola=1");
+
+      rejected.send(get(LARGE_XML_UUID));
+      final Response busy = rejected.readResponse();
+      assertThat(busy.getStatus(), is(equalTo(503)));
+      assertThat(busy.getHeader("Retry-After"), is(equalTo(RETRY_AFTER)));
+      assertThat(cpuMetrics(), containsString("rechazados=1"));
+
+      release.countDown();
+      for (RawHttpConnection admitted : new RawHttpConnection[] { running, queued }) {
+        final Response response = admitted.readResponse();
+        assertThat(response.getStatus(), is(equalTo(200)));
+        assertThat(response.getContent(), containsString("<p id=\"count\">" + LARGE_ITEMS + "</p>"));
+      }
+    }
+  }
+
+  private void awaitCpuMetrics(String expected) throws IOException, InterruptedException {
+    for (int i = 0; i < 100 && !cpuMetrics().contains(expected); i++) {
+      Thread.sleep(10L);
+    }
+    assertThat(cpuMetrics(), containsString(expected));
+  }
+
+  // Línea del ejecutor de CPU en /admin/metrics
+  private String cpuMetrics() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send("GET /admin/metrics HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      for (String line : connection.readResponse().getContent().split("\n")) {
+        if (line.startsWith("cpu: ")) {
+          return line;
+        }
+      }
+      return "";
+    }
+  }
+
+  private static String items(int count) {
+    final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><items>");
+    for (int i = 1; i <= count; i++) {
+      xml.append("<item>").append(i).append("</item>");
+    }
+    return xml.append("</items>").toString();
+  }
+
+  private static String get(String xmlUuid) {
+    return "GET /xml?uuid=" + xmlUuid + "&xslt=" + XSLT_UUID + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+  }
+}
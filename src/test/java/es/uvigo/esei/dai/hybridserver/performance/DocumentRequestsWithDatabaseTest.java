@@ -0,0 +1,161 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.utils.JdbcTestCase;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+/**
+ * Peticiones sobre documentos guardados que se apoyan en la conexión
+ * persistente y en los ETag: peticiones condicionales, HEAD, compresión
+ * negociada y listados enviados por fragmentos.
+ */
+@Timeout(5L)
+public class DocumentRequestsWithDatabaseTest extends JdbcTestCase {
+  private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+  private static final String CONTENT =
+    "<html><body>This is the html page 6df1047e-cf19-4a83-8cf3-38f5e53f7725.</body></html>";
+  private static final String ACCENTED_UUID = "79e01232-5ea4-41c8-9331-1c1880a1d3c2";
+
+  protected HybridServer server;
+
+  @BeforeEach
+  public void startServer() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("port", Integer.toString(8888));
+    properties.setProperty("numClients", "50");
+    properties.setProperty("keepAlive", "true");
+    properties.setProperty("db.url", getConnectionUrl());
+    properties.setProperty("db.user", getUsername());
+    properties.setProperty("db.password", getPassword());
+    configure(properties);
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  // Opciones adicionales del servidor para cada prueba
+  protected void configure(Properties properties) {
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.server.close();
+  }
+
+  protected static String get(String resource, String... headers) {
+    final StringBuilder request = new StringBuilder("GET ").append(resource).append(" HTTP/1.1\r\n")
+      .append("Host: localhost\r\n");
+    for (String header : headers) {
+      request.append(header).append("\r\n");
+    }
+    return request.append("\r\n").toString();
+  }
+
+  @Test
+  public void testGetSendsETag() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get("/html?uuid=" + UUID));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getContent(), is(equalTo(CONTENT)));
+      assertThat(response.getHeader("ETag"), is(notNullValue()));
+    }
+  }
+
+  @Test
+  public void testIfNoneMatchReturnsNotModified() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get("/html?uuid=" + UUID));
+      final String etag = connection.readResponse().getHeader("ETag");
+
+      connection.send(get("/html?uuid=" + UUID, "If-None-Match: " + etag));
+      final Response notModified = connection.readResponse();
+      assertThat(notModified.getStatus(), is(equalTo(304)));
+      assertThat(notModified.getHeader("ETag"), is(equalTo(etag)));
+      assertThat(notModified.getBody().length, is(equalTo(0)));
+
+      // Sin cuerpo: la siguiente respuesta de la conexión se lee entera
+      connection.send(get("/html?uuid=" + UUID));
+      assertThat(connection.readResponse().getContent(), is(equalTo(CONTENT)));
+    }
+  }
+
+  @Test
+  public void testIfNoneMatchWithOtherETagReturnsDocument() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get("/html?uuid=" + UUID, "If-None-Match: \"0123456789abcdef\""));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getContent(), is(equalTo(CONTENT)));
+    }
+  }
+
+  @Test
+  public void testHeadDescribesDocumentWithoutBody() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get("/html?uuid=" + ACCENTED_UUID));
+      final Response full = connection.readResponse();
+
+      connection.send("HEAD /html?uuid=" + ACCENTED_UUID + " HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      final Response head = connection.readResponse(true);
+
+      assertThat(head.getStatus(), is(equalTo(200)));
+      assertThat(head.getHeader("Content-Length"), is(equalTo(String.valueOf(full.getBody().length))));
+      assertThat(head.getHeader("ETag"), is(equalTo(full.getHeader("ETag"))));
+      assertThat(head.getHeader("Content-Type"), is(equalTo(full.getHeader("Content-Type"))));
+
+      // El tamaño es en bytes, no en caracteres
+      assertThat(full.getBody().length, is(equalTo(full.getContent().getBytes(StandardCharsets.UTF_8).length)));
+
+      // HEAD no envía cuerpo: lo siguiente en la conexión es la próxima respuesta
+      connection.send(get("/html?uuid=" + UUID));
+      assertThat(connection.readResponse().getContent(), is(equalTo(CONTENT)));
+    }
+  }
+
+  @Test
+  public void testHeadOfMissingDocument() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send("HEAD /html?uuid=12345678-abcd-1234-ab12-9876543210ab HTTP/1.1\r\nHost: localhost\r\n\r\n");
+      final Response head = connection.readResponse(true);
+
+      assertThat(head.getStatus(), is(equalTo(404)));
+      assertThat(head.getHeader("ETag"), is(nullValue()));
+    }
+  }
+}
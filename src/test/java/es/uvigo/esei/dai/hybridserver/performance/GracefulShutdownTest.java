@@ -0,0 +1,131 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+/**
+ * Cierre ordenado del servidor: las peticiones en curso terminan antes de que
+ * {@link HybridServer#close()} vuelva, las conexiones inactivas se cierran sin
+ * esperar y las que no terminan en el plazo configurado se cortan.
+ */
+@Timeout(5L)
+public class GracefulShutdownTest {
+  private static final String GET_WELCOME = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+  private static final long DRAIN_TIMEOUT = 1000L;
+
+  private HybridServer server;
+
+  @BeforeEach
+  public void startServer() {
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("keepAlive", "true");
+    properties.setProperty("keepAliveTimeout", "4000");
+    properties.setProperty("drainTimeout", String.valueOf(DRAIN_TIMEOUT));
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    if (this.server.isLive()) {
+      this.server.close();
+    }
+  }
+
+  @Test
+  public void testInFlightRequestCompletesBeforeClose() throws Exception {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      // Petición a medias: la conexión está atendiéndose
+      connection.send("GET / HTTP/1.1\r\nHost: loc");
+      awaitConnections(1);
+
+      final Thread closing = startClosing();
+
+      connection.send("alhost\r\n\r\n");
+      final Response response = connection.readResponse();
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getContent(), containsString("Hybrid Server"));
+      // El servidor se está cerrando: no se esperan más peticiones
+      assertThat(response.getHeader("Connection"), is(equalTo("close")));
+      assertThat(connection.isClosedByServer(), is(true));
+
+      closing.join();
+    }
+  }
+
+  @Test
+  public void testIdleConnectionIsClosedWithoutWaiting() throws Exception {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(GET_WELCOME);
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+
+      // Entre peticiones no hay nada en curso: no hace falta agotar el plazo
+      final long start = System.currentTimeMillis();
+      server.close();
+      assertThat(System.currentTimeMillis() - start < DRAIN_TIMEOUT, is(true));
+      assertThat(connection.isClosedByServer(), is(true));
+    }
+  }
+
+  @Test
+  public void testUnfinishedRequestIsAbortedAfterTimeout() throws Exception {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send("GET / HTTP/1.1\r\nHost: loc");
+      awaitConnections(1);
+
+      final long start = System.currentTimeMillis();
+      server.close();
+      assertThat(System.currentTimeMillis() - start >= DRAIN_TIMEOUT, is(true));
+      assertThat(connection.isClosedByServer(), is(true));
+    }
+  }
+
+  private Thread startClosing() throws InterruptedException {
+    final Thread closing = new Thread(server::close);
+    closing.start();
+    while (server.isLive()) {
+      Thread.sleep(10);
+    }
+    return closing;
+  }
+
+  // Espera a que el servidor empiece a atender las conexiones abiertas
+  private void awaitConnections(long count) throws InterruptedException {
+    while (server.getMetrics().getAccepted() < count) {
+      Thread.sleep(10);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+@Timeout(5L)
+public class KeepAliveAndPipeliningTest {
+  private static final String GET_WELCOME = "GET / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+  private static final String HEAD_WELCOME = "HEAD / HTTP/1.1\r\nHost: localhost\r\n\r\n";
+  private static final String GET_UNKNOWN = "GET /unknown HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+  private HybridServer server;
+
+  @BeforeEach
+  public void startServer() {
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("keepAlive", "true");
+    properties.setProperty("keepAliveTimeout", "3000");
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.server.close();
+  }
+
+  @Test
+  public void testSeveralRequestsOnOneConnection() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      for (int i = 0; i < 5; i++) {
+        connection.send(GET_WELCOME);
+
+        final Response response = connection.readResponse();
+        assertThat(response.getStatus(), is(equalTo(200)));
+        assertThat(response.getHeader("Connection"), is(equalTo(null)));
+        assertThat(response.getHeader("Keep-Alive"), is(equalTo("timeout=3")));
+        assertThat(response.getContent(), containsString("Hybrid Server"));
+      }
+    }
+  }
+
+  @Test
+  public void testPipelinedResponsesKeepRequestOrder() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(GET_WELCOME + GET_UNKNOWN + HEAD_WELCOME + GET_WELCOME);
+
+      final Response first = connection.readResponse();
+      final Response unknown = connection.readResponse();
+      final Response head = connection.readResponse(true);
+      final Response last = connection.readResponse();
+
+      assertThat(first.getStatus(), is(equalTo(200)));
+      assertThat(first.getContent(), containsString("Hybrid Server"));
+      assertThat(unknown.getStatus(), is(equalTo(400)));
+      assertThat(head.getStatus(), is(equalTo(200)));
+      assertThat(last.getStatus(), is(equalTo(200)));
+      assertThat(last.getContent(), is(equalTo(first.getContent())));
+    }
+  }
+
+  @Test
+  public void testHeadHasNoBodyAndSameLength() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(GET_WELCOME);
+      final Response get = connection.readResponse();
+
+      connection.send(HEAD_WELCOME);
+      final Response head = connection.readResponse(true);
+
+      assertThat(head.getStatus(), is(equalTo(200)));
+      assertThat(head.getHeader("Content-Length"), is(notNullValue()));
+      assertThat(head.getHeader("Content-Length"), is(equalTo(get.getHeader("Content-Length"))));
+      assertThat(head.getHeader("Content-Type"), is(equalTo(get.getHeader("Content-Type"))));
+      assertThat(head.getBody().length, is(equalTo(0)));
+
+      // Si el HEAD hubiese enviado cuerpo, esta respuesta se leería mal
+      connection.send(GET_WELCOME);
+      assertThat(connection.readResponse().getContent(), is(equalTo(get.getContent())));
+    }
+  }
+
+  @Test
+  public void testConnectionCloseClosesConnection() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send("GET / HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+      final Response response = connection.readResponse();
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getHeader("Connection"), is(equalTo("close")));
+      assertThat("The connection should be closed", connection.isClosedByServer(), is(true));
+    }
+  }
+
+  @Test
+  public void testHttp10ClosesConnectionByDefault() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send("GET / HTTP/1.0\r\n\r\n");
+
+      final Response response = connection.readResponse();
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getHeader("Connection"), is(equalTo("close")));
+      assertThat("The connection should be closed", connection.isClosedByServer(), is(true));
+    }
+  }
+
+  @Test
+  public void testMalformedRequestIsRejected() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(GET_WELCOME + "GET /\r\n\r\n");
+
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+
+      final Response rejection = connection.readResponse();
+      assertThat(rejection.getStatus(), is(equalTo(400)));
+      assertThat(rejection.getHeader("Connection"), is(equalTo("close")));
+      assertThat("The connection should be closed", connection.isClosedByServer(), is(true));
+    }
+  }
+}
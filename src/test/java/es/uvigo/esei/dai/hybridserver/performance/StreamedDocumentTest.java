@@ -0,0 +1,170 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.DocumentType;
+import es.uvigo.esei.dai.hybridserver.ETagCache;
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.dao.StubDatabase;
+import es.uvigo.esei.dai.hybridserver.dao.StubDocuments;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+/**
+ * Documentos mayores que el umbral de carga: se leen de la base de datos por
+ * tramos y se copian a la conexión sin cargarlos enteros en memoria, con la
+ * longitud que informa la base de datos y el ETag calculado durante la copia.
+ */
+@Timeout(5L)
+public class StreamedDocumentTest {
+  private static final String LARGE_UUID = "0b7d5d0a-7c0e-4b5e-9d6f-3f1a2b4c5d6e";
+  private static final String SMALL_UUID = "1c8e6e1b-8d1f-4c6f-ae70-4a2b3c5d6e7f";
+  private static final String SUBSTRING = "SELECT SUBSTRING(content, ?, ?) AS content FROM HTML ";
+
+  // Unos 560.000 caracteres: varios tramos de lectura
+  private static final String LARGE = page(40000);
+  private static final String SMALL = page(10);
+
+  private StubDatabase database;
+  private HybridServer server;
+
+  @BeforeEach
+  public void startServer() {
+    final StubDocuments documents = new StubDocuments();
+    documents.put("HTML", LARGE_UUID, LARGE);
+    documents.put("HTML", SMALL_UUID, SMALL);
+    this.database = new StubDatabase(documents);
+
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("keepAlive", "true");
+    properties.setProperty("streaming.threshold", "1024");
+    properties.setProperty("db.url", database.getUrl());
+    properties.setProperty("db.user", "hsdb");
+    properties.setProperty("db.password", "hsdbpass");
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.server.close();
+    this.database.close();
+  }
+
+  @Test
+  public void testLargeDocumentIsStreamedInChunks() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(LARGE_UUID));
+      final Response response = connection.readResponse();
+
+      final byte[] expected = LARGE.getBytes(StandardCharsets.UTF_8);
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getHeader("Content-Length"), is(equalTo(String.valueOf(expected.length))));
+      assertThat(response.getHeader("Transfer-Encoding"), is(nullValue()));
+      assertThat(response.getContent(), is(equalTo(LARGE)));
+    }
+
+    assertThat(database.getStatements().stream().filter(sql -> sql.startsWith(SUBSTRING)).count() > 1L, is(true));
+  }
+
+  @Test
+  public void testSmallDocumentIsLoadedInOneQuery() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(SMALL_UUID));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getContent(), is(equalTo(SMALL)));
+    }
+
+    assertThat(database.getStatements().stream().anyMatch(sql -> sql.startsWith(SUBSTRING)), is(false));
+  }
+
+  @Test
+  public void testETagIsComputedWhileStreaming() throws IOException {
+    final String etag = ETagCache.computeETag(LARGE);
+
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(LARGE_UUID));
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+      assertThat(server.getETagCache().get(DocumentType.HTML, LARGE_UUID), is(equalTo(etag)));
+
+      connection.send(get(LARGE_UUID, "If-None-Match: " + etag));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(304)));
+      assertThat(response.getHeader("ETag"), is(equalTo(etag)));
+    }
+  }
+
+  @Test
+  public void testLargeDocumentIsCompressedOnTheFly() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(LARGE_UUID, "Accept-Encoding: gzip"));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getHeader("Content-Encoding"), is(equalTo("gzip")));
+      assertThat(response.getHeader("Transfer-Encoding"), is(equalTo("chunked")));
+      assertThat(response.getHeader("Content-Length"), is(nullValue()));
+      assertThat(gunzip(response.getBody()), is(equalTo(LARGE)));
+    }
+  }
+
+  private static String gunzip(byte[] body) throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+
+  private static String page(int lines) {
+    final StringBuilder page = new StringBuilder("<html><body>");
+    for (int i = 0; i < lines; i++) {
+      page.append("<p>ñandú ").append(i % 10).append("</p>");
+    }
+    return page.append("</body></html>").toString();
+  }
+
+  private static String get(String uuid, String... headers) {
+    final StringBuilder request = new StringBuilder("GET /html?uuid=").append(uuid)
+      .append(" HTTP/1.1\r\nHost: localhost\r\n");
+    for (String header : headers) {
+      request.append(header).append("\r\n");
+    }
+    return request.append("\r\n").toString();
+  }
+}
@@ -0,0 +1,174 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.dao.StubDatabase;
+import es.uvigo.esei.dai.hybridserver.dao.StubDocuments;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+/**
+ * Transformaciones XSLT enviadas en flujo: el resultado se escribe en la
+ * conexión a medida que se genera, también cuando el XML supera el umbral a
+ * partir del cual se lee de la base de datos por tramos.
+ */
+@Timeout(5L)
+public class StreamedTransformTest {
+  private static final String XML_UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+  private static final String LARGE_XML_UUID = "79e01232-5ea4-41c8-9331-1c1880a1d3c2";
+  private static final String INVALID_XML_UUID = "a35b6c5e-22d6-4707-98b4-462482e26c2e";
+  private static final String XSD_UUID = "ddcab7d0-636c-4ed8-8a2a-0ce7c1b6d7ab";
+  private static final String XSLT_UUID = "5da4a5ae-0d8e-4b1f-8a83-0f0e68cd4a54";
+  private static final int LARGE_ITEMS = 5000;
+
+  private static final String XSD = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<xs:schema xmlns:xs=\"http://www.w3.org/2001/XMLSchema\">"
+    + "<xs:element name=\"items\"><xs:complexType><xs:sequence>"
+    + "<xs:element name=\"item\" type=\"xs:int\" maxOccurs=\"unbounded\"/>"
+    + "</xs:sequence></xs:complexType></xs:element></xs:schema>";
+  private static final String XSLT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+    + "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+    + "<xsl:output method=\"html\"/>"
+    + "<xsl:template match=\"/\"><html><body><p id=\"count\"><xsl:value-of select=\"count(items/item)\"/></p>"
+    + "<p id=\"sum\"><xsl:value-of select=\"sum(items/item)\"/></p></body></html></xsl:template>"
+    + "</xsl:stylesheet>";
+
+  private StubDatabase database;
+  private HybridServer server;
+
+  @BeforeEach
+  public void startServer() {
+    final StubDocuments documents = new StubDocuments();
+    documents.put("XML", XML_UUID, items(3));
+    documents.put("XML", LARGE_XML_UUID, items(LARGE_ITEMS));
+    documents.put("XML", INVALID_XML_UUID, "<items><item>uno</item></items>");
+    documents.put("XSD", XSD_UUID, XSD);
+    documents.put("XSL", XSLT_UUID, XSLT, XSD_UUID);
+    this.database = new StubDatabase(documents);
+
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("keepAlive", "true");
+    properties.setProperty("streaming.threshold", "1024");
+    properties.setProperty("db.url", database.getUrl());
+    properties.setProperty("db.user", "hsdb");
+    properties.setProperty("db.password", "hsdbpass");
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.server.close();
+    this.database.close();
+  }
+
+  @Test
+  public void testTransformationIsStreamed() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(XML_UUID, XSLT_UUID));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getHeader("Content-Type"), is(equalTo("text/html")));
+      assertThat(response.getHeader("Transfer-Encoding"), is(equalTo("chunked")));
+      assertThat(response.getHeader("Content-Length"), is(nullValue()));
+      assertThat(response.getContent(), containsString("<p id=\"count\">3</p>"));
+      assertThat(response.getContent(), containsString("<p id=\"sum\">6</p>"));
+    }
+  }
+
+  @Test
+  public void testLargeDocumentIsReadInChunks() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(LARGE_XML_UUID, XSLT_UUID));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(200)));
+      assertThat(response.getContent(), containsString("<p id=\"count\">" + LARGE_ITEMS + "</p>"));
+      assertThat(response.getContent(),
+        containsString("<p id=\"sum\">" + (LARGE_ITEMS * (LARGE_ITEMS + 1) / 2) + "</p>"));
+    }
+
+    // El contenido no viajó en la primera consulta: se leyó por tramos
+    assertThat(database.getStatements().stream()
+      .anyMatch(sql -> sql.startsWith("SELECT SUBSTRING(content, ?, ?) AS content FROM XML ")), is(true));
+  }
+
+  @Test
+  public void testCompiledStylesheetIsReused() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(XML_UUID, XSLT_UUID));
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+      connection.send(get(LARGE_XML_UUID, XSLT_UUID));
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+    }
+
+    assertThat(database.getStatements().stream()
+      .filter(sql -> sql.startsWith("SELECT LENGTH(content) AS size, NULL AS hash, ") && sql.contains(" FROM XSL "))
+      .count(), is(equalTo(1L)));
+  }
+
+  @Test
+  public void testInvalidDocumentIsRejectedBeforeStreaming() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(INVALID_XML_UUID, XSLT_UUID));
+      final Response response = connection.readResponse();
+
+      assertThat(response.getStatus(), is(equalTo(400)));
+      assertThat(response.getHeader("Transfer-Encoding"), is(nullValue()));
+    }
+  }
+
+  @Test
+  public void testMissingStylesheet() throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get(XML_UUID, "12345678-abcd-1234-ab12-9876543210ab"));
+
+      assertThat(connection.readResponse().getStatus(), is(equalTo(404)));
+    }
+  }
+
+  private static String items(int count) {
+    final StringBuilder xml = new StringBuilder("<?xml version=\"1.0\" encoding=\"UTF-8\"?><items>");
+    for (int i = 1; i <= count; i++) {
+      xml.append("<item>").append(i).append("</item>");
+    }
+    return xml.append("</items>").toString();
+  }
+
+  private static String get(String xmlUuid, String xsltUuid) {
+    return "GET /xml?uuid=" + xmlUuid + "&xslt=" + xsltUuid + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+  }
+}
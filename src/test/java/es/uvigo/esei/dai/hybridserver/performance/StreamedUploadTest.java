@@ -0,0 +1,167 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.DocumentType;
+import es.uvigo.esei.dai.hybridserver.ETagCache;
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.dao.StubDatabase;
+import es.uvigo.esei.dai.hybridserver.dao.StubDocuments;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection.Response;
+
+/**
+ * Subidas de documentos guardadas en flujo: el cuerpo (como formulario, tal
+ * cual con su charset o por fragmentos) se pasa a la base de datos mientras
+ * se lee, y el ETag sale del hash que calcula el almacén al guardarlo.
+ */
+@Timeout(5L)
+public class StreamedUploadTest {
+  private static final Pattern UUID_PATTERN =
+    Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+  private static final int MAX_BODY_SIZE = 1024 * 1024;
+
+  private StubDocuments documents;
+  private StubDatabase database;
+  private HybridServer server;
+
+  @BeforeEach
+  public void startServer() {
+    this.documents = new StubDocuments();
+    this.database = new StubDatabase(documents);
+
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("maxBodySize", String.valueOf(MAX_BODY_SIZE));
+    properties.setProperty("db.url", database.getUrl());
+    properties.setProperty("db.user", "hsdb");
+    properties.setProperty("db.password", "hsdbpass");
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @AfterEach
+  public void stopServer() {
+    this.server.close();
+    this.database.close();
+  }
+
+  @Test
+  public void testLargeFormUpload() throws IOException {
+    final String content = page(20000);
+    final byte[] body = ("html=" + URLEncoder.encode(content, "UTF-8")).getBytes(StandardCharsets.US_ASCII);
+
+    final String uuid = upload("application/x-www-form-urlencoded", body, false);
+
+    assertThat(documents.get("HTML", uuid), is(equalTo(content)));
+    assertThat(server.getETagCache().get(DocumentType.HTML, uuid), is(equalTo(ETagCache.computeETag(content))));
+  }
+
+  @Test
+  public void testRawUploadWithCharset() throws IOException {
+    final String content = page(2000);
+    final Charset latin1 = StandardCharsets.ISO_8859_1;
+
+    final String uuid = upload("text/html; charset=ISO-8859-1", content.getBytes(latin1), false);
+
+    // Se guarda decodificado y el ETag es el del contenido en UTF-8
+    assertThat(documents.get("HTML", uuid), is(equalTo(content)));
+    assertThat(server.getETagCache().get(DocumentType.HTML, uuid), is(equalTo(ETagCache.computeETag(content))));
+  }
+
+  @Test
+  public void testChunkedUpload() throws IOException {
+    final String content = page(5000);
+
+    final String uuid = upload("text/html; charset=UTF-8", content.getBytes(StandardCharsets.UTF_8), true);
+
+    assertThat(documents.get("HTML", uuid), is(equalTo(content)));
+  }
+
+  @Test
+  public void testUploadLargerThanLimitIsRejected() throws IOException {
+    final byte[] body = page(MAX_BODY_SIZE / 10).getBytes(StandardCharsets.UTF_8);
+
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(request("text/html; charset=UTF-8", body, true));
+
+      assertThat(connection.readResponse().getStatus(), is(equalTo(413)));
+    }
+    assertThat(documents.size("HTML"), is(equalTo(0)));
+  }
+
+  private String upload(String contentType, byte[] body, boolean chunked) throws IOException {
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(request(contentType, body, chunked));
+      final Response response = connection.readResponse();
+      assertThat(response.getStatus(), is(equalTo(200)));
+
+      final Matcher matcher = UUID_PATTERN.matcher(response.getContent());
+      assertThat(matcher.find(), is(true));
+      return matcher.group();
+    }
+  }
+
+  private static byte[] request(String contentType, byte[] body, boolean chunked) throws IOException {
+    final ByteArrayOutputStream request = new ByteArrayOutputStream();
+    request.write(("POST /html HTTP/1.1\r\nHost: localhost\r\nContent-Type: " + contentType + "\r\n"
+      + (chunked ? "Transfer-Encoding: chunked" : "Content-Length: " + body.length) + "\r\n\r\n")
+      .getBytes(StandardCharsets.US_ASCII));
+
+    if (chunked) {
+      for (int offset = 0; offset < body.length; offset += 8192) {
+        final int length = Math.min(8192, body.length - offset);
+        request.write((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        request.write(body, offset, length);
+        request.write("\r\n".getBytes(StandardCharsets.US_ASCII));
+      }
+      request.write("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+    } else {
+      request.write(body);
+    }
+    return request.toByteArray();
+  }
+
+  // Documento de unas 10 * lines bytes, con caracteres fuera de ASCII
+  private static String page(int lines) {
+    final StringBuilder page = new StringBuilder("<html><body>");
+    for (int i = 0; i < lines; i++) {
+      page.append("<p>ñandú ").append(i % 10).append("</p>");
+    }
+    return page.append("</body></html>").toString();
+  }
+}
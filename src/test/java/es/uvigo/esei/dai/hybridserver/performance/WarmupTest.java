@@ -0,0 +1,154 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.performance;
+
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.row;
+import static es.uvigo.esei.dai.hybridserver.dao.StubDatabase.rows;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import es.uvigo.esei.dai.hybridserver.DocumentType;
+import es.uvigo.esei.dai.hybridserver.ETagCache;
+import es.uvigo.esei.dai.hybridserver.HotDocuments;
+import es.uvigo.esei.dai.hybridserver.HybridServer;
+import es.uvigo.esei.dai.hybridserver.dao.StubDatabase;
+import es.uvigo.esei.dai.hybridserver.utils.RawHttpConnection;
+
+/**
+ * Arranque del servidor: el puerto se abre antes de comprobar la base de
+ * datos, el servidor no está listo hasta que responde y los documentos más
+ * solicitados se guardan al cerrar y se precargan en el siguiente arranque.
+ */
+@Timeout(5L)
+public class WarmupTest {
+  private static final String UUID = "6df1047e-cf19-4a83-8cf3-38f5e53f7725";
+  private static final String CONTENT = "<html><body>Documento precargado</body></html>";
+
+  private volatile boolean databaseDown;
+  private StubDatabase database;
+  private Path warmupFile;
+  private HybridServer server;
+
+  @BeforeEach
+  public void setUp() throws IOException {
+    this.database = new StubDatabase((sql, params) -> {
+      if (databaseDown) {
+        throw new SQLException("Communications link failure", "08S01");
+      }
+      if (sql.startsWith("SELECT LENGTH(content) AS size, NULL AS hash") && sql.contains(" FROM HTML ")
+        && params.contains(UUID)) {
+        return rows(row("size", (long) CONTENT.length(), "hash", null, "content", CONTENT));
+      }
+      return rows();
+    });
+    this.warmupFile = Files.createTempFile("hybridserver-warmup", ".txt");
+  }
+
+  @AfterEach
+  public void tearDown() throws IOException {
+    if (this.server != null && this.server.isLive()) {
+      this.server.close();
+    }
+    this.database.close();
+    Files.deleteIfExists(this.warmupFile);
+  }
+
+  private void startServer() {
+    final Properties properties = new Properties();
+    properties.setProperty("port", "8888");
+    properties.setProperty("keepAlive", "true");
+    properties.setProperty("db.url", database.getUrl());
+    properties.setProperty("db.user", "hsdb");
+    properties.setProperty("db.password", "hsdbpass");
+    properties.setProperty("warmup.file", warmupFile.toString());
+
+    this.server = new HybridServer(properties);
+    this.server.start();
+  }
+
+  @Test
+  public void testPortIsOpenBeforeDatabaseResponds() throws Exception {
+    databaseDown = true;
+    startServer();
+
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get("/admin/live"));
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+
+      connection.send(get("/admin/ready"));
+      assertThat(connection.readResponse().getStatus(), is(equalTo(503)));
+      assertThat(server.isReady(), is(false));
+
+      // La comprobación se reintenta hasta que la base de datos responde
+      databaseDown = false;
+      awaitReady();
+
+      connection.send(get("/admin/ready"));
+      assertThat(connection.readResponse().getStatus(), is(equalTo(200)));
+    }
+  }
+
+  @Test
+  public void testHotDocumentsArePreloaded() throws Exception {
+    Files.write(warmupFile, Arrays.asList("html " + UUID), StandardCharsets.UTF_8);
+    startServer();
+    awaitReady();
+
+    // El primer GET ya encuentra el ETag calculado
+    assertThat(server.getETagCache().get(DocumentType.HTML, UUID), is(equalTo(ETagCache.computeETag(CONTENT))));
+  }
+
+  @Test
+  public void testHotDocumentsAreSavedOnClose() throws Exception {
+    startServer();
+    awaitReady();
+
+    try (RawHttpConnection connection = new RawHttpConnection(server.getPort())) {
+      connection.send(get("/html?uuid=" + UUID));
+      assertThat(connection.readResponse().getContent(), is(equalTo(CONTENT)));
+    }
+    server.close();
+
+    assertThat(HotDocuments.load(warmupFile), hasItem(new HotDocuments.Entry(DocumentType.HTML, UUID)));
+  }
+
+  private void awaitReady() throws InterruptedException {
+    while (!server.isReady()) {
+      Thread.sleep(10);
+    }
+  }
+
+  private static String get(String resource) {
+    return "GET " + resource + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+  }
+}
@@ -0,0 +1,194 @@
+/**
+ *  HybridServer
+ *  Copyright (C) 2025 Miguel Reboiro-Jato
+ *  
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *  
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *  
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package es.uvigo.esei.dai.hybridserver.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Conexión HTTP en bruto con el servidor, para las pruebas que necesitan
+ * controlar lo que viaja por el socket: varias peticiones por conexión,
+ * peticiones encadenadas sin esperar las respuestas, cuerpos
+ * <i>chunked</i>, etc.
+ */
+public class RawHttpConnection implements AutoCloseable {
+  private final Socket socket;
+  private final InputStream input;
+  private final OutputStream output;
+
+  public RawHttpConnection(int port) throws IOException {
+    this.socket = new Socket("localhost", port);
+    this.socket.setSoTimeout(4000);
+    this.input = socket.getInputStream();
+    this.output = socket.getOutputStream();
+  }
+
+  /**
+   * Envía texto tal cual (en ISO-8859-1, un byte por carácter).
+   */
+  public void send(String request) throws IOException {
+    send(request.getBytes(StandardCharsets.ISO_8859_1));
+  }
+
+  public void send(byte[] request) throws IOException {
+    output.write(request);
+    output.flush();
+  }
+
+  /**
+   * Lee una respuesta completa. El cuerpo se delimita con Content-Length o
+   * con la codificación <i>chunked</i>; las respuestas a HEAD y las 304 no
+   * llevan cuerpo.
+   *
+   * @param head si la respuesta es a una petición HEAD.
+   * @return la respuesta leída o {@code null} si el servidor ha cerrado la
+   * conexión sin enviar nada.
+   */
+  public Response readResponse(boolean head) throws IOException {
+    final String statusLine = readLine();
+    if (statusLine == null) {
+      return null;
+    }
+
+    final Map<String, String> headers = new LinkedHashMap<>();
+    String line;
+    while ((line = readLine()) != null && !line.isEmpty()) {
+      final int colon = line.indexOf(':');
+      headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+    }
+
+    final int status = Integer.parseInt(statusLine.split(" ")[1]);
+    final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    if (!head && status != 304 && status != 204) {
+      if ("chunked".equalsIgnoreCase(headers.get("transfer-encoding"))) {
+        readChunks(body);
+      } else if (headers.containsKey("content-length")) {
+        readFully(body, Integer.parseInt(headers.get("content-length")));
+      } else {
+        readToEnd(body);
+      }
+    }
+
+    return new Response(status, headers, body.toByteArray());
+  }
+
+  public Response readResponse() throws IOException {
+    return readResponse(false);
+  }
+
+  /**
+   * @return si el servidor ha cerrado la conexión (no queda nada por leer).
+   */
+  public boolean isClosedByServer() throws IOException {
+    return input.read() == -1;
+  }
+
+  private void readChunks(ByteArrayOutputStream body) throws IOException {
+    while (true) {
+      final String size = readLine();
+      final int length = Integer.parseInt(size.split(";")[0].trim(), 16);
+      if (length == 0) {
+        // Se descartan las cabeceras finales, si las hay, hasta la línea vacía
+        String line = readLine();
+        while (line != null && !line.isEmpty()) {
+          line = readLine();
+        }
+        return;
+      }
+      readFully(body, length);
+      readLine();
+    }
+  }
+
+  private void readFully(ByteArrayOutputStream body, int length) throws IOException {
+    final byte[] buffer = new byte[length];
+    int total = 0;
+    while (total < length) {
+      final int read = input.read(buffer, total, length - total);
+      if (read == -1) {
+        throw new IOException("Conexión cerrada a mitad del cuerpo");
+      }
+      total += read;
+    }
+    body.write(buffer);
+  }
+
+  private void readToEnd(ByteArrayOutputStream body) throws IOException {
+    final byte[] buffer = new byte[4096];
+    int read;
+    while ((read = input.read(buffer)) != -1) {
+      body.write(buffer, 0, read);
+    }
+  }
+
+  private String readLine() throws IOException {
+    final StringBuilder line = new StringBuilder();
+    int c;
+    while ((c = input.read()) != -1) {
+      if (c == '\n') {
+        final int length = line.length();
+        return length > 0 && line.charAt(length - 1) == '\r' ? line.substring(0, length - 1) : line.toString();
+      }
+      line.append((char) c);
+    }
+    return line.length() == 0 ? null : line.toString();
+  }
+
+  @Override
+  public void close() throws IOException {
+    socket.close();
+  }
+
+  public static class Response {
+    private final int status;
+    private final Map<String, String> headers;
+    private final byte[] body;
+
+    private Response(int status, Map<String, String> headers, byte[] body) {
+      this.status = status;
+      this.headers = headers;
+      this.body = body;
+    }
+
+    public int getStatus() {
+      return status;
+    }
+
+    /**
+     * @param name nombre de la cabecera, sin distinguir mayúsculas.
+     * @return valor de la cabecera o {@code null} si no está.
+     */
+    public String getHeader(String name) {
+      return headers.get(name.toLowerCase());
+    }
+
+    public byte[] getBody() {
+      return body;
+    }
+
+    public String getContent() {
+      return new String(body, StandardCharsets.UTF_8);
+    }
+  }
+}